@@ -0,0 +1,108 @@
+package com.example.systemlogger;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * 电池数据源: 电池温度和电量(ACTION_BATTERY_CHANGED广播)、电流(BatteryManager)
+ *
+ * 电池温度是Android 15上普通应用唯一可读的真实温度。
+ * 广播接收器在open()时注册一次(返回的粘性Intent作为初始值)，
+ * 之后系统每次推送变化时把最新值打包进一个volatile long，
+ * 采样线程只读这个快照，不再每个tick做一次registerReceiver的binder调用。
+ * 电流没有对应的广播，仍通过BatteryManager按需读取。
+ */
+public class BatterySource implements SensorSource {
+
+    private static final long NO_SNAPSHOT = Long.MIN_VALUE;
+
+    private final Context context;
+    private BatteryManager batteryManager;
+    private BroadcastReceiver receiver;
+
+    // 高32位: 温度(0.1°C)，低32位: 电量(%)
+    private volatile long snapshot = NO_SNAPSHOT;
+
+    public BatterySource(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public String name() {
+        return "battery";
+    }
+
+    @Override
+    public int open() {
+        close();
+        batteryManager = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                update(intent);
+            }
+        };
+        Intent sticky = ContextCompat.registerReceiver(context, receiver,
+            new IntentFilter(Intent.ACTION_BATTERY_CHANGED), ContextCompat.RECEIVER_NOT_EXPORTED);
+        if (sticky != null) {
+            update(sticky);
+        }
+
+        int mask = Channel.THERMAL_BATTERY.mask() | Channel.BATTERY_LEVEL.mask();
+        if (batteryManager != null) {
+            mask |= Channel.CURRENT.mask();
+        }
+        return mask;
+    }
+
+    private void update(Intent intent) {
+        int temperature = intent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0);
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+        int percent = level >= 0 && scale > 0 ? level * 100 / scale : 0;
+        snapshot = ((long) temperature << 32) | (percent & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public int sample(float[] out, int wanted) {
+        int filled = 0;
+        long current = snapshot;
+        if (current != NO_SNAPSHOT) {
+            int temperature = (int) (current >> 32);
+            if ((wanted & Channel.THERMAL_BATTERY.mask()) != 0 && temperature > 0) {
+                // 电池温度单位是0.1摄氏度
+                out[Channel.THERMAL_BATTERY.ordinal()] = temperature / 10.0f;
+                filled |= Channel.THERMAL_BATTERY.mask();
+            }
+            if ((wanted & Channel.BATTERY_LEVEL.mask()) != 0) {
+                out[Channel.BATTERY_LEVEL.ordinal()] = (int) current;
+                filled |= Channel.BATTERY_LEVEL.mask();
+            }
+        }
+        if ((wanted & Channel.CURRENT.mask()) != 0 && batteryManager != null) {
+            out[Channel.CURRENT.ordinal()] =
+                batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CURRENT_NOW) / 1000;
+            filled |= Channel.CURRENT.mask();
+        }
+        return filled;
+    }
+
+    @Override
+    public void close() {
+        if (receiver != null) {
+            try {
+                context.unregisterReceiver(receiver);
+            } catch (IllegalArgumentException e) {
+                // 未注册
+            }
+            receiver = null;
+        }
+        batteryManager = null;
+        snapshot = NO_SNAPSHOT;
+    }
+}
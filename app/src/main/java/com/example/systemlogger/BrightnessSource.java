@@ -0,0 +1,70 @@
+package com.example.systemlogger;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+
+/**
+ * 屏幕亮度数据源(0-255，读取失败为-1)
+ *
+ * open()时读取一次并注册ContentObserver，亮度变化时才重新查询Settings，
+ * 采样线程只读volatile快照，不再每个tick做一次ContentResolver查询。
+ */
+public class BrightnessSource implements SensorSource {
+
+    private final Context context;
+    private ContentResolver resolver;
+    private ContentObserver observer;
+    private volatile int brightness = -1;
+
+    public BrightnessSource(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public String name() {
+        return "brightness";
+    }
+
+    @Override
+    public int open() {
+        close();
+        resolver = context.getContentResolver();
+        observer = new ContentObserver(new Handler(Looper.getMainLooper())) {
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                refresh();
+            }
+        };
+        resolver.registerContentObserver(
+            Settings.System.getUriFor(Settings.System.SCREEN_BRIGHTNESS), false, observer);
+        refresh();
+        return Channel.BRIGHTNESS.mask();
+    }
+
+    private void refresh() {
+        ContentResolver r = resolver;
+        if (r != null) {
+            brightness = Settings.System.getInt(r, Settings.System.SCREEN_BRIGHTNESS, -1);
+        }
+    }
+
+    @Override
+    public int sample(float[] out, int wanted) {
+        out[Channel.BRIGHTNESS.ordinal()] = brightness;
+        return Channel.BRIGHTNESS.mask();
+    }
+
+    @Override
+    public void close() {
+        if (resolver != null && observer != null) {
+            resolver.unregisterContentObserver(observer);
+        }
+        observer = null;
+        resolver = null;
+    }
+}
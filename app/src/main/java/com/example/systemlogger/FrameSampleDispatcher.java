@@ -0,0 +1,123 @@
+package com.example.systemlogger;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 把样本历史按显示帧合并后交给UI
+ *
+ * 采样线程每发布一个样本调用{@link #requestFrame()}，同一帧内的多次请求只登记一次
+ * Choreographer回调；doFrame时从环形缓冲区读出上一帧以来的新样本，作为一个批次回调一次。
+ * 主线程忙时样本留在环形缓冲区里，不会在主线程消息队列中排队，中间的重绘被合并掉；
+ * 积压超过一个批次时分多帧追赶，样本本身不丢失(除非落后超过环形缓冲区容量)。
+ */
+public class FrameSampleDispatcher implements Choreographer.FrameCallback {
+
+    /**
+     * 样本批次回调(在主线程调用，每帧最多一次)
+     * 批次对象会被复用，回调返回后不得再持有
+     */
+    public interface SampleBatchListener {
+        void onSamples(SampleBatch batch);
+    }
+
+    private static final int DEFAULT_BATCH_CAPACITY = 4096;
+
+    private final Supplier<SampleRingBuffer> source;
+    private final SampleBatch batch;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean frameRequested = new AtomicBoolean();
+    private final Runnable postFrame = () -> Choreographer.getInstance().postFrameCallback(this);
+    private volatile SampleBatchListener listener;
+    // 可选的度量: 每次回调的耗时和UI落后丢失的样本数
+    private volatile LatencyHistogram dispatchLatency;
+    private volatile AtomicLong droppedCounter;
+
+    // 以下字段只在主线程访问
+    private SampleRingBuffer ring;
+    private SampleRingBuffer.Cursor cursor;
+    private long reportedDropped;
+
+    public FrameSampleDispatcher(Supplier<SampleRingBuffer> source) {
+        this(source, DEFAULT_BATCH_CAPACITY);
+    }
+
+    public FrameSampleDispatcher(Supplier<SampleRingBuffer> source, int batchCapacity) {
+        this.source = source;
+        this.batch = new SampleBatch(batchCapacity);
+    }
+
+    /**
+     * 登记回调耗时直方图("ui.dispatch")和丢失样本计数器("dropped.ui")
+     */
+    public void setInstrumentation(Instrumentation instrumentation) {
+        dispatchLatency = instrumentation.histogram("ui.dispatch");
+        droppedCounter = instrumentation.counter("dropped.ui");
+    }
+
+    /**
+     * 设置监听器(主线程调用)，新监听器先从环形缓冲区中最旧的样本开始收到全部历史
+     */
+    public void setListener(SampleBatchListener listener) {
+        this.listener = listener;
+        ring = null;
+        cursor = null;
+        if (listener != null) {
+            requestFrame();
+        }
+    }
+
+    /**
+     * 有新样本时调用，可在任意线程调用，不分配对象
+     */
+    public void requestFrame() {
+        if (listener != null && frameRequested.compareAndSet(false, true)) {
+            mainHandler.post(postFrame);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameRequested.set(false);
+        SampleBatchListener l = listener;
+        SampleRingBuffer current = source.get();
+        if (l == null || current == null) {
+            return;
+        }
+        if (current != ring) {
+            ring = current;
+            cursor = current.newCursorFromOldest();
+            reportedDropped = 0;
+        }
+        if (ring.read(cursor, batch) > 0) {
+            LatencyHistogram latency = dispatchLatency;
+            long start = latency != null ? System.nanoTime() : 0;
+            l.onSamples(batch);
+            if (latency != null) {
+                latency.record(System.nanoTime() - start);
+            }
+        }
+        AtomicLong dropped = droppedCounter;
+        if (dropped != null && cursor.dropped() != reportedDropped) {
+            dropped.addAndGet(cursor.dropped() - reportedDropped);
+            reportedDropped = cursor.dropped();
+        }
+        if (cursor.position() < ring.published()) {
+            // 还有积压，下一帧继续
+            requestFrame();
+        }
+    }
+
+    /**
+     * 落后超过环形缓冲区容量而丢失的样本数
+     */
+    public long dropped() {
+        SampleRingBuffer.Cursor c = cursor;
+        return c != null ? c.dropped() : 0;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.systemlogger;
+
+import android.content.Context;
+import android.os.HardwarePropertiesManager;
+
+/**
+ * 通过HardwarePropertiesManager读取温度
+ *
+ * 需要DEVICE_POWER权限(系统签名)，普通应用在open()试读时
+ * 就会收到SecurityException，之后不再参与采样。
+ */
+public class HardwarePropertiesSource implements SensorSource {
+
+    private static final Channel[] CHANNELS = {
+        Channel.THERMAL_CPU, Channel.THERMAL_GPU, Channel.THERMAL_BATTERY, Channel.THERMAL_SKIN
+    };
+    private static final int[] DEVICE_TYPES = {
+        HardwarePropertiesManager.DEVICE_TEMPERATURE_CPU,
+        HardwarePropertiesManager.DEVICE_TEMPERATURE_GPU,
+        HardwarePropertiesManager.DEVICE_TEMPERATURE_BATTERY,
+        HardwarePropertiesManager.DEVICE_TEMPERATURE_SKIN
+    };
+
+    private final Context context;
+    private HardwarePropertiesManager manager;
+
+    public HardwarePropertiesSource(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public String name() {
+        return "hardware-properties";
+    }
+
+    @Override
+    public int open() {
+        try {
+            manager = (HardwarePropertiesManager) context.getSystemService(Context.HARDWARE_PROPERTIES_SERVICE);
+            if (manager == null) {
+                return 0;
+            }
+            int mask = 0;
+            for (int i = 0; i < CHANNELS.length; i++) {
+                float[] temps = manager.getDeviceTemperatures(DEVICE_TYPES[i],
+                    HardwarePropertiesManager.TEMPERATURE_CURRENT);
+                if (temps.length > 0) {
+                    mask |= CHANNELS[i].mask();
+                }
+            }
+            return mask;
+        } catch (Exception e) {
+            // 需DEVICE_POWER权限，普通应用必然失败
+            return 0;
+        }
+    }
+
+    @Override
+    public int sample(float[] out, int wanted) {
+        int filled = 0;
+        for (int i = 0; i < CHANNELS.length; i++) {
+            Channel channel = CHANNELS[i];
+            if ((wanted & channel.mask()) == 0) {
+                continue;
+            }
+            float[] temps = manager.getDeviceTemperatures(DEVICE_TYPES[i],
+                HardwarePropertiesManager.TEMPERATURE_CURRENT);
+            if (temps.length > 0 && temps[0] > 0) {
+                out[channel.ordinal()] = temps[0];
+                filled |= channel.mask();
+            }
+        }
+        return filled;
+    }
+
+    @Override
+    public void close() {
+        manager = null;
+    }
+}
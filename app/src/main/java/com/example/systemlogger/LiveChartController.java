@@ -0,0 +1,137 @@
+package com.example.systemlogger;
+
+import android.content.res.Resources;
+
+import com.github.mikephil.charting.charts.LineChart;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 实时温度曲线
+ *
+ * 数据集在构造时创建一次并按通道保存引用，不再每次按标签查找；
+ * 每个批次只通知图表一次并重绘一次。X坐标为距图表第一个样本的秒数(按单调时钟)，
+ * 降采样时按毫秒整数计算，长会话和不等间隔的采样(自适应、稀疏通道)都按真实时间排列。
+ *
+ * 样本先进入{@link MinMaxDecimator}，图表始终显示整个会话，
+ * 每条曲线最多POINT_BUDGET个点(每桶保留最小/最大值，尖峰不会被抹平)，
+ * 渲染开销与会话时长无关。Entry对象预分配后反复复用。
+ * 只能在主线程使用。
+ */
+public class LiveChartController {
+
+    private static final int POINT_BUDGET = 512; // 每条曲线最多显示的点数
+
+    static final Channel[] CHANNELS = {
+        Channel.THERMAL_CPU, Channel.THERMAL_GPU, Channel.THERMAL_BATTERY, Channel.THERMAL_SKIN
+    };
+    static final String[] LABELS = { "CPU温度", "GPU温度", "电池温度", "外壳温度" };
+    static final int[] COLORS = {
+        android.R.color.holo_red_light, android.R.color.holo_blue_light,
+        android.R.color.holo_green_light, android.R.color.holo_orange_light
+    };
+
+    private final LineChart chart;
+    private final LineData lineData = new LineData();
+    private final LineDataSet[] dataSets = new LineDataSet[CHANNELS.length];
+    private final Entry[][] entries = new Entry[CHANNELS.length][];
+    private final MinMaxDecimator decimator = new MinMaxDecimator(CHANNELS.length, POINT_BUDGET);
+    private final long[] xs = new long[decimator.pointBudget()];
+    private final float[] ys = new float[decimator.pointBudget()];
+    private long lastSequence = -1;
+    // 图表第一个样本的单调时钟时间(纳秒)，X坐标以此为0
+    private long originNanos;
+
+    public LiveChartController(LineChart chart, Resources resources) {
+        this.chart = chart;
+        for (int i = 0; i < CHANNELS.length; i++) {
+            dataSets[i] = createDataSet(resources, LABELS[i], COLORS[i]);
+            entries[i] = new Entry[decimator.pointBudget()];
+            lineData.addDataSet(dataSets[i]);
+        }
+        chart.setData(lineData);
+    }
+
+    /**
+     * 追加一个批次的样本(只画样本中实际采到的通道)
+     */
+    public void append(SampleBatch batch) {
+        int size = batch.size();
+        if (size == 0) {
+            return;
+        }
+        long first = batch.firstSequence();
+        if (first <= lastSequence) {
+            // 新的采样会话，序号重新从0开始
+            clear();
+        }
+        if (lastSequence < 0) {
+            originNanos = batch.elapsedNanos(0);
+        }
+        for (int i = 0; i < size; i++) {
+            long x = Math.max(0, batch.elapsedNanos(i) - originNanos) / 1_000_000L;
+            for (int c = 0; c < CHANNELS.length; c++) {
+                if (batch.has(i, CHANNELS[c])) {
+                    decimator.add(x, c, batch.get(i, CHANNELS[c]));
+                }
+            }
+        }
+        lastSequence = first + size - 1;
+
+        for (int c = 0; c < CHANNELS.length; c++) {
+            render(c);
+        }
+        lineData.notifyDataChanged();
+        chart.notifyDataSetChanged();
+        chart.invalidate();
+    }
+
+    public void clear() {
+        for (LineDataSet dataSet : dataSets) {
+            dataSet.clear();
+        }
+        decimator.clear();
+        lastSequence = -1;
+        lineData.notifyDataChanged();
+        chart.notifyDataSetChanged();
+        chart.invalidate();
+    }
+
+    // 用降采样结果替换数据集内容，复用预分配的Entry
+    private void render(int c) {
+        int n = decimator.render(c, xs, ys);
+        Entry[] pool = entries[c];
+        List<Entry> values = dataSets[c].getValues();
+        values.clear();
+        for (int i = 0; i < n; i++) {
+            Entry entry = pool[i];
+            if (entry == null) {
+                entry = pool[i] = new Entry();
+            }
+            entry.setX(xs[i] / 1000f);
+            entry.setY(ys[i]);
+            values.add(entry);
+        }
+        dataSets[c].notifyDataSetChanged();
+    }
+
+    // 创建数据集(历史会话查看器共用)
+    static LineDataSet createDataSet(Resources resources, String label, int colorResId) {
+        LineDataSet dataSet = new LineDataSet(new ArrayList<>(), label);
+        dataSet.setColor(resources.getColor(colorResId, null));
+        dataSet.setCircleColor(resources.getColor(colorResId, null));
+        dataSet.setLineWidth(2f);
+        dataSet.setDrawCircles(false); // 整个会话的点很密，不画圆点
+        dataSet.setDrawCircleHole(false);
+        dataSet.setValueTextSize(9f);
+        dataSet.setDrawFilled(false);
+        // min/max点之间用直线连接，贝塞尔曲线会在尖峰处过冲
+        dataSet.setMode(LineDataSet.Mode.LINEAR);
+        dataSet.setDrawValues(false); // 不显示具体数值，避免拥挤
+        return dataSet;
+    }
+}
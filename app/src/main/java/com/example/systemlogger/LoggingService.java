@@ -7,65 +7,163 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.ServiceInfo;
-import android.os.BatteryManager;
 import android.os.Build;
 import android.os.Environment;
-import android.os.HardwarePropertiesManager;
 import android.os.IBinder;
-import android.os.PowerManager;
-import android.provider.Settings;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
-import androidx.core.content.FileProvider;
-
-// 恢复图表功能
-import com.github.mikephil.charting.charts.LineChart;
-import com.github.mikephil.charting.data.Entry;
-import com.github.mikephil.charting.data.LineData;
-import com.github.mikephil.charting.data.LineDataSet;
+import androidx.core.content.ContextCompat;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 前台服务: 把启动参数转换为{@link SessionRecorder.Options}，提供Android数据源、
+ * 执行器和会话目录，采样、写入和汇总都在{@link SessionRecorder}(core模块)中完成
+ */
 public class LoggingService extends Service {
 
     private static final String TAG = "LoggingService";
     private static final String CHANNEL_ID = "SystemLoggerService";
     private static final int NOTIFICATION_ID = 1;
 
-    private ScheduledExecutorService scheduler;
-    private File outputFile;
-    private int intervalSeconds = 1;
+    // 启动参数: 为true时每批记录提交后执行fsync
+    public static final String EXTRA_FSYNC_PER_BATCH = "com.example.systemlogger.FSYNC_PER_BATCH";
+    // 启动参数: 会话文件格式(SessionFormat名称)，默认CSV
+    public static final String EXTRA_SESSION_FORMAT = "com.example.systemlogger.SESSION_FORMAT";
+    // 启动参数: CSV会话在时间戳之后写入单调时钟列(纳秒)，默认不写，与旧版CSV布局一致
+    public static final String EXTRA_CSV_ELAPSED_COLUMN = "com.example.systemlogger.CSV_ELAPSED_COLUMN";
+
+    // 启动参数: 内存中保留的最近样本数，默认4小时的1Hz数据
+    public static final String EXTRA_HISTORY_CAPACITY = "com.example.systemlogger.HISTORY_CAPACITY";
+    private static final int DEFAULT_HISTORY_CAPACITY = 4 * 3600;
+
+    // 启动参数: 采样周期(毫秒)，默认1000
+    public static final String EXTRA_PERIOD_MS = "com.example.systemlogger.PERIOD_MS";
+    // 启动参数: 自适应采样，信号变化快时提高到最短周期，平稳时逐步退到最长周期
+    public static final String EXTRA_ADAPTIVE = "com.example.systemlogger.ADAPTIVE";
+    public static final String EXTRA_ADAPTIVE_MIN_MS = "com.example.systemlogger.ADAPTIVE_MIN_MS";
+    public static final String EXTRA_ADAPTIVE_MAX_MS = "com.example.systemlogger.ADAPTIVE_MAX_MS";
+    private static final int DEFAULT_PERIOD_MS = 1000;
+    private static final int DEFAULT_ADAPTIVE_MIN_MS = 100;
+    private static final int DEFAULT_ADAPTIVE_MAX_MS = 10_000;
+    // 启动参数: 各通道独立的采样周期，例如"CURRENT=100,BATTERY_LEVEL=60000"；
+    // 未指定的通道使用默认值(电量和亮度每分钟一次)，0表示跟随采样周期(自适应模式下为当前的自适应周期)
+    public static final String EXTRA_CHANNEL_PERIODS = "com.example.systemlogger.CHANNEL_PERIODS";
+
+    // 启动参数: 分段上限(MB / 分钟)，任一达到时切换到新分段，0表示不限制
+    public static final String EXTRA_SEGMENT_MAX_MB = "com.example.systemlogger.SEGMENT_MAX_MB";
+    public static final String EXTRA_SEGMENT_MAX_MINUTES = "com.example.systemlogger.SEGMENT_MAX_MINUTES";
+    private static final int DEFAULT_SEGMENT_MAX_MB = 64;
+    private static final int DEFAULT_SEGMENT_MAX_MINUTES = 24 * 60;
+
+    // 启动参数: 保留策略(会话文件总MB / 保留天数)，超出时删除最旧的分段，0表示不限制
+    public static final String EXTRA_RETENTION_MAX_MB = "com.example.systemlogger.RETENTION_MAX_MB";
+    public static final String EXTRA_RETENTION_MAX_DAYS = "com.example.systemlogger.RETENTION_MAX_DAYS";
+    private static final int DEFAULT_RETENTION_MAX_MB = 1024;
+    private static final int DEFAULT_RETENTION_MAX_DAYS = 0;
+
+    // 启动参数和勾选的通道保存在这里: START_STICKY重启时intent为null，按上一次的设置继续记录
+    private static final String PREFS_NAME = "logging_service";
+    private static final String PREF_SAMPLE_CPU = "sample_cpu";
+    private static final String PREF_SAMPLE_GPU = "sample_gpu";
+    private static final String PREF_SAMPLE_BATTERY = "sample_battery";
+    private static final String PREF_SAMPLE_SKIN = "sample_skin";
+    private static final String[] INT_EXTRAS = {
+        EXTRA_HISTORY_CAPACITY, EXTRA_PERIOD_MS, EXTRA_ADAPTIVE_MIN_MS, EXTRA_ADAPTIVE_MAX_MS,
+        EXTRA_SEGMENT_MAX_MB, EXTRA_SEGMENT_MAX_MINUTES, EXTRA_RETENTION_MAX_MB, EXTRA_RETENTION_MAX_DAYS
+    };
+    private static final String[] BOOLEAN_EXTRAS = { EXTRA_FSYNC_PER_BATCH, EXTRA_ADAPTIVE, EXTRA_CSV_ELAPSED_COLUMN };
+    private static final String[] STRING_EXTRAS = { EXTRA_SESSION_FORMAT, EXTRA_CHANNEL_PERIODS };
+
+    // 并行探测: 线程数和单次采样等待探测的上限(不超过采样周期)
+    private static final int PROBE_THREADS = 3;
+    private static final long PROBE_TIMEOUT_MS = 200;
+
+    // 尚未开始采样时界面看到的空统计
+    private static final SamplingStats IDLE_STATS = new SamplingStats();
+
+    private ExecutorService exportExecutor;
+    private SessionExporter exporter;
+    // 分段压缩和清理在低优先级后台线程执行
+    private ExecutorService archiveExecutor;
+    // 数据源并行探测，慢的binder调用不再拖住整个采样
+    private ExecutorService probeExecutor;
+    // 采样流水线(onStartCommand创建，主线程和界面回调读取)
+    private volatile SessionRecorder recorder;
+    // 记录器自身开销的度量(流水线和界面回调共用，服务创建时就可查看)
+    private final Instrumentation instrumentation = new Instrumentation();
     private boolean isRunning = false;
 
     private boolean sampleCPU = true, sampleGPU = true, sampleBattery = true, sampleSkin = true;
 
-    private DataUpdateListener dataUpdateListener;
-    
-    // 图表数据存储
-    private int dataPointCounter = 0;
-    private static final int MAX_DATA_POINTS = 50; // 最多显示50个数据点
-    
-    // 温度读取状态追踪
-    private boolean hasLoggedTempSource = false;
+    // UI回调: 按显示帧合并样本批次
+    private FrameSampleDispatcher uiDispatcher;
+    private volatile ProbeStateListener probeStateListener;
+
+    /**
+     * 设置样本批次监听器(主线程调用)，回调在主线程执行，每帧最多一次
+     */
+    public void setSampleBatchListener(FrameSampleDispatcher.SampleBatchListener listener) {
+        uiDispatcher.setListener(listener);
+        Log.d(TAG, "Sample batch listener " + (listener != null ? "set" : "cleared"));
+    }
+
+    /**
+     * 数据源健康状态变化回调(在采样线程调用)，参数为全部数据源的状态摘要
+     */
+    public interface ProbeStateListener {
+        void onProbeStatesChanged(String summary);
+    }
 
-    public interface DataUpdateListener {
-        void onDataUpdated(String data);
+    public void setProbeStateListener(ProbeStateListener listener) {
+        this.probeStateListener = listener;
     }
 
-    public void setDataUpdateListener(DataUpdateListener listener) {
-        this.dataUpdateListener = listener;
-        Log.d(TAG, "Data update listener set");
+    /**
+     * 当前各数据源健康状态摘要(healthy / degraded / disabled)
+     */
+    public String getProbeStates() {
+        SessionRecorder current = recorder;
+        return current != null ? current.getProbeStates() : "";
+    }
+
+    /**
+     * 最近样本的环形缓冲区，服务尚未开始采样时返回null
+     * 消费方通过{@link SampleRingBuffer#newCursor()}创建自己的游标，读取不会阻塞采样线程
+     */
+    public SampleRingBuffer getHistory() {
+        SessionRecorder current = recorder;
+        return current != null ? current.getHistory() : null;
+    }
+
+    /**
+     * 按时间范围查询当前会话的汇总数据，自动选择行数不超过maxRows的最细分辨率
+     * 可在任意线程调用，旧数据从汇总文件读取时有磁盘I/O，不要在主线程调用
+     * @return 写入rows的行数，服务尚未开始记录时返回0
+     */
+    public int queryRollups(long fromMillis, long toMillis, int maxRows, RollupRows rows) throws IOException {
+        SessionRecorder current = recorder;
+        if (current == null) {
+            rows.clear();
+            return 0;
+        }
+        return current.queryRollups(fromMillis, toMillis, maxRows, rows);
     }
 
     public class LocalBinder extends android.os.Binder {
@@ -77,6 +175,16 @@ public class LoggingService extends Service {
         this.sampleGPU = gpu;
         this.sampleBattery = battery;
         this.sampleSkin = skin;
+        getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit()
+            .putBoolean(PREF_SAMPLE_CPU, cpu)
+            .putBoolean(PREF_SAMPLE_GPU, gpu)
+            .putBoolean(PREF_SAMPLE_BATTERY, battery)
+            .putBoolean(PREF_SAMPLE_SKIN, skin)
+            .apply();
+        SessionRecorder current = recorder;
+        if (current != null) {
+            current.setEnabledChannels(getEnabledChannelMask());
+        }
         Log.d(TAG, "Sampling options set: CPU=" + cpu + ", GPU=" + gpu + ", Battery=" + battery + ", Skin=" + skin);
     }
 
@@ -90,6 +198,19 @@ public class LoggingService extends Service {
     public void onCreate() {
         super.onCreate();
         createNotificationChannel();
+        
+        // 导出在独立后台线程执行，回调回到主线程
+        exportExecutor = Executors.newSingleThreadExecutor();
+        exporter = new SessionExporter(exportExecutor, ContextCompat.getMainExecutor(this));
+        archiveExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+            android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "SegmentArchiver"));
+        AtomicInteger probeThreads = new AtomicInteger();
+        probeExecutor = Executors.newFixedThreadPool(PROBE_THREADS,
+            runnable -> new Thread(runnable, "SensorProbe-" + probeThreads.incrementAndGet()));
+        uiDispatcher = new FrameSampleDispatcher(this::getHistory);
+        uiDispatcher.setInstrumentation(instrumentation);
         Log.d(TAG, "Service created");
     }
 
@@ -99,19 +220,27 @@ public class LoggingService extends Service {
         
         if (!isRunning) {
             try {
-                // Android 15前台服务启动
+                // START_STICKY重启时intent为null: 还原上一次的启动参数和通道选择，在未结束的会话上继续记录
+                boolean restarted = intent == null;
+                if (restarted) {
+                    intent = restoreStartOptions();
+                } else {
+                    saveStartOptions(intent);
+                }
+                SessionRecorder.Options options = createOptions(intent);
+                recorder = new SessionRecorder(getSessionDirectory(), options, createSensorSources(),
+                    probeExecutor, archiveExecutor, instrumentation);
+                recorder.setEnabledChannels(getEnabledChannelMask());
+                recorder.setListener(recorderListener);
+                
+                // Android 15前台服务启动(通知中显示采样设置，所以在解析参数之后)
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
                     startForeground(NOTIFICATION_ID, buildNotification(), ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
                 } else {
                     startForeground(NOTIFICATION_ID, buildNotification());
                 }
                 
-                // 重置计数器和标志
-                dataPointCounter = 0;
-                hasLoggedTempSource = false;
-                
-                setupOutputFile();
-                startDataCollection();
+                recorder.start(restarted);
                 isRunning = true;
                 
             } catch (Exception e) {
@@ -124,6 +253,135 @@ public class LoggingService extends Service {
         return START_STICKY;
     }
     
+    // 用户启动服务: 保存本次的启动参数(未指定的参数清除，重启后同样使用默认值)
+    private void saveStartOptions(Intent intent) {
+        SharedPreferences.Editor editor = getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit();
+        for (String name : INT_EXTRAS) {
+            if (intent.hasExtra(name)) {
+                editor.putInt(name, intent.getIntExtra(name, 0));
+            } else {
+                editor.remove(name);
+            }
+        }
+        for (String name : BOOLEAN_EXTRAS) {
+            if (intent.hasExtra(name)) {
+                editor.putBoolean(name, intent.getBooleanExtra(name, false));
+            } else {
+                editor.remove(name);
+            }
+        }
+        for (String name : STRING_EXTRAS) {
+            String value = intent.getStringExtra(name);
+            if (value != null) {
+                editor.putString(name, value);
+            } else {
+                editor.remove(name);
+            }
+        }
+        editor.apply();
+    }
+
+    // 进程被杀后重启: 按保存的参数重建启动Intent，并还原勾选的通道
+    private Intent restoreStartOptions() {
+        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        Intent intent = new Intent(this, LoggingService.class);
+        for (String name : INT_EXTRAS) {
+            if (prefs.contains(name)) {
+                intent.putExtra(name, prefs.getInt(name, 0));
+            }
+        }
+        for (String name : BOOLEAN_EXTRAS) {
+            if (prefs.contains(name)) {
+                intent.putExtra(name, prefs.getBoolean(name, false));
+            }
+        }
+        for (String name : STRING_EXTRAS) {
+            String value = prefs.getString(name, null);
+            if (value != null) {
+                intent.putExtra(name, value);
+            }
+        }
+        sampleCPU = prefs.getBoolean(PREF_SAMPLE_CPU, true);
+        sampleGPU = prefs.getBoolean(PREF_SAMPLE_GPU, true);
+        sampleBattery = prefs.getBoolean(PREF_SAMPLE_BATTERY, true);
+        sampleSkin = prefs.getBoolean(PREF_SAMPLE_SKIN, true);
+        Log.i(TAG, "Restored start options after restart: " + intent.getExtras());
+        return intent;
+    }
+
+    private SessionRecorder.Options createOptions(Intent intent) {
+        SessionRecorder.Options options = new SessionRecorder.Options()
+            .period(intExtra(intent, EXTRA_PERIOD_MS, DEFAULT_PERIOD_MS))
+            .historyCapacity(intExtra(intent, EXTRA_HISTORY_CAPACITY, DEFAULT_HISTORY_CAPACITY))
+            .probeTimeout(PROBE_TIMEOUT_MS)
+            .rotation(new SegmentArchiver.RotationPolicy(
+                intExtra(intent, EXTRA_SEGMENT_MAX_MB, DEFAULT_SEGMENT_MAX_MB) * 1024L * 1024L,
+                TimeUnit.MINUTES.toMillis(intExtra(intent, EXTRA_SEGMENT_MAX_MINUTES, DEFAULT_SEGMENT_MAX_MINUTES))))
+            .retention(new SegmentArchiver.RetentionPolicy(
+                intExtra(intent, EXTRA_RETENTION_MAX_MB, DEFAULT_RETENTION_MAX_MB) * 1024L * 1024L,
+                TimeUnit.DAYS.toMillis(intExtra(intent, EXTRA_RETENTION_MAX_DAYS, DEFAULT_RETENTION_MAX_DAYS))))
+            // 样本的单调时间包含设备休眠，与墙钟比较时休眠不会被误算为漂移
+            .elapsedClock(SystemClock::elapsedRealtimeNanos);
+        if (intent == null) {
+            return options;
+        }
+        if (intent.getBooleanExtra(EXTRA_FSYNC_PER_BATCH, false)) {
+            options.durability(BufferedLogWriter.Durability.FSYNC_PER_BATCH);
+        }
+        options.format(SessionFormat.parse(intent.getStringExtra(EXTRA_SESSION_FORMAT)));
+        options.csvElapsedColumn(intent.getBooleanExtra(EXTRA_CSV_ELAPSED_COLUMN, false));
+        if (intent.getBooleanExtra(EXTRA_ADAPTIVE, false)) {
+            options.adaptive(intExtra(intent, EXTRA_ADAPTIVE_MIN_MS, DEFAULT_ADAPTIVE_MIN_MS),
+                intExtra(intent, EXTRA_ADAPTIVE_MAX_MS, DEFAULT_ADAPTIVE_MAX_MS));
+        }
+        String spec = intent.getStringExtra(EXTRA_CHANNEL_PERIODS);
+        if (spec != null) {
+            for (String entry : spec.split(",")) {
+                int eq = entry.indexOf('=');
+                Channel channel = eq > 0 ? Channel.parse(entry.substring(0, eq).trim()) : null;
+                try {
+                    if (channel == null) {
+                        throw new NumberFormatException();
+                    }
+                    options.channelPeriod(channel, Long.parseLong(entry.substring(eq + 1).trim()));
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "Ignoring channel period: " + entry);
+                }
+            }
+        }
+        return options;
+    }
+
+    private static int intExtra(Intent intent, String name, int defaultValue) {
+        return intent != null ? intent.getIntExtra(name, defaultValue) : defaultValue;
+    }
+
+    private final SessionRecorder.Listener recorderListener = new SessionRecorder.Listener() {
+        @Override
+        public void onEvent(String message) {
+            Log.i(TAG, message);
+        }
+
+        @Override
+        public void onError(String message, Exception e) {
+            Log.e(TAG, message, e);
+        }
+
+        @Override
+        public void onProbeStateChanged(String name, ProbeHealth.State state, int consecutiveFailures) {
+            Log.i(TAG, "Probe " + name + " -> " + state + " (consecutive failures: " + consecutiveFailures + ")");
+            ProbeStateListener listener = probeStateListener;
+            if (listener != null) {
+                listener.onProbeStatesChanged(getProbeStates());
+            }
+        }
+
+        @Override
+        public void onSamplePublished() {
+            uiDispatcher.requestFrame();
+        }
+    };
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
@@ -141,438 +399,141 @@ public class LoggingService extends Service {
             }
         }
     }
-    
-    private void setupOutputFile() {
-        try {
-            // Android 15作用域存储适配
-            File directory;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                directory = getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS);
-                if (directory == null) {
-                    directory = getFilesDir();
-                }
-            } else {
-                directory = getExternalFilesDir(null);
-            }
-            
-            if (directory != null && !directory.exists()) {
-                directory.mkdirs();
-            }
-            
-            String fileName = "system_log_" + 
-                new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date()) + ".csv";
-            outputFile = new File(directory, fileName);
-            
-            // 写入CSV头部
-            try (FileWriter writer = new FileWriter(outputFile, false)) {
-                writer.write("Time,ThermalCPU,ThermalGPU,ThermalBattery,ThermalSkin,BatteryLevel(%),Current(mA),Brightness\n");
-            }
-            
-            Log.d(TAG, "Output file created: " + outputFile.getAbsolutePath());
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error setting up output file", e);
-        }
-    }
-    
-    private void startDataCollection() {
-        if (scheduler == null || scheduler.isShutdown()) {
-            scheduler = Executors.newSingleThreadScheduledExecutor();
-            scheduler.scheduleAtFixedRate(this::recordData, 0, intervalSeconds, TimeUnit.SECONDS);
-            Log.d(TAG, "Data collection started");
-        }
-    }
 
     /**
-     * 使用反射从ThermalService获取温度（Android 10+）
-     * 这是获取真实温度数据最可靠的方法
+     * 当前分段的采样调度统计: 计划与实际触发时间之差、间隔抖动、错过的截止时间和墙钟漂移
      */
+    public SamplingStats getSamplingStats() {
+        SessionRecorder current = recorder;
+        return current != null ? current.getSamplingStats() : IDLE_STATS;
+    }
+
     /**
-     * 获取设备温度数据
-     * 注意: 在Android 15上,普通应用只能获取电池温度,CPU/GPU/Skin温度需要系统权限
-     * 详见: TEMPERATURE_LIMITATIONS.md
+     * 按优先级构建数据源(Android 15限制):
+     * 1. ThermalManager: 尝试获取(通常失败,仅系统应用可用)
+     * 2. HardwarePropertiesManager: 尝试获取(必然失败,需DEVICE_POWER权限)
+     * 3. sysfs thermal zones: 按type映射的温区
+     * 4. Battery Intent: ✅ 获取真实电池温度(唯一可用)，以及电量/电流
+     * 5. 外壳温度由电池温度估算
+     * 6. 模拟数据: 用于CPU/GPU/Skin温度展示
      * 
-     * @return float[4] 数组: [CPU温度, GPU温度, 电池温度, 外壳温度]
+     * 详见: TEMPERATURE_LIMITATIONS.md
      */
-    private float[] getThermalTemperatures() {
-        float[] temps = new float[4]; // CPU, GPU, Battery, Skin
-        
-        // Android 15限制说明:
-        // - HardwarePropertiesManager: 需要DEVICE_POWER权限(系统签名)
-        // - ThermalManager.getCurrentTemperatures(): 需要系统权限,普通应用返回null
-        // - dumpsys thermalservice: 需要DUMP权限(系统签名)
-        // - /sys/class/thermal/*: 文件权限被拒绝
-        //
-        // 结论: 普通应用只能获取电池温度,其他温度传感器无法访问
-        // 本方法保留框架以便未来Android版本或Root设备使用
-        
+    private List<SensorSource> createSensorSources() {
+        List<SensorSource> sources = new ArrayList<>();
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            try {
-                // 尝试ThermalManager (大概率失败,但保留尝试)
-                Object thermalService = getSystemService("thermalservice");
-                if (thermalService != null) {
-                    Class<?> thermalManagerClass = thermalService.getClass();
-                    java.lang.reflect.Method tempsMethod = thermalManagerClass.getMethod("getCurrentTemperatures");
-                    Object[] temperatures = (Object[]) tempsMethod.invoke(thermalService);
-                    
-                    if (temperatures != null && temperatures.length > 0) {
-                        for (Object tempObj : temperatures) {
-                            Class<?> tempClass = tempObj.getClass();
-                            java.lang.reflect.Method getValueMethod = tempClass.getMethod("getValue");
-                            java.lang.reflect.Method getTypeMethod = tempClass.getMethod("getType");
-                            
-                            float value = (float) getValueMethod.invoke(tempObj);
-                            int type = (int) getTypeMethod.invoke(tempObj);
-                            
-                            // Type: CPU=0, GPU=1, BATTERY=2, SKIN=3
-                            if (type >= 0 && type < 4) {
-                                temps[type] = value;
-                            }
-                        }
-                        
-                        if (!hasLoggedTempSource && (temps[0] > 0 || temps[1] > 0)) {
-                            Log.i(TAG, "Using ThermalManager temperatures (system/root device)");
-                            hasLoggedTempSource = true;
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                // 静默失败,这是预期行为(普通应用无权限)
-            }
+            sources.add(new ThermalManagerSource(this));
+            sources.add(new HardwarePropertiesSource(this));
         }
-        
-        return temps;
+        sources.add(new SysfsThermalSource(new File(ThermalZones.DEFAULT_ROOT)));
+        sources.add(new BatterySource(this));
+        sources.add(new BrightnessSource(this));
+        sources.add(new SkinEstimateSource());
+        sources.add(new SimulatedSource());
+        return sources;
     }
     
+    // 勾选的温度通道 + 始终采集的电量/电流/亮度
+    private int getEnabledChannelMask() {
+        int mask = Channel.BATTERY_LEVEL.mask() | Channel.CURRENT.mask() | Channel.BRIGHTNESS.mask();
+        if (sampleCPU) mask |= Channel.THERMAL_CPU.mask();
+        if (sampleGPU) mask |= Channel.THERMAL_GPU.mask();
+        if (sampleBattery) mask |= Channel.THERMAL_BATTERY.mask();
+        if (sampleSkin) mask |= Channel.THERMAL_SKIN.mask();
+        return mask;
+    }
 
     /**
-     * 记录系统数据(温度、电量、信号强度等)
-     * 
-     * 温度数据获取策略 (Android 15限制):
-     * 1. ThermalManager: 尝试获取(通常失败,仅系统应用可用)
-     * 2. HardwarePropertiesManager: 尝试获取(必然失败,需DEVICE_POWER权限)
-     * 3. Battery Intent: ✅ 获取真实电池温度(唯一可用)
-     * 4. 模拟数据: 用于CPU/GPU/Skin温度展示
-     * 
-     * 详见: TEMPERATURE_LIMITATIONS.md
+     * 记录器自身开销的度量: 各数据源探测、写入、界面回调的耗时直方图和异常/丢失计数
      */
-    private void recordData() {
-        try {
-            StringBuilder sb = new StringBuilder();
-            String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date());
-            sb.append(timestamp).append(",");
-
-            float cpuTemp = 0f, gpuTemp = 0f, batteryTemp = 0f, skinTemp = 0f;
-
-            // 方法0 (优先): 尝试使用ThermalService via dumpsys (Android 15+)
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                try {
-                    float[] thermalTemps = getThermalTemperatures();
-                    if (thermalTemps != null) {
-                        if (sampleCPU && thermalTemps[0] > 0) cpuTemp = thermalTemps[0];
-                        if (sampleGPU && thermalTemps[1] > 0) gpuTemp = thermalTemps[1];
-                        if (sampleBattery && thermalTemps[2] > 0) batteryTemp = thermalTemps[2];
-                        if (sampleSkin && thermalTemps[3] > 0) skinTemp = thermalTemps[3];
-                        if (!hasLoggedTempSource && (cpuTemp > 0 || gpuTemp > 0 || batteryTemp > 0 || skinTemp > 0)) {
-                            Log.i(TAG, "Using ThermalService temperatures: CPU=" + cpuTemp + " GPU=" + gpuTemp + " Battery=" + batteryTemp + " Skin=" + skinTemp);
-                            hasLoggedTempSource = true;
-                        }
-                    }
-                } catch (Exception e) {
-                    Log.w(TAG, "ThermalService not available: " + e.getMessage());
-                }
-            }
-
-            // 方法1: 尝试使用HardwarePropertiesManager (Android 10+)
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                try {
-                    HardwarePropertiesManager hpm =
-                            (HardwarePropertiesManager) getSystemService(Context.HARDWARE_PROPERTIES_SERVICE);
-
-                    if (hpm != null) {
-                        if (sampleCPU) {
-                            float[] tempsCPU = hpm.getDeviceTemperatures(
-                                    HardwarePropertiesManager.DEVICE_TEMPERATURE_CPU,
-                                    HardwarePropertiesManager.TEMPERATURE_CURRENT);
-                            if (tempsCPU.length > 0 && tempsCPU[0] > 0) cpuTemp = tempsCPU[0];
-                        }
-
-                        if (sampleGPU) {
-                            float[] tempsGPU = hpm.getDeviceTemperatures(
-                                    HardwarePropertiesManager.DEVICE_TEMPERATURE_GPU,
-                                    HardwarePropertiesManager.TEMPERATURE_CURRENT);
-                            if (tempsGPU.length > 0 && tempsGPU[0] > 0) gpuTemp = tempsGPU[0];
-                        }
-
-                        if (sampleBattery) {
-                            float[] tempsBattery = hpm.getDeviceTemperatures(
-                                    HardwarePropertiesManager.DEVICE_TEMPERATURE_BATTERY,
-                                    HardwarePropertiesManager.TEMPERATURE_CURRENT);
-                            if (tempsBattery.length > 0 && tempsBattery[0] > 0) batteryTemp = tempsBattery[0];
-                        }
-
-                        if (sampleSkin) {
-                            float[] tempsSkin = hpm.getDeviceTemperatures(
-                                    HardwarePropertiesManager.DEVICE_TEMPERATURE_SKIN,
-                                    HardwarePropertiesManager.TEMPERATURE_CURRENT);
-                            if (tempsSkin.length > 0 && tempsSkin[0] > 0) skinTemp = tempsSkin[0];
-                        }
-                    }
-                } catch (Exception e) {
-                    Log.w(TAG, "HardwarePropertiesManager not available: " + e.getMessage());
-                }
-            }
-
-            // 方法2: Fallback - 从thermal zones读取
-            if (cpuTemp == 0f && sampleCPU) {
-                // 尝试多个thermal zone (通常zone0是CPU)
-                for (int i = 0; i < 5; i++) {
-                    cpuTemp = readThermalZone(i);
-                    if (cpuTemp > 0) {
-                        Log.d(TAG, "CPU temp from thermal_zone" + i + ": " + cpuTemp);
-                        break;
-                    }
-                }
-            }
-            
-            if (gpuTemp == 0f && sampleGPU) {
-                // GPU通常在zone5-7
-                for (int i = 5; i < 10; i++) {
-                    gpuTemp = readThermalZone(i);
-                    if (gpuTemp > 0 && gpuTemp != cpuTemp) { // 避免与CPU重复
-                        Log.d(TAG, "GPU temp from thermal_zone" + i + ": " + gpuTemp);
-                        break;
-                    }
-                }
-            }
-            
-            // 方法3: 从电池获取温度
-            if (batteryTemp == 0f && sampleBattery) {
-                batteryTemp = readBatteryTemperature();
-                if (batteryTemp > 0) {
-                    Log.d(TAG, "Battery temp from Intent: " + batteryTemp);
-                }
-            }
-            
-            // 方法4: 外壳温度通常接近电池温度
-            if (skinTemp == 0f && sampleSkin && batteryTemp > 0) {
-                skinTemp = batteryTemp - 2.0f; // 外壳通常比电池低2度
-            }
-            
-            // 方法5: Android 15限制 - CPU/GPU/Skin温度无法获取,使用模拟值
-            // 注意: 这不是真实温度,仅用于演示图表功能
-            // 真实温度需要系统签名权限或Root设备,详见TEMPERATURE_LIMITATIONS.md
-            if (cpuTemp == 0f && sampleCPU) {
-                cpuTemp = 35.0f + (float)(Math.random() * 10); // 35-45°C模拟值
-                if (!hasLoggedTempSource) Log.i(TAG, "Using simulated CPU temperature (Android 15 security restrictions)");
-            }
-            if (gpuTemp == 0f && sampleGPU) {
-                gpuTemp = 40.0f + (float)(Math.random() * 15); // 40-55°C模拟值
-                if (!hasLoggedTempSource) Log.i(TAG, "Using simulated GPU temperature (Android 15 security restrictions)");
-            }
-            if (batteryTemp == 0f && sampleBattery) {
-                batteryTemp = 32.0f + (float)(Math.random() * 8); // 32-40°C模拟值 (fallback,通常不执行)
-                if (!hasLoggedTempSource) Log.i(TAG, "Using simulated Battery temperature (no sensor access)");
-            }
-            if (skinTemp == 0f && sampleSkin) {
-                skinTemp = 30.0f + (float)(Math.random() * 8); // 30-38°C模拟值
-                if (!hasLoggedTempSource) Log.i(TAG, "Using simulated Skin temperature (Android 15 security restrictions)");
-            }
-            
-            hasLoggedTempSource = true; // 只记录一次
-
-            sb.append(cpuTemp).append(",").append(gpuTemp).append(",")
-                    .append(batteryTemp).append(",").append(skinTemp).append(",");
-
-            // Android 15电池信息访问
-            BatteryManager bm = (BatteryManager) getSystemService(BATTERY_SERVICE);
-            int batteryLevel = 0;
-            int current = 0;
-            
-            if (bm != null) {
-                try {
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                        batteryLevel = bm.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
-                        current = bm.getIntProperty(BatteryManager.BATTERY_PROPERTY_CURRENT_NOW) / 1000;
-                    }
-                } catch (Exception e) {
-                    Log.w(TAG, "Error reading battery info", e);
-                }
-            }
-            sb.append(batteryLevel).append(",").append(current).append(",");
-
-            // 屏幕亮度
-            int brightness = Settings.System.getInt(getContentResolver(),
-                    Settings.System.SCREEN_BRIGHTNESS, -1);
-            sb.append(brightness);
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
 
-            String dataLine = sb.toString();
-            
-            // 写入CSV文件
-            if (outputFile != null) {
-                try (FileWriter writer = new FileWriter(outputFile, true)) {
-                    writer.write(dataLine + "\n");
-                } catch (IOException e) {
-                    Log.e(TAG, "Error writing to file", e);
+    /**
+     * 在后台把度量和采样调度统计写入会话目录下的文本文件
+     * @param callback 在主线程执行，成功时error为null
+     */
+    public void dumpInstrumentation(BiConsumer<File, IOException> callback) {
+        Executor main = ContextCompat.getMainExecutor(this);
+        exportExecutor.execute(() -> {
+            File file = new File(getSessionDirectory(), "instrumentation_" +
+                new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date()) + ".txt");
+            try {
+                SessionRecorder current = recorder;
+                if (current != null) {
+                    current.writeInstrumentation(file);
+                } else {
+                    instrumentation.writeTo(file, null);
                 }
+                main.execute(() -> callback.accept(file, null));
+            } catch (IOException e) {
+                main.execute(() -> callback.accept(null, e));
             }
+        });
+    }
 
-            // UI回调
-            if (dataUpdateListener != null) {
-                dataUpdateListener.onDataUpdated(dataLine);
-                Log.d(TAG, "Data sent to listener: " + dataLine);
-            } else {
-                Log.w(TAG, "No data update listener registered");
-            }
+    /**
+     * 在后台把当前会话导出为CSV
+     * @param channelMask 导出的通道(Channel位掩码)
+     * @param gzip 是否gzip压缩
+     * @param listener 回调在主线程执行
+     * @return 可取消的导出任务，没有可导出的会话时返回null
+     */
+    public SessionExporter.Task exportCSV(int channelMask, boolean gzip, SessionExporter.Listener listener) {
+        return exportCSV(Long.MIN_VALUE, Long.MAX_VALUE, channelMask, gzip, listener);
+    }
 
-        } catch (Exception e) { 
-            Log.e(TAG, "Error in recordData", e);
+    /**
+     * 在后台导出当前会话中[fromMillis, toMillis]时间窗口内的数据
+     */
+    public SessionExporter.Task exportCSV(long fromMillis, long toMillis, int channelMask, boolean gzip,
+                                          SessionExporter.Listener listener) {
+        SessionRecorder current = recorder;
+        File outputFile = current != null ? current.getOutputFile() : null;
+        if (outputFile == null || !outputFile.exists()) {
+            Log.w(TAG, "No data file to export");
+            return null;
         }
+        
+        // 先提交缓冲中的记录，导出只包含开始时已落盘的数据
+        current.flush();
+        
+        String exportFileName = "system_log_export_" + 
+            new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date()) +
+            (gzip ? ".csv.gz" : ".csv");
+        File exportFile = new File(getSessionDirectory(), exportFileName);
+        
+        SessionExporter.Request request = new SessionExporter.Request(outputFile, current.getFormat(), exportFile)
+            .timeRange(fromMillis, toMillis)
+            .channels(channelMask)
+            .gzip(gzip);
+        Log.d(TAG, "Exporting " + outputFile.getName() + " to: " + exportFile.getAbsolutePath());
+        return exporter.export(request, listener);
     }
 
-    public boolean exportCSV() {
-        try {
-            // Android 15文件共享适配
-            File exportDirectory;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                exportDirectory = getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS);
-                if (exportDirectory == null) {
-                    exportDirectory = getFilesDir();
-                }
-            } else {
-                exportDirectory = getExternalFilesDir(null);
-            }
-            
-            if (exportDirectory != null && !exportDirectory.exists()) {
-                exportDirectory.mkdirs();
-            }
-            
-            String exportFileName = "system_log_export_" + 
-                new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date()) + ".csv";
-            File exportFile = new File(exportDirectory, exportFileName);
-            
-            // 复制原始文件到导出文件
-            if (outputFile != null && outputFile.exists()) {
-                try (FileWriter writer = new FileWriter(exportFile, false)) {
-                    // 这里应该复制原始文件内容，简化版本只写确认信息
-                    writer.write("数据导出完成: " + new Date().toString() + "\n");
-                    writer.write("原始文件: " + outputFile.getAbsolutePath() + "\n");
-                }
-                
-                Log.d(TAG, "Data exported to: " + exportFile.getAbsolutePath());
-                return true;
-            } else {
-                Log.w(TAG, "No data file to export");
-                return false;
-            }
-            
-        } catch (Exception e) { 
-            Log.e(TAG, "Error exporting CSV", e);
-            return false;
-        }
+    private File getSessionDirectory() {
+        return getSessionDirectory(this);
     }
 
-    // 优化图表更新功能
-    public void updateChart(LineChart chart, String dataLine) {
-        try {
-            if (chart == null) return;
-            
-            String[] parts = dataLine.split(",");
-            if (parts.length < 5) return;
-            
-            // 解析温度数据
-            float cpuTemp = 0, gpuTemp = 0, batteryTemp = 0, skinTemp = 0;
-            try {
-                cpuTemp = Float.parseFloat(parts[1]);
-                gpuTemp = Float.parseFloat(parts[2]);
-                batteryTemp = Float.parseFloat(parts[3]);
-                skinTemp = Float.parseFloat(parts[4]);
-            } catch (NumberFormatException e) {
-                Log.w(TAG, "Invalid temperature value in: " + dataLine);
-                return;
-            }
-            
-            // 获取现有数据或创建新数据
-            LineData lineData = chart.getData();
-            if (lineData == null) {
-                lineData = new LineData();
-                chart.setData(lineData);
-            }
-            
-            // 获取或创建数据集
-            LineDataSet cpuDataSet = (LineDataSet) lineData.getDataSetByLabel("CPU温度", true);
-            LineDataSet gpuDataSet = (LineDataSet) lineData.getDataSetByLabel("GPU温度", true);
-            LineDataSet batteryDataSet = (LineDataSet) lineData.getDataSetByLabel("电池温度", true);
-            LineDataSet skinDataSet = (LineDataSet) lineData.getDataSetByLabel("外壳温度", true);
-            
-            if (cpuDataSet == null) {
-                cpuDataSet = createDataSet("CPU温度", android.R.color.holo_red_light);
-                lineData.addDataSet(cpuDataSet);
-            }
-            if (gpuDataSet == null) {
-                gpuDataSet = createDataSet("GPU温度", android.R.color.holo_blue_light);
-                lineData.addDataSet(gpuDataSet);
-            }
-            if (batteryDataSet == null) {
-                batteryDataSet = createDataSet("电池温度", android.R.color.holo_green_light);
-                lineData.addDataSet(batteryDataSet);
-            }
-            if (skinDataSet == null) {
-                skinDataSet = createDataSet("外壳温度", android.R.color.holo_orange_light);
-                lineData.addDataSet(skinDataSet);
-            }
-            
-            // 添加新数据点
-            dataPointCounter++;
-            if (sampleCPU) cpuDataSet.addEntry(new Entry(dataPointCounter, cpuTemp));
-            if (sampleGPU) gpuDataSet.addEntry(new Entry(dataPointCounter, gpuTemp));
-            if (sampleBattery) batteryDataSet.addEntry(new Entry(dataPointCounter, batteryTemp));
-            if (sampleSkin) skinDataSet.addEntry(new Entry(dataPointCounter, skinTemp));
-            
-            // 限制数据点数量
-            if (cpuDataSet.getEntryCount() > MAX_DATA_POINTS) {
-                cpuDataSet.removeFirst();
-            }
-            if (gpuDataSet.getEntryCount() > MAX_DATA_POINTS) {
-                gpuDataSet.removeFirst();
-            }
-            if (batteryDataSet.getEntryCount() > MAX_DATA_POINTS) {
-                batteryDataSet.removeFirst();
-            }
-            if (skinDataSet.getEntryCount() > MAX_DATA_POINTS) {
-                skinDataSet.removeFirst();
+    /**
+     * 会话文件所在目录(Android 15作用域存储适配)，历史会话查看器也从这里列出会话
+     */
+    static File getSessionDirectory(Context context) {
+        File directory;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            directory = context.getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS);
+            if (directory == null) {
+                directory = context.getFilesDir();
             }
-            
-            // 通知数据变化
-            lineData.notifyDataChanged();
-            chart.notifyDataSetChanged();
-            
-            // 自动滚动到最新数据
-            chart.setVisibleXRangeMaximum(30);
-            chart.moveViewToX(dataPointCounter);
-            
-            chart.invalidate();
-            
-            Log.d(TAG, "Chart updated with data point " + dataPointCounter);
-            
-        } catch (Exception e) { 
-            Log.e(TAG, "Error updating chart", e);
+        } else {
+            directory = context.getExternalFilesDir(null);
         }
-    }
-    
-    // 创建数据集
-    private LineDataSet createDataSet(String label, int colorResId) {
-        LineDataSet dataSet = new LineDataSet(new ArrayList<>(), label);
-        dataSet.setColor(getResources().getColor(colorResId, null));
-        dataSet.setCircleColor(getResources().getColor(colorResId, null));
-        dataSet.setLineWidth(2f);
-        dataSet.setCircleRadius(3f);
-        dataSet.setDrawCircleHole(false);
-        dataSet.setValueTextSize(9f);
-        dataSet.setDrawFilled(false);
-        dataSet.setMode(LineDataSet.Mode.CUBIC_BEZIER);
-        dataSet.setDrawValues(false); // 不显示具体数值，避免拥挤
-        return dataSet;
+        
+        if (directory != null && !directory.exists()) {
+            directory.mkdirs();
+        }
+        return directory;
     }
 
     private Notification buildNotification() {
@@ -587,7 +548,7 @@ public class LoggingService extends Service {
 
         return new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setContentTitle("SystemLogger 运行中")
-                .setContentText("正在记录系统数据，采样间隔 " + intervalSeconds + "秒")
+                .setContentText("正在记录系统数据，" + recorder.describeSampling())
                 .setSmallIcon(android.R.drawable.ic_menu_info_details)
                 .setContentIntent(pendingIntent)
                 .setOngoing(true)
@@ -604,20 +565,23 @@ public class LoggingService extends Service {
         try {
             isRunning = false;
             
-            if (scheduler != null && !scheduler.isShutdown()) {
-                scheduler.shutdown();
-                try {
-                    if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                        scheduler.shutdownNow();
-                    }
-                } catch (InterruptedException e) {
-                    scheduler.shutdownNow();
-                    Thread.currentThread().interrupt();
-                }
+            SessionRecorder current = recorder;
+            if (current != null) {
+                current.stop();
             }
             
-            if (dataUpdateListener != null) {
-                dataUpdateListener = null;
+            uiDispatcher.setListener(null);
+            probeStateListener = null;
+            
+            if (exportExecutor != null) {
+                exportExecutor.shutdownNow();
+            }
+            if (probeExecutor != null) {
+                probeExecutor.shutdownNow();
+            }
+            // 已排队的压缩/清理任务继续执行完
+            if (archiveExecutor != null) {
+                archiveExecutor.shutdown();
             }
             
         } catch (Exception e) {
@@ -629,56 +593,33 @@ public class LoggingService extends Service {
     }
     
     @Override
-    public boolean onUnbind(Intent intent) {
-        Log.d(TAG, "Service unbound");
-        return super.onUnbind(intent);
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // 内存紧张时进程随时可能被杀，先把缓冲的记录提交
+        flushLogWriter();
     }
     
-    // ========== 温度读取辅助方法 ==========
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        flushLogWriter();
+    }
     
-    /**
-     * 读取thermal zone温度
-     * @param zoneIndex thermal_zone索引 (0-9)
-     * @return 温度值(摄氏度), 失败返回0
-     */
-    private float readThermalZone(int zoneIndex) {
-        try {
-            String path = "/sys/class/thermal/thermal_zone" + zoneIndex + "/temp";
-            java.io.BufferedReader reader = new java.io.BufferedReader(
-                new java.io.FileReader(path));
-            String tempStr = reader.readLine();
-            reader.close();
-            
-            if (tempStr != null && !tempStr.isEmpty()) {
-                // thermal zone温度通常是毫摄氏度
-                return Float.parseFloat(tempStr) / 1000.0f;
-            }
-        } catch (Exception e) {
-            // 忽略错误，可能没有权限或文件不存在
+    private void flushLogWriter() {
+        SessionRecorder current = recorder;
+        if (current != null) {
+            current.flush();
         }
-        return 0f;
     }
     
-    /**
-     * 从电池管理器读取电池温度
-     * @return 电池温度(摄氏度), 失败返回0
-     */
-    private float readBatteryTemperature() {
-        try {
-            Intent batteryIntent = registerReceiver(null, 
-                new android.content.IntentFilter(Intent.ACTION_BATTERY_CHANGED));
-            
-            if (batteryIntent != null) {
-                int temp = batteryIntent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0);
-                // 电池温度单位是0.1摄氏度
-                return temp / 10.0f;
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Error reading battery temperature", e);
-        }
-        return 0f;
+    @Override
+    public boolean onUnbind(Intent intent) {
+        Log.d(TAG, "Service unbound");
+        return super.onUnbind(intent);
     }
     
+    // ========== 温度读取辅助方法 ==========
+    
     /**
      * 尝试从/proc/stat读取CPU使用率并估算温度
      * 这是一个备用方法，不是真实温度
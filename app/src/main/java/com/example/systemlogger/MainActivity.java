@@ -28,7 +28,9 @@ import androidx.core.view.WindowCompat;
 
 import com.github.mikephil.charting.charts.LineChart;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class MainActivity extends AppCompatActivity {
@@ -38,11 +40,50 @@ public class MainActivity extends AppCompatActivity {
     
     private TextView textViewData;
     private CheckBox checkCPU, checkGPU, checkBattery, checkSkin;
-    private Button buttonStart, buttonStop, buttonExport;
+    private Button buttonStart, buttonStop, buttonExport, buttonHistory, buttonDiagnostics;
     private LineChart lineChart;
 
     private LoggingService loggingService;
     private boolean bound = false;
+    // 数据源健康状态摘要(healthy / degraded / disabled)
+    private String probeSummary = "";
+    
+    private LiveChartController chartController;
+    // 仅在主线程使用
+    private final CsvRowFormatter rowFormatter = new CsvRowFormatter();
+    // 各通道最近一次采到的值(慢通道每分钟才采一次，稀疏行中其余时间为NaN)，仅在主线程使用
+    private final float[] lastValues = newLastValues();
+    private final FrameSampleDispatcher.SampleBatchListener sampleListener = this::renderSamples;
+    
+    // 导出任务(回调均在主线程)
+    private SessionExporter.Task exportTask;
+    private final SessionExporter.Listener exportListener = new SessionExporter.Listener() {
+        @Override
+        public void onProgress(long bytesDone, long bytesTotal) {
+            int percent = bytesTotal > 0 ? (int) (bytesDone * 100 / bytesTotal) : 100;
+            textViewData.setText(getString(R.string.export_progress, percent));
+        }
+
+        @Override
+        public void onComplete(File output, long rows) {
+            finishExport();
+            Log.d(TAG, "Export complete: " + output.getAbsolutePath() + " rows=" + rows);
+            Toast.makeText(MainActivity.this, R.string.export_success, Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onCancelled() {
+            finishExport();
+            Toast.makeText(MainActivity.this, R.string.export_cancelled, Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onError(Exception e) {
+            finishExport();
+            Log.e(TAG, "Error exporting data", e);
+            Toast.makeText(MainActivity.this, "导出失败: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    };
     
     // Android 15权限处理
     private ActivityResultLauncher<String[]> permissionLauncher;
@@ -55,16 +96,9 @@ public class MainActivity extends AppCompatActivity {
             loggingService = binder.getService();
             bound = true;
             Log.d(TAG, "Service connected successfully");
-            loggingService.setDataUpdateListener(data -> runOnUiThread(() -> {
-                Log.d(TAG, "Received data update: " + data);
-                textViewData.setText(data);
-                if (lineChart != null) {
-                    Log.d(TAG, "Updating chart with data");
-                    loggingService.updateChart(lineChart, data);
-                } else {
-                    Log.e(TAG, "lineChart is null in data update callback");
-                }
-            }));
+            probeSummary = loggingService.getProbeStates();
+            loggingService.setProbeStateListener(summary -> runOnUiThread(() -> probeSummary = summary));
+            loggingService.setSampleBatchListener(sampleListener);
         }
 
         @Override
@@ -74,6 +108,33 @@ public class MainActivity extends AppCompatActivity {
         }
     };
 
+    // 每帧最多一次: 图表追加整批样本，文本显示各通道最近一次的值和最新样本的时间
+    private void renderSamples(SampleBatch batch) {
+        int newest = batch.size() - 1;
+        for (int i = 0; i <= newest; i++) {
+            for (Channel channel : Channel.ALL) {
+                float value = batch.get(i, channel);
+                if (batch.has(i, channel) && !Float.isNaN(value)) {
+                    lastValues[channel.ordinal()] = value;
+                }
+            }
+        }
+        StringBuilder text = rowFormatter.format(batch.timestampMillis(newest), lastValues);
+        if (!probeSummary.isEmpty()) {
+            text.append("\n数据源: ").append(probeSummary);
+        }
+        textViewData.setText(text);
+        if (chartController != null) {
+            chartController.append(batch);
+        }
+    }
+
+    private static float[] newLastValues() {
+        float[] values = new float[Channel.COUNT];
+        Arrays.fill(values, Float.NaN);
+        return values;
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -144,6 +205,8 @@ public class MainActivity extends AppCompatActivity {
         buttonStart = findViewById(R.id.buttonStart);
         buttonStop = findViewById(R.id.buttonStop);
         buttonExport = findViewById(R.id.buttonExport);
+        buttonHistory = findViewById(R.id.buttonHistory);
+        buttonDiagnostics = findViewById(R.id.buttonDiagnostics);
         lineChart = findViewById(R.id.lineChart);
         
         // 初始化图表
@@ -156,6 +219,8 @@ public class MainActivity extends AppCompatActivity {
         buttonStart.setText(R.string.start_monitoring);
         buttonStop.setText(R.string.stop_monitoring);
         buttonExport.setText(R.string.export_data);
+        buttonHistory.setText(R.string.session_history);
+        buttonDiagnostics.setText(R.string.diagnostics);
         
         // 设置复选框文本
         checkCPU.setText(R.string.cpu_temp);
@@ -201,8 +266,8 @@ public class MainActivity extends AppCompatActivity {
         lineChart.getLegend().setEnabled(true);
         lineChart.getLegend().setTextSize(12f);
         
-        // 初始化空数据
-        lineChart.setData(new com.github.mikephil.charting.data.LineData());
+        // 数据集由控制器创建并持有
+        chartController = new LiveChartController(lineChart, getResources());
         lineChart.invalidate();
         
         android.util.Log.d("MainActivity", "Chart setup complete");
@@ -344,6 +409,7 @@ public class MainActivity extends AppCompatActivity {
         buttonStop.setOnClickListener(v -> {
             try {
                 if (bound) {
+                    loggingService.setSampleBatchListener(null);
                     unbindService(connection);
                     bound = false;
                 }
@@ -352,6 +418,7 @@ public class MainActivity extends AppCompatActivity {
                 buttonStart.setEnabled(true);
                 buttonStop.setEnabled(false);
                 textViewData.setText("监控已停止");
+                Arrays.fill(lastValues, Float.NaN);
                 Toast.makeText(this, R.string.monitoring_stopped, Toast.LENGTH_SHORT).show();
                 
             } catch (Exception e) {
@@ -362,10 +429,15 @@ public class MainActivity extends AppCompatActivity {
 
         buttonExport.setOnClickListener(v -> {
             try {
+                // 导出进行中再次点击即取消
+                if (exportTask != null) {
+                    exportTask.cancel();
+                    return;
+                }
                 if (bound && loggingService != null) {
-                    boolean success = loggingService.exportCSV();
-                    if (success) {
-                        Toast.makeText(this, R.string.export_success, Toast.LENGTH_SHORT).show();
+                    exportTask = loggingService.exportCSV(getSelectedChannelMask(), false, exportListener);
+                    if (exportTask != null) {
+                        buttonExport.setText(R.string.export_cancel);
                     } else {
                         Toast.makeText(this, R.string.export_failed, Toast.LENGTH_SHORT).show();
                     }
@@ -378,14 +450,61 @@ public class MainActivity extends AppCompatActivity {
             }
         });
         
+        buttonHistory.setOnClickListener(v ->
+            startActivity(new Intent(this, SessionViewerActivity.class)));
+
+        buttonDiagnostics.setOnClickListener(v -> {
+            if (bound && loggingService != null) {
+                showDiagnostics();
+            } else {
+                Toast.makeText(this, "请先启动监控服务", Toast.LENGTH_SHORT).show();
+            }
+        });
+        
         // 初始状态
         buttonStop.setEnabled(false);
     }
     
+    // 记录器自身的开销: 采样调度统计 + 各探测/写入/界面回调的耗时直方图和计数器
+    private void showDiagnostics() {
+        String text = "采样: " + loggingService.getSamplingStats().describe()
+            + "\n\n" + loggingService.getInstrumentation().dump();
+        new AlertDialog.Builder(this)
+            .setTitle(R.string.diagnostics_title)
+            .setMessage(text)
+            .setPositiveButton(R.string.diagnostics_save, (dialog, which) ->
+                loggingService.dumpInstrumentation((file, error) -> {
+                    if (error == null) {
+                        Toast.makeText(this, getString(R.string.diagnostics_saved, file.getName()), Toast.LENGTH_LONG).show();
+                    } else {
+                        Log.e(TAG, "Error saving diagnostics", error);
+                        Toast.makeText(this, getString(R.string.diagnostics_save_failed, error.getMessage()), Toast.LENGTH_LONG).show();
+                    }
+                }))
+            .setNegativeButton("关闭", null)
+            .show();
+    }
+
+    // 温度列按复选框过滤，电量/电流/亮度始终导出
+    private int getSelectedChannelMask() {
+        int mask = Channel.BATTERY_LEVEL.mask() | Channel.CURRENT.mask() | Channel.BRIGHTNESS.mask();
+        if (checkCPU.isChecked()) mask |= Channel.THERMAL_CPU.mask();
+        if (checkGPU.isChecked()) mask |= Channel.THERMAL_GPU.mask();
+        if (checkBattery.isChecked()) mask |= Channel.THERMAL_BATTERY.mask();
+        if (checkSkin.isChecked()) mask |= Channel.THERMAL_SKIN.mask();
+        return mask;
+    }
+    
+    private void finishExport() {
+        exportTask = null;
+        buttonExport.setText(R.string.export_data);
+    }
+    
     @Override
     protected void onDestroy() {
         try {
             if (bound) {
+                loggingService.setSampleBatchListener(null);
                 unbindService(connection);
                 bound = false;
             }
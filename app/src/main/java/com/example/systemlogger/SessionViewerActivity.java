@@ -0,0 +1,300 @@
+package com.example.systemlogger;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.github.mikephil.charting.charts.LineChart;
+import com.github.mikephil.charting.components.XAxis;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 历史会话查看器
+ *
+ * 打开会话时只加载(或首次构建)块索引，图表按当前可见窗口分级读取:
+ * 缩小时显示块级min/max汇总，放大到预算以内时读取原始样本。
+ * 所有文件I/O在单独的后台线程执行，平移/缩放停止后才加载新窗口。
+ * 会话列表的统计信息来自{@link SessionCatalog}，列出会话时不打开会话文件。
+ */
+public class SessionViewerActivity extends AppCompatActivity {
+
+    private static final String TAG = "SessionViewer";
+    private static final int POINT_BUDGET = 1024; // 每条曲线最多显示的点数
+    private static final long VIEWPORT_DEBOUNCE_MS = 100;
+
+    private ListView listSessions;
+    private TextView textStatus;
+    private LineChart chart;
+    private final LineDataSet[] dataSets = new LineDataSet[LiveChartController.CHANNELS.length];
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable loadViewport = this::loadViewport;
+
+    private File[] sessions = new File[0];
+    // 以下字段只在加载线程访问
+    private SessionLod lod;
+    // 主线程: 当前会话的起始时间，以及用来丢弃过期加载结果的序号
+    private long originMillis;
+    private String sessionSummary = "";
+    private int generation;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_session_viewer);
+        setTitle(R.string.session_history);
+
+        listSessions = findViewById(R.id.listSessions);
+        textStatus = findViewById(R.id.textSessionStatus);
+        chart = findViewById(R.id.sessionChart);
+        setupChart();
+
+        listSessions.setOnItemClickListener((parent, view, position, id) -> openSession(sessions[position]));
+        loadSessionList();
+    }
+
+    // 在加载线程读取会话目录，目录中没有的会话(旧版本或正在记录)只显示文件大小
+    private void loadSessionList() {
+        loader.execute(() -> {
+            File directory = LoggingService.getSessionDirectory(this);
+            File[] files = listSessionFiles(directory);
+            SessionCatalog catalog = null;
+            if (files.length > 0) {
+                try {
+                    catalog = SessionCatalog.open(directory);
+                } catch (IOException e) {
+                    Log.w(TAG, "Error reading session catalog", e);
+                }
+            }
+            List<String> items = new ArrayList<>(files.length);
+            for (File session : files) {
+                SessionSummary summary = catalog != null ? catalog.get(session.getName()) : null;
+                items.add(summary != null ? describe(summary)
+                    : session.getName() + "  (" + formatSize(session.length()) + ")");
+            }
+            mainHandler.post(() -> {
+                sessions = files;
+                listSessions.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, items));
+                textStatus.setText(files.length == 0 ? getString(R.string.session_none) : getString(R.string.session_pick));
+            });
+        });
+    }
+
+    private static String describe(SessionSummary summary) {
+        StringBuilder sb = new StringBuilder(summary.fileName).append('\n');
+        sb.append(String.format(Locale.getDefault(), "%.1f小时 · %d个样本 · %s",
+            summary.durationMillis() / 3_600_000f, summary.sampleCount, formatSize(summary.fileBytes)));
+        int battery = Channel.THERMAL_BATTERY.ordinal();
+        if (summary.has(Channel.THERMAL_BATTERY)) {
+            sb.append(String.format(Locale.getDefault(), " · 电池 %.1f–%.1f°C (均值%.1f)",
+                summary.min[battery], summary.max[battery], summary.mean[battery]));
+        }
+        return sb.toString();
+    }
+
+    private void setupChart() {
+        chart.getDescription().setEnabled(false);
+        chart.setTouchEnabled(true);
+        chart.setDragEnabled(true);
+        chart.setScaleEnabled(true);
+        chart.setPinchZoom(false);
+        chart.setScaleYEnabled(false);
+        chart.setDrawGridBackground(false);
+        chart.setBackgroundColor(getResources().getColor(android.R.color.white, null));
+        chart.getXAxis().setPosition(XAxis.XAxisPosition.BOTTOM);
+        chart.getXAxis().setTextSize(10f);
+        chart.getAxisLeft().setTextSize(10f);
+        chart.getAxisRight().setEnabled(false);
+
+        LineData lineData = new LineData();
+        for (int i = 0; i < dataSets.length; i++) {
+            dataSets[i] = LiveChartController.createDataSet(getResources(),
+                LiveChartController.LABELS[i], LiveChartController.COLORS[i]);
+            dataSets[i].setDrawCircles(false);
+            dataSets[i].setMode(LineDataSet.Mode.LINEAR);
+            lineData.addDataSet(dataSets[i]);
+        }
+        chart.setData(lineData);
+
+        chart.setOnChartGestureListener(new OnChartGestureListener() {
+            @Override
+            public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+            }
+
+            @Override
+            public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+                scheduleViewportLoad();
+            }
+
+            @Override
+            public void onChartLongPressed(MotionEvent me) {
+            }
+
+            @Override
+            public void onChartDoubleTapped(MotionEvent me) {
+                scheduleViewportLoad();
+            }
+
+            @Override
+            public void onChartSingleTapped(MotionEvent me) {
+            }
+
+            @Override
+            public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) {
+            }
+
+            @Override
+            public void onChartScale(MotionEvent me, float scaleX, float scaleY) {
+                scheduleViewportLoad();
+            }
+
+            @Override
+            public void onChartTranslate(MotionEvent me, float dX, float dY) {
+                scheduleViewportLoad();
+            }
+        });
+    }
+
+    // 会话目录中可识别格式的会话文件，最新的在前(导出文件除外)
+    private static File[] listSessionFiles(File directory) {
+        File[] files = directory != null
+            ? directory.listFiles(file -> file.isFile()
+                && SessionFormat.fromFile(file) != null
+                && !file.getName().startsWith("system_log_export_"))
+            : null;
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, (a, b) -> b.getName().compareTo(a.getName()));
+        return files;
+    }
+
+    private void openSession(File session) {
+        int request = ++generation;
+        textStatus.setText(getString(R.string.session_loading, session.getName()));
+        SessionFormat format = SessionFormat.fromFile(session);
+        loader.execute(() -> {
+            LodSeries series = new LodSeries(POINT_BUDGET);
+            try {
+                closeLod();
+                long started = System.nanoTime();
+                SessionBlockIndex index = SessionBlockIndex.open(session, format);
+                lod = new SessionLod(session, format, index);
+                long indexMillis = (System.nanoTime() - started) / 1_000_000L;
+                lod.load(index.startMillis(), index.endMillis(), series);
+
+                long origin = index.startMillis();
+                float duration = (index.endMillis() - origin) / 1000f;
+                String summary = String.format(Locale.getDefault(), "%s: %d个样本, %.1f小时, 索引%dms",
+                    session.getName(), index.totalSamples(), duration / 3600f, indexMillis);
+                mainHandler.post(() -> {
+                    if (request != generation) return;
+                    originMillis = origin;
+                    sessionSummary = summary;
+                    chart.fitScreen();
+                    chart.getXAxis().setAxisMinimum(0f);
+                    chart.getXAxis().setAxisMaximum(Math.max(1f, duration));
+                    render(series);
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "Error opening session " + session, e);
+                mainHandler.post(() -> {
+                    if (request != generation) return;
+                    textStatus.setText(getString(R.string.session_open_failed, e.getMessage()));
+                });
+            }
+        });
+    }
+
+    private void scheduleViewportLoad() {
+        mainHandler.removeCallbacks(loadViewport);
+        mainHandler.postDelayed(loadViewport, VIEWPORT_DEBOUNCE_MS);
+    }
+
+    private void loadViewport() {
+        if (sessionSummary.isEmpty()) {
+            return;
+        }
+        int request = ++generation;
+        long from = originMillis + (long) (chart.getLowestVisibleX() * 1000);
+        long to = originMillis + (long) (chart.getHighestVisibleX() * 1000);
+        loader.execute(() -> {
+            SessionLod current = lod;
+            if (current == null) return;
+            LodSeries series = new LodSeries(POINT_BUDGET);
+            try {
+                current.load(from, to, series);
+                mainHandler.post(() -> {
+                    if (request == generation) render(series);
+                });
+            } catch (IOException e) {
+                Log.e(TAG, "Error loading viewport", e);
+            }
+        });
+    }
+
+    // 原地替换数据集内容，保持当前缩放和平移
+    private void render(LodSeries series) {
+        for (int i = 0; i < dataSets.length; i++) {
+            Channel channel = LiveChartController.CHANNELS[i];
+            int n = series.size(channel);
+            List<Entry> entries = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                entries.add(new Entry(series.x(channel, k), series.y(channel, k)));
+            }
+            dataSets[i].setValues(entries);
+        }
+        chart.getData().notifyDataChanged();
+        chart.notifyDataSetChanged();
+        chart.invalidate();
+        textStatus.setText(getString(series.isRaw() ? R.string.session_lod_raw : R.string.session_lod_summary,
+            sessionSummary, series.samples()));
+    }
+
+    private void closeLod() {
+        if (lod != null) {
+            try {
+                lod.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing session", e);
+            }
+            lod = null;
+        }
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes >= 1024 * 1024) {
+            return String.format(Locale.getDefault(), "%.1f MB", bytes / (1024f * 1024f));
+        }
+        return String.format(Locale.getDefault(), "%.1f KB", bytes / 1024f);
+    }
+
+    @Override
+    protected void onDestroy() {
+        mainHandler.removeCallbacksAndMessages(null);
+        loader.execute(this::closeLod);
+        loader.shutdown();
+        super.onDestroy();
+    }
+}
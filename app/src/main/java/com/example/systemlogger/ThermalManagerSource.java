@@ -0,0 +1,119 @@
+package com.example.systemlogger;
+
+import android.content.Context;
+import android.os.Build;
+
+import androidx.annotation.RequiresApi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * 通过反射调用ThermalService获取温度(Android 10+)
+ *
+ * 反射查找只在open()时做一次，并转换为MethodHandle缓存；
+ * Temperature对象的getValue/getType句柄在第一次拿到对象时解析。
+ * Android 15上普通应用通常没有权限，open()会返回0使其不参与采样。
+ */
+@RequiresApi(api = Build.VERSION_CODES.Q)
+public class ThermalManagerSource implements SensorSource {
+
+    // Temperature.getType(): CPU=0, GPU=1, BATTERY=2, SKIN=3
+    private static final Channel[] TYPE_TO_CHANNEL = {
+        Channel.THERMAL_CPU, Channel.THERMAL_GPU, Channel.THERMAL_BATTERY, Channel.THERMAL_SKIN
+    };
+
+    private final Context context;
+    private Object thermalService;
+    private MethodHandle getCurrentTemperatures;
+    private Class<?> temperatureClass;
+    private MethodHandle getValue;
+    private MethodHandle getType;
+
+    public ThermalManagerSource(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public String name() {
+        return "thermal-manager";
+    }
+
+    @Override
+    public int open() {
+        try {
+            thermalService = context.getSystemService("thermalservice");
+            if (thermalService == null) {
+                return 0;
+            }
+            Method method = thermalService.getClass().getMethod("getCurrentTemperatures");
+            getCurrentTemperatures = MethodHandles.publicLookup().unreflect(method)
+                .asType(MethodType.methodType(Object.class, Object.class));
+
+            // 试读一次，拿不到数据说明没有权限
+            Object[] temperatures = (Object[]) getCurrentTemperatures.invoke(thermalService);
+            if (temperatures == null || temperatures.length == 0) {
+                return 0;
+            }
+            resolveTemperatureHandles(temperatures[0].getClass());
+
+            int mask = 0;
+            for (Channel channel : TYPE_TO_CHANNEL) {
+                mask |= channel.mask();
+            }
+            return mask;
+        } catch (Throwable e) {
+            // 这是预期行为(普通应用无权限)
+            return 0;
+        }
+    }
+
+    @Override
+    public int sample(float[] out, int wanted) {
+        try {
+            Object[] temperatures = (Object[]) getCurrentTemperatures.invoke(thermalService);
+            if (temperatures == null) {
+                return 0;
+            }
+            int filled = 0;
+            for (Object temperature : temperatures) {
+                if (temperature.getClass() != temperatureClass) {
+                    resolveTemperatureHandles(temperature.getClass());
+                }
+                int type = (int) getType.invokeExact(temperature);
+                if (type < 0 || type >= TYPE_TO_CHANNEL.length) {
+                    continue;
+                }
+                Channel channel = TYPE_TO_CHANNEL[type];
+                float value = (float) getValue.invokeExact(temperature);
+                if ((wanted & channel.mask()) != 0 && value > 0) {
+                    out[channel.ordinal()] = value;
+                    filled |= channel.mask();
+                }
+            }
+            return filled;
+        } catch (Throwable e) {
+            return 0;
+        }
+    }
+
+    private void resolveTemperatureHandles(Class<?> type) throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        getValue = lookup.unreflect(type.getMethod("getValue"))
+            .asType(MethodType.methodType(float.class, Object.class));
+        getType = lookup.unreflect(type.getMethod("getType"))
+            .asType(MethodType.methodType(int.class, Object.class));
+        temperatureClass = type;
+    }
+
+    @Override
+    public void close() {
+        thermalService = null;
+        getCurrentTemperatures = null;
+        getValue = null;
+        getType = null;
+        temperatureClass = null;
+    }
+}
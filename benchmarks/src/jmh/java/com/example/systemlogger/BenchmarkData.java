@@ -0,0 +1,83 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * 基准测试用的模拟数据: 与真机日志相近的缓慢变化信号
+ *
+ * 温度在40℃附近以0.1℃步进游走，电量缓慢下降，电流在-300~-800mA之间抖动，
+ * 亮度偶尔跳变；固定随机种子，各次运行的数据完全相同。
+ */
+final class BenchmarkData {
+
+    /** 起始时间戳: 2024-06-01 12:00:00 UTC */
+    static final long START_MILLIS = 1_717_243_200_000L;
+    static final long PERIOD_MILLIS = 1000;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 生成rows个样本，第i个样本的通道值位于[i * Channel.COUNT + channel.ordinal()]
+     */
+    static float[] samples(int rows) {
+        Random random = new Random(42);
+        float[] values = new float[rows * Channel.COUNT];
+        float cpu = 45.3f, gpu = 41.8f, battery = 33.1f, skin = 36.4f;
+        float level = 87, brightness = 128;
+        for (int i = 0; i < rows; i++) {
+            cpu = walk(random, cpu);
+            gpu = walk(random, gpu);
+            battery = walk(random, battery);
+            skin = walk(random, skin);
+            if (random.nextInt(600) == 0) level = Math.max(0, level - 1);
+            if (random.nextInt(300) == 0) brightness = random.nextInt(256);
+            int row = i * Channel.COUNT;
+            values[row + Channel.THERMAL_CPU.ordinal()] = cpu;
+            values[row + Channel.THERMAL_GPU.ordinal()] = gpu;
+            values[row + Channel.THERMAL_BATTERY.ordinal()] = battery;
+            values[row + Channel.THERMAL_SKIN.ordinal()] = skin;
+            values[row + Channel.BATTERY_LEVEL.ordinal()] = level;
+            values[row + Channel.CURRENT.ordinal()] = -300 - random.nextInt(500);
+            values[row + Channel.BRIGHTNESS.ordinal()] = brightness;
+        }
+        return values;
+    }
+
+    /** 0.1℃步进，与温区的毫摄氏度读数取整后一致 */
+    private static float walk(Random random, float value) {
+        return Math.round((value + (random.nextInt(3) - 1) * 0.1f) * 10) / 10f;
+    }
+
+    /**
+     * 用CsvRowFormatter生成rows行CSV(不含换行符)
+     */
+    static String[] csvLines(int rows) {
+        float[] values = samples(rows);
+        float[] row = new float[Channel.COUNT];
+        CsvRowFormatter formatter = new CsvRowFormatter();
+        String[] lines = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(values, i * Channel.COUNT, row, 0, Channel.COUNT);
+            lines[i] = formatter.format(START_MILLIS + i * PERIOD_MILLIS, row).toString();
+        }
+        return lines;
+    }
+
+    static File createTempDir(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.systemlogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV行格式化: 旧版recordData的写法对比{@link CsvRowFormatter}
+ *
+ * 旧版每行新建SimpleDateFormat、Date和StringBuilder，再拼接换行符得到新的String；
+ * CsvRowFormatter复用StringBuilder和时间戳格式化器，稳态下不分配。
+ * 用-prof gc(默认已启用)查看gc.alloc.rate.norm。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class CsvFormatBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private float[] samples;
+    private final float[] row = new float[Channel.COUNT];
+    private final CsvRowFormatter formatter = new CsvRowFormatter();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        samples = BenchmarkData.samples(ROWS);
+    }
+
+    private long nextRow() {
+        int i = next;
+        next = (next + 1) & (ROWS - 1);
+        System.arraycopy(samples, i * Channel.COUNT, row, 0, Channel.COUNT);
+        return BenchmarkData.START_MILLIS + i * BenchmarkData.PERIOD_MILLIS;
+    }
+
+    @Benchmark
+    public String legacySimpleDateFormat() {
+        long timestamp = nextRow();
+        StringBuilder sb = new StringBuilder();
+        String time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date(timestamp));
+        sb.append(time).append(",");
+        sb.append(row[0]).append(",");
+        sb.append(row[1]).append(",");
+        sb.append(row[2]).append(",");
+        sb.append(row[3]).append(",");
+        sb.append((int) row[4]).append(",");
+        sb.append((int) row[5]).append(",");
+        sb.append((int) row[6]);
+        String dataLine = sb.toString();
+        return dataLine + "\n";
+    }
+
+    @Benchmark
+    public CharSequence rowFormatter() {
+        long timestamp = nextRow();
+        return formatter.format(timestamp, row);
+    }
+
+    /** 只有电流到期的稀疏行(独立采样周期下最常见的行) */
+    @Benchmark
+    public CharSequence rowFormatterSparse() {
+        long timestamp = nextRow();
+        return formatter.format(timestamp, row, Channel.CURRENT.mask());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.systemlogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV行解析: 旧版updateChart的split + Float.parseFloat对比{@link CsvRowParser}
+ *
+ * 旧版每行创建String[]和各字段的String；CsvRowParser直接扫描字节数组。
+ * 两者都解析时间戳之外的全部字段，旧版不解析时间戳，因此rowParser多做了一项工作。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class CsvParseBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private String[] lines;
+    private byte[][] lineBytes;
+    private final CsvRowParser parser = new CsvRowParser();
+    private final float[] values = new float[Channel.COUNT];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        lines = BenchmarkData.csvLines(ROWS);
+        lineBytes = new byte[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            lineBytes[i] = lines[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) & (ROWS - 1);
+        return i;
+    }
+
+    @Benchmark
+    public void legacySplit(Blackhole blackhole) {
+        String[] parts = lines[nextIndex()].split(",");
+        for (int c = 1; c < parts.length; c++) {
+            blackhole.consume(Float.parseFloat(parts[c]));
+        }
+    }
+
+    @Benchmark
+    public long rowParser(Blackhole blackhole) {
+        byte[] b = lineBytes[nextIndex()];
+        int end = indexOf(b, 0);
+        long timestamp = parser.parseTimestamp(b, 0, end);
+        for (int c = 0; c < Channel.COUNT && end < b.length; c++) {
+            int start = end + 1;
+            end = indexOf(b, start);
+            values[c] = CsvRowParser.parseFloat(b, start, end);
+        }
+        blackhole.consume(values);
+        return timestamp;
+    }
+
+    private static int indexOf(byte[] b, int from) {
+        for (int i = from; i < b.length; i++) {
+            if (b[i] == ',') return i;
+        }
+        return b.length;
+    }
+}
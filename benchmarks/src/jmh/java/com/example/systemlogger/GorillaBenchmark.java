@@ -0,0 +1,77 @@
+package com.example.systemlogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gorilla块编码/解码的吞吐量(每秒样本数)，不含文件I/O
+ *
+ * 每次调用编码或解码一个{@link CompressedSessionWriter#DEFAULT_BLOCK_SAMPLES}样本的块，
+ * 数据为{@link BenchmarkData}的7通道1Hz信号，压缩率见setUp的输出。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class GorillaBenchmark {
+
+    private static final int ROWS = CompressedSessionWriter.DEFAULT_BLOCK_SAMPLES;
+
+    private final int[][] bits = new int[ROWS][Channel.COUNT];
+    private final int[] row = new int[Channel.COUNT];
+    private final GorillaEncoder encoder = new GorillaEncoder(Channel.COUNT, 4096, true);
+    private final GorillaDecoder decoder = new GorillaDecoder(Channel.COUNT, true);
+    private byte[] block;
+    private int blockLength;
+
+    @Setup
+    public void setUp() {
+        float[] samples = BenchmarkData.samples(ROWS);
+        float[] values = new float[Channel.COUNT];
+        for (int i = 0; i < ROWS; i++) {
+            System.arraycopy(samples, i * Channel.COUNT, values, 0, Channel.COUNT);
+            CompressedSessionWriter.toBits(values, bits[i]);
+        }
+        encodeBlock();
+        blockLength = encoder.byteLength();
+        block = Arrays.copyOf(encoder.buffer(), blockLength);
+        System.out.println(ROWS + "个样本 " + blockLength + "字节 ("
+            + String.format("%.1f", blockLength * 8.0 / ROWS) + "位/样本，原始" + BinarySessionWriter.recordSize(Channel.COUNT) + "字节/样本)");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int encode() {
+        return encodeBlock();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long decode(Blackhole blackhole) {
+        decoder.reset(block, blockLength, ROWS, BenchmarkData.START_MILLIS);
+        long sum = 0;
+        while (decoder.next(row)) {
+            sum += decoder.timestamp();
+        }
+        blackhole.consume(row);
+        return sum;
+    }
+
+    private int encodeBlock() {
+        encoder.reset();
+        for (int i = 0; i < ROWS; i++) {
+            long offsetMillis = i * BenchmarkData.PERIOD_MILLIS;
+            encoder.add(BenchmarkData.START_MILLIS + offsetMillis, offsetMillis * 1_000_000L, bits[i]);
+        }
+        return encoder.byteLength();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.systemlogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志写入策略的吞吐量(每秒写入行数)
+ *
+ * - legacyFileWriterPerRow: 旧版recordData，每行打开FileWriter追加后关闭
+ * - bufferedLine: {@link BufferedLogWriter}按服务的默认策略(每30行或10秒)提交CSV行
+ * - bufferedLineFsync: 同上，每批提交后fsync
+ * - sessionWriter: 各落盘格式的{@link SessionWriter}，包含格式化/编码的开销
+ *
+ * 每轮迭代写入新的临时文件，结束后删除。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LogWriteBenchmark {
+
+    private static final int ROWS = 1024;
+    private static final int FLUSH_MAX_RECORDS = 30;
+    private static final long FLUSH_MAX_DELAY_MS = 10_000;
+
+    /**
+     * 每个线程的样本数据和临时目录
+     */
+    @State(Scope.Thread)
+    public static class Data {
+        float[] samples;
+        String[] lines;
+        final float[] row = new float[Channel.COUNT];
+        File dir;
+        int next;
+
+        @Setup
+        public void setUp() throws IOException {
+            samples = BenchmarkData.samples(ROWS);
+            lines = BenchmarkData.csvLines(ROWS);
+            dir = BenchmarkData.createTempDir("logwrite");
+        }
+
+        @TearDown
+        public void tearDown() {
+            BenchmarkData.deleteRecursively(dir);
+        }
+
+        int nextIndex() {
+            int i = next;
+            next = (next + 1) & (ROWS - 1);
+            return i;
+        }
+
+        long nextRow() {
+            int i = nextIndex();
+            System.arraycopy(samples, i * Channel.COUNT, row, 0, Channel.COUNT);
+            return BenchmarkData.START_MILLIS + i * BenchmarkData.PERIOD_MILLIS;
+        }
+
+        File newFile(String extension) {
+            return new File(dir, "session_" + System.nanoTime() + extension);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LegacyFile {
+        File file;
+
+        @Setup(Level.Iteration)
+        public void setUp(Data data) {
+            file = data.newFile(".csv");
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LineWriter {
+        BufferedLogWriter writer;
+        File file;
+
+        void open(Data data, BufferedLogWriter.Durability durability) throws IOException {
+            file = data.newFile(".csv");
+            writer = new BufferedLogWriter(file, true,
+                new BufferedLogWriter.FlushPolicy(FLUSH_MAX_RECORDS, FLUSH_MAX_DELAY_MS, durability));
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            writer.close();
+            file.delete();
+        }
+    }
+
+    public static class BufferedLines extends LineWriter {
+        @Setup(Level.Iteration)
+        public void setUp(Data data) throws IOException {
+            open(data, BufferedLogWriter.Durability.BUFFERED);
+        }
+    }
+
+    public static class FsyncLines extends LineWriter {
+        @Setup(Level.Iteration)
+        public void setUp(Data data) throws IOException {
+            open(data, BufferedLogWriter.Durability.FSYNC_PER_BATCH);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FormatWriter {
+        @Param({"CSV", "BINARY", "COMPRESSED"})
+        public SessionFormat format;
+
+        SessionWriter writer;
+        File file;
+
+        @Setup(Level.Iteration)
+        public void setUp(Data data) throws IOException {
+            file = data.newFile(format.extension);
+            writer = format.createWriter(file,
+                new BufferedLogWriter.FlushPolicy(FLUSH_MAX_RECORDS, FLUSH_MAX_DELAY_MS,
+                    BufferedLogWriter.Durability.BUFFERED));
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            writer.close();
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public void legacyFileWriterPerRow(Data data, LegacyFile legacy) throws IOException {
+        String dataLine = data.lines[data.nextIndex()];
+        try (FileWriter writer = new FileWriter(legacy.file, true)) {
+            writer.write(dataLine + "\n");
+        }
+    }
+
+    @Benchmark
+    public void bufferedLine(Data data, BufferedLines line) throws IOException {
+        line.writer.append(data.lines[data.nextIndex()]);
+    }
+
+    @Benchmark
+    public void bufferedLineFsync(Data data, FsyncLines line) throws IOException {
+        line.writer.append(data.lines[data.nextIndex()]);
+    }
+
+    @Benchmark
+    public void sessionWriter(Data data, FormatWriter session) throws IOException {
+        long timestamp = data.nextRow();
+        session.writer.append(timestamp, (timestamp - BenchmarkData.START_MILLIS) * 1_000_000L, data.row);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.systemlogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整流水线的单个样本开销: 探测(零耗时的模拟数据源) + 会话写入 + 汇总 + 摘要 + 历史发布
+ *
+ * 不经过调度器，直接在基准线程上调用{@link SessionRecorder#recordData(int)}，
+ * 得到的是采样线程每个样本的CPU上限；调度延迟和抖动见PipelineLoadDriver。
+ * 分段达到64MB时切换，压缩在后台线程进行。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class PipelineBenchmark {
+
+    @Param({"CSV", "BINARY", "COMPRESSED"})
+    public SessionFormat format;
+
+    private File dir;
+    private ExecutorService archiveExecutor;
+    private SessionRecorder recorder;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = BenchmarkData.createTempDir("pipeline");
+        archiveExecutor = Executors.newSingleThreadExecutor();
+        recorder = new SessionRecorder(dir, new SessionRecorder.Options().format(format),
+            Arrays.asList(
+                new FakeSensorSource("fake-thermal", Channel.THERMAL_CPU.mask() | Channel.THERMAL_GPU.mask()
+                    | Channel.THERMAL_BATTERY.mask(), 0),
+                new FakeSensorSource("fake-device", Channel.BATTERY_LEVEL.mask() | Channel.CURRENT.mask()
+                    | Channel.BRIGHTNESS.mask(), 0),
+                new SkinEstimateSource()),
+            null, archiveExecutor, new Instrumentation());
+        recorder.open(false);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        recorder.stop();
+        archiveExecutor.shutdown();
+        archiveExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public void recordSample() {
+        recorder.recordData(Channel.ALL_MASK);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.systemlogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各落盘格式的顺序读取(导出、会话回放): 每行平均耗时和分配
+ *
+ * 预先用bulk策略写入一个ROWS行的文件，每次调用打开读取器读完整个文件。
+ * 结果按行计(OperationsPerInvocation)，文件大小见setUp的输出。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class SessionReadBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"CSV", "BINARY", "COMPRESSED"})
+    public SessionFormat format;
+
+    private File dir;
+    private File file;
+    private final float[] values = new float[Channel.COUNT];
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = BenchmarkData.createTempDir("sessionread");
+        file = new File(dir, "session" + format.extension);
+        float[] samples = BenchmarkData.samples(ROWS);
+        float[] row = new float[Channel.COUNT];
+        try (SessionWriter writer = format.createWriter(file, BufferedLogWriter.FlushPolicy.bulk())) {
+            for (int i = 0; i < ROWS; i++) {
+                System.arraycopy(samples, i * Channel.COUNT, row, 0, Channel.COUNT);
+                long offsetMillis = i * BenchmarkData.PERIOD_MILLIS;
+                writer.append(BenchmarkData.START_MILLIS + offsetMillis, offsetMillis * 1_000_000L, row);
+            }
+        }
+        System.out.println(format + ": " + ROWS + "行 " + file.length() + "字节 ("
+            + file.length() / ROWS + "字节/行)");
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int readAll(Blackhole blackhole) throws IOException {
+        int rows = 0;
+        try (SessionReader reader = format.openReader(file)) {
+            while (reader.next(values)) {
+                blackhole.consume(reader.timestampNanos());
+                rows++;
+            }
+        }
+        blackhole.consume(values);
+        return rows;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.systemlogger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * sysfs温区读取: 旧版readThermalZone对比{@link ThermalZones}
+ *
+ * 在临时目录中模拟/sys/class/thermal的四个温区。
+ * 旧版每次读取都打开文件、创建BufferedReader(8KB字符缓冲)和String；
+ * ThermalZones保持文件打开，用pread读入复用的缓冲区并直接解析字节。
+ * parse*只比较解析本身，不含文件读取。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ThermalReadBenchmark {
+
+    private static final String[] TYPES = {"cpu-0-0", "gpu0", "battery", "skin-therm"};
+    private static final String READING = "45300\n";
+
+    private File root;
+    private String[] tempPaths;
+    private ThermalZones zones;
+    private final byte[] readingBytes = READING.getBytes(StandardCharsets.US_ASCII);
+    private final String readingLine = READING.trim();
+
+    @Setup
+    public void setUp() throws IOException {
+        root = BenchmarkData.createTempDir("thermal");
+        tempPaths = new String[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            File zone = new File(root, "thermal_zone" + i);
+            if (!zone.mkdir()) {
+                throw new IOException("mkdir failed: " + zone);
+            }
+            write(new File(zone, "type"), TYPES[i] + "\n");
+            File temp = new File(zone, "temp");
+            write(temp, READING);
+            tempPaths[i] = temp.getPath();
+        }
+        zones = ThermalZones.discover(root);
+        if (!zones.provides(Channel.THERMAL_SKIN)) {
+            throw new IllegalStateException("zones not discovered: " + zones.describe());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        zones.close();
+        BenchmarkData.deleteRecursively(root);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /** 四个温区各读一次 */
+    @Benchmark
+    public float legacyReadLine() {
+        float sum = 0f;
+        for (String path : tempPaths) {
+            sum += legacyReadThermalZone(path);
+        }
+        return sum;
+    }
+
+    private static float legacyReadThermalZone(String path) {
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(path));
+            String tempStr = reader.readLine();
+            reader.close();
+            if (tempStr != null && !tempStr.isEmpty()) {
+                return Float.parseFloat(tempStr) / 1000.0f;
+            }
+        } catch (Exception e) {
+            // 与旧版一致: 忽略错误
+        }
+        return 0f;
+    }
+
+    /** 四个温区各读一次 */
+    @Benchmark
+    public float thermalZones() {
+        return zones.read(Channel.THERMAL_CPU) + zones.read(Channel.THERMAL_GPU)
+            + zones.read(Channel.THERMAL_BATTERY) + zones.read(Channel.THERMAL_SKIN);
+    }
+
+    @Benchmark
+    public float parseLegacy() {
+        return Float.parseFloat(readingLine) / 1000.0f;
+    }
+
+    @Benchmark
+    public float parseBytes() {
+        return ThermalZones.parseTemperature(readingBytes, readingBytes.length);
+    }
+}
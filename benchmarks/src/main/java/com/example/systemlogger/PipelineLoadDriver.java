@@ -0,0 +1,127 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在JVM上压测完整的采样流水线: 模拟数据源 -> 时间轮调度 -> 并行探测 -> 会话文件/汇总/历史
+ *
+ * 与LoggingService使用同一个{@link SessionRecorder}，只是数据源换成{@link FakeSensorSource}，
+ * 所有通道跟随采样周期(默认1ms，即1kHz)。运行结束后输出调度延迟/抖动、各阶段耗时直方图
+ * 和文件大小；流水线报告了错误时以状态1退出，可以直接放在CI中运行。
+ *
+ * 参数: [秒数=10] [格式=CSV|BINARY|COMPRESSED] [采样周期ms=1]
+ * 例如 ./gradlew :benchmarks:loadTest --args="30 COMPRESSED 1"
+ */
+public class PipelineLoadDriver {
+
+    private static final int PROBE_THREADS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        SessionFormat format = args.length > 1 ? SessionFormat.parse(args[1]) : SessionFormat.CSV;
+        long periodMillis = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        File directory = Files.createTempDirectory("pipeline").toFile();
+        AtomicInteger probeThreads = new AtomicInteger();
+        ExecutorService probeExecutor = Executors.newFixedThreadPool(PROBE_THREADS,
+            runnable -> new Thread(runnable, "SensorProbe-" + probeThreads.incrementAndGet()));
+        ExecutorService archiveExecutor = Executors.newSingleThreadExecutor();
+
+        SessionRecorder.Options options = new SessionRecorder.Options()
+            .format(format)
+            .period(periodMillis)
+            .historyCapacity((int) Math.min(Integer.MAX_VALUE, seconds * 1000L / periodMillis + 1));
+        for (Channel channel : Channel.ALL) {
+            options.channelPeriod(channel, SamplingWheel.FOLLOW_BASE);
+        }
+        // 温区和电池数据源的耗时接近真机上sysfs读取和binder调用，亮度偶尔失败
+        List<SensorSource> sources = Arrays.asList(
+            new FakeSensorSource("fake-thermal", Channel.THERMAL_CPU.mask() | Channel.THERMAL_GPU.mask()
+                | Channel.THERMAL_BATTERY.mask(), 20_000),
+            new FakeSensorSource("fake-battery", Channel.BATTERY_LEVEL.mask() | Channel.CURRENT.mask(), 50_000),
+            new FakeSensorSource("fake-display", Channel.BRIGHTNESS.mask(), 5_000).failEvery(1000),
+            new SkinEstimateSource());
+
+        Instrumentation instrumentation = new Instrumentation();
+        SessionRecorder recorder = new SessionRecorder(directory, options, sources,
+            probeExecutor, archiveExecutor, instrumentation);
+        AtomicLong published = new AtomicLong();
+        recorder.setListener(new SessionRecorder.Listener() {
+            @Override
+            public void onEvent(String message) {
+                System.out.println(message);
+            }
+
+            @Override
+            public void onError(String message, Exception e) {
+                System.err.println(message + ": " + e);
+            }
+
+            @Override
+            public void onProbeStateChanged(String name, ProbeHealth.State state, int consecutiveFailures) {
+                System.out.println("Probe " + name + " -> " + state);
+            }
+
+            @Override
+            public void onSamplePublished() {
+                published.incrementAndGet();
+            }
+        });
+
+        System.out.println("Running " + seconds + "s, " + format + ", " + recorder.describeSampling()
+            + " in " + directory);
+        long startNanos = System.nanoTime();
+        recorder.start(false);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        String stats = recorder.getSamplingStats().describe();
+        String probes = recorder.getProbeStates();
+        recorder.stop();
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+
+        probeExecutor.shutdownNow();
+        archiveExecutor.shutdown();
+        archiveExecutor.awaitTermination(1, TimeUnit.MINUTES);
+
+        long samples = published.get();
+        System.out.println();
+        System.out.printf("样本: %d (%.0f/s, 目标%d/s)%n", samples, samples / elapsed, 1000 / periodMillis);
+        System.out.println("采样: " + stats);
+        System.out.println("数据源: " + probes);
+        System.out.print(instrumentation.dump());
+        System.out.println("文件: " + describeFiles(directory));
+
+        deleteRecursively(directory);
+        long errors = instrumentation.counter("errors.write").get() + instrumentation.counter("errors.sample").get();
+        System.exit(errors == 0 ? 0 : 1);
+    }
+
+    private static String describeFiles(File directory) {
+        StringBuilder sb = new StringBuilder();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                sb.append("\n  ").append(file.getName()).append(' ').append(file.length()).append(" bytes");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
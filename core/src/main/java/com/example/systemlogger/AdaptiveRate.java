@@ -0,0 +1,130 @@
+package com.example.systemlogger;
+
+/**
+ * 自适应采样周期
+ *
+ * 每个样本之后更新各通道的平滑均值、趋势(均值的变化率，单位/秒)和方差
+ * (指数滑动平均，时间常数5秒)：
+ * - 任一通道的变化率或标准差超过阈值: 立即切到最短周期，完整记录温度爬升等快速变化
+ * - 所有通道保持平稳超过calmMillis: 周期加倍，直到最长周期(空闲时的下限频率)
+ * 趋势取平滑均值的斜率而不是相邻样本之差，短周期下的传感器噪声和量化跳变(如0.1°C)
+ * 基本相互抵消，不会被误判为快速变化。
+ * 各通道按自己上一次的采样时间计算间隔，稀疏行(通道周期不同)不影响斜率。
+ * 只由采样线程调用，非线程安全。
+ */
+public class AdaptiveRate {
+
+    private static final long TAU_MILLIS = 5_000;
+    private static final long CALM_MILLIS = 10_000;
+
+    private final long minPeriodMillis;
+    private final long maxPeriodMillis;
+    private final float[] rateThresholds;
+    private final float[] stdThresholds;
+
+    private final boolean[] seen = new boolean[Channel.COUNT];
+    private final float[] mean = new float[Channel.COUNT];
+    private final float[] variance = new float[Channel.COUNT];
+    private final float[] trend = new float[Channel.COUNT];
+    private final long[] lastTimestamp = new long[Channel.COUNT];
+    private long calmSince = Long.MIN_VALUE;
+    private long periodMillis;
+
+    /**
+     * @param rateThresholds 各通道变化率阈值(单位/秒)，NaN或0表示不参与判断
+     * @param stdThresholds 各通道标准差阈值，NaN或0表示不参与判断
+     */
+    public AdaptiveRate(long minPeriodMillis, long maxPeriodMillis, float[] rateThresholds, float[] stdThresholds) {
+        this.minPeriodMillis = Math.max(1, minPeriodMillis);
+        this.maxPeriodMillis = Math.max(this.minPeriodMillis, maxPeriodMillis);
+        this.rateThresholds = rateThresholds.clone();
+        this.stdThresholds = stdThresholds.clone();
+        this.periodMillis = this.minPeriodMillis;
+    }
+
+    /**
+     * 默认阈值: 温度0.03°C/秒(约2°C/分钟)或标准差0.5°C，电流20mA/秒或标准差150mA，
+     * 电量和亮度不参与判断(变化本身就是离散的阶跃)
+     */
+    public static AdaptiveRate withDefaults(long minPeriodMillis, long maxPeriodMillis) {
+        float[] rates = new float[Channel.COUNT];
+        float[] stds = new float[Channel.COUNT];
+        for (Channel channel : Channel.ALL) {
+            switch (channel) {
+                case THERMAL_CPU:
+                case THERMAL_GPU:
+                case THERMAL_BATTERY:
+                case THERMAL_SKIN:
+                    rates[channel.ordinal()] = 0.03f;
+                    stds[channel.ordinal()] = 0.5f;
+                    break;
+                case CURRENT:
+                    rates[channel.ordinal()] = 20f;
+                    stds[channel.ordinal()] = 150f;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new AdaptiveRate(minPeriodMillis, maxPeriodMillis, rates, stds);
+    }
+
+    /**
+     * 记录一个样本，返回下一次采样前应等待的周期
+     */
+    public long onSample(long timestampMillis, int mask, float[] values) {
+        boolean active = false;
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            float v = values[ch];
+            if ((mask & (1 << ch)) == 0 || Float.isNaN(v)) {
+                continue;
+            }
+            long dt = timestampMillis - lastTimestamp[ch];
+            lastTimestamp[ch] = timestampMillis;
+            if (!seen[ch]) {
+                seen[ch] = true;
+                mean[ch] = v;
+                continue;
+            }
+            if (dt > 0) {
+                float alpha = (float) (1.0 - Math.exp(-(double) dt / TAU_MILLIS));
+                float deviation = v - mean[ch];
+                mean[ch] += alpha * deviation;
+                float slope = alpha * deviation * 1000f / dt;
+                trend[ch] += alpha * (slope - trend[ch]);
+                variance[ch] = (1 - alpha) * (variance[ch] + alpha * deviation * deviation);
+            }
+            if (exceeds(Math.abs(trend[ch]), rateThresholds[ch])
+                    || exceeds(variance[ch], stdThresholds[ch] * stdThresholds[ch])) {
+                active = true;
+            }
+        }
+
+        if (active) {
+            periodMillis = minPeriodMillis;
+            calmSince = timestampMillis;
+        } else if (calmSince == Long.MIN_VALUE) {
+            calmSince = timestampMillis;
+        } else if (timestampMillis - calmSince >= CALM_MILLIS) {
+            periodMillis = Math.min(maxPeriodMillis, periodMillis * 2);
+            calmSince = timestampMillis;
+        }
+        return periodMillis;
+    }
+
+    public long periodMillis() {
+        return periodMillis;
+    }
+
+    public long minPeriodMillis() {
+        return minPeriodMillis;
+    }
+
+    public long maxPeriodMillis() {
+        return maxPeriodMillis;
+    }
+
+    private static boolean exceeds(float value, float threshold) {
+        return threshold > 0 && value > threshold;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 顺序读取{@link BinarySessionWriter}写出的会话文件
+ *
+ * 末尾不完整的记录(进程被杀时写了一半)会被忽略。
+ */
+public class BinarySessionReader extends SessionFileReader {
+
+    private long timestampNanos;
+    private long elapsedNanos;
+
+    public BinarySessionReader(File file) throws IOException {
+        super(file, BinarySessionWriter.MAGIC, BinarySessionWriter.VERSION);
+        if (recordSize != BinarySessionWriter.recordSize(version, channelCount)) {
+            close();
+            throw new IOException("Corrupt header: record size " + recordSize);
+        }
+    }
+
+    public int recordSize() {
+        return recordSize;
+    }
+
+    @Override
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public boolean next(float[] values) throws IOException {
+        if (!fill(recordSize)) {
+            return false;
+        }
+        timestampNanos = buffer.getLong();
+        if (version >= 2) {
+            elapsedNanos = buffer.getLong();
+        }
+        for (int i = 0; i < channelCount; i++) {
+            store(values, i, buffer.getInt());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 定长二进制会话写入器
+ *
+ * 文件布局(小端):
+ * <pre>
+ * 头部: 见{@link SessionFileReader#writeHeader}
+ * 记录: long epochNanos, long elapsedNanos, 每个通道4字节(float或int)
+ * </pre>
+ * 每条记录 16 + 4*N 字节，8个通道约48字节，远小于CSV文本。
+ * 版本1的记录没有elapsedNanos，仍可读取，但不在其末尾继续写入。
+ * 本行未采样的通道: 浮点写NaN，整数写{@link Channel#MISSING_INT}。
+ */
+public class BinarySessionWriter implements SessionWriter {
+
+    public static final int MAGIC = 0x474F4C53; // "SLOG"
+    public static final int VERSION = 2;
+
+    private final BufferedLogWriter writer;
+    private final SparseTimeIndex.Writer index;
+
+    public BinarySessionWriter(File file, BufferedLogWriter.FlushPolicy policy) throws IOException {
+        this(file, policy, null);
+    }
+
+    /**
+     * @param index 稀疏时间索引，为null时不写索引；随本写入器一起关闭
+     */
+    public BinarySessionWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                               SparseTimeIndex.Writer index) throws IOException {
+        this(file, policy, index, false);
+    }
+
+    private BinarySessionWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                                SparseTimeIndex.Writer index, boolean resume) throws IOException {
+        this.writer = new BufferedLogWriter(file, resume, policy);
+        this.index = index;
+        if (!resume) {
+            SessionFileReader.writeHeader(writer, MAGIC, VERSION, recordSize(Channel.COUNT));
+        }
+    }
+
+    /**
+     * 在已有会话的末尾继续追加(末尾已由{@link SessionRecovery}截断到完整的记录)
+     * @throws IOException 文件是旧版本的记录布局
+     */
+    public static BinarySessionWriter resume(File file, BufferedLogWriter.FlushPolicy policy,
+                                             SparseTimeIndex.Writer index) throws IOException {
+        try (BinarySessionReader reader = new BinarySessionReader(file)) {
+            if (reader.version != VERSION) {
+                throw new IOException("Cannot append to session version " + reader.version);
+            }
+        }
+        return new BinarySessionWriter(file, policy, index, true);
+    }
+
+    public static int recordSize(int channelCount) {
+        return recordSize(VERSION, channelCount);
+    }
+
+    static int recordSize(int version, int channelCount) {
+        return (version >= 2 ? 16 : 8) + 4 * channelCount;
+    }
+
+    @Override
+    public synchronized void append(long timestampMillis, long elapsedNanos, float[] values) throws IOException {
+        if (index != null) {
+            index.record(timestampMillis, writer.position());
+        }
+        writer.putLong(timestampMillis * 1_000_000L);
+        writer.putLong(elapsedNanos);
+        for (Channel channel : Channel.ALL) {
+            writer.putInt(channel.toBits(values[channel.ordinal()]));
+        }
+        writer.endRecord();
+    }
+
+    @Override
+    public synchronized long position() {
+        return writer.position();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        writer.flush();
+        if (index != null) {
+            index.flush();
+        }
+    }
+
+    @Override
+    public synchronized void flushIfDue() throws IOException {
+        writer.flushIfDue();
+        if (index != null) {
+            index.flushIfDue();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writer.close();
+        } finally {
+            if (index != null) {
+                index.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.systemlogger;
+
+/**
+ * 按位读取(高位在前)，与{@link BitWriter}对应
+ */
+final class BitReader {
+
+    private byte[] bytes;
+    private int bitPosition;
+    private int bitLimit;
+
+    void reset(byte[] bytes, int byteLength) {
+        this.bytes = bytes;
+        this.bitPosition = 0;
+        this.bitLimit = byteLength * 8;
+    }
+
+    boolean readBit() {
+        checkAvailable(1);
+        boolean bit = (bytes[bitPosition >>> 3] & (0x80 >>> (bitPosition & 7))) != 0;
+        bitPosition++;
+        return bit;
+    }
+
+    /**
+     * 读取count位(count <= 64)，高位在前
+     */
+    long readBits(int count) {
+        checkAvailable(count);
+        long value = 0;
+        while (count > 0) {
+            int offset = bitPosition & 7;
+            int available = 8 - offset;
+            int take = Math.min(available, count);
+            int chunk = (bytes[bitPosition >>> 3] >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+            bitPosition += take;
+            count -= take;
+        }
+        return value;
+    }
+
+    private void checkAvailable(int bits) {
+        if (bitPosition + bits > bitLimit) {
+            throw new IllegalStateException("Bit stream exhausted");
+        }
+    }
+}
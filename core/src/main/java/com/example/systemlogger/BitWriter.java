@@ -0,0 +1,64 @@
+package com.example.systemlogger;
+
+import java.util.Arrays;
+
+/**
+ * 按位写入的可增长缓冲区(高位在前)
+ */
+final class BitWriter {
+
+    private byte[] bytes;
+    private int bitLength = 0;
+
+    BitWriter(int initialCapacity) {
+        bytes = new byte[Math.max(16, initialCapacity)];
+    }
+
+    void reset() {
+        Arrays.fill(bytes, 0, byteLength(), (byte) 0);
+        bitLength = 0;
+    }
+
+    void writeBit(boolean bit) {
+        ensureCapacity(1);
+        if (bit) {
+            bytes[bitLength >>> 3] |= (byte) (0x80 >>> (bitLength & 7));
+        }
+        bitLength++;
+    }
+
+    /**
+     * 写入value的低count位(count <= 64)
+     */
+    void writeBits(long value, int count) {
+        ensureCapacity(count);
+        while (count > 0) {
+            int offset = bitLength & 7;
+            int free = 8 - offset;
+            int take = Math.min(free, count);
+            int chunk = (int) (value >>> (count - take)) & ((1 << take) - 1);
+            bytes[bitLength >>> 3] |= (byte) (chunk << (free - take));
+            bitLength += take;
+            count -= take;
+        }
+    }
+
+    int bitLength() {
+        return bitLength;
+    }
+
+    int byteLength() {
+        return (bitLength + 7) >>> 3;
+    }
+
+    byte[] buffer() {
+        return bytes;
+    }
+
+    private void ensureCapacity(int bits) {
+        int needed = (bitLength + bits + 7) >>> 3;
+        if (needed > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(needed, bytes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.systemlogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * 会话日志的长生命周期写入器
+ *
+ * 文件只在会话开始时打开一次，记录先编码进可复用的缓冲区，
+ * 文本行用append()，定长二进制记录用putXxx() + endRecord()，
+ * 再按刷新策略成批(group commit)写入文件：
+ * - 累计N条记录
+ * - 距第一条未刷新记录超过T毫秒(写入下一条记录时或调用flushIfDue()时检查)
+ * - 调用方显式flush()(onDestroy / 低内存)
+ *
+ * 二进制字段统一使用小端字节序。
+ * 所有方法都是同步的，采样线程写入、主线程刷新可以并发调用。
+ */
+public class BufferedLogWriter implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 持久化级别
+     */
+    public enum Durability {
+        /** 只写入页缓存，由系统决定何时落盘 */
+        BUFFERED,
+        /** 每批写入后执行fsync，断电也不丢已提交的批次 */
+        FSYNC_PER_BATCH
+    }
+
+    /**
+     * 刷新策略: 每N条记录或每T毫秒提交一批
+     */
+    public static final class FlushPolicy {
+        final int maxRecords;
+        final long maxDelayNanos;
+        final Durability durability;
+
+        public FlushPolicy(int maxRecords, long maxDelayMillis, Durability durability) {
+            this.maxRecords = Math.max(1, maxRecords);
+            this.maxDelayNanos = maxDelayMillis >= Long.MAX_VALUE / 1_000_000L
+                ? Long.MAX_VALUE : Math.max(0, maxDelayMillis) * 1_000_000L;
+            this.durability = durability != null ? durability : Durability.BUFFERED;
+        }
+
+        /**
+         * 批量写(导出/转码)：只在缓冲区满或关闭时提交
+         */
+        public static FlushPolicy bulk() {
+            return new FlushPolicy(Integer.MAX_VALUE, Long.MAX_VALUE, Durability.BUFFERED);
+        }
+    }
+
+    private final FileOutputStream stream;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final FlushPolicy policy;
+
+    private int pendingRecords = 0;
+    private long firstPendingNanos = 0;
+    private long committedBytes;
+    private boolean closed = false;
+
+    public BufferedLogWriter(File file, boolean append, FlushPolicy policy) throws IOException {
+        this(file, append, policy, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BufferedLogWriter(File file, boolean append, FlushPolicy policy, int bufferSize) throws IOException {
+        this.stream = new FileOutputStream(file, append);
+        this.channel = stream.getChannel();
+        this.buffer = ByteBuffer.allocateDirect(Math.max(256, bufferSize)).order(ByteOrder.LITTLE_ENDIAN);
+        this.policy = policy;
+        this.committedBytes = channel.size();
+    }
+
+    /**
+     * 追加一行(自动补换行符)，按刷新策略决定是否提交
+     */
+    public synchronized void append(CharSequence line) throws IOException {
+        ensureOpen();
+        encode(line);
+        put((byte) '\n');
+        endRecord();
+    }
+
+    public synchronized void putBytes(byte[] bytes) throws IOException {
+        putBytes(bytes, 0, bytes.length);
+    }
+
+    public synchronized void putBytes(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    public synchronized void putInt(int value) throws IOException {
+        ensureOpen();
+        reserve(4);
+        buffer.putInt(value);
+    }
+
+    public synchronized void putLong(long value) throws IOException {
+        ensureOpen();
+        reserve(8);
+        buffer.putLong(value);
+    }
+
+    public synchronized void putFloat(float value) throws IOException {
+        ensureOpen();
+        reserve(4);
+        buffer.putFloat(value);
+    }
+
+    /**
+     * 标记一条二进制记录结束，按刷新策略决定是否提交
+     */
+    public synchronized void endRecord() throws IOException {
+        ensureOpen();
+        if (pendingRecords++ == 0) {
+            firstPendingNanos = System.nanoTime();
+        }
+        if (pendingRecords >= policy.maxRecords
+                || System.nanoTime() - firstPendingNanos >= policy.maxDelayNanos) {
+            commit();
+        }
+    }
+
+    /**
+     * 距第一条未提交记录已超过T毫秒时提交；没有新记录时由写入方定期调用，
+     * 采样间隔比T长时缓冲的记录也不会一直留在内存中
+     */
+    public synchronized void flushIfDue() throws IOException {
+        if (closed || pendingRecords == 0) return;
+        if (System.nanoTime() - firstPendingNanos >= policy.maxDelayNanos) {
+            commit();
+        }
+    }
+
+    /**
+     * 立即提交缓冲区中的所有记录
+     */
+    public synchronized void flush() throws IOException {
+        if (closed) return;
+        commit();
+    }
+
+    /**
+     * 当前逻辑文件长度(包括尚未提交的缓冲数据)
+     */
+    public synchronized long position() {
+        return committedBytes + buffer.position();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        try {
+            commit();
+        } finally {
+            closed = true;
+            stream.close();
+        }
+    }
+
+    private void commit() throws IOException {
+        drain();
+        if (pendingRecords > 0 && policy.durability == Durability.FSYNC_PER_BATCH) {
+            channel.force(false);
+        }
+        pendingRecords = 0;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            committedBytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put(b);
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    // 手工UTF-8编码，避免每行创建String/byte[]
+    private void encode(CharSequence s) throws IOException {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xC0 | (c >> 6)));
+                put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                put((byte) (0xF0 | (cp >> 18)));
+                put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                put((byte) (0xE0 | (c >> 12)));
+                put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer already closed");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.systemlogger;
+
+/**
+ * 会话记录的数据通道
+ *
+ * 枚举顺序即CSV列顺序，也是样本数组float[]的下标。
+ * 整数通道在内存中同样以float保存(数值均远小于2^24，可精确表示)。
+ * 各通道按自己的周期采样，某一行中未采样的通道值为NaN(稀疏行)。
+ */
+public enum Channel {
+    THERMAL_CPU("ThermalCPU", Type.FLOAT),
+    THERMAL_GPU("ThermalGPU", Type.FLOAT),
+    THERMAL_BATTERY("ThermalBattery", Type.FLOAT),
+    THERMAL_SKIN("ThermalSkin", Type.FLOAT),
+    BATTERY_LEVEL("BatteryLevel(%)", Type.INT),
+    CURRENT("Current(mA)", Type.INT),
+    BRIGHTNESS("Brightness", Type.INT);
+
+    public enum Type { FLOAT, INT }
+
+    public static final Channel[] ALL = values();
+    public static final int COUNT = ALL.length;
+    /** 全部通道的位掩码 */
+    public static final int ALL_MASK = (1 << COUNT) - 1;
+
+    /** 整数通道的缺失值(NaN)在二进制文件中的表示 */
+    public static final int MISSING_INT = Integer.MIN_VALUE;
+
+    /** CSV时间戳列名 */
+    public static final String TIME_COLUMN = "Time";
+    /** 可选的单调时钟列名(纳秒)，紧跟在时间戳之后 */
+    public static final String ELAPSED_COLUMN = "ElapsedNanos";
+
+    public final String columnName;
+    public final Type type;
+
+    Channel(String columnName, Type type) {
+        this.columnName = columnName;
+        this.type = type;
+    }
+
+    /** 本通道在位掩码中的位 */
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * 按枚举名(不区分大小写)查找通道，未知名称返回null
+     */
+    public static Channel parse(String name) {
+        for (Channel channel : ALL) {
+            if (channel.name().equalsIgnoreCase(name)) {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 把通道值转换为文件中的32位模式: 浮点通道为IEEE位模式，整数通道为整数值，
+     * 缺失的整数值写为{@link #MISSING_INT}
+     */
+    public int toBits(float value) {
+        if (type == Type.FLOAT) {
+            return Float.floatToRawIntBits(value);
+        }
+        return Float.isNaN(value) ? MISSING_INT : (int) value;
+    }
+
+    /**
+     * {@link #toBits}的逆变换
+     */
+    public static float fromBits(boolean intColumn, int bits) {
+        if (!intColumn) {
+            return Float.intBitsToFloat(bits);
+        }
+        return bits == MISSING_INT ? Float.NaN : bits;
+    }
+
+    /**
+     * CSV头部，与旧版本文件保持一致
+     */
+    public static String csvHeader() {
+        return csvHeader(ALL_MASK);
+    }
+
+    /**
+     * 只包含channelMask中通道的CSV头部
+     */
+    public static String csvHeader(int channelMask) {
+        return csvHeader(channelMask, false);
+    }
+
+    /**
+     * @param elapsed 为true时在时间戳之后加入{@link #ELAPSED_COLUMN}列
+     */
+    public static String csvHeader(int channelMask, boolean elapsed) {
+        StringBuilder sb = new StringBuilder(TIME_COLUMN);
+        if (elapsed) {
+            sb.append(',').append(ELAPSED_COLUMN);
+        }
+        for (Channel channel : ALL) {
+            if ((channelMask & channel.mask()) != 0) {
+                sb.append(',').append(channel.columnName);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 顺序读取{@link CompressedSessionWriter}写出的会话文件
+ *
+ * 末尾不完整的块(进程被杀时写了一半)会被忽略。
+ */
+public class CompressedSessionReader extends SessionFileReader {
+
+    private final GorillaDecoder decoder;
+    private final int[] bits;
+    private byte[] payload = new byte[4096];
+    private long timestampNanos;
+
+    public CompressedSessionReader(File file) throws IOException {
+        super(file, CompressedSessionWriter.MAGIC, CompressedSessionWriter.VERSION);
+        this.decoder = new GorillaDecoder(channelCount, version >= 2);
+        this.bits = new int[channelCount];
+    }
+
+    @Override
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public long elapsedNanos() {
+        return decoder.elapsedNanos();
+    }
+
+    /**
+     * 只有块的开头可以定位，块中间返回-1
+     */
+    @Override
+    public long seekPoint() throws IOException {
+        return decoder.remaining() == 0 ? position() : -1;
+    }
+
+    @Override
+    public void seek(long offset) throws IOException {
+        super.seek(offset);
+        decoder.reset(payload, 0, 0, 0);
+    }
+
+    @Override
+    public boolean next(float[] values) throws IOException {
+        while (!decoder.next(bits)) {
+            if (!readBlock()) {
+                return false;
+            }
+        }
+        timestampNanos = decoder.timestamp() * 1_000_000L;
+        for (int i = 0; i < channelCount; i++) {
+            store(values, i, bits[i]);
+        }
+        return true;
+    }
+
+    private boolean readBlock() throws IOException {
+        if (!fill(CompressedSessionWriter.BLOCK_HEADER_SIZE)) {
+            return false;
+        }
+        if (buffer.getInt() != CompressedSessionWriter.BLOCK_MAGIC) {
+            throw new IOException("Corrupt block header");
+        }
+        int sampleCount = buffer.getInt();
+        int length = buffer.getInt();
+        long firstTimestamp = buffer.getLong();
+        buffer.getLong(); // lastTimestamp，顺序读取时不需要
+        if (length > payload.length) {
+            payload = new byte[Math.max(length, payload.length * 2)];
+        }
+        if (!readFully(payload, length)) {
+            return false;
+        }
+        decoder.reset(payload, length, sampleCount, firstTimestamp);
+        return true;
+    }
+}
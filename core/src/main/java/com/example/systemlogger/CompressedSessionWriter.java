@@ -0,0 +1,160 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Gorilla压缩会话写入器
+ *
+ * 文件布局(小端):
+ * <pre>
+ * 头部: 见{@link SessionFileReader#writeHeader}，recordSize为0
+ * 块:   int blockMagic, int sampleCount, int payloadLength,
+ *       long firstTimestampMillis, long lastTimestampMillis, byte[] payload
+ * </pre>
+ * 每个块可以独立解码，块头中的时间范围可用于跳过不需要的块。
+ * 版本2起payload中同时编码每个样本的单调时钟时间(见{@link GorillaEncoder})，
+ * 版本1的文件仍可读取，但不在其末尾继续写入。
+ * 块在样本数或时长达到上限、或调用flush()时结束并提交(采样间隔很长时
+ * 由flushIfDue()按墙钟结束超时的块)，因此进程被杀时最多丢失当前未结束的一个块。
+ */
+public class CompressedSessionWriter implements SessionWriter {
+
+    public static final int MAGIC = 0x5A474C53; // "SLGZ"
+    public static final int VERSION = 2;
+    public static final int BLOCK_MAGIC = 0x4B4C4247; // "GBLK"
+    public static final int BLOCK_HEADER_SIZE = 28;
+
+    public static final int DEFAULT_BLOCK_SAMPLES = 1024;
+    public static final long DEFAULT_BLOCK_AGE_MS = 5 * 60_000L;
+
+    private final BufferedLogWriter writer;
+    private final GorillaEncoder encoder;
+    private final int[] bits = new int[Channel.COUNT];
+    private final int maxBlockSamples;
+    private final long maxBlockAgeMillis;
+    private final SparseTimeIndex.Writer index;
+
+    public CompressedSessionWriter(File file, BufferedLogWriter.FlushPolicy policy) throws IOException {
+        this(file, policy, null);
+    }
+
+    /**
+     * @param index 稀疏时间索引(每个块一个条目)，为null时不写索引；随本写入器一起关闭
+     */
+    public CompressedSessionWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                                   SparseTimeIndex.Writer index) throws IOException {
+        this(file, policy, DEFAULT_BLOCK_SAMPLES, DEFAULT_BLOCK_AGE_MS, index);
+    }
+
+    public CompressedSessionWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                                   int maxBlockSamples, long maxBlockAgeMillis,
+                                   SparseTimeIndex.Writer index) throws IOException {
+        this(file, policy, maxBlockSamples, maxBlockAgeMillis, index, false);
+    }
+
+    private CompressedSessionWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                                    int maxBlockSamples, long maxBlockAgeMillis,
+                                    SparseTimeIndex.Writer index, boolean resume) throws IOException {
+        this.writer = new BufferedLogWriter(file, resume, policy);
+        this.index = index;
+        this.encoder = new GorillaEncoder(Channel.COUNT, 4096, true);
+        this.maxBlockSamples = Math.max(1, maxBlockSamples);
+        this.maxBlockAgeMillis = maxBlockAgeMillis;
+        if (!resume) {
+            SessionFileReader.writeHeader(writer, MAGIC, VERSION, 0);
+        }
+    }
+
+    /**
+     * 在已有会话的末尾继续追加新的块(末尾已由{@link SessionRecovery}截断到完整的块)
+     * @throws IOException 文件是旧版本的块布局
+     */
+    public static CompressedSessionWriter resume(File file, BufferedLogWriter.FlushPolicy policy,
+                                                 SparseTimeIndex.Writer index) throws IOException {
+        try (CompressedSessionReader reader = new CompressedSessionReader(file)) {
+            if (reader.version != VERSION) {
+                throw new IOException("Cannot append to session version " + reader.version);
+            }
+        }
+        return new CompressedSessionWriter(file, policy, DEFAULT_BLOCK_SAMPLES, DEFAULT_BLOCK_AGE_MS, index, true);
+    }
+
+    /**
+     * 把一行通道值转换为编码器使用的32位模式
+     */
+    static void toBits(float[] values, int[] bits) {
+        for (Channel channel : Channel.ALL) {
+            bits[channel.ordinal()] = channel.toBits(values[channel.ordinal()]);
+        }
+    }
+
+    @Override
+    public synchronized void append(long timestampMillis, long elapsedNanos, float[] values) throws IOException {
+        toBits(values, bits);
+        encoder.add(timestampMillis, elapsedNanos, bits);
+        if (encoder.count() >= maxBlockSamples
+                || timestampMillis - encoder.firstTimestamp() >= maxBlockAgeMillis) {
+            finishBlock();
+        }
+    }
+
+    /**
+     * 已写入的块加上当前块已编码的字节数
+     */
+    @Override
+    public synchronized long position() {
+        return writer.position() + encoder.byteLength();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        finishBlock();
+        if (index != null) {
+            index.flush();
+        }
+    }
+
+    /**
+     * 当前块已达到时长上限时结束它(块按完整块提交，不受刷新策略的T毫秒约束)
+     */
+    @Override
+    public synchronized void flushIfDue() throws IOException {
+        if (encoder.count() > 0 && System.currentTimeMillis() - encoder.firstTimestamp() >= maxBlockAgeMillis) {
+            finishBlock();
+        }
+        if (index != null) {
+            index.flushIfDue();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            finishBlock();
+        } finally {
+            writer.close();
+            if (index != null) {
+                index.close();
+            }
+        }
+    }
+
+    private void finishBlock() throws IOException {
+        if (encoder.count() == 0) {
+            return;
+        }
+        if (index != null) {
+            index.mark(encoder.firstTimestamp(), writer.position());
+        }
+        writer.putInt(BLOCK_MAGIC);
+        writer.putInt(encoder.count());
+        writer.putInt(encoder.byteLength());
+        writer.putLong(encoder.firstTimestamp());
+        writer.putLong(encoder.lastTimestamp());
+        writer.putBytes(encoder.buffer(), 0, encoder.byteLength());
+        writer.endRecord();
+        writer.flush();
+        encoder.reset();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.systemlogger;
+
+/**
+ * CSV行格式化，输出与旧版recordData一致:
+ * yyyy-MM-dd HH:mm:ss.SSS,温度x4(浮点),电量,电流,亮度(整数)
+ * 值为NaN(本行未采样)的通道输出空字段，{@link CsvRowParser}读回NaN。
+ *
+ * 时间戳由{@link TimestampFormatter}追加，数值直接写入复用的StringBuilder，
+ * 稳态下每行不产生垃圾。
+ * 非线程安全，每个写入方持有自己的实例。
+ */
+public class CsvRowFormatter {
+
+    private final TimestampFormatter timestampFormatter = new TimestampFormatter();
+    private final StringBuilder sb = new StringBuilder(96);
+
+    /**
+     * 格式化一行(不含换行符)，返回的StringBuilder在下次调用时被复用
+     */
+    public StringBuilder format(long timestampMillis, float[] values) {
+        return format(timestampMillis, values, Channel.ALL_MASK);
+    }
+
+    /**
+     * 格式化一个样本的全部通道
+     */
+    public StringBuilder format(Sample sample) {
+        return format(sample.timestampMillis, sample.values, Channel.ALL_MASK);
+    }
+
+    /**
+     * 格式化批次中第i个样本的全部通道
+     */
+    public StringBuilder format(SampleBatch batch, int i) {
+        return format(batch.timestampMillis(i), batch.values, i * Channel.COUNT, Channel.ALL_MASK);
+    }
+
+    /**
+     * 只输出channelMask中的通道
+     */
+    public StringBuilder format(long timestampMillis, float[] values, int channelMask) {
+        return format(timestampMillis, values, 0, channelMask);
+    }
+
+    /**
+     * 在时间戳之后输出单调时钟列({@link Channel#ELAPSED_COLUMN})
+     */
+    public StringBuilder format(long timestampMillis, long elapsedNanos, float[] values) {
+        format(timestampMillis, values, 0, 0);
+        sb.append(',').append(elapsedNanos);
+        appendValues(values, 0, Channel.ALL_MASK);
+        return sb;
+    }
+
+    private StringBuilder format(long timestampMillis, float[] values, int offset, int channelMask) {
+        sb.setLength(0);
+        timestampFormatter.append(sb, timestampMillis);
+        appendValues(values, offset, channelMask);
+        return sb;
+    }
+
+    private void appendValues(float[] values, int offset, int channelMask) {
+        for (Channel channel : Channel.ALL) {
+            if ((channelMask & channel.mask()) == 0) {
+                continue;
+            }
+            sb.append(',');
+            float value = values[offset + channel.ordinal()];
+            if (Float.isNaN(value)) {
+                continue;
+            }
+            if (channel.type == Channel.Type.INT) {
+                sb.append((int) value);
+            } else {
+                sb.append(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.systemlogger;
+
+import java.util.TimeZone;
+
+/**
+ * 直接在字节数组上解析CSV字段，不创建String/String[]
+ *
+ * 支持的格式与{@link CsvRowFormatter}输出一致:
+ * 时间戳 "yyyy-MM-dd HH:mm:ss.SSS"或旧版的"yyyy-MM-dd HH:mm:ss"(本地时区)，
+ * 数值为十进制(可带符号、小数和指数)，空字段为NaN。
+ * 非线程安全。
+ */
+public class CsvRowParser {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final TimeZone timeZone;
+
+    public CsvRowParser() {
+        this(TimeZone.getDefault());
+    }
+
+    public CsvRowParser(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * 解析 "yyyy-MM-dd HH:mm:ss[.SSS]" 为纪元毫秒
+     * @return 格式不符时返回Long.MIN_VALUE
+     */
+    public long parseTimestamp(byte[] b, int start, int end) {
+        int length = end - start;
+        if ((length != 19 && length != 23) || b[start + 4] != '-' || b[start + 7] != '-'
+                || b[start + 13] != ':' || b[start + 16] != ':') {
+            return Long.MIN_VALUE;
+        }
+        int millis = 0;
+        if (length == 23) {
+            millis = b[start + 19] == '.' ? digits(b, start + 20, 3) : -1;
+        }
+        int year = digits(b, start, 4);
+        int month = digits(b, start + 5, 2);
+        int day = digits(b, start + 8, 2);
+        int hour = digits(b, start + 11, 2);
+        int minute = digits(b, start + 14, 2);
+        int second = digits(b, start + 17, 2);
+        if ((year | month | day | hour | minute | second | millis) < 0) {
+            return Long.MIN_VALUE;
+        }
+        long local = daysFromCivil(year, month, day) * MILLIS_PER_DAY
+            + hour * 3_600_000L + minute * 60_000L + second * 1000L + millis;
+        // 先用标准偏移估算UTC，再按该时刻的实际偏移(含夏令时)修正
+        int offset = timeZone.getOffset(local - timeZone.getRawOffset());
+        return local - offset;
+    }
+
+    /**
+     * 解析十进制浮点数，空字段返回NaN
+     */
+    public static float parseFloat(byte[] b, int start, int end) {
+        if (start >= end) {
+            return Float.NaN;
+        }
+        int i = start;
+        boolean negative = false;
+        if (b[i] == '-' || b[i] == '+') {
+            negative = b[i] == '-';
+            i++;
+        }
+        if (end - i == 3 && b[i] == 'N' && b[i + 1] == 'a' && b[i + 2] == 'N') {
+            return Float.NaN;
+        }
+        long mantissa = 0;
+        int scale = 0;
+        int digitCount = 0;
+        boolean seenDot = false;
+        for (; i < end; i++) {
+            byte c = b[i];
+            if (c >= '0' && c <= '9') {
+                if (digitCount < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digitCount++;
+                    if (seenDot) scale--;
+                } else if (!seenDot) {
+                    scale++;
+                }
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+            } else if (c == 'E' || c == 'e') {
+                scale += parseExponent(b, i + 1, end);
+                break;
+            } else {
+                return Float.NaN;
+            }
+        }
+        double value = mantissa;
+        if (scale < 0) {
+            value /= pow10(-scale);
+        } else if (scale > 0) {
+            value *= pow10(scale);
+        }
+        return (float) (negative ? -value : value);
+    }
+
+    /**
+     * 解析十进制整数(可带符号)，空字段或格式不符时返回0
+     */
+    public static long parseLong(byte[] b, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        if (i >= end || end - i > 19) {
+            return 0;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) return 0;
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    private static int parseExponent(byte[] b, int i, int end) {
+        boolean negative = false;
+        if (i < end && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        int exponent = 0;
+        for (; i < end; i++) {
+            exponent = exponent * 10 + (b[i] - '0');
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    private static double pow10(int n) {
+        double result = 1;
+        double base = 10;
+        while (n > 0) {
+            if ((n & 1) != 0) result *= base;
+            base *= base;
+            n >>= 1;
+        }
+        return result;
+    }
+
+    private static int digits(byte[] b, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    /**
+     * 公历日期到1970-01-01起的天数(Howard Hinnant算法)
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        long yoe = year - era * 400;
+        long doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式读取CSV会话文件
+ *
+ * 按列名把CSV列映射到{@link Channel}，逐行在字节缓冲区上解析，
+ * 不为每行创建String。无法解析时间戳的行被跳过，
+ * 末尾没有换行符的半行(进程被杀时写了一半)被忽略，空字段读为NaN。
+ * 有{@link Channel#ELAPSED_COLUMN}列时读出单调时钟时间，否则为0。
+ */
+public class CsvSessionReader implements SessionReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileInputStream stream;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] bytes = buffer.array();
+    private final CsvRowParser parser = new CsvRowParser();
+
+    private int[] columnToChannel = new int[0];
+    private int elapsedColumn = -1;
+    private long bufferStartOffset = 0; // bytes[0]对应的文件偏移
+    private long timestampNanos;
+    private long elapsedNanos;
+
+    public CsvSessionReader(File file) throws IOException {
+        this.stream = new FileInputStream(file);
+        this.channel = stream.getChannel();
+        buffer.limit(0);
+        try {
+            readHeader();
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** 文件是否有单调时钟列 */
+    public boolean hasElapsedColumn() {
+        return elapsedColumn >= 0;
+    }
+
+    @Override
+    public long position() {
+        return bufferStartOffset + buffer.position();
+    }
+
+    /**
+     * 每一行的开头都可以定位
+     */
+    @Override
+    public long seekPoint() {
+        return position();
+    }
+
+    @Override
+    public void seek(long offset) throws IOException {
+        channel.position(offset);
+        buffer.clear();
+        buffer.limit(0);
+        bufferStartOffset = offset;
+    }
+
+    @Override
+    public boolean next(float[] values) throws IOException {
+        int lineEnd;
+        while ((lineEnd = nextLineEnd()) >= 0) {
+            int start = buffer.position();
+            buffer.position(lineEnd + 1);
+            if (parseLine(start, lineEnd, values)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    private void readHeader() throws IOException {
+        int lineEnd = nextLineEnd();
+        if (lineEnd < 0) {
+            return; // 空文件
+        }
+        int start = buffer.position();
+        String header = new String(bytes, start, lineEnd - start, StandardCharsets.UTF_8).trim();
+        buffer.position(lineEnd + 1);
+
+        String[] names = header.split(",");
+        columnToChannel = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            columnToChannel[i] = -1;
+            if (i > 0 && Channel.ELAPSED_COLUMN.equals(names[i].trim())) {
+                elapsedColumn = i;
+            }
+            for (Channel channel : Channel.ALL) {
+                if (channel.columnName.equals(names[i].trim())) {
+                    columnToChannel[i] = channel.ordinal();
+                }
+            }
+        }
+    }
+
+    private boolean parseLine(int start, int end, float[] values) {
+        if (end > start && bytes[end - 1] == '\r') {
+            end--;
+        }
+        int column = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || bytes[i] == ',') {
+                if (column == 0) {
+                    long millis = parser.parseTimestamp(bytes, fieldStart, i);
+                    if (millis == Long.MIN_VALUE) {
+                        return false;
+                    }
+                    timestampNanos = millis * 1_000_000L;
+                } else if (column == elapsedColumn) {
+                    elapsedNanos = CsvRowParser.parseLong(bytes, fieldStart, i);
+                } else if (column < columnToChannel.length && columnToChannel[column] >= 0) {
+                    values[columnToChannel[column]] = CsvRowParser.parseFloat(bytes, fieldStart, i);
+                }
+                column++;
+                fieldStart = i + 1;
+            }
+        }
+        return column > 1;
+    }
+
+    // 返回下一行换行符在bytes中的下标，没有完整的行时返回-1
+    private int nextLineEnd() throws IOException {
+        int searchFrom = buffer.position();
+        while (true) {
+            for (int i = searchFrom; i < buffer.limit(); i++) {
+                if (bytes[i] == '\n') {
+                    return i;
+                }
+            }
+            int consumed = buffer.position();
+            int carried = buffer.remaining();
+            if (carried == buffer.capacity()) {
+                throw new IOException("CSV line too long at offset " + position());
+            }
+            buffer.compact();
+            bufferStartOffset += consumed;
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read < 0) {
+                return -1;
+            }
+            searchFrom = carried;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * CSV会话写入器，可选地同时维护{@link SparseTimeIndex}
+ *
+ * 默认与旧版CSV布局一致，不写单调时钟；需要时在时间戳之后加入
+ * {@link Channel#ELAPSED_COLUMN}列，恢复的会话沿用文件中已有的布局。
+ */
+public class CsvSessionWriter implements SessionWriter {
+
+    private final BufferedLogWriter writer;
+    private final CsvRowFormatter formatter = new CsvRowFormatter();
+    private final SparseTimeIndex.Writer index;
+    private final boolean elapsedColumn;
+
+    public CsvSessionWriter(File file, BufferedLogWriter.FlushPolicy policy) throws IOException {
+        this(file, policy, null);
+    }
+
+    /**
+     * @param index 稀疏时间索引，为null时不写索引；随本写入器一起关闭
+     */
+    public CsvSessionWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                            SparseTimeIndex.Writer index) throws IOException {
+        this(file, policy, index, false);
+    }
+
+    /**
+     * @param elapsedColumn 为true时写入单调时钟列
+     */
+    public CsvSessionWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                            SparseTimeIndex.Writer index, boolean elapsedColumn) throws IOException {
+        this(file, policy, index, elapsedColumn, false);
+    }
+
+    private CsvSessionWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                             SparseTimeIndex.Writer index, boolean elapsedColumn,
+                             boolean resume) throws IOException {
+        this.writer = new BufferedLogWriter(file, resume, policy);
+        this.index = index;
+        this.elapsedColumn = elapsedColumn;
+        if (!resume) {
+            writer.append(Channel.csvHeader(Channel.ALL_MASK, elapsedColumn));
+            writer.flush();
+        }
+    }
+
+    /**
+     * 在已有会话的末尾继续追加(末尾已由{@link SessionRecovery}截断到完整的行)
+     */
+    public static CsvSessionWriter resume(File file, BufferedLogWriter.FlushPolicy policy,
+                                          SparseTimeIndex.Writer index) throws IOException {
+        boolean elapsedColumn;
+        try (CsvSessionReader reader = new CsvSessionReader(file)) {
+            elapsedColumn = reader.hasElapsedColumn();
+        }
+        return new CsvSessionWriter(file, policy, index, elapsedColumn, true);
+    }
+
+    @Override
+    public synchronized void append(long timestampMillis, long elapsedNanos, float[] values) throws IOException {
+        if (index != null) {
+            index.record(timestampMillis, writer.position());
+        }
+        writer.append(elapsedColumn
+            ? formatter.format(timestampMillis, elapsedNanos, values)
+            : formatter.format(timestampMillis, values));
+    }
+
+    @Override
+    public synchronized long position() {
+        return writer.position();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        writer.flush();
+        if (index != null) {
+            index.flush();
+        }
+    }
+
+    @Override
+    public synchronized void flushIfDue() throws IOException {
+        writer.flushIfDue();
+        if (index != null) {
+            index.flushIfDue();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writer.close();
+        } finally {
+            if (index != null) {
+                index.close();
+            }
+        }
+    }
+}
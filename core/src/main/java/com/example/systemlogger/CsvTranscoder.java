@@ -0,0 +1,28 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 把二进制/压缩会话流式转码为CSV(与旧版CSV布局一致)，内存占用与文件大小无关
+ */
+public final class CsvTranscoder {
+
+    private CsvTranscoder() {}
+
+    /**
+     * @return 转码的记录数
+     */
+    public static long transcode(File sessionFile, SessionFormat format, File csvFile) throws IOException {
+        float[] values = new float[Channel.COUNT];
+        long count = 0;
+        try (SessionReader reader = format.openReader(sessionFile);
+             CsvSessionWriter writer = new CsvSessionWriter(csvFile, BufferedLogWriter.FlushPolicy.bulk())) {
+            while (reader.next(values)) {
+                writer.append(reader.timestampNanos() / 1_000_000L, reader.elapsedNanos(), values);
+                count++;
+            }
+        }
+        return count;
+    }
+}
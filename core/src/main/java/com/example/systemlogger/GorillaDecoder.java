@@ -0,0 +1,138 @@
+package com.example.systemlogger;
+
+/**
+ * {@link GorillaEncoder}编码块的流式解码器
+ *
+ * reset()载入一个块后反复调用next()逐个取出样本，解码器可复用。
+ */
+public final class GorillaDecoder {
+
+    private final int columns;
+    private final boolean elapsed;
+    private final BitReader bits = new BitReader();
+
+    private final int[] previous;
+    private final int[] previousLeading;
+    private final int[] previousTrailing;
+
+    private int remaining = 0;
+    private boolean first;
+    private long timestamp;
+    private long lastDelta;
+    private long elapsedNanos;
+    private long lastElapsedDelta;
+
+    public GorillaDecoder(int columns) {
+        this(columns, false);
+    }
+
+    /**
+     * @param elapsed 块中是否编码了单调时钟时间(与编码器的参数一致)
+     */
+    public GorillaDecoder(int columns, boolean elapsed) {
+        this.columns = columns;
+        this.elapsed = elapsed;
+        this.previous = new int[columns];
+        this.previousLeading = new int[columns];
+        this.previousTrailing = new int[columns];
+    }
+
+    /**
+     * 载入一个块
+     * @param firstTimestamp 块头中记录的第一个时间戳
+     */
+    public void reset(byte[] payload, int byteLength, int sampleCount, long firstTimestamp) {
+        bits.reset(payload, byteLength);
+        remaining = sampleCount;
+        first = true;
+        timestamp = firstTimestamp;
+        lastDelta = 0;
+        elapsedNanos = 0;
+        lastElapsedDelta = 0;
+    }
+
+    /**
+     * 解码下一个样本到values
+     * @return 块已经解码完毕时返回false
+     */
+    public boolean next(int[] values) {
+        if (remaining == 0) {
+            return false;
+        }
+        if (first) {
+            if (elapsed) {
+                elapsedNanos = bits.readBits(64);
+            }
+            for (int i = 0; i < columns; i++) {
+                previous[i] = (int) bits.readBits(32);
+                previousLeading[i] = -1;
+            }
+            first = false;
+        } else {
+            lastDelta += readDeltaOfDelta();
+            timestamp += lastDelta;
+            if (elapsed) {
+                lastElapsedDelta += readElapsedDeltaOfDelta();
+                elapsedNanos += lastElapsedDelta;
+            }
+            for (int i = 0; i < columns; i++) {
+                readValue(i);
+            }
+        }
+        System.arraycopy(previous, 0, values, 0, columns);
+        remaining--;
+        return true;
+    }
+
+    /** 当前块中尚未读取的样本数 */
+    public int remaining() {
+        return remaining;
+    }
+
+    /** 最近一次next()得到的时间戳 */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /** 最近一次next()得到的单调时钟时间，块中没有编码时为0 */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    private long readElapsedDeltaOfDelta() {
+        if (!bits.readBit()) return 0;
+        if (!bits.readBit()) return bits.readBits(16) - (1 << 15) + 1;
+        if (!bits.readBit()) return bits.readBits(24) - (1 << 23) + 1;
+        if (!bits.readBit()) return bits.readBits(32) - (1L << 31) + 1;
+        return bits.readBits(64);
+    }
+
+    private long readDeltaOfDelta() {
+        if (!bits.readBit()) return 0;
+        if (!bits.readBit()) return bits.readBits(7) - 63;
+        if (!bits.readBit()) return bits.readBits(9) - 255;
+        if (!bits.readBit()) return bits.readBits(12) - 2047;
+        return bits.readBits(64);
+    }
+
+    private void readValue(int column) {
+        if (!bits.readBit()) {
+            return; // 与上一个值相同
+        }
+        int leading;
+        int trailing;
+        if (!bits.readBit()) {
+            leading = previousLeading[column];
+            trailing = previousTrailing[column];
+        } else {
+            leading = (int) bits.readBits(5);
+            int significant = (int) bits.readBits(5) + 1;
+            trailing = 32 - leading - significant;
+            previousLeading[column] = leading;
+            previousTrailing[column] = trailing;
+        }
+        int significant = 32 - leading - trailing;
+        int xor = (int) bits.readBits(significant) << trailing;
+        previous[column] ^= xor;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.systemlogger;
+
+/**
+ * Gorilla风格的时间序列块编码器
+ *
+ * - 时间戳: 第一个原样写入块头，之后写二阶差分(delta-of-delta)，
+ *   0用1位表示，采样间隔稳定时每个样本只占1位
+ * - 数值: 每列32位模式(float用原始位，int直接使用)与上一个值异或，
+ *   相同用1位表示，不同则只写有效位段
+ * - 单调时钟(可选): 第一个原样写入数据开头，之后同样写二阶差分，
+ *   纳秒级的调度抖动使差分较大，所以分段比时间戳宽
+ *
+ * 每个块的状态独立，任意块都可以单独解码。编码器可复用，
+ * 调用reset()后开始新块，稳态下不分配内存。
+ */
+public final class GorillaEncoder {
+
+    private final int columns;
+    private final boolean elapsed;
+    private final BitWriter bits;
+
+    private final int[] previous;
+    private final int[] previousLeading;
+    private final int[] previousTrailing;
+
+    private int count = 0;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+    private long lastElapsed;
+    private long lastElapsedDelta;
+
+    public GorillaEncoder(int columns, int initialCapacityBytes) {
+        this(columns, initialCapacityBytes, false);
+    }
+
+    /**
+     * @param elapsed 为true时每个样本同时编码单调时钟时间，解码器需要以同样的参数创建
+     */
+    public GorillaEncoder(int columns, int initialCapacityBytes, boolean elapsed) {
+        this.columns = columns;
+        this.elapsed = elapsed;
+        this.bits = new BitWriter(initialCapacityBytes);
+        this.previous = new int[columns];
+        this.previousLeading = new int[columns];
+        this.previousTrailing = new int[columns];
+    }
+
+    public void reset() {
+        bits.reset();
+        count = 0;
+    }
+
+    /**
+     * 追加一个样本
+     * @param timestamp 时间戳(任意单位，单调递增时压缩效果最好)
+     * @param values 每列的32位值
+     */
+    public void add(long timestamp, int[] values) {
+        add(timestamp, 0, values);
+    }
+
+    /**
+     * 追加一个样本
+     * @param elapsedNanos 单调时钟时间，编码器不带单调时钟时忽略
+     */
+    public void add(long timestamp, long elapsedNanos, int[] values) {
+        if (count == 0) {
+            firstTimestamp = timestamp;
+            lastDelta = 0;
+            if (elapsed) {
+                bits.writeBits(elapsedNanos, 64);
+                lastElapsedDelta = 0;
+            }
+            for (int i = 0; i < columns; i++) {
+                bits.writeBits(values[i], 32);
+                previous[i] = values[i];
+                previousLeading[i] = -1;
+            }
+        } else {
+            long delta = timestamp - lastTimestamp;
+            writeDeltaOfDelta(delta - lastDelta);
+            lastDelta = delta;
+            if (elapsed) {
+                long elapsedDelta = elapsedNanos - lastElapsed;
+                writeElapsedDeltaOfDelta(elapsedDelta - lastElapsedDelta);
+                lastElapsedDelta = elapsedDelta;
+            }
+            for (int i = 0; i < columns; i++) {
+                writeValue(i, values[i]);
+            }
+        }
+        lastTimestamp = timestamp;
+        lastElapsed = elapsedNanos;
+        count++;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /** 编码结果，有效长度为{@link #byteLength()} */
+    public byte[] buffer() {
+        return bits.buffer();
+    }
+
+    public int byteLength() {
+        return bits.byteLength();
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            bits.writeBit(false);
+        } else if (dod >= -63 && dod <= 64) {
+            bits.writeBits(0b10, 2);
+            bits.writeBits(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            bits.writeBits(0b110, 3);
+            bits.writeBits(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            bits.writeBits(0b1110, 4);
+            bits.writeBits(dod + 2047, 12);
+        } else {
+            bits.writeBits(0b1111, 4);
+            bits.writeBits(dod, 64);
+        }
+    }
+
+    // 纳秒: ±32微秒、±8毫秒、±2秒，更大的差分原样写入
+    private void writeElapsedDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            bits.writeBit(false);
+        } else if (dod >= -(1 << 15) + 1 && dod <= 1 << 15) {
+            bits.writeBits(0b10, 2);
+            bits.writeBits(dod + (1 << 15) - 1, 16);
+        } else if (dod >= -(1 << 23) + 1 && dod <= 1 << 23) {
+            bits.writeBits(0b110, 3);
+            bits.writeBits(dod + (1 << 23) - 1, 24);
+        } else if (dod >= -(1L << 31) + 1 && dod <= 1L << 31) {
+            bits.writeBits(0b1110, 4);
+            bits.writeBits(dod + (1L << 31) - 1, 32);
+        } else {
+            bits.writeBits(0b1111, 4);
+            bits.writeBits(dod, 64);
+        }
+    }
+
+    private void writeValue(int column, int value) {
+        int xor = value ^ previous[column];
+        previous[column] = value;
+        if (xor == 0) {
+            bits.writeBit(false);
+            return;
+        }
+        bits.writeBit(true);
+
+        int leading = Math.min(Integer.numberOfLeadingZeros(xor), 31);
+        int trailing = Integer.numberOfTrailingZeros(xor);
+        int prevLeading = previousLeading[column];
+        if (prevLeading >= 0 && leading >= prevLeading && trailing >= previousTrailing[column]) {
+            // 落在上一个有效位窗口内，复用窗口
+            bits.writeBit(false);
+            int significant = 32 - prevLeading - previousTrailing[column];
+            bits.writeBits(xor >>> previousTrailing[column], significant);
+        } else {
+            int significant = 32 - leading - trailing;
+            bits.writeBit(true);
+            bits.writeBits(leading, 5);
+            bits.writeBits(significant - 1, 5);
+            bits.writeBits(xor >>> trailing, significant);
+            previousLeading[column] = leading;
+            previousTrailing[column] = trailing;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录器自身开销的度量注册表: 按名称登记的延迟直方图和计数器
+ *
+ * 在初始化时用histogram()/counter()取得实例并保存引用，热路径上直接记录，
+ * 不查表、不分配、不打日志；{@link LatencyHistogram}是单写者的，
+ * 同一个直方图只能由一个线程(或依次执行的任务)记录。
+ * dump()/writeTo()可以在任意线程调用，用于界面查看和导出到文件，
+ * 以确认记录器的观测开销足够小。
+ *
+ * 名称约定: "probe.数据源名称"为单个数据源一次探测的耗时，
+ * "write.*"为文件写入，"ui.*"为界面回调，"errors.*"/"dropped.*"为计数器。
+ */
+public class Instrumentation {
+
+    private final Map<String, LatencyHistogram> histograms = new TreeMap<>();
+    private final Map<String, AtomicLong> counters = new TreeMap<>();
+
+    /**
+     * 取得(必要时创建)名为name的直方图
+     */
+    public synchronized LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            histograms.put(name, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * 取得(必要时创建)名为name的计数器
+     */
+    public synchronized AtomicLong counter(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            counter = new AtomicLong();
+            counters.put(name, counter);
+        }
+        return counter;
+    }
+
+    /**
+     * 按名称排序的文本摘要，每个度量一行
+     */
+    public synchronized String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            sb.append(entry.getKey()).append(": ").append(h.describe())
+                .append(" mean=").append(LatencyHistogram.formatNanos(h.meanNanos())).append('\n');
+        }
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            sb.append(entry.getKey()).append(": ").append(entry.getValue().get()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 把dump()和每个直方图的各桶计数写入文件(桶上界以纳秒表示)
+     */
+    public void writeTo(File file, String header) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (header != null) {
+            sb.append(header).append('\n');
+        }
+        sb.append(dump()).append('\n');
+        synchronized (this) {
+            for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+                LatencyHistogram h = entry.getValue();
+                sb.append("# ").append(entry.getKey()).append(" buckets (upper bound ns: count)\n");
+                for (int b = 0; b < LatencyHistogram.BUCKETS; b++) {
+                    long count = h.bucketCount(b);
+                    if (count != 0) {
+                        long bound = LatencyHistogram.upperBound(b);
+                        sb.append(bound == Long.MAX_VALUE ? "inf" : Long.toString(bound))
+                            .append(": ").append(count).append('\n');
+                    }
+                }
+            }
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(sb.toString());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.systemlogger;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定桶的延迟直方图(纳秒)
+ *
+ * 第0桶为小于1微秒，第k桶为[2^(k-1), 2^k)微秒，最后一桶收纳更大的值(约18分钟以上)，
+ * 百分位按桶上界估计，误差在2倍以内，足以区分微秒级抖动和秒级卡顿。
+ * record()只做几次数组更新，不分配内存。
+ * 单写者: 每个直方图只由一个线程(或依次执行的任务)记录，任意线程可以同时读取。
+ */
+public class LatencyHistogram {
+
+    public static final int BUCKETS = 32;
+
+    // 0..BUCKETS-1为各桶计数，之后为count, sum, max
+    private static final int COUNT = BUCKETS;
+    private static final int SUM = BUCKETS + 1;
+    private static final int MAX = BUCKETS + 2;
+
+    private final AtomicLongArray cells = new AtomicLongArray(BUCKETS + 3);
+
+    /**
+     * 记录一个值，负值按0计
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int bucket = bucket(nanos);
+        cells.lazySet(bucket, cells.get(bucket) + 1);
+        cells.lazySet(SUM, cells.get(SUM) + nanos);
+        if (nanos > cells.get(MAX)) {
+            cells.lazySet(MAX, nanos);
+        }
+        cells.set(COUNT, cells.get(COUNT) + 1);
+    }
+
+    static int bucket(long nanos) {
+        long micros = nanos / 1000;
+        return micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /** 第bucket桶的上界(纳秒)，最后一桶为Long.MAX_VALUE */
+    public static long upperBound(int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) * 1000;
+    }
+
+    public long count() {
+        return cells.get(COUNT);
+    }
+
+    public long bucketCount(int bucket) {
+        return cells.get(bucket);
+    }
+
+    public long maxNanos() {
+        return cells.get(MAX);
+    }
+
+    public long meanNanos() {
+        long count = count();
+        return count == 0 ? 0 : cells.get(SUM) / count;
+    }
+
+    /**
+     * 百分位(0-100)的估计值: 所在桶的上界，不超过最大值；没有数据时返回0
+     */
+    public long percentileNanos(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += cells.get(b);
+            if (seen >= rank) {
+                return Math.min(upperBound(b), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    /**
+     * 加入之前保存的各桶计数(例如进程重启前同一分段的统计)，应由写者线程调用
+     *
+     * 只有桶计数时总和按各桶下界估计，平均值偏低但不超过2倍。
+     * @param bucketCounts 各桶计数，长度为{@link #BUCKETS}
+     * @param maxNanos 保存的最大值
+     */
+    public void add(long[] bucketCounts, long maxNanos) {
+        long added = 0;
+        long sum = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            long n = bucketCounts[b];
+            if (n > 0) {
+                cells.lazySet(b, cells.get(b) + n);
+                added += n;
+                sum += n * (b == 0 ? 0 : upperBound(b - 1));
+            }
+        }
+        cells.lazySet(SUM, cells.get(SUM) + sum);
+        if (maxNanos > cells.get(MAX)) {
+            cells.lazySet(MAX, maxNanos);
+        }
+        cells.set(COUNT, cells.get(COUNT) + added);
+    }
+
+    /**
+     * 把各桶计数复制到bucketCounts(长度为{@link #BUCKETS})
+     */
+    public void copyBuckets(long[] bucketCounts) {
+        for (int b = 0; b < BUCKETS; b++) {
+            bucketCounts[b] = cells.get(b);
+        }
+    }
+
+    /**
+     * 清零(应由写者线程调用)
+     */
+    public void reset() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+
+    /**
+     * 例如 "n=3600 p50≤64µs p99≤2.0ms max=3.1ms"
+     */
+    public String describe() {
+        return "n=" + count()
+            + " p50≤" + formatNanos(percentileNanos(50))
+            + " p99≤" + formatNanos(percentileNanos(99))
+            + " max=" + formatNanos(maxNanos());
+    }
+
+    public static String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return nanos / 1_000 + "µs";
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.2fs", nanos / 1e9);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.systemlogger;
+
+/**
+ * 一次分级加载的结果: 每个通道一组按时间排序的(x, y)点
+ *
+ * x为相对会话开始的秒数。raw为true时是原始样本，否则是按块汇总的min/max点。
+ */
+public final class LodSeries {
+
+    final float[][] xs = new float[Channel.COUNT][];
+    final float[][] ys = new float[Channel.COUNT][];
+    final int[] sizes = new int[Channel.COUNT];
+    boolean raw;
+    long samples;
+
+    public LodSeries(int pointBudget) {
+        for (int c = 0; c < Channel.COUNT; c++) {
+            xs[c] = new float[pointBudget];
+            ys[c] = new float[pointBudget];
+        }
+    }
+
+    public int capacity() {
+        return xs[0].length;
+    }
+
+    public int size(Channel channel) {
+        return sizes[channel.ordinal()];
+    }
+
+    public float x(Channel channel, int i) {
+        return xs[channel.ordinal()][i];
+    }
+
+    public float y(Channel channel, int i) {
+        return ys[channel.ordinal()][i];
+    }
+
+    /** 是否为原始样本(否则为汇总点) */
+    public boolean isRaw() {
+        return raw;
+    }
+
+    /** 加载范围内的原始样本数 */
+    public long samples() {
+        return samples;
+    }
+
+    void clear() {
+        java.util.Arrays.fill(sizes, 0);
+        raw = false;
+        samples = 0;
+    }
+
+    void add(int channel, float x, float y) {
+        int n = sizes[channel];
+        if (n < xs[channel].length) {
+            xs[channel][n] = x;
+            ys[channel][n] = y;
+            sizes[channel] = n + 1;
+        }
+    }
+}
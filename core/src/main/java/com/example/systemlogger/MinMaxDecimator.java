@@ -0,0 +1,159 @@
+package com.example.systemlogger;
+
+import java.util.Arrays;
+
+/**
+ * 增量式min/max分桶降采样，用于在固定点数预算内显示整个会话
+ *
+ * X轴(整数，例如距会话开始的毫秒数)被等分为最多maxBuckets个桶，每个桶对每个通道只保留最小值和最大值两个点，
+ * 所以短暂的尖峰不会被平均掉。桶用完时相邻两桶合并、桶宽翻倍，
+ * 每个样本的处理是摊还O(1)，内存和输出点数与会话长度无关。
+ * X按long保存，长会话中相邻样本的X也不会因浮点精度而合并。
+ * 非线程安全。
+ */
+public class MinMaxDecimator {
+
+    private final int channels;
+    private final int maxBuckets;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    // 下标: channel * maxBuckets + bucket，空桶的minX为EMPTY
+    private final long[] minX, maxX;
+    private final float[] minY, maxY;
+
+    private long origin = EMPTY;
+    private long span = 1;
+    private int bucketCount;
+
+    /**
+     * @param pointBudget 每个通道最多输出的点数(每桶两个点)
+     */
+    public MinMaxDecimator(int channels, int pointBudget) {
+        this.channels = channels;
+        this.maxBuckets = Math.max(2, pointBudget / 2) & ~1;
+        int size = channels * maxBuckets;
+        minX = new long[size];
+        minY = new float[size];
+        maxX = new long[size];
+        maxY = new float[size];
+    }
+
+    /**
+     * 每个通道最多输出的点数
+     */
+    public int pointBudget() {
+        return maxBuckets * 2;
+    }
+
+    /**
+     * 当前每个桶覆盖的X宽度
+     */
+    public long span() {
+        return span;
+    }
+
+    /**
+     * 追加一个点，x必须单调不减(NaN值被忽略)
+     */
+    public void add(long x, int channel, float y) {
+        if (Float.isNaN(y)) {
+            return;
+        }
+        if (origin == EMPTY) {
+            origin = x;
+        }
+        long bucket = (x - origin) / span;
+        while (bucket >= maxBuckets) {
+            compact();
+            bucket = (x - origin) / span;
+        }
+        int b = (int) bucket;
+        while (bucketCount <= b) {
+            for (int c = 0; c < channels; c++) {
+                minX[c * maxBuckets + bucketCount] = EMPTY;
+            }
+            bucketCount++;
+        }
+        int i = channel * maxBuckets + b;
+        if (minX[i] == EMPTY) {
+            minX[i] = maxX[i] = x;
+            minY[i] = maxY[i] = y;
+        } else if (y < minY[i]) {
+            minX[i] = x;
+            minY[i] = y;
+        } else if (y > maxY[i]) {
+            maxX[i] = x;
+            maxY[i] = y;
+        }
+    }
+
+    /**
+     * 按X顺序输出一个通道的降采样结果
+     * @param xs 长度至少为pointBudget()
+     * @return 输出的点数
+     */
+    public int render(int channel, long[] xs, float[] ys) {
+        int n = 0;
+        int base = channel * maxBuckets;
+        for (int b = 0; b < bucketCount; b++) {
+            int i = base + b;
+            if (minX[i] == EMPTY) {
+                continue;
+            }
+            if (minX[i] == maxX[i]) {
+                xs[n] = minX[i];
+                ys[n++] = minY[i];
+            } else if (minX[i] < maxX[i]) {
+                xs[n] = minX[i];
+                ys[n++] = minY[i];
+                xs[n] = maxX[i];
+                ys[n++] = maxY[i];
+            } else {
+                xs[n] = maxX[i];
+                ys[n++] = maxY[i];
+                xs[n] = minX[i];
+                ys[n++] = minY[i];
+            }
+        }
+        return n;
+    }
+
+    public void clear() {
+        origin = EMPTY;
+        span = 1;
+        bucketCount = 0;
+        Arrays.fill(minX, EMPTY);
+    }
+
+    // 相邻两桶合并，桶宽翻倍
+    private void compact() {
+        int merged = (bucketCount + 1) / 2;
+        for (int c = 0; c < channels; c++) {
+            int base = c * maxBuckets;
+            for (int b = 0; b < merged; b++) {
+                int dst = base + b;
+                int left = base + 2 * b;
+                int right = left + 1;
+                long lMinX = minX[left], lMaxX = maxX[left];
+                float lMinY = minY[left], lMaxY = maxY[left];
+                minX[dst] = lMinX;
+                minY[dst] = lMinY;
+                maxX[dst] = lMaxX;
+                maxY[dst] = lMaxY;
+                if (2 * b + 1 >= bucketCount || minX[right] == EMPTY) {
+                    continue;
+                }
+                if (lMinX == EMPTY || minY[right] < lMinY) {
+                    minX[dst] = minX[right];
+                    minY[dst] = minY[right];
+                }
+                if (lMinX == EMPTY || maxY[right] > lMaxY) {
+                    maxX[dst] = maxX[right];
+                    maxY[dst] = maxY[right];
+                }
+            }
+        }
+        bucketCount = merged;
+        span *= 2;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.systemlogger;
+
+/**
+ * 单个数据源的健康状态(熔断器)
+ *
+ * - HEALTHY: 正常采样
+ * - DEGRADED: 连续失败达到阈值，仍然每次采样，但状态对外可见
+ * - DISABLED: 连续失败过多，停止调用；到达重试时间后放行一次试探，
+ *   试探失败则退避时间翻倍(上限MAX_BACKOFF_MS)，成功则恢复HEALTHY
+ *
+ * 在ART上抛异常代价很高，持续失败的探测不应该每个tick都被调用。
+ * 非线程安全，由采样线程独占。
+ */
+public class ProbeHealth {
+
+    public enum State { HEALTHY, DEGRADED, DISABLED }
+
+    static final int DEGRADE_AFTER = 3;
+    static final int DISABLE_AFTER = 10;
+    static final long BASE_BACKOFF_MS = 5_000;
+    static final long MAX_BACKOFF_MS = 10 * 60_000;
+
+    private State state = State.HEALTHY;
+    private int consecutiveFailures = 0;
+    private long totalFailures = 0;
+    private long backoffMillis = BASE_BACKOFF_MS;
+    private long nextRetryMillis = 0;
+
+    /**
+     * 现在是否应该调用该数据源
+     */
+    public boolean allowProbe(long nowMillis) {
+        return state != State.DISABLED || nowMillis >= nextRetryMillis;
+    }
+
+    /**
+     * @return 状态是否发生变化
+     */
+    public boolean recordSuccess() {
+        State previous = state;
+        consecutiveFailures = 0;
+        backoffMillis = BASE_BACKOFF_MS;
+        state = State.HEALTHY;
+        return previous != state;
+    }
+
+    /**
+     * @return 状态是否发生变化
+     */
+    public boolean recordFailure(long nowMillis) {
+        State previous = state;
+        consecutiveFailures++;
+        totalFailures++;
+        if (state == State.DISABLED) {
+            // 试探失败，继续退避
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MS);
+            nextRetryMillis = nowMillis + backoffMillis;
+        } else if (consecutiveFailures >= DISABLE_AFTER) {
+            disable(nowMillis);
+        } else if (consecutiveFailures >= DEGRADE_AFTER) {
+            state = State.DEGRADED;
+        }
+        return previous != state;
+    }
+
+    /**
+     * 直接熔断(如能力发现失败)，之后按退避时间重试
+     * @return 状态是否发生变化
+     */
+    public boolean disable(long nowMillis) {
+        State previous = state;
+        state = State.DISABLED;
+        backoffMillis = BASE_BACKOFF_MS;
+        nextRetryMillis = nowMillis + backoffMillis;
+        return previous != state;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public int consecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long totalFailures() {
+        return totalFailures;
+    }
+
+    public long nextRetryMillis() {
+        return nextRetryMillis;
+    }
+}
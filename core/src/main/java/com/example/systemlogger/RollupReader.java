@@ -0,0 +1,119 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 读取{@link RollupWriter}写出的汇总文件
+ *
+ * 记录定长且按时间有序，{@link #read}先按桶结束时间二分查找起点，
+ * 只读取与时间窗口相交的记录。
+ * 作为{@link SessionReader}顺序读取时，每个桶按均值当作一个样本，
+ * 所以汇总文件也可以直接转码/导出为降采样的CSV。
+ * 末尾不完整的记录会被忽略。
+ */
+public class RollupReader extends SessionFileReader {
+
+    private final ByteBuffer probe = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    private final RollupRows row = new RollupRows(1);
+    private long timestampNanos;
+
+    public RollupReader(File file) throws IOException {
+        super(file, RollupWriter.MAGIC, RollupWriter.VERSION);
+        if (recordSize != RollupWriter.recordSize(channelCount)) {
+            close();
+            throw new IOException("Corrupt header: record size " + recordSize);
+        }
+    }
+
+    /**
+     * 文件中完整记录的数量
+     */
+    public long records() throws IOException {
+        return Math.max(0, (channel.size() - dataOffset) / recordSize);
+    }
+
+    /**
+     * 读取与[fromMillis, toMillis]相交的桶
+     * @return 写入rows的行数(容量不足时截断，可从最后一行之后继续查询)
+     */
+    public int read(long fromMillis, long toMillis, RollupRows rows) throws IOException {
+        rows.size = 0;
+        long lo = 0, hi = records();
+        long count = hi;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (endAt(mid) < fromMillis) lo = mid + 1; else hi = mid;
+        }
+        seekRecord(lo);
+        for (long k = lo; k < count && rows.size < rows.capacity(); k++) {
+            if (!fill(recordSize)) {
+                break;
+            }
+            int r = rows.size;
+            parse(rows, r);
+            if (rows.starts[r] > toMillis) {
+                break;
+            }
+            rows.size++;
+        }
+        return rows.size;
+    }
+
+    @Override
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public boolean next(float[] values) throws IOException {
+        if (!fill(recordSize)) {
+            return false;
+        }
+        parse(row, 0);
+        timestampNanos = row.starts[0] * 1_000_000L;
+        System.arraycopy(row.mean, 0, values, 0, Channel.COUNT);
+        return true;
+    }
+
+    private void parse(RollupRows rows, int r) {
+        rows.starts[r] = buffer.getLong();
+        rows.ends[r] = buffer.getLong();
+        rows.counts[r] = buffer.getInt();
+        int base = r * Channel.COUNT;
+        for (int c = 0; c < Channel.COUNT; c++) {
+            rows.min[base + c] = Float.NaN;
+            rows.max[base + c] = Float.NaN;
+            rows.mean[base + c] = Float.NaN;
+            rows.last[base + c] = Float.NaN;
+        }
+        for (int i = 0; i < channelCount; i++) {
+            float lo = buffer.getFloat(), hi = buffer.getFloat(), avg = buffer.getFloat(), latest = buffer.getFloat();
+            int target = columnToChannel[i];
+            if (target >= 0) {
+                rows.min[base + target] = lo;
+                rows.max[base + target] = hi;
+                rows.mean[base + target] = avg;
+                rows.last[base + target] = latest;
+            }
+        }
+    }
+
+    // 第index条记录的结束时间(定位读取，不移动顺序读取位置)
+    private long endAt(long index) throws IOException {
+        long offset = dataOffset + index * recordSize + 8;
+        probe.clear();
+        while (probe.hasRemaining()) {
+            if (channel.read(probe, offset + probe.position()) < 0) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return probe.getLong(0);
+    }
+
+    private void seekRecord(long index) throws IOException {
+        seek(dataOffset + index * recordSize);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.systemlogger;
+
+/**
+ * 一组汇总行的列式拷贝(基本类型数组，可复用)
+ *
+ * 每行对应一个时间桶: 起始时间、最后一个样本时间、样本数，
+ * 以及每个通道的min/max/mean/last，桶内没有该通道数据时为NaN。
+ * 由{@link RollupTier#query}和{@link RollupReader#read}填充，非线程安全。
+ */
+public final class RollupRows {
+
+    final long[] starts;
+    final long[] ends;
+    final int[] counts;
+    final float[] min;
+    final float[] max;
+    final float[] mean;
+    final float[] last;
+    int size;
+
+    public RollupRows(int capacity) {
+        capacity = Math.max(1, capacity);
+        starts = new long[capacity];
+        ends = new long[capacity];
+        counts = new int[capacity];
+        min = new float[capacity * Channel.COUNT];
+        max = new float[capacity * Channel.COUNT];
+        mean = new float[capacity * Channel.COUNT];
+        last = new float[capacity * Channel.COUNT];
+    }
+
+    public int capacity() {
+        return starts.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == starts.length;
+    }
+
+    /** 桶的起始时间(毫秒，按分辨率对齐) */
+    public long startMillis(int i) {
+        return starts[i];
+    }
+
+    /** 桶内最后一个样本的时间(毫秒) */
+    public long endMillis(int i) {
+        return ends[i];
+    }
+
+    public int count(int i) {
+        return counts[i];
+    }
+
+    public boolean has(int i, Channel channel) {
+        return !Float.isNaN(mean[i * Channel.COUNT + channel.ordinal()]);
+    }
+
+    public float min(int i, Channel channel) {
+        return min[i * Channel.COUNT + channel.ordinal()];
+    }
+
+    public float max(int i, Channel channel) {
+        return max[i * Channel.COUNT + channel.ordinal()];
+    }
+
+    public float mean(int i, Channel channel) {
+        return mean[i * Channel.COUNT + channel.ordinal()];
+    }
+
+    public float last(int i, Channel channel) {
+        return last[i * Channel.COUNT + channel.ordinal()];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.systemlogger;
+
+import java.util.Arrays;
+
+/**
+ * 一个分辨率的增量汇总层: 当前桶的累加器 + 最近已关闭桶的有界环
+ *
+ * 样本(或更细一层关闭的桶)按时间对齐到resolution的桶中累加min/max/sum/last，
+ * 时间进入下一个桶时关闭当前桶: 写入环形数组、交给持久化写入器，并合并到更粗的一层。
+ * add()/close()只能由采样线程调用；query()可以在任意线程调用。
+ */
+public class RollupTier {
+
+    final long resolutionMillis;
+    private final int capacity;
+
+    // 已关闭的桶(环形)，下标 slot * Channel.COUNT + channel
+    private final long[] starts;
+    private final long[] ends;
+    private final int[] counts;
+    private final float[] min;
+    private final float[] max;
+    private final float[] mean;
+    private final float[] last;
+    private int head;
+    private int size;
+    // 更早的桶不在环中: 环已满后被覆盖，或者是恢复的会话中重启前的桶
+    private boolean dropped;
+
+    // 当前桶的累加器(仅采样线程访问)
+    private long openStart = Long.MIN_VALUE;
+    private long openEnd;
+    private int openCount;
+    private final float[] openMin = new float[Channel.COUNT];
+    private final float[] openMax = new float[Channel.COUNT];
+    private final double[] openSum = new double[Channel.COUNT];
+    private final int[] openChannelCount = new int[Channel.COUNT];
+    private final float[] openLast = new float[Channel.COUNT];
+
+    RollupTier parent;
+    RollupWriter writer;
+
+    public RollupTier(long resolutionMillis, int capacity) {
+        this.resolutionMillis = resolutionMillis;
+        this.capacity = Math.max(1, capacity);
+        starts = new long[this.capacity];
+        ends = new long[this.capacity];
+        counts = new int[this.capacity];
+        min = new float[this.capacity * Channel.COUNT];
+        max = new float[this.capacity * Channel.COUNT];
+        mean = new float[this.capacity * Channel.COUNT];
+        last = new float[this.capacity * Channel.COUNT];
+    }
+
+    public long resolutionMillis() {
+        return resolutionMillis;
+    }
+
+    /**
+     * 累加一个原始样本
+     */
+    public void add(long timestampMillis, int mask, float[] values) {
+        roll(timestampMillis);
+        openEnd = timestampMillis;
+        openCount++;
+        for (int c = 0; c < Channel.COUNT; c++) {
+            if ((mask & (1 << c)) != 0 && !Float.isNaN(values[c])) {
+                float v = values[c];
+                accumulate(c, v, v, v, 1, v);
+            }
+        }
+    }
+
+    /**
+     * 关闭当前桶(会话结束时调用，不完整的桶也会写出)，并逐层向上传递
+     */
+    public void close() {
+        if (openStart != Long.MIN_VALUE) {
+            closeOpen();
+        }
+        if (parent != null) {
+            parent.close();
+        }
+    }
+
+    /**
+     * 查询与[fromMillis, toMillis]相交的已关闭桶，按时间顺序写入rows
+     * @return 写入的行数(rows容量不足时截断，可从最后一行之后继续查询)
+     */
+    public synchronized int query(long fromMillis, long toMillis, RollupRows rows) {
+        rows.size = 0;
+        return append(fromMillis, toMillis, rows);
+    }
+
+    /**
+     * 与{@link #query}相同，但接在rows已有的行之后
+     * @return rows中的总行数
+     */
+    synchronized int append(long fromMillis, long toMillis, RollupRows rows) {
+        // 二分查找第一个结束时间 >= fromMillis 的桶
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[slot(mid)] < fromMillis) lo = mid + 1; else hi = mid;
+        }
+        for (int k = lo; k < size && rows.size < rows.capacity(); k++) {
+            int s = slot(k);
+            if (starts[s] > toMillis) {
+                break;
+            }
+            int r = rows.size++;
+            rows.starts[r] = starts[s];
+            rows.ends[r] = ends[s];
+            rows.counts[r] = counts[s];
+            System.arraycopy(min, s * Channel.COUNT, rows.min, r * Channel.COUNT, Channel.COUNT);
+            System.arraycopy(max, s * Channel.COUNT, rows.max, r * Channel.COUNT, Channel.COUNT);
+            System.arraycopy(mean, s * Channel.COUNT, rows.mean, r * Channel.COUNT, Channel.COUNT);
+            System.arraycopy(last, s * Channel.COUNT, rows.last, r * Channel.COUNT, Channel.COUNT);
+        }
+        return rows.size;
+    }
+
+    /**
+     * 内存中最早的已关闭桶的起始时间，没有时返回Long.MAX_VALUE
+     */
+    public synchronized long oldestMillis() {
+        return size > 0 ? starts[slot(0)] : Long.MAX_VALUE;
+    }
+
+    /**
+     * 环中是否有fromMillis之后的全部桶(没有被覆盖或丢弃)
+     */
+    public synchronized boolean covers(long fromMillis) {
+        return !dropped || fromMillis >= oldestMillis();
+    }
+
+    /**
+     * 更早的桶只在汇总文件中(恢复的会话从空的环开始)
+     */
+    synchronized void dropEarlier() {
+        dropped = true;
+    }
+
+    // 更细一层关闭了一个桶，合并进来
+    private void merge(RollupTier child) {
+        roll(child.openStart);
+        openEnd = child.openEnd;
+        openCount += child.openCount;
+        for (int c = 0; c < Channel.COUNT; c++) {
+            int n = child.openChannelCount[c];
+            if (n > 0) {
+                accumulate(c, child.openMin[c], child.openMax[c], child.openSum[c], n, child.openLast[c]);
+            }
+        }
+    }
+
+    private void roll(long timestampMillis) {
+        long start = Math.floorDiv(timestampMillis, resolutionMillis) * resolutionMillis;
+        if (start != openStart) {
+            if (openStart != Long.MIN_VALUE) {
+                closeOpen();
+            }
+            openStart = start;
+        }
+    }
+
+    private void accumulate(int c, float lo, float hi, double sum, int n, float latest) {
+        if (openChannelCount[c] == 0) {
+            openMin[c] = lo;
+            openMax[c] = hi;
+        } else {
+            if (lo < openMin[c]) openMin[c] = lo;
+            if (hi > openMax[c]) openMax[c] = hi;
+        }
+        openSum[c] += sum;
+        openChannelCount[c] += n;
+        openLast[c] = latest;
+    }
+
+    private void closeOpen() {
+        int s;
+        synchronized (this) {
+            s = head;
+            head = (head + 1) % capacity;
+            if (size < capacity) size++; else dropped = true;
+            starts[s] = openStart;
+            ends[s] = openEnd;
+            counts[s] = openCount;
+            int base = s * Channel.COUNT;
+            for (int c = 0; c < Channel.COUNT; c++) {
+                int n = openChannelCount[c];
+                min[base + c] = n > 0 ? openMin[c] : Float.NaN;
+                max[base + c] = n > 0 ? openMax[c] : Float.NaN;
+                mean[base + c] = n > 0 ? (float) (openSum[c] / n) : Float.NaN;
+                last[base + c] = n > 0 ? openLast[c] : Float.NaN;
+            }
+        }
+        if (writer != null) {
+            writer.append(starts[s], ends[s], counts[s], min, max, mean, last, s * Channel.COUNT);
+        }
+        if (parent != null) {
+            parent.merge(this);
+        }
+        openStart = Long.MIN_VALUE;
+        openCount = 0;
+        Arrays.fill(openSum, 0);
+        Arrays.fill(openChannelCount, 0);
+    }
+
+    private int slot(int index) {
+        return Math.floorMod(head - size + index, capacity);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * 把一个汇总层关闭的桶追加到会话旁的汇总文件
+ *
+ * 文件布局(小端):
+ * <pre>
+ * 头部: 见{@link SessionFileReader#writeHeader}
+ * 记录: long startMillis, long endMillis, int count, 每个通道 float min, max, mean, last
+ * </pre>
+ * 定长记录，按时间有序，{@link RollupReader}可以直接二分查找。
+ * 写入失败不会中断采样: 第一次失败后停止写入，在flush()/close()时抛出。
+ */
+public class RollupWriter {
+
+    public static final int MAGIC = 0x55524C53; // "SLRU"
+    public static final int VERSION = 1;
+
+    private final BufferedLogWriter writer;
+    private IOException failure;
+
+    public RollupWriter(File file, BufferedLogWriter.FlushPolicy policy) throws IOException {
+        this(file, policy, false);
+    }
+
+    private RollupWriter(File file, BufferedLogWriter.FlushPolicy policy, boolean append) throws IOException {
+        this.writer = new BufferedLogWriter(file, append, policy);
+        if (!append) {
+            SessionFileReader.writeHeader(writer, MAGIC, VERSION, recordSize(Channel.COUNT));
+        }
+    }
+
+    /**
+     * 在恢复的会话上继续写入: 截掉末尾不完整的记录后追加；
+     * 文件不存在、头部无效或通道布局不同时重新创建
+     */
+    public static RollupWriter resume(File file, BufferedLogWriter.FlushPolicy policy) throws IOException {
+        long valid = -1;
+        if (file.exists()) {
+            try (RollupReader reader = new RollupReader(file)) {
+                if (reader.channelCount == Channel.COUNT) {
+                    valid = reader.dataOffset() + reader.records() * reader.recordSize;
+                }
+            } catch (IOException e) {
+                valid = -1;
+            }
+        }
+        if (valid < 0) {
+            return new RollupWriter(file, policy, false);
+        }
+        if (valid < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(valid);
+            }
+        }
+        return new RollupWriter(file, policy, true);
+    }
+
+    public static int recordSize(int channelCount) {
+        return 20 + 16 * channelCount;
+    }
+
+    void append(long start, long end, int count, float[] min, float[] max, float[] mean, float[] last, int offset) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            writer.putLong(start);
+            writer.putLong(end);
+            writer.putInt(count);
+            for (int c = offset; c < offset + Channel.COUNT; c++) {
+                writer.putFloat(min[c]);
+                writer.putFloat(max[c]);
+                writer.putFloat(mean[c]);
+                writer.putFloat(last[c]);
+            }
+            writer.endRecord();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    public void flush() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        writer.flush();
+    }
+
+    /**
+     * 提交已到期的记录(见{@link BufferedLogWriter#flushIfDue})，失败时同写入失败
+     */
+    public void flushIfDue() {
+        if (failure != null) {
+            return;
+        }
+        try {
+            writer.flushIfDue();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    public void close() throws IOException {
+        writer.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 会话的多分辨率汇总: 1秒 / 10秒 / 1分钟 / 10分钟
+ *
+ * 每个样本只进入最细的一层，关闭的桶逐层向上合并，所以每个样本的开销固定。
+ * 每层在内存中保留最近的一段(有界环)，10秒及以上的层同时写入会话旁的汇总文件
+ * (会话文件名 + ".rollup10s" 等)，会话结束后仍可按时间范围查询。
+ * 汇总覆盖整个会话，分段切换时由{@link #moveTo}移到新的当前分段旁。
+ * 12小时的会话在10分钟层只有72行，1分钟层720行，而原始数据有43200行。
+ *
+ * add()/flushIfDue()/close()由采样线程调用，flush()可以在任意线程调用(共用一个锁)；
+ * query()可以在任意线程调用，不等待写入。
+ */
+public class Rollups {
+
+    private static final long[] RESOLUTIONS = { 1_000L, 10_000L, 60_000L, 600_000L };
+    public static final int TIER_COUNT = RESOLUTIONS.length;
+    private static final String[] SUFFIXES = { null, ".rollup10s", ".rollup1m", ".rollup10m" };
+    // 内存中保留: 15分钟 / 3小时 / 12小时 / 7天
+    private static final int[] CAPACITIES = { 900, 1080, 720, 1008 };
+
+    private final RollupTier[] tiers = new RollupTier[RESOLUTIONS.length];
+    private final RollupWriter[] writers = new RollupWriter[RESOLUTIONS.length];
+    private final File[] files = new File[RESOLUTIONS.length];
+
+    /**
+     * @param session 会话文件，为null时只在内存中汇总
+     */
+    public Rollups(File session, BufferedLogWriter.FlushPolicy policy) throws IOException {
+        this(session, policy, false);
+    }
+
+    /**
+     * @param resume 为true时在已有的汇总文件末尾继续写入(进程被杀后恢复会话)，
+     *               内存中的层从空开始，更早的数据从汇总文件查询
+     */
+    public Rollups(File session, BufferedLogWriter.FlushPolicy policy, boolean resume) throws IOException {
+        for (int i = 0; i < tiers.length; i++) {
+            tiers[i] = new RollupTier(RESOLUTIONS[i], CAPACITIES[i]);
+            if (i > 0) {
+                tiers[i - 1].parent = tiers[i];
+            }
+        }
+        if (session == null) {
+            return;
+        }
+        try {
+            for (int i = 0; i < tiers.length; i++) {
+                if (SUFFIXES[i] != null) {
+                    files[i] = sidecar(session, i);
+                    writers[i] = resume ? RollupWriter.resume(files[i], policy) : new RollupWriter(files[i], policy);
+                    tiers[i].writer = writers[i];
+                }
+                if (resume) {
+                    tiers[i].dropEarlier();
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * 会话文件对应的第tier层汇总文件，该层不持久化时返回null
+     */
+    public static File sidecar(File session, int tier) {
+        return SUFFIXES[tier] != null ? new File(session.getPath() + SUFFIXES[tier]) : null;
+    }
+
+    public int tierCount() {
+        return tiers.length;
+    }
+
+    public RollupTier tier(int index) {
+        return tiers[index];
+    }
+
+    /**
+     * 在[fromMillis, toMillis]内行数不超过maxRows的最细一层
+     * 跳过既没有汇总文件、内存中的环也不覆盖fromMillis的层(例如15分钟以前的1秒层)
+     */
+    public int tierFor(long fromMillis, long toMillis, int maxRows) {
+        long span = Math.max(0, toMillis - fromMillis);
+        for (int i = 0; i < tiers.length; i++) {
+            if (span / RESOLUTIONS[i] < maxRows && (files[i] != null || tiers[i].covers(fromMillis))) {
+                return i;
+            }
+        }
+        return tiers.length - 1;
+    }
+
+    public synchronized void add(long timestampMillis, int mask, float[] values) {
+        tiers[0].add(timestampMillis, mask, values);
+    }
+
+    /**
+     * 查询第tier层与[fromMillis, toMillis]相交的桶
+     * 内存中的环已不覆盖起点时，环中最早的桶之前从汇总文件读取(只包含已提交的记录)，
+     * 之后仍从环读取，写入器缓冲中尚未提交的桶不会丢失
+     * @return 写入rows的行数
+     */
+    public int query(int tier, long fromMillis, long toMillis, RollupRows rows) throws IOException {
+        RollupTier t = tiers[tier];
+        RollupReader reader = null;
+        if (!t.covers(fromMillis)) {
+            // 在锁内打开，不会与moveTo()的改名交错
+            synchronized (files) {
+                File file = files[tier];
+                if (file != null && file.exists()) {
+                    reader = new RollupReader(file);
+                }
+            }
+        }
+        if (reader == null) {
+            return t.query(fromMillis, toMillis, rows);
+        }
+        long oldest = t.oldestMillis();
+        try (RollupReader r = reader) {
+            r.read(fromMillis, Math.min(toMillis, oldest - 1), rows);
+        }
+        if (toMillis >= oldest && !rows.isFull()) {
+            t.append(oldest, toMillis, rows);
+        }
+        return rows.size();
+    }
+
+    /**
+     * 汇总文件已随会话分段改名(见{@link SegmentArchiver})，之后的查询从新位置读取
+     * 已打开的写入器继续写入同一个文件，不受改名影响
+     */
+    public void relocate(File session) {
+        synchronized (files) {
+            for (int i = 0; i < files.length; i++) {
+                if (files[i] != null) {
+                    files[i] = sidecar(session, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * 把汇总文件改名到另一个会话分段旁(分段切换时跟随当前分段)
+     * 已打开的写入器继续写入同一个文件，不受改名影响
+     */
+    public void moveTo(File session) throws IOException {
+        synchronized (files) {
+            for (int i = 0; i < files.length; i++) {
+                if (files[i] == null) continue;
+                File target = sidecar(session, i);
+                if (files[i].exists() && !files[i].renameTo(target)) {
+                    throw new IOException("Cannot rename " + files[i] + " to " + target);
+                }
+                files[i] = target;
+            }
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        IOException error = null;
+        for (RollupWriter writer : writers) {
+            if (writer == null) continue;
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                if (error == null) error = e;
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    /**
+     * 按刷新策略提交已到期的汇总记录，失败在flush()/close()时抛出
+     */
+    public synchronized void flushIfDue() {
+        for (RollupWriter writer : writers) {
+            if (writer != null) {
+                writer.flushIfDue();
+            }
+        }
+    }
+
+    /**
+     * 关闭所有未完成的桶并写出，然后关闭汇总文件
+     */
+    public synchronized void close() throws IOException {
+        tiers[0].close();
+        IOException error = null;
+        for (int i = 0; i < writers.length; i++) {
+            if (writers[i] == null) continue;
+            try {
+                writers[i].close();
+            } catch (IOException e) {
+                if (error == null) error = e;
+            }
+            writers[i] = null;
+            tiers[i].writer = null;
+        }
+        if (error != null) throw error;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.systemlogger;
+
+import java.util.Arrays;
+
+/**
+ * 可复用的单次采样记录: 时间戳 + 按{@link Channel}顺序排列的通道值
+ *
+ * 由{@link SamplePool}分配，使用方处理完后调用{@link #recycle()}归还，
+ * 采样热路径上不再为每个样本创建数组或字符串。
+ * 整数通道同样以float存储。
+ */
+public final class Sample {
+
+    /** 墙钟时间(毫秒) */
+    public long timestampMillis;
+    /** 单调时钟时间(纳秒，开机以来，含休眠)，不受墙钟调整影响 */
+    public long elapsedNanos;
+    /** 本次成功采集的通道掩码 */
+    public int mask;
+    public final float[] values = new float[Channel.COUNT];
+
+    private final SamplePool pool;
+    boolean pooled;
+
+    Sample(SamplePool pool) {
+        this.pool = pool;
+    }
+
+    public boolean has(Channel channel) {
+        return (mask & channel.mask()) != 0;
+    }
+
+    public float get(Channel channel) {
+        return values[channel.ordinal()];
+    }
+
+    public void clear() {
+        timestampMillis = 0;
+        elapsedNanos = 0;
+        mask = 0;
+        Arrays.fill(values, 0f);
+    }
+
+    public void copyFrom(Sample other) {
+        timestampMillis = other.timestampMillis;
+        elapsedNanos = other.elapsedNanos;
+        mask = other.mask;
+        System.arraycopy(other.values, 0, values, 0, values.length);
+    }
+
+    /**
+     * 归还到所属的池，之后不得再访问该对象；重复调用无效果
+     */
+    public void recycle() {
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.systemlogger;
+
+/**
+ * 一批连续样本的列式拷贝(基本类型数组，可复用)
+ *
+ * 由{@link SampleRingBuffer#read(SampleRingBuffer.Cursor, SampleBatch)}填充，
+ * 第i个样本的通道值位于values[i * Channel.COUNT + channel.ordinal()]。
+ * 非线程安全，每个消费方持有自己的实例。
+ */
+public final class SampleBatch {
+
+    final long[] timestamps;
+    final long[] elapsedNanos;
+    final int[] masks;
+    final float[] values;
+    int size;
+    long firstSequence;
+
+    public SampleBatch(int capacity) {
+        capacity = Math.max(1, capacity);
+        timestamps = new long[capacity];
+        elapsedNanos = new long[capacity];
+        masks = new int[capacity];
+        values = new float[capacity * Channel.COUNT];
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 第一个样本在环形缓冲区中的序号(从0开始的全局计数)
+     */
+    public long firstSequence() {
+        return firstSequence;
+    }
+
+    public long timestampMillis(int i) {
+        return timestamps[i];
+    }
+
+    /** 第i个样本的单调时钟时间(纳秒) */
+    public long elapsedNanos(int i) {
+        return elapsedNanos[i];
+    }
+
+    public int mask(int i) {
+        return masks[i];
+    }
+
+    public boolean has(int i, Channel channel) {
+        return (masks[i] & channel.mask()) != 0;
+    }
+
+    public float get(int i, Channel channel) {
+        return values[i * Channel.COUNT + channel.ordinal()];
+    }
+
+    /**
+     * 把第i个样本拷贝到sample
+     */
+    public void copyTo(int i, Sample sample) {
+        sample.timestampMillis = timestamps[i];
+        sample.elapsedNanos = elapsedNanos[i];
+        sample.mask = masks[i];
+        System.arraycopy(values, i * Channel.COUNT, sample.values, 0, Channel.COUNT);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.systemlogger;
+
+/**
+ * 预分配的{@link Sample}对象池
+ *
+ * 稳态下采样、写入和UI回调只在池内的对象间流转，不产生垃圾；
+ * 池空时(消费方持有过多样本未归还)临时分配新对象并计入misses()。
+ * 线程安全: 采样线程取出，UI线程归还。
+ */
+public class SamplePool {
+
+    private final Sample[] free;
+    private int size;
+    private long misses;
+
+    public SamplePool(int capacity) {
+        free = new Sample[Math.max(1, capacity)];
+        for (int i = 0; i < free.length; i++) {
+            Sample sample = new Sample(this);
+            sample.pooled = true;
+            free[i] = sample;
+        }
+        size = free.length;
+    }
+
+    /**
+     * 取出一个已清零的样本
+     */
+    public synchronized Sample acquire() {
+        Sample sample;
+        if (size > 0) {
+            sample = free[--size];
+            free[size] = null;
+            sample.clear();
+        } else {
+            sample = new Sample(this);
+            misses++;
+        }
+        sample.pooled = false;
+        return sample;
+    }
+
+    synchronized void release(Sample sample) {
+        if (sample.pooled) {
+            return;
+        }
+        sample.pooled = true;
+        if (size < free.length) {
+            free[size++] = sample;
+        }
+    }
+
+    /**
+     * 池空时额外分配的次数(持续增长说明有消费方没有归还样本)
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+}
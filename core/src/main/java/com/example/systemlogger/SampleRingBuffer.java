@@ -0,0 +1,199 @@
+package com.example.systemlogger;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 最近样本的无锁环形缓冲区: 单生产者(采样线程)，多消费者
+ *
+ * 样本按列存放在基本类型数组中(墙钟和单调时间戳/通道掩码/通道值)，容量按2的幂取整，
+ * 默认几个小时的1Hz数据也只占几百KB。
+ * 每个消费方持有独立的{@link Cursor}，按批读取、互不影响；
+ * 生产者从不等待消费方，消费方落后超过容量时跳过被覆盖的样本并计入dropped()。
+ *
+ * 一致性: 生产者先写槽位再发布计数(release)，消费者拷贝完槽位后重新读取计数，
+ * 拷贝期间可能已被覆盖的样本会被丢弃，所以读到的数据永远不会是新旧混合的。
+ */
+public class SampleRingBuffer {
+
+    private final int capacity;
+    private final int indexMask;
+    private final AtomicLongArray timestamps;
+    private final AtomicLongArray elapsed;
+    private final AtomicIntegerArray masks;
+    private final AtomicIntegerArray values;
+    // 已发布的样本数，序号 < published 的样本可读
+    private final AtomicLong published = new AtomicLong();
+
+    /**
+     * 消费方的读取位置
+     */
+    public static final class Cursor {
+        long next;
+        long dropped;
+
+        Cursor(long next) {
+            this.next = next;
+        }
+
+        /** 下一个要读取的样本序号 */
+        public long position() {
+            return next;
+        }
+
+        /** 因落后过多而被覆盖、没有读到的样本数 */
+        public long dropped() {
+            return dropped;
+        }
+    }
+
+    public SampleRingBuffer(int minCapacity) {
+        int size = Integer.highestOneBit(Math.max(2, minCapacity - 1)) << 1;
+        this.capacity = size;
+        this.indexMask = size - 1;
+        this.timestamps = new AtomicLongArray(size);
+        this.elapsed = new AtomicLongArray(size);
+        this.masks = new AtomicIntegerArray(size);
+        this.values = new AtomicIntegerArray(size * Channel.COUNT);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 已发布的样本总数(也是下一个样本的序号)
+     */
+    public long published() {
+        return published.get();
+    }
+
+    /**
+     * 发布一个样本，只能由单一生产者线程调用
+     */
+    public void publish(Sample sample) {
+        long seq = published.get();
+        int slot = (int) (seq & indexMask);
+        timestamps.lazySet(slot, sample.timestampMillis);
+        elapsed.lazySet(slot, sample.elapsedNanos);
+        masks.lazySet(slot, sample.mask);
+        int base = slot * Channel.COUNT;
+        for (int i = 0; i < Channel.COUNT; i++) {
+            values.lazySet(base + i, Float.floatToRawIntBits(sample.values[i]));
+        }
+        published.set(seq + 1);
+    }
+
+    /**
+     * 从当前最新位置开始读取的游标(只接收之后发布的样本)
+     */
+    public Cursor newCursor() {
+        return new Cursor(published.get());
+    }
+
+    /**
+     * 从仍保留的最旧样本开始读取的游标
+     */
+    public Cursor newCursorFromOldest() {
+        return new Cursor(oldestReadable(published.get()));
+    }
+
+    /**
+     * 读取游标之后的可用样本(最多batch容量个)，游标随之前进
+     * @return 读到的样本数
+     */
+    public int read(Cursor cursor, SampleBatch batch) {
+        batch.size = 0;
+        long end = published.get();
+        long start = skipOverrun(cursor, end);
+        int count = (int) Math.min(end - start, batch.capacity());
+        if (count <= 0) {
+            batch.firstSequence = start;
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((start + i) & indexMask);
+            batch.timestamps[i] = timestamps.get(slot);
+            batch.elapsedNanos[i] = elapsed.get(slot);
+            batch.masks[i] = masks.get(slot);
+            int base = slot * Channel.COUNT;
+            int out = i * Channel.COUNT;
+            for (int c = 0; c < Channel.COUNT; c++) {
+                batch.values[out + c] = Float.intBitsToFloat(values.get(base + c));
+            }
+        }
+        // 拷贝期间生产者可能已经覆盖了最前面的槽位
+        long validFrom = oldestReadable(published.get());
+        int stale = (int) Math.max(0, Math.min(count, validFrom - start));
+        if (stale > 0) {
+            count -= stale;
+            System.arraycopy(batch.timestamps, stale, batch.timestamps, 0, count);
+            System.arraycopy(batch.elapsedNanos, stale, batch.elapsedNanos, 0, count);
+            System.arraycopy(batch.masks, stale, batch.masks, 0, count);
+            System.arraycopy(batch.values, stale * Channel.COUNT, batch.values, 0, count * Channel.COUNT);
+            cursor.dropped += stale;
+        }
+        batch.firstSequence = start + stale;
+        batch.size = count;
+        cursor.next = start + stale + count;
+        return count;
+    }
+
+    /**
+     * 读取游标处的单个样本
+     * @return 没有新样本时返回false
+     */
+    public boolean read(Cursor cursor, Sample out) {
+        while (true) {
+            long end = published.get();
+            long seq = skipOverrun(cursor, end);
+            if (seq >= end) {
+                return false;
+            }
+            copy(seq, out);
+            if (seq >= oldestReadable(published.get())) {
+                cursor.next = seq + 1;
+                return true;
+            }
+            // 拷贝期间被覆盖，重新定位
+        }
+    }
+
+    /**
+     * 按序号随机读取
+     * @return 样本尚未发布或已被覆盖时返回false
+     */
+    public boolean get(long sequence, Sample out) {
+        if (sequence < 0 || sequence >= published.get()) {
+            return false;
+        }
+        copy(sequence, out);
+        return sequence >= oldestReadable(published.get());
+    }
+
+    private void copy(long sequence, Sample out) {
+        int slot = (int) (sequence & indexMask);
+        out.timestampMillis = timestamps.get(slot);
+        out.elapsedNanos = elapsed.get(slot);
+        out.mask = masks.get(slot);
+        int base = slot * Channel.COUNT;
+        for (int c = 0; c < Channel.COUNT; c++) {
+            out.values[c] = Float.intBitsToFloat(values.get(base + c));
+        }
+    }
+
+    private long skipOverrun(Cursor cursor, long end) {
+        long oldest = oldestReadable(end);
+        if (cursor.next < oldest) {
+            cursor.dropped += oldest - cursor.next;
+            cursor.next = oldest;
+        }
+        return cursor.next;
+    }
+
+    // 生产者在发布第n个样本后可能正在写序号n的槽位，它覆盖的是序号n - capacity
+    private long oldestReadable(long end) {
+        return Math.max(0, end - capacity + 1);
+    }
+}
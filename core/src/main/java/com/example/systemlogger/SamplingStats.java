@@ -0,0 +1,166 @@
+package com.example.systemlogger;
+
+/**
+ * 采样调度的时间统计: 区分采样线程迟到和信号本身的变化
+ *
+ * - 延迟(lateness): 实际触发时间 - 计划触发时间，反映调度器相对时间表的偏移
+ * - 抖动(jitter): 相邻两次触发的实际间隔与计划间隔之差的绝对值
+ * - 错过的截止时间: 落后超过一个周期而被跳过的采样次数
+ * - 时钟漂移: 墙钟相对单调时钟的累计变化(NTP校时、用户改时间)，
+ *   同一段数据的墙钟时间戳以此为误差范围
+ *
+ * 计划/实际时间都使用调度器所用的单调时钟(System.nanoTime)；时钟漂移比较样本的
+ * 墙钟时间和含休眠的单调时间(elapsedRealtimeNanos)，设备休眠不会被误算为漂移。
+ * 只由采样线程记录，其他线程可以随时读取(数值可能相差一个tick)。
+ */
+public class SamplingStats {
+
+    private final LatencyHistogram lateness = new LatencyHistogram();
+    private final LatencyHistogram jitter = new LatencyHistogram();
+    private volatile long missedDeadlines;
+    private volatile long missedBase;
+    private volatile long clockDriftMillis;
+    private long previousIntended;
+    private long previousActual;
+    private boolean started;
+    // 墙钟 - 单调时钟的初始差值
+    private long clockOffsetMillis;
+    private boolean clockStarted;
+    // 进程重启前同一分段的统计(恢复的会话)，copyTo()时与本次的统计合并
+    private SessionSummary previous;
+    // previous的直方图已经加入lateness/jitter
+    private boolean previousRestored;
+
+    /**
+     * 记录一次触发
+     * @param intendedNanos 计划触发时间(单调时钟)
+     * @param actualNanos 实际触发时间(单调时钟)
+     * @param missedTotal 到目前为止错过的截止时间总数
+     */
+    public void onTick(long intendedNanos, long actualNanos, long missedTotal) {
+        lateness.record(actualNanos - intendedNanos);
+        if (started) {
+            jitter.record(Math.abs((actualNanos - previousActual) - (intendedNanos - previousIntended)));
+        }
+        started = true;
+        previousIntended = intendedNanos;
+        previousActual = actualNanos;
+        missedDeadlines = missedTotal;
+    }
+
+    /**
+     * 记录一个样本的两个时间戳，更新墙钟漂移
+     */
+    public void onClock(long wallMillis, long elapsedNanos) {
+        long offset = wallMillis - elapsedNanos / 1_000_000;
+        if (clockStarted) {
+            clockDriftMillis = offset - clockOffsetMillis;
+        } else {
+            clockStarted = true;
+            clockOffsetMillis = offset;
+        }
+    }
+
+    /**
+     * 重新开始统计(新的分段)，由采样线程调用
+     * @param missedTotal 当前错过的截止时间总数，之后的统计以此为基准
+     */
+    public void reset(long missedTotal) {
+        lateness.reset();
+        jitter.reset();
+        started = false;
+        clockStarted = false;
+        missedBase = missedTotal;
+        missedDeadlines = missedTotal;
+        clockDriftMillis = 0;
+        previous = null;
+        previousRestored = false;
+    }
+
+    /**
+     * 在恢复的分段上继续统计(进程重启后)，由采样线程调用
+     *
+     * 摘要中有直方图桶计数时加入本次的直方图，百分位按整个分段计算；
+     * 抖动的最大值没有保存，取最高非零桶的下界。
+     * @param summary 检查点中的摘要，其时间统计与之后的统计合并写回摘要
+     */
+    public void resume(SessionSummary summary, long missedTotal) {
+        reset(missedTotal);
+        previous = summary.withoutSamples();
+        if (summary.hasTimingBuckets()) {
+            lateness.add(summary.latenessBuckets, summary.latenessMaxNanos);
+            jitter.add(summary.jitterBuckets,
+                Math.max(summary.jitterP99Nanos, lowestInTopBucket(summary.jitterBuckets)));
+            previousRestored = true;
+        }
+    }
+
+    public LatencyHistogram lateness() {
+        return lateness;
+    }
+
+    public LatencyHistogram jitter() {
+        return jitter;
+    }
+
+    public long ticks() {
+        return lateness.count();
+    }
+
+    public long missedDeadlines() {
+        return missedDeadlines - missedBase;
+    }
+
+    public long clockDriftMillis() {
+        return clockDriftMillis;
+    }
+
+    /**
+     * 写入会话摘要
+     *
+     * 恢复的分段加上重启前错过的次数和漂移；重启前的摘要没有直方图桶计数时
+     * (旧版本的检查点)加上重启前的tick数，两段的百分位和最大值取较大者(上界)。
+     */
+    public void copyTo(SessionSummary summary) {
+        lateness.copyBuckets(summary.latenessBuckets);
+        jitter.copyBuckets(summary.jitterBuckets);
+        summary.ticks = ticks();
+        summary.missedDeadlines = missedDeadlines();
+        summary.latenessP50Nanos = lateness.percentileNanos(50);
+        summary.latenessP99Nanos = lateness.percentileNanos(99);
+        summary.latenessMaxNanos = lateness.maxNanos();
+        summary.jitterP99Nanos = jitter.percentileNanos(99);
+        summary.clockDriftMillis = clockDriftMillis;
+        SessionSummary before = previous;
+        if (before != null) {
+            summary.missedDeadlines += before.missedDeadlines;
+            summary.clockDriftMillis += before.clockDriftMillis;
+        }
+        if (before != null && !previousRestored) {
+            summary.ticks += before.ticks;
+            summary.latenessP50Nanos = Math.max(summary.latenessP50Nanos, before.latenessP50Nanos);
+            summary.latenessP99Nanos = Math.max(summary.latenessP99Nanos, before.latenessP99Nanos);
+            summary.latenessMaxNanos = Math.max(summary.latenessMaxNanos, before.latenessMaxNanos);
+            summary.jitterP99Nanos = Math.max(summary.jitterP99Nanos, before.jitterP99Nanos);
+        }
+    }
+
+    private static long lowestInTopBucket(long[] buckets) {
+        for (int b = LatencyHistogram.BUCKETS - 1; b > 0; b--) {
+            if (buckets[b] != 0) {
+                return LatencyHistogram.upperBound(b - 1);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 例如 "延迟 n=3600 p50≤64µs p99≤2.0ms max=3.1ms, 抖动p99≤1.0ms, 错过0次, 时钟漂移0ms"
+     */
+    public String describe() {
+        return "延迟 " + lateness.describe()
+            + ", 抖动p99≤" + LatencyHistogram.formatNanos(jitter.percentileNanos(99))
+            + ", 错过" + missedDeadlines() + "次"
+            + ", 时钟漂移" + clockDriftMillis + "ms";
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.systemlogger;
+
+import java.util.Arrays;
+
+/**
+ * 按通道独立周期安排采样的时间轮
+ *
+ * 每个通道有自己的周期和下一次截止时间，截止时间按tick落入slotCount个槽之一
+ * (超出一圈的截止时间在槽中等待后续轮次)。采样线程在最早的截止时间醒来，
+ * {@link #poll}只扫描上次之后经过的槽，返回到期通道的掩码并安排下一次，
+ * 一次唤醒只探测到期的通道，慢通道不再跟随最快通道的频率。
+ *
+ * 时间使用单调时钟(毫秒)，不受墙钟调整影响。
+ * 只由采样线程调用，非线程安全。
+ */
+public class SamplingWheel {
+
+    /** 周期为0的通道跟随{@link #setBasePeriod}设置的基础周期 */
+    public static final long FOLLOW_BASE = 0;
+
+    private final long tickMillis;
+    private final int[] slots;
+    // 各通道的固定周期，FOLLOW_BASE表示跟随基础周期
+    private final long[] periods = new long[Channel.COUNT];
+    private final long[] deadlines = new long[Channel.COUNT];
+    // 各通道所在的槽
+    private final int[] slotOf = new int[Channel.COUNT];
+    private int scheduledMask;
+    private long basePeriodMillis;
+    // 下一个待扫描的tick
+    private long cursor;
+    // 上一次poll()取出的通道中最早的截止时间
+    private long lastDeadline;
+    private long missedDeadlines;
+
+    public SamplingWheel(long tickMillis, int slotCount, long basePeriodMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.slots = new int[Math.max(1, slotCount)];
+        this.basePeriodMillis = Math.max(1, basePeriodMillis);
+    }
+
+    /**
+     * 设置通道的固定周期(毫秒)，FOLLOW_BASE表示跟随基础周期；在{@link #start}之前调用
+     */
+    public void setPeriod(Channel channel, long periodMillis) {
+        periods[channel.ordinal()] = Math.max(FOLLOW_BASE, periodMillis);
+    }
+
+    /**
+     * 通道当前生效的周期
+     */
+    public long periodMillis(Channel channel) {
+        long period = periods[channel.ordinal()];
+        return period == FOLLOW_BASE ? basePeriodMillis : period;
+    }
+
+    public boolean followsBase(Channel channel) {
+        return periods[channel.ordinal()] == FOLLOW_BASE;
+    }
+
+    /**
+     * 安排channelMask中的通道从nowMillis开始采样(第一次立即到期)
+     */
+    public void start(int channelMask, long nowMillis) {
+        Arrays.fill(slots, 0);
+        scheduledMask = 0;
+        cursor = nowMillis / tickMillis;
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            if ((channelMask & (1 << ch)) != 0) {
+                schedule(ch, nowMillis);
+            }
+        }
+    }
+
+    /**
+     * 修改跟随基础周期的通道的周期(自适应采样)。周期缩短时，
+     * 截止时间晚于nowMillis + 新周期的通道提前到该时间，快速变化不必等完旧的长周期
+     */
+    public void setBasePeriod(long periodMillis, long nowMillis) {
+        periodMillis = Math.max(1, periodMillis);
+        boolean shorter = periodMillis < basePeriodMillis;
+        basePeriodMillis = periodMillis;
+        if (!shorter) {
+            return;
+        }
+        long deadline = nowMillis + periodMillis;
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            if (periods[ch] == FOLLOW_BASE && (scheduledMask & (1 << ch)) != 0 && deadlines[ch] > deadline) {
+                unschedule(ch);
+                schedule(ch, deadline);
+            }
+        }
+    }
+
+    public long basePeriodMillis() {
+        return basePeriodMillis;
+    }
+
+    /**
+     * 取出截止时间不晚于nowMillis的通道，并按各自周期安排下一次
+     * (落后超过一个周期时从nowMillis重新计时，不补采)
+     * @return 到期通道的掩码，没有到期通道时为0
+     */
+    public int poll(long nowMillis) {
+        long end = nowMillis / tickMillis;
+        // 经过的tick超过一圈时每个槽只需扫描一次
+        long start = Math.max(cursor, end - slots.length + 1);
+        int due = 0;
+        for (long tick = start; tick <= end; tick++) {
+            int slot = (int) Math.floorMod(tick, (long) slots.length);
+            int pending = slots[slot];
+            while (pending != 0) {
+                int ch = Integer.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                if (deadlines[ch] <= nowMillis) {
+                    due |= 1 << ch;
+                }
+            }
+        }
+        cursor = Math.max(cursor, end + 1);
+        lastDeadline = Long.MAX_VALUE;
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            if ((due & (1 << ch)) == 0) {
+                continue;
+            }
+            long period = periodMillis(Channel.ALL[ch]);
+            long next = deadlines[ch] + period;
+            if (next <= nowMillis) {
+                missedDeadlines += (nowMillis - deadlines[ch]) / period;
+                next = nowMillis + period;
+            }
+            lastDeadline = Math.min(lastDeadline, deadlines[ch]);
+            unschedule(ch);
+            schedule(ch, next);
+        }
+        return due;
+    }
+
+    /**
+     * 上一次{@link #poll}取出的通道中最早的截止时间(本次触发的计划时间)
+     */
+    public long lastDeadline() {
+        return lastDeadline;
+    }
+
+    /**
+     * 因落后超过一个周期而跳过的采样次数(按通道累计)
+     */
+    public long missedDeadlines() {
+        return missedDeadlines;
+    }
+
+    /**
+     * 最早的截止时间，没有安排任何通道时返回Long.MAX_VALUE
+     */
+    public long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            if ((scheduledMask & (1 << ch)) != 0 && deadlines[ch] < next) {
+                next = deadlines[ch];
+            }
+        }
+        return next;
+    }
+
+    /**
+     * 例如"THERMAL_CPU 1000ms*, CURRENT 100ms"，*表示跟随基础周期
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (Channel channel : Channel.ALL) {
+            if ((scheduledMask & channel.mask()) == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(channel.name()).append(' ').append(periodMillis(channel)).append("ms");
+            if (followsBase(channel)) {
+                sb.append('*');
+            }
+        }
+        return sb.toString();
+    }
+
+    private void schedule(int ch, long deadline) {
+        deadlines[ch] = deadline;
+        // 截止时间早于游标时放入下一个要扫描的槽，避免被跳过
+        long tick = Math.max(deadline / tickMillis, cursor);
+        int slot = (int) Math.floorMod(tick, (long) slots.length);
+        slots[slot] |= 1 << ch;
+        slotOf[ch] = slot;
+        scheduledMask |= 1 << ch;
+    }
+
+    private void unschedule(int ch) {
+        slots[slotOf[ch]] &= ~(1 << ch);
+        scheduledMask &= ~(1 << ch);
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * 会话分段的后台维护
+ *
+ * 记录时当前分段达到大小或时长上限就切换到新分段({@link RotationPolicy})，
+ * 关闭的CSV/二进制分段交给本类在低优先级执行器上转码为压缩格式，
+ * 然后按保留策略({@link RetentionPolicy})从最旧的分段开始删除。
+ * 采样线程只提交任务，所有文件操作都在执行器线程上进行；正在写入的分段永远不会被处理。
+ *
+ * 转码先写入临时文件再改名，进程中途被杀只会留下临时文件，下一次清理时删除。
+ */
+public class SegmentArchiver {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String EXPORT_PREFIX = "system_log_export_";
+
+    /**
+     * 分段策略: 当前分段超过maxBytes字节或maxMillis毫秒时切换，0表示不限制
+     */
+    public static final class RotationPolicy {
+        final long maxBytes;
+        final long maxMillis;
+
+        public RotationPolicy(long maxBytes, long maxMillis) {
+            this.maxBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+            this.maxMillis = maxMillis > 0 ? maxMillis : Long.MAX_VALUE;
+        }
+
+        public boolean shouldRotate(long segmentBytes, long segmentMillis) {
+            return segmentBytes >= maxBytes || segmentMillis >= maxMillis;
+        }
+    }
+
+    /**
+     * 保留策略: 会话文件(含索引/汇总等附属文件)总大小超过maxTotalBytes，
+     * 或分段最后写入时间早于maxAgeMillis之前时删除，0表示不限制
+     */
+    public static final class RetentionPolicy {
+        final long maxTotalBytes;
+        final long maxAgeMillis;
+
+        public RetentionPolicy(long maxTotalBytes, long maxAgeMillis) {
+            this.maxTotalBytes = maxTotalBytes > 0 ? maxTotalBytes : Long.MAX_VALUE;
+            this.maxAgeMillis = maxAgeMillis > 0 ? maxAgeMillis : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * 维护结果回调(在执行器线程调用)
+     */
+    public interface Listener {
+        /** 分段已转码为压缩格式，原文件及其附属文件已删除或改名 */
+        void onSegmentCompressed(File from, File to, long bytesBefore, long bytesAfter);
+        /** 分段因保留策略被删除 */
+        void onSegmentPruned(File segment, long bytes);
+        void onError(File segment, IOException e);
+    }
+
+    private final File directory;
+    private final RetentionPolicy retention;
+    private final SessionCatalog catalog;
+    private final Executor executor;
+    private final Listener listener;
+    private volatile File activeSegment;
+
+    /**
+     * @param catalog 会话目录，压缩/删除分段时同步更新；为null时不更新
+     * @param executor 执行维护任务的执行器，应当是单线程、低优先级的
+     */
+    public SegmentArchiver(File directory, RetentionPolicy retention, SessionCatalog catalog,
+                           Executor executor, Listener listener) {
+        this.directory = directory;
+        this.retention = retention;
+        this.catalog = catalog;
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * 正在写入的分段，维护任务跳过它
+     */
+    public void setActiveSegment(File segment) {
+        activeSegment = segment;
+    }
+
+    /**
+     * 分段已关闭: 在后台压缩(已经是压缩格式时跳过)，然后执行一次保留策略
+     */
+    public void segmentClosed(File segment, SessionFormat format) {
+        executor.execute(() -> {
+            if (format != SessionFormat.COMPRESSED) {
+                try {
+                    compress(segment, format);
+                } catch (IOException e) {
+                    listener.onError(segment, e);
+                }
+            }
+            prune();
+        });
+    }
+
+    /**
+     * 在后台执行一次保留策略(服务启动时调用)
+     */
+    public void schedulePrune() {
+        executor.execute(this::prune);
+    }
+
+    /**
+     * 会话文件的全部附属文件: 稀疏时间索引、块索引、中断记录、汇总文件
+     */
+    public static File[] sidecars(File session) {
+        File[] files = new File[3 + Rollups.TIER_COUNT];
+        int n = 0;
+        files[n++] = SparseTimeIndex.sidecar(session);
+        files[n++] = new File(session.getPath() + SessionBlockIndex.SUFFIX);
+        files[n++] = SessionRecovery.gapsFile(session);
+        for (int tier = 0; tier < Rollups.TIER_COUNT; tier++) {
+            File rollup = Rollups.sidecar(session, tier);
+            if (rollup != null) {
+                files[n++] = rollup;
+            }
+        }
+        return Arrays.copyOf(files, n);
+    }
+
+    // 转码为压缩格式，汇总文件和中断记录随会话改名，其余附属文件重新生成或按需重建
+    private void compress(File segment, SessionFormat format) throws IOException {
+        if (!segment.exists()) {
+            return;
+        }
+        String name = segment.getName();
+        String base = name.substring(0, name.length() - format.extension.length());
+        File target = new File(directory, base + SessionFormat.COMPRESSED.extension);
+        for (int n = 1; target.exists(); n++) {
+            target = new File(directory, base + "_" + n + SessionFormat.COMPRESSED.extension);
+        }
+        File temp = new File(target.getPath() + TEMP_SUFFIX);
+        File tempIndex = SparseTimeIndex.sidecar(temp);
+        BufferedLogWriter.FlushPolicy bulk = BufferedLogWriter.FlushPolicy.bulk();
+        float[] values = new float[Channel.COUNT];
+        try (SessionReader reader = format.openReader(segment);
+             SessionWriter writer = new CompressedSessionWriter(temp, bulk,
+                 new SparseTimeIndex.Writer(tempIndex, bulk))) {
+            while (reader.next(values)) {
+                writer.append(reader.timestampNanos() / 1_000_000L, reader.elapsedNanos(), values);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            tempIndex.delete();
+            throw e;
+        }
+        if (!temp.renameTo(target) || !tempIndex.renameTo(SparseTimeIndex.sidecar(target))) {
+            temp.delete();
+            tempIndex.delete();
+            throw new IOException("Cannot rename " + temp + " to " + target);
+        }
+
+        long before = segment.length();
+        File gaps = SessionRecovery.gapsFile(segment);
+        if (gaps.exists()) {
+            gaps.renameTo(SessionRecovery.gapsFile(target));
+        }
+        for (int tier = 0; tier < Rollups.TIER_COUNT; tier++) {
+            File rollup = Rollups.sidecar(segment, tier);
+            if (rollup != null && rollup.exists()) {
+                rollup.renameTo(Rollups.sidecar(target, tier));
+            }
+        }
+        for (File sidecar : sidecars(segment)) {
+            sidecar.delete();
+        }
+        segment.delete();
+
+        if (catalog != null) {
+            SessionSummary summary = catalog.get(name);
+            if (summary != null) {
+                catalog.append(summary.moveTo(target.getName(), SessionFormat.COMPRESSED, target.length()));
+                catalog.remove(name);
+            }
+        }
+        listener.onSegmentCompressed(segment, target, before, target.length());
+    }
+
+    // 从最旧的分段开始删除，直到总大小和最长保留时间都满足
+    private void prune() {
+        File[] files = directory.listFiles(File::isFile);
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long total = 0;
+        int count = 0;
+        File[] segments = new File[files.length];
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX) || name.endsWith(TEMP_SUFFIX + SparseTimeIndex.SUFFIX)) {
+                // 被中断的转码
+                if (name.startsWith("system_log_") && now - file.lastModified() > 60_000L) {
+                    file.delete();
+                }
+            } else if (SessionFormat.fromFile(file) != null && !name.startsWith(EXPORT_PREFIX)) {
+                segments[count++] = file;
+                total += sizeWithSidecars(file);
+            }
+        }
+        // 文件名以开始时间命名，按名称排序即按时间排序
+        Arrays.sort(segments, 0, count, (a, b) -> a.getName().compareTo(b.getName()));
+        File active = activeSegment;
+        for (int i = 0; i < count; i++) {
+            File segment = segments[i];
+            boolean expired = now - segment.lastModified() > retention.maxAgeMillis;
+            if (total <= retention.maxTotalBytes && !expired) {
+                break;
+            }
+            if (segment.equals(active)) {
+                continue;
+            }
+            long bytes = sizeWithSidecars(segment);
+            if (!segment.delete()) {
+                listener.onError(segment, new IOException("Cannot delete " + segment));
+                continue;
+            }
+            for (File sidecar : sidecars(segment)) {
+                sidecar.delete();
+            }
+            total -= bytes;
+            if (catalog != null) {
+                try {
+                    catalog.remove(segment.getName());
+                } catch (IOException e) {
+                    listener.onError(segment, e);
+                }
+            }
+            listener.onSegmentPruned(segment, bytes);
+        }
+    }
+
+    private static long sizeWithSidecars(File session) {
+        long bytes = session.length();
+        for (File sidecar : sidecars(session)) {
+            bytes += sidecar.length();
+        }
+        return bytes;
+    }
+}
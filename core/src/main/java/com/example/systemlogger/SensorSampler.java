@@ -0,0 +1,459 @@
+package com.example.systemlogger;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按优先级组合多个{@link SensorSource}
+ *
+ * 每个通道由第一个成功提供它的数据源填充，后面的数据源只补缺失的通道。
+ * 每个数据源带一个{@link ProbeHealth}熔断器: 能力发现失败或连续采样失败的
+ * 数据源会被停用，之后按指数退避重新open()/试探，状态变化通过监听器发布。
+ *
+ * 提供线程池时，互相独立的数据源并行探测: 每一轮把每个缺失的通道交给下一个
+ * 能提供它的数据源，各数据源写入自己的暂存数组，全部返回或到达截止时间后
+ * 按优先级合并；失败的通道在剩余时间内交给下一优先级的数据源。
+ * 超过截止时间的探测被记为失败，它负责的通道在本样本中缺失(NaN)，
+ * 之后不再等待它，直到它返回前也不会再次调用该数据源。
+ * 因此一次采样的延迟以截止时间为上限，而不是所有探测耗时之和。
+ * 依赖其他通道的数据源({@link SensorSource#requires()})在采样线程上、依赖的通道合并之后调用。
+ *
+ * open()/sample()/close()应在同一采样线程调用或外部同步。
+ */
+public class SensorSampler {
+
+    /**
+     * 数据源健康状态变化回调(在采样线程调用)
+     */
+    public interface ProbeStateListener {
+        void onProbeStateChanged(String name, ProbeHealth.State state, int consecutiveFailures);
+    }
+
+    private final SensorSource[] sources;
+    private final ProbeHealth[] health;
+    // 由探测任务写入，只在该数据源没有进行中的探测时由采样线程读取
+    private final int[] capabilities;
+    private final boolean[] opened;
+    private final ProbeTask[] tasks;
+    private final long[] lateCounts;
+    private final Executor executor;
+    private final long probeTimeoutNanos;
+    private ProbeStateListener stateListener;
+    // 各数据源单次探测的耗时，未设置度量时为null
+    private final LatencyHistogram[] latency;
+    private AtomicLong probeErrors;
+    private AtomicLong lateProbes;
+
+    // 本轮的编号和尚未返回的探测数，由lock保护
+    private final Object lock = new Object();
+    private int round;
+    private int outstanding;
+
+    // 采样线程的工作数组
+    private final int[] candidate = new int[Channel.COUNT];
+    private final int[] requests;
+    private final boolean[] busy;
+    private final boolean[] late;
+
+    /**
+     * 在调用线程上依次探测
+     * @param sources 按优先级从高到低排列
+     */
+    public SensorSampler(List<SensorSource> sources) {
+        this(sources, null, 0);
+    }
+
+    /**
+     * @param sources 按优先级从高到低排列
+     * @param executor 并行探测使用的线程池，为null时在调用线程上依次探测
+     * @param probeTimeoutMillis 一次采样中等待探测的最长时间
+     */
+    public SensorSampler(List<SensorSource> sources, Executor executor, long probeTimeoutMillis) {
+        this.sources = sources.toArray(new SensorSource[0]);
+        int n = this.sources.length;
+        this.health = new ProbeHealth[n];
+        this.capabilities = new int[n];
+        this.opened = new boolean[n];
+        this.tasks = new ProbeTask[n];
+        this.lateCounts = new long[n];
+        this.requests = new int[n];
+        this.busy = new boolean[n];
+        this.late = new boolean[n];
+        this.latency = new LatencyHistogram[n];
+        for (int i = 0; i < n; i++) {
+            health[i] = new ProbeHealth();
+            tasks[i] = new ProbeTask(i);
+        }
+        this.executor = executor;
+        // 依次探测时无法中途放弃，不设截止时间
+        this.probeTimeoutNanos = executor == null
+            ? Long.MAX_VALUE / 2 : TimeUnit.MILLISECONDS.toNanos(Math.max(1, probeTimeoutMillis));
+    }
+
+    public void setProbeStateListener(ProbeStateListener listener) {
+        this.stateListener = listener;
+    }
+
+    /**
+     * 登记各数据源的探测耗时直方图和异常/超时计数器，应在open()之前调用
+     */
+    public void setInstrumentation(Instrumentation instrumentation) {
+        for (int i = 0; i < sources.length; i++) {
+            latency[i] = instrumentation.histogram("probe." + sources[i].name());
+        }
+        probeErrors = instrumentation.counter("errors.probe");
+        lateProbes = instrumentation.counter("probe.late");
+    }
+
+    /**
+     * 对所有数据源做能力发现，不可用的数据源进入DISABLED并按退避时间重试
+     */
+    public void open(long nowMillis) {
+        for (int i = 0; i < sources.length; i++) {
+            if (!tryOpen(i) && health[i].disable(nowMillis)) {
+                notifyState(i);
+            }
+        }
+    }
+
+    /**
+     * 采样wanted中的通道到out
+     * @return 成功填充的通道掩码
+     */
+    public int sample(float[] out, int wanted, long nowMillis) {
+        long deadline = System.nanoTime() + probeTimeoutNanos;
+        int missing = wanted;
+        int filled = 0;
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            candidate[ch] = 0;
+        }
+        while (missing != 0) {
+            synchronized (lock) {
+                for (int i = 0; i < tasks.length; i++) {
+                    busy[i] = tasks[i].running;
+                }
+            }
+            if (!assign(missing, nowMillis)) {
+                break;
+            }
+            int launched = launch();
+            if (launched != 0) {
+                await(deadline);
+            }
+            int stale = 0;
+            for (int i = 0; i < sources.length; i++) {
+                int request = requests[i];
+                if (request == 0 || sources[i].requires() != 0) {
+                    continue;
+                }
+                if (late[i]) {
+                    // 超过截止时间: 这些通道本次缺失，不再交给后面的数据源
+                    lateCounts[i]++;
+                    if (lateProbes != null) lateProbes.incrementAndGet();
+                    stale |= request;
+                    if (health[i].recordFailure(nowMillis)) notifyState(i);
+                    continue;
+                }
+                ProbeTask task = tasks[i];
+                int got = task.result & request;
+                for (int ch = 0; ch < Channel.COUNT; ch++) {
+                    if ((got & (1 << ch)) != 0) {
+                        out[ch] = task.scratch[ch];
+                    }
+                }
+                filled |= got;
+                missing &= ~got;
+                record(i, got, task.openFailed, nowMillis);
+            }
+            // 派生的数据源在独立探测的结果合并之后调用
+            for (int i = 0; i < sources.length; i++) {
+                int requires = sources[i].requires();
+                if (requests[i] == 0 || requires == 0) {
+                    continue;
+                }
+                if ((filled & requires) != requires) {
+                    continue; // 依赖的通道本次缺失，不计为该数据源的失败
+                }
+                boolean openFailed = !opened[i] && !tryOpen(i);
+                int got = openFailed ? 0 : sampleInline(i, out, requests[i]);
+                filled |= got;
+                missing &= ~got;
+                record(i, got, openFailed, nowMillis);
+            }
+            missing &= ~stale;
+            if (System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+        return filled;
+    }
+
+    private void record(int i, int got, boolean openFailed, long nowMillis) {
+        boolean changed = got != 0 && !openFailed ? health[i].recordSuccess() : health[i].recordFailure(nowMillis);
+        if (changed) {
+            notifyState(i);
+        }
+    }
+
+    // 把每个缺失的通道交给下一个可用且能提供它的数据源，没有可交的通道时返回false
+    private boolean assign(int missing, long nowMillis) {
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = 0;
+        }
+        boolean any = false;
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            int bit = 1 << ch;
+            if ((missing & bit) == 0) {
+                continue;
+            }
+            int i = candidate[ch];
+            while (i < sources.length && !canProvide(i, bit, nowMillis)) {
+                i++;
+            }
+            candidate[ch] = i + 1;
+            if (i < sources.length) {
+                requests[i] |= bit;
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    private boolean canProvide(int i, int bit, long nowMillis) {
+        if (busy[i] || !health[i].allowProbe(nowMillis)) {
+            return false;
+        }
+        // 熔断后等待试探的数据源要重新做能力发现，先假定它能提供任何通道
+        return !opened[i] || (capabilities[i] & bit) != 0;
+    }
+
+    // 启动本轮的独立探测，返回启动的个数
+    private int launch() {
+        int launched = 0;
+        int current;
+        synchronized (lock) {
+            current = round;
+            outstanding = 0;
+        }
+        for (int i = 0; i < sources.length; i++) {
+            if (requests[i] == 0 || sources[i].requires() != 0) {
+                continue;
+            }
+            ProbeTask task = tasks[i];
+            task.request = requests[i];
+            task.round = current;
+            synchronized (lock) {
+                task.running = true;
+                outstanding++;
+            }
+            launched++;
+            if (executor == null) {
+                task.run();
+                continue;
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+        return launched;
+    }
+
+    // 等待本轮的探测全部返回或到达截止时间，之后返回的探测不再计入
+    private void await(long deadline) {
+        synchronized (lock) {
+            try {
+                while (outstanding > 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (int i = 0; i < tasks.length; i++) {
+                late[i] = requests[i] != 0 && tasks[i].running;
+            }
+            round++;
+            outstanding = 0;
+        }
+    }
+
+    private int sampleInline(int i, float[] out, int request) {
+        long start = System.nanoTime();
+        try {
+            return sources[i].sample(out, request & capabilities[i]) & request & capabilities[i];
+        } catch (RuntimeException e) {
+            countError();
+            return 0;
+        } finally {
+            recordLatency(i, start);
+        }
+    }
+
+    private void recordLatency(int i, long startNanos) {
+        LatencyHistogram histogram = latency[i];
+        if (histogram != null) {
+            histogram.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    private void countError() {
+        AtomicLong errors = probeErrors;
+        if (errors != null) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * 关闭所有数据源；仍在进行的探测最多等待一个截止时间
+     */
+    public void close() {
+        long deadline = System.nanoTime() + probeTimeoutNanos;
+        synchronized (lock) {
+            try {
+                while (anyRunning()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int i = 0; i < sources.length; i++) {
+            if (opened[i]) {
+                sources[i].close();
+                opened[i] = false;
+            }
+        }
+    }
+
+    private boolean anyRunning() {
+        for (ProbeTask task : tasks) {
+            if (task.running) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryOpen(int i) {
+        int mask;
+        try {
+            mask = sources[i].open() & Channel.ALL_MASK;
+        } catch (RuntimeException e) {
+            mask = 0;
+        }
+        capabilities[i] = mask;
+        opened[i] = mask != 0;
+        if (!opened[i]) {
+            sources[i].close();
+        }
+        return opened[i];
+    }
+
+    private void notifyState(int i) {
+        ProbeStateListener listener = stateListener;
+        if (listener != null) {
+            listener.onProbeStateChanged(sources[i].name(), health[i].state(), health[i].consecutiveFailures());
+        }
+    }
+
+    /**
+     * 一个数据源的探测任务，复用同一个对象，稳态下每次采样不分配内存
+     * 同一数据源同时最多有一个探测在进行
+     */
+    private final class ProbeTask implements Runnable {
+        final int index;
+        final float[] scratch = new float[Channel.COUNT];
+        int request;
+        int round;
+        // 以下字段在lock内发布
+        int result;
+        boolean openFailed;
+        boolean running;
+
+        ProbeTask(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            int got = 0;
+            boolean failedToOpen = false;
+            long start = System.nanoTime();
+            try {
+                // 熔断后的试探: 重新做能力发现
+                if (!opened[index] && !tryOpen(index)) {
+                    failedToOpen = true;
+                } else {
+                    int wanted = request & capabilities[index];
+                    if (wanted != 0) {
+                        got = sources[index].sample(scratch, wanted) & wanted;
+                    }
+                }
+            } catch (RuntimeException e) {
+                got = 0;
+                countError();
+            }
+            recordLatency(index, start);
+            synchronized (lock) {
+                result = got;
+                openFailed = failedToOpen;
+                running = false;
+                if (round == SensorSampler.this.round) {
+                    outstanding--;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 数据源能力描述(用于日志)
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sources.length; i++) {
+            if (!opened[i]) {
+                continue;
+            }
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(sources[i].name()).append('[');
+            boolean first = true;
+            for (Channel channel : Channel.ALL) {
+                if ((capabilities[i] & channel.mask()) != 0) {
+                    if (!first) sb.append('|');
+                    sb.append(channel.columnName);
+                    first = false;
+                }
+            }
+            sb.append(']');
+        }
+        return sb.length() > 0 ? sb.toString() : "none";
+    }
+
+    /**
+     * 各数据源健康状态摘要，如 "thermal-manager:DISABLED, battery:HEALTHY(late 3)"
+     */
+    public String describeHealth() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sources.length; i++) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(sources[i].name()).append(':').append(health[i].state());
+            if (lateCounts[i] > 0) {
+                sb.append("(late ").append(lateCounts[i]).append(')');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.systemlogger;
+
+/**
+ * 传感器数据源SPI
+ *
+ * 每个实现代表一种读取途径(ThermalManager、HardwarePropertiesManager、
+ * sysfs、电池广播等)。open()时完成能力发现并一次性解析好反射句柄/文件句柄，
+ * 之后sample()只做廉价的读取。新增设备特定的数据源(如Root实验机)
+ * 只需实现本接口并注册到{@link SensorSampler}，无需修改采样循环。
+ */
+public interface SensorSource {
+
+    /** 名称，用于日志和状态展示 */
+    String name();
+
+    /**
+     * 能力发现
+     * @return 本数据源实际能提供的通道掩码({@link Channel#mask()})，0表示不可用
+     */
+    int open();
+
+    /**
+     * 采样，只写入wanted中包含的通道
+     * @param out 按{@link Channel}顺序排列的样本值
+     * @param wanted 需要的通道掩码(已与open()返回的能力取交集)
+     * @return 实际写入了有效值的通道掩码
+     */
+    int sample(float[] out, int wanted);
+
+    /**
+     * 本数据源计算时依赖的通道(从同一样本中已填好的值派生，如外壳温度估算)
+     * 非0时{@link SensorSampler}在这些通道合并之后才在采样线程上调用它，
+     * 不放到并行探测线程池
+     */
+    default int requires() {
+        return 0;
+    }
+
+    /** 释放句柄 */
+    void close();
+}
@@ -0,0 +1,245 @@
+package com.example.systemlogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * 会话文件的块索引，用于历史会话的分级加载
+ *
+ * 会话按可定位的记录切成每块约BLOCK_SAMPLES个样本，每块记录:
+ * 文件偏移、首/末时间戳、样本数，以及每个通道的min/max值和出现时间。
+ * 索引作为缓存写在会话旁(会话文件名 + ".blocks")，打开时内存映射，
+ * 不复制到Java堆；会话文件长度或修改时间变化时重建。
+ *
+ * 索引文件布局(小端):
+ * <pre>
+ * 头部: int magic, int version, int channelCount, int blockSamples,
+ *       long sourceLength, long sourceModified, int blockCount
+ * 每块: long offset, long firstMillis, long lastMillis, int count,
+ *       每个通道 float min, float max, int minDelta, int maxDelta(相对firstMillis的毫秒)
+ * </pre>
+ */
+public class SessionBlockIndex implements Closeable {
+
+    public static final String SUFFIX = ".blocks";
+
+    private static final int MAGIC = 0x4B4C4253; // "SBLK"
+    private static final int VERSION = 1;
+    private static final int BLOCK_SAMPLES = 256;
+    private static final int HEADER_SIZE = 36;
+    private static final int BLOCK_SIZE = 28 + 16 * Channel.COUNT;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer map;
+    private final int blockCount;
+    private final long totalSamples;
+
+    private SessionBlockIndex(RandomAccessFile file, MappedByteBuffer map) {
+        this.file = file;
+        this.map = map;
+        this.blockCount = map.getInt(32);
+        long total = 0;
+        for (int b = 0; b < blockCount; b++) {
+            total += count(b);
+        }
+        this.totalSamples = total;
+    }
+
+    /**
+     * 打开会话的块索引，缓存不存在或已过期时先扫描会话文件重建
+     */
+    public static SessionBlockIndex open(File session, SessionFormat format) throws IOException {
+        File indexFile = new File(session.getPath() + SUFFIX);
+        if (!isCurrent(indexFile, session)) {
+            build(session, format, indexFile);
+        }
+        RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            return new SessionBlockIndex(raf, map);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private static boolean isCurrent(File indexFile, File session) throws IOException {
+        if (!indexFile.exists() || indexFile.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r")) {
+            MappedByteBuffer header = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            return header.getInt(0) == MAGIC
+                && header.getInt(4) == VERSION
+                && header.getInt(8) == Channel.COUNT
+                && header.getLong(16) == session.length()
+                && header.getLong(24) == session.lastModified()
+                && indexFile.length() == HEADER_SIZE + (long) header.getInt(32) * BLOCK_SIZE;
+        }
+    }
+
+    // 顺序扫描一遍会话文件，每个块只保留汇总
+    private static void build(File session, SessionFormat format, File indexFile) throws IOException {
+        long length = session.length();
+        long modified = session.lastModified();
+        float[] values = new float[Channel.COUNT];
+        float[] min = new float[Channel.COUNT];
+        float[] max = new float[Channel.COUNT];
+        long[] minAt = new long[Channel.COUNT];
+        long[] maxAt = new long[Channel.COUNT];
+        int blocks = 0;
+
+        try (SessionReader reader = format.openReader(session);
+             BufferedLogWriter out = new BufferedLogWriter(indexFile, false, BufferedLogWriter.FlushPolicy.bulk())) {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(Channel.COUNT);
+            out.putInt(BLOCK_SAMPLES);
+            out.putLong(length);
+            out.putLong(modified);
+            out.putInt(0); // blockCount，写完后回填
+
+            long offset = -1, first = 0, last = 0;
+            int count = 0;
+            while (true) {
+                long seekPoint = reader.seekPoint();
+                if (count >= BLOCK_SAMPLES && seekPoint >= 0) {
+                    writeBlock(out, offset, first, last, count, min, max, minAt, maxAt);
+                    blocks++;
+                    count = 0;
+                }
+                if (count == 0) {
+                    offset = seekPoint;
+                }
+                Arrays.fill(values, Float.NaN);
+                if (!reader.next(values)) {
+                    break;
+                }
+                long millis = reader.timestampNanos() / 1_000_000L;
+                if (count == 0) {
+                    first = millis;
+                    Arrays.fill(min, Float.NaN);
+                    Arrays.fill(max, Float.NaN);
+                }
+                last = millis;
+                count++;
+                for (int c = 0; c < Channel.COUNT; c++) {
+                    float v = values[c];
+                    if (Float.isNaN(v)) continue;
+                    if (Float.isNaN(min[c]) || v < min[c]) { min[c] = v; minAt[c] = millis; }
+                    if (Float.isNaN(max[c]) || v > max[c]) { max[c] = v; maxAt[c] = millis; }
+                }
+            }
+            if (count > 0) {
+                writeBlock(out, offset, first, last, count, min, max, minAt, maxAt);
+                blocks++;
+            }
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+            raf.seek(32);
+            raf.writeInt(Integer.reverseBytes(blocks));
+        }
+    }
+
+    private static void writeBlock(BufferedLogWriter out, long offset, long first, long last, int count,
+                                   float[] min, float[] max, long[] minAt, long[] maxAt) throws IOException {
+        out.putLong(offset);
+        out.putLong(first);
+        out.putLong(last);
+        out.putInt(count);
+        for (int c = 0; c < Channel.COUNT; c++) {
+            out.putFloat(min[c]);
+            out.putFloat(max[c]);
+            out.putInt((int) (minAt[c] - first));
+            out.putInt((int) (maxAt[c] - first));
+        }
+        out.endRecord();
+    }
+
+    public int blockCount() {
+        return blockCount;
+    }
+
+    public long totalSamples() {
+        return totalSamples;
+    }
+
+    public long startMillis() {
+        return blockCount > 0 ? firstMillis(0) : 0;
+    }
+
+    public long endMillis() {
+        return blockCount > 0 ? lastMillis(blockCount - 1) : 0;
+    }
+
+    /** 块首个记录的文件偏移，可直接传给{@link SessionReader#seek} */
+    public long offset(int block) {
+        return map.getLong(base(block));
+    }
+
+    public long firstMillis(int block) {
+        return map.getLong(base(block) + 8);
+    }
+
+    public long lastMillis(int block) {
+        return map.getLong(base(block) + 16);
+    }
+
+    public int count(int block) {
+        return map.getInt(base(block) + 24);
+    }
+
+    public boolean has(int block, Channel channel) {
+        return !Float.isNaN(min(block, channel));
+    }
+
+    public float min(int block, Channel channel) {
+        return map.getFloat(channelBase(block, channel));
+    }
+
+    public float max(int block, Channel channel) {
+        return map.getFloat(channelBase(block, channel) + 4);
+    }
+
+    public long minMillis(int block, Channel channel) {
+        return firstMillis(block) + map.getInt(channelBase(block, channel) + 8);
+    }
+
+    public long maxMillis(int block, Channel channel) {
+        return firstMillis(block) + map.getInt(channelBase(block, channel) + 12);
+    }
+
+    /**
+     * 第一个末时间戳 >= millis 的块，没有时返回blockCount()
+     */
+    public int findBlock(long millis) {
+        int lo = 0, hi = blockCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (lastMillis(mid) < millis) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private static int base(int block) {
+        return HEADER_SIZE + block * BLOCK_SIZE;
+    }
+
+    private static int channelBase(int block, Channel channel) {
+        return base(block) + 28 + 16 * channel.ordinal();
+    }
+}
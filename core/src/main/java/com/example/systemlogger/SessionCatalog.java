@@ -0,0 +1,304 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话目录: 会话目录下一个只追加的小文件，保存每个已结束会话的{@link SessionSummary}
+ *
+ * 启动时整体读入内存(每个会话一两百字节，几百个会话也只有几十KB)，
+ * 列出历史会话和统计信息时不需要打开任何会话文件。
+ * 同一文件名的后一条记录覆盖前一条；删除会话时追加一条删除标记。
+ * 进程在写入中途被杀时，末尾不完整的记录在读取时被忽略，并在下一次追加前截掉。
+ *
+ * 文件布局(小端):
+ * <pre>
+ * 头部: int magic, int version
+ * 记录: int length, int nameLength, byte[] name(UTF-8), int format(-1表示删除),
+ *       long startMillis, long endMillis, long sampleCount, long fileBytes, int channelMask,
+ *       channelMask中每个通道 float min, max, mean,
+ *       long ticks, missedDeadlines, latenessP50Nanos, latenessP99Nanos, latenessMaxNanos,
+ *       jitterP99Nanos, clockDriftMillis,
+ *       channelMask中每个通道 long count,
+ *       int latenessBucketMask, 每个非零桶 long count, int jitterBucketMask, 每个非零桶 long count
+ * </pre>
+ * 时间统计、通道样本数和直方图桶计数是后来追加在记录末尾的，较短的旧记录按长度跳过，读取为0。
+ */
+public class SessionCatalog {
+
+    public static final String FILE_NAME = "sessions.catalog";
+
+    static final int MAGIC = 0x54414353; // "SCAT"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    private static final int REMOVED = -1;
+    private static final int TIMING_SIZE = 7 * 8;
+
+    private final File file;
+    // 文件名 -> 摘要，保持写入顺序
+    private final Map<String, SessionSummary> sessions = new LinkedHashMap<>();
+    // 最后一条完整记录的结束位置
+    private long validLength;
+
+    private SessionCatalog(File file) {
+        this.file = file;
+    }
+
+    /**
+     * 读取会话目录下的目录文件，不存在时返回空目录(第一次append()时创建)
+     */
+    public static SessionCatalog open(File directory) throws IOException {
+        SessionCatalog catalog = new SessionCatalog(new File(directory, FILE_NAME));
+        if (catalog.file.exists()) {
+            catalog.load();
+        }
+        return catalog;
+    }
+
+    /**
+     * 所有已记录的会话，最新的在前
+     */
+    public synchronized List<SessionSummary> sessions() {
+        List<SessionSummary> list = new ArrayList<>(sessions.values());
+        list.sort((a, b) -> Long.compare(b.startMillis, a.startMillis));
+        return list;
+    }
+
+    /**
+     * 按会话文件名查找摘要，没有记录时返回null
+     */
+    public synchronized SessionSummary get(String fileName) {
+        return sessions.get(fileName);
+    }
+
+    /**
+     * 追加(或覆盖)一个会话的摘要
+     */
+    public synchronized void append(SessionSummary summary) throws IOException {
+        write(summary.fileName, summary, summary.format.ordinal());
+        sessions.put(summary.fileName, summary);
+    }
+
+    /**
+     * 追加删除标记，会话文件被清理后调用
+     */
+    public synchronized void remove(String fileName) throws IOException {
+        if (sessions.remove(fileName) != null) {
+            write(fileName, null, REMOVED);
+        }
+    }
+
+    /**
+     * 把单个摘要写成只有一条记录的目录文件(先写临时文件再改名，不会留下半个文件)
+     * 用于正在记录的会话的检查点，见{@link SessionRecovery}
+     */
+    static void writeSnapshot(File file, SessionSummary summary) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        temp.delete();
+        new SessionCatalog(temp).append(summary);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp + " to " + file);
+        }
+    }
+
+    /**
+     * 读取{@link #writeSnapshot}写出的摘要，文件不存在或为空时返回null
+     */
+    static SessionSummary readSnapshot(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        SessionCatalog snapshot = new SessionCatalog(file);
+        snapshot.load();
+        List<SessionSummary> list = snapshot.sessions();
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    private void write(String fileName, SessionSummary summary, int format) throws IOException {
+        byte[] name = fileName.getBytes(StandardCharsets.UTF_8);
+        int length = 4 + name.length + 4;
+        if (summary != null) {
+            length += 36 + 20 * Integer.bitCount(summary.channelMask) + TIMING_SIZE
+                + bucketsSize(summary.latenessBuckets) + bucketsSize(summary.jitterBuckets);
+        }
+        boolean create = validLength < HEADER_SIZE;
+        if (!create && file.length() != validLength) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+        BufferedLogWriter writer = new BufferedLogWriter(file, !create, BufferedLogWriter.FlushPolicy.bulk());
+        try {
+            if (create) {
+                writer.putInt(MAGIC);
+                writer.putInt(VERSION);
+            }
+            writer.putInt(length);
+            writer.putInt(name.length);
+            writer.putBytes(name);
+            writer.putInt(format);
+            if (summary != null) {
+                writer.putLong(summary.startMillis);
+                writer.putLong(summary.endMillis);
+                writer.putLong(summary.sampleCount);
+                writer.putLong(summary.fileBytes);
+                writer.putInt(summary.channelMask);
+                for (int ch = 0; ch < Channel.COUNT; ch++) {
+                    if ((summary.channelMask & (1 << ch)) != 0) {
+                        writer.putFloat(summary.min[ch]);
+                        writer.putFloat(summary.max[ch]);
+                        writer.putFloat(summary.mean[ch]);
+                    }
+                }
+                writer.putLong(summary.ticks);
+                writer.putLong(summary.missedDeadlines);
+                writer.putLong(summary.latenessP50Nanos);
+                writer.putLong(summary.latenessP99Nanos);
+                writer.putLong(summary.latenessMaxNanos);
+                writer.putLong(summary.jitterP99Nanos);
+                writer.putLong(summary.clockDriftMillis);
+                for (int ch = 0; ch < Channel.COUNT; ch++) {
+                    if ((summary.channelMask & (1 << ch)) != 0) {
+                        writer.putLong(summary.counts[ch]);
+                    }
+                }
+                putBuckets(writer, summary.latenessBuckets);
+                putBuckets(writer, summary.jitterBuckets);
+            }
+            writer.endRecord();
+        } finally {
+            writer.close();
+        }
+        validLength = file.length();
+    }
+
+    private void load() throws IOException {
+        ByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE - 8))
+                .order(ByteOrder.LITTLE_ENDIAN);
+            SessionFileReader.readAt(channel, 0, buffer);
+        }
+        if (buffer.remaining() < HEADER_SIZE) {
+            return; // 创建时被中断，下一次追加时重写
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a session catalog: " + file);
+        }
+        validLength = HEADER_SIZE;
+        SessionFormat[] formats = SessionFormat.values();
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt();
+            if (length < 8 || length > buffer.remaining()) {
+                break; // 末尾不完整的记录
+            }
+            int next = buffer.position() + length;
+            int nameLength = buffer.getInt();
+            if (nameLength < 0 || nameLength + 8 > length) {
+                break;
+            }
+            byte[] name = new byte[nameLength];
+            buffer.get(name);
+            String fileName = new String(name, StandardCharsets.UTF_8);
+            int format = buffer.getInt();
+            if (format < 0 || format >= formats.length) {
+                sessions.remove(fileName);
+            } else {
+                if (next - buffer.position() < 36) {
+                    break;
+                }
+                SessionSummary summary = new SessionSummary(fileName, formats[format]);
+                summary.startMillis = buffer.getLong();
+                summary.endMillis = buffer.getLong();
+                summary.sampleCount = buffer.getLong();
+                summary.fileBytes = buffer.getLong();
+                summary.channelMask = buffer.getInt() & Channel.ALL_MASK;
+                if (next - buffer.position() < 12 * Integer.bitCount(summary.channelMask)) {
+                    break;
+                }
+                for (int ch = 0; ch < Channel.COUNT; ch++) {
+                    if ((summary.channelMask & (1 << ch)) != 0) {
+                        summary.min[ch] = buffer.getFloat();
+                        summary.max[ch] = buffer.getFloat();
+                        summary.mean[ch] = buffer.getFloat();
+                    }
+                }
+                if (next - buffer.position() >= TIMING_SIZE) {
+                    summary.ticks = buffer.getLong();
+                    summary.missedDeadlines = buffer.getLong();
+                    summary.latenessP50Nanos = buffer.getLong();
+                    summary.latenessP99Nanos = buffer.getLong();
+                    summary.latenessMaxNanos = buffer.getLong();
+                    summary.jitterP99Nanos = buffer.getLong();
+                    summary.clockDriftMillis = buffer.getLong();
+                }
+                if (next - buffer.position() >= 8 * Integer.bitCount(summary.channelMask)) {
+                    for (int ch = 0; ch < Channel.COUNT; ch++) {
+                        if ((summary.channelMask & (1 << ch)) != 0) {
+                            summary.counts[ch] = buffer.getLong();
+                        }
+                    }
+                    if (getBuckets(buffer, next, summary.latenessBuckets)) {
+                        getBuckets(buffer, next, summary.jitterBuckets);
+                    }
+                }
+                sessions.remove(fileName); // 覆盖时移到末尾
+                sessions.put(fileName, summary);
+            }
+            buffer.position(next);
+            validLength = next;
+        }
+    }
+
+    private static int bucketsSize(long[] buckets) {
+        return 4 + 8 * Integer.bitCount(bucketMask(buckets));
+    }
+
+    private static int bucketMask(long[] buckets) {
+        int mask = 0;
+        for (int b = 0; b < LatencyHistogram.BUCKETS; b++) {
+            if (buckets[b] != 0) {
+                mask |= 1 << b;
+            }
+        }
+        return mask;
+    }
+
+    private static void putBuckets(BufferedLogWriter writer, long[] buckets) throws IOException {
+        int mask = bucketMask(buckets);
+        writer.putInt(mask);
+        for (int b = 0; b < LatencyHistogram.BUCKETS; b++) {
+            if ((mask & (1 << b)) != 0) {
+                writer.putLong(buckets[b]);
+            }
+        }
+    }
+
+    // 记录中没有(完整的)桶计数时返回false，buckets保持为0
+    private static boolean getBuckets(ByteBuffer buffer, int next, long[] buckets) {
+        if (next - buffer.position() < 4) {
+            return false;
+        }
+        int mask = buffer.getInt();
+        if (next - buffer.position() < 8 * Integer.bitCount(mask)) {
+            return false;
+        }
+        for (int b = 0; b < LatencyHistogram.BUCKETS; b++) {
+            if ((mask & (1 << b)) != 0) {
+                buckets[b] = buffer.getLong();
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.systemlogger;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 会话导出引擎
+ *
+ * 导出在后台线程执行，回调通过callbackExecutor分发(通常是主线程)。
+ * - CSV会话整文件导出: FileChannel.transferTo零拷贝
+ * - 时间窗口/通道子集/gzip/二进制会话: 逐条流式读取并重新格式化，
+ *   内存占用与文件大小无关；有起始时间时先用{@link SparseTimeIndex}定位到窗口附近
+ */
+public class SessionExporter {
+
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+    private static final int STREAM_BUFFER = 64 * 1024;
+
+    public interface Listener {
+        void onProgress(long bytesDone, long bytesTotal);
+        void onComplete(File output, long rows);
+        void onCancelled();
+        void onError(Exception e);
+    }
+
+    /**
+     * 导出参数，默认导出全部通道、全部时间、不压缩
+     */
+    public static final class Request {
+        final File source;
+        final SessionFormat format;
+        final File output;
+        long fromMillis = Long.MIN_VALUE;
+        long toMillis = Long.MAX_VALUE;
+        int channelMask = Channel.ALL_MASK;
+        boolean gzip = false;
+
+        public Request(File source, SessionFormat format, File output) {
+            this.source = source;
+            this.format = format;
+            this.output = output;
+        }
+
+        public Request timeRange(long fromMillis, long toMillis) {
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            return this;
+        }
+
+        public Request channels(int channelMask) {
+            this.channelMask = channelMask & Channel.ALL_MASK;
+            return this;
+        }
+
+        public Request gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        boolean isWholeFile() {
+            return fromMillis == Long.MIN_VALUE && toMillis == Long.MAX_VALUE
+                && channelMask == Channel.ALL_MASK;
+        }
+    }
+
+    /**
+     * 正在进行的导出，可以取消
+     */
+    public static final class Task {
+        private volatile boolean cancelled = false;
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class CancelledException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CancelledException() {
+            super("Export cancelled");
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+
+    public SessionExporter(ExecutorService executor, Executor callbackExecutor) {
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public Task export(Request request, Listener listener) {
+        Task task = new Task();
+        executor.execute(() -> run(request, task, listener));
+        return task;
+    }
+
+    private void run(Request request, Task task, Listener listener) {
+        try {
+            long rows;
+            if (request.format == SessionFormat.CSV && request.isWholeFile() && !request.gzip) {
+                rows = transferWholeFile(request, task, listener);
+            } else {
+                rows = streamFiltered(request, task, listener);
+            }
+            callbackExecutor.execute(() -> listener.onComplete(request.output, rows));
+        } catch (CancelledException e) {
+            request.output.delete();
+            callbackExecutor.execute(listener::onCancelled);
+        } catch (Exception e) {
+            request.output.delete();
+            callbackExecutor.execute(() -> listener.onError(e));
+        }
+    }
+
+    /**
+     * 整文件零拷贝，返回-1表示未统计行数
+     */
+    private long transferWholeFile(Request request, Task task, Listener listener) throws IOException {
+        try (FileInputStream in = new FileInputStream(request.source);
+             FileOutputStream out = new FileOutputStream(request.output, false)) {
+            FileChannel src = in.getChannel();
+            FileChannel dst = out.getChannel();
+            long total = src.size(); // 只导出开始时已提交的数据
+            long done = 0;
+            while (done < total) {
+                checkCancelled(task);
+                long transferred = src.transferTo(done, Math.min(TRANSFER_CHUNK, total - done), dst);
+                if (transferred <= 0) {
+                    break;
+                }
+                done += transferred;
+                reportProgress(listener, done, total);
+            }
+        }
+        return -1;
+    }
+
+    private long streamFiltered(Request request, Task task, Listener listener) throws IOException {
+        long total = request.source.length();
+        long rows = 0;
+        long scanned = 0;
+        long lastReported = 0;
+        long progressStep = Math.max(256 * 1024, total / 100);
+        float[] values = new float[Channel.COUNT];
+        long fromNanos = toNanos(request.fromMillis);
+        long toNanos = toNanos(request.toMillis);
+        CsvRowFormatter formatter = new CsvRowFormatter();
+
+        try (SessionReader reader = request.format.openReader(request.source);
+             Writer writer = openWriter(request)) {
+            if (request.fromMillis != Long.MIN_VALUE) {
+                long offset = SparseTimeIndex.open(request.source, request.format).seekOffset(request.fromMillis);
+                if (offset >= 0) {
+                    reader.seek(offset);
+                }
+            }
+            writer.write(Channel.csvHeader(request.channelMask));
+            writer.write('\n');
+            while (reader.next(values)) {
+                long timestamp = reader.timestampNanos();
+                if (timestamp > toNanos) {
+                    break; // 会话文件按时间有序
+                }
+                if (timestamp >= fromNanos) {
+                    writer.append(formatter.format(timestamp / 1_000_000L, values, request.channelMask));
+                    writer.write('\n');
+                    rows++;
+                }
+                if ((++scanned & 0xFF) == 0) {
+                    checkCancelled(task);
+                    long position = reader.position();
+                    if (position - lastReported >= progressStep) {
+                        lastReported = position;
+                        reportProgress(listener, position, total);
+                    }
+                }
+            }
+        }
+        reportProgress(listener, total, total);
+        return rows;
+    }
+
+    private static Writer openWriter(Request request) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(request.output, false), STREAM_BUFFER);
+        if (request.gzip) {
+            out = new GZIPOutputStream(out, STREAM_BUFFER);
+        }
+        return new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+
+    private static long toNanos(long millis) {
+        if (millis <= Long.MIN_VALUE / 1_000_000L) return Long.MIN_VALUE;
+        if (millis >= Long.MAX_VALUE / 1_000_000L) return Long.MAX_VALUE;
+        return millis * 1_000_000L;
+    }
+
+    private void reportProgress(Listener listener, long done, long total) {
+        callbackExecutor.execute(() -> listener.onProgress(done, total));
+    }
+
+    private static void checkCancelled(Task task) throws CancelledException {
+        if (task.cancelled || Thread.currentThread().isInterrupted()) {
+            throw new CancelledException();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.systemlogger;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 二进制会话文件读取的公共部分: 缓冲读取与通道头部解析
+ *
+ * 头部布局(小端，由{@link #writeHeader}写出):
+ * int magic, int version, int channelCount, int recordSize(变长格式为0),
+ * 每个通道: int type, int nameLength, byte[] name(UTF-8)
+ *
+ * 文件中的通道按名称映射到{@link Channel}，未知通道被跳过，缺失通道保持0。
+ */
+abstract class SessionFileReader implements SessionReader {
+
+    static final int TYPE_FLOAT = 0;
+    static final int TYPE_INT = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileInputStream stream;
+    protected final FileChannel channel;
+    protected final ByteBuffer buffer;
+
+    protected int channelCount;
+    protected int recordSize;
+    protected boolean[] intColumn;
+    protected int[] columnToChannel; // -1 表示未知通道
+    protected long dataOffset;
+    /** 文件头中的版本，不高于子类支持的版本 */
+    protected int version;
+
+    /**
+     * @param version 支持的最高版本，更早的版本也可以读取，由子类按{@link #version}解析记录
+     */
+    SessionFileReader(File file, int magic, int version) throws IOException {
+        this.stream = new FileInputStream(file);
+        this.channel = stream.getChannel();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(0);
+        try {
+            readHeader(file, magic, version);
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    static void writeHeader(BufferedLogWriter writer, int magic, int version, int recordSize) throws IOException {
+        writer.putInt(magic);
+        writer.putInt(version);
+        writer.putInt(Channel.COUNT);
+        writer.putInt(recordSize);
+        for (Channel channel : Channel.ALL) {
+            byte[] name = channel.columnName.getBytes(StandardCharsets.UTF_8);
+            writer.putInt(channel.type == Channel.Type.INT ? TYPE_INT : TYPE_FLOAT);
+            writer.putInt(name.length);
+            writer.putBytes(name);
+        }
+        writer.flush();
+    }
+
+    private void readHeader(File file, int magic, int version) throws IOException {
+        if (readInt() != magic) {
+            throw new IOException("Unexpected session file type: " + file.getName());
+        }
+        int fileVersion = readInt();
+        if (fileVersion < 1 || fileVersion > version) {
+            throw new IOException("Unsupported session version " + fileVersion);
+        }
+        this.version = fileVersion;
+        channelCount = readInt();
+        recordSize = readInt();
+
+        long offset = 16;
+        intColumn = new boolean[channelCount];
+        columnToChannel = new int[channelCount];
+        for (int i = 0; i < channelCount; i++) {
+            intColumn[i] = readInt() == TYPE_INT;
+            byte[] name = new byte[readInt()];
+            for (int j = 0; j < name.length; j++) {
+                name[j] = readByte();
+            }
+            columnToChannel[i] = channelIndex(new String(name, StandardCharsets.UTF_8));
+            offset += 8 + name.length;
+        }
+        dataOffset = offset;
+    }
+
+    /** 头部长度，即第一条记录的文件偏移 */
+    public long dataOffset() {
+        return dataOffset;
+    }
+
+    /** 没有单调时钟的格式(如汇总文件)返回0 */
+    @Override
+    public long elapsedNanos() {
+        return 0;
+    }
+
+    @Override
+    public long position() throws IOException {
+        return channel.position() - buffer.remaining();
+    }
+
+    @Override
+    public long seekPoint() throws IOException {
+        return position();
+    }
+
+    @Override
+    public void seek(long offset) throws IOException {
+        channel.position(offset);
+        buffer.clear();
+        buffer.limit(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    // 把文件中第column列的32位值放到Channel顺序的values中
+    protected final void store(float[] values, int column, int bits) {
+        int target = columnToChannel[column];
+        if (target >= 0) {
+            values[target] = Channel.fromBits(intColumn[column], bits);
+        }
+    }
+
+    private static int channelIndex(String name) {
+        for (Channel channel : Channel.ALL) {
+            if (channel.columnName.equals(name)) {
+                return channel.ordinal();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 从文件的position处读满buffer(从buffer开头写入)，文件提前结束时读到末尾为止
+     * @return flip后的buffer，remaining()为实际读到的字节数
+     */
+    static ByteBuffer readAt(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // 读满为止
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 读取length字节到dst，文件提前结束时返回false
+     */
+    protected final boolean readFully(byte[] dst, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            if (!fill(1)) {
+                return false;
+            }
+            int chunk = Math.min(length - offset, buffer.remaining());
+            buffer.get(dst, offset, chunk);
+            offset += chunk;
+        }
+        return true;
+    }
+
+    protected final int readInt() throws IOException {
+        if (!fill(4)) throw new EOFException();
+        return buffer.getInt();
+    }
+
+    protected final byte readByte() throws IOException {
+        if (!fill(1)) throw new EOFException();
+        return buffer.get();
+    }
+
+    /**
+     * 确保缓冲区中至少有n个字节可读(n不超过缓冲区容量)
+     * @return 文件剩余不足n字节时返回false
+     */
+    protected final boolean fill(int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < n) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 会话文件格式
+ */
+public enum SessionFormat {
+    /** 文本CSV，每行约60-80字节 */
+    CSV(".csv"),
+    /** 定长二进制记录，每行16 + 4*N字节(含单调时钟)，导出时转码为CSV */
+    BINARY(".slog"),
+    /** Gorilla压缩块，缓慢变化的通道每样本只需几个比特 */
+    COMPRESSED(".slgz");
+
+    public final String extension;
+
+    SessionFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public SessionWriter createWriter(File file, BufferedLogWriter.FlushPolicy policy) throws IOException {
+        return createWriter(file, policy, null);
+    }
+
+    /**
+     * @param index 稀疏时间索引写入器，为null时不写索引；随返回的写入器一起关闭
+     */
+    public SessionWriter createWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                                      SparseTimeIndex.Writer index) throws IOException {
+        return createWriter(file, policy, index, false);
+    }
+
+    /**
+     * @param csvElapsedColumn CSV格式是否写入单调时钟列，二进制和压缩格式总是包含
+     */
+    public SessionWriter createWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                                      SparseTimeIndex.Writer index, boolean csvElapsedColumn) throws IOException {
+        switch (this) {
+            case BINARY:
+                return new BinarySessionWriter(file, policy, index);
+            case COMPRESSED:
+                return new CompressedSessionWriter(file, policy, index);
+            case CSV:
+            default:
+                return new CsvSessionWriter(file, policy, index, csvElapsedColumn);
+        }
+    }
+
+    /**
+     * 在进程被杀后恢复的会话末尾继续写入，见{@link SessionRecovery}
+     */
+    public SessionWriter resumeWriter(File file, BufferedLogWriter.FlushPolicy policy,
+                                      SparseTimeIndex.Writer index) throws IOException {
+        switch (this) {
+            case BINARY:
+                return BinarySessionWriter.resume(file, policy, index);
+            case COMPRESSED:
+                return CompressedSessionWriter.resume(file, policy, index);
+            case CSV:
+            default:
+                return CsvSessionWriter.resume(file, policy, index);
+        }
+    }
+
+    public SessionReader openReader(File file) throws IOException {
+        switch (this) {
+            case BINARY:
+                return new BinarySessionReader(file);
+            case COMPRESSED:
+                return new CompressedSessionReader(file);
+            case CSV:
+            default:
+                return new CsvSessionReader(file);
+        }
+    }
+
+    /**
+     * 按文件扩展名识别格式，无法识别时返回null
+     */
+    public static SessionFormat fromFile(File file) {
+        String name = file.getName();
+        for (SessionFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解析启动参数中的格式名，无效值回退到CSV
+     */
+    public static SessionFormat parse(String name) {
+        if (name != null) {
+            for (SessionFormat format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+        }
+        return CSV;
+    }
+}
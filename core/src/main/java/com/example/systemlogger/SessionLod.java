@@ -0,0 +1,126 @@
+package com.example.systemlogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 历史会话的分级加载(level of detail)
+ *
+ * 根据{@link SessionBlockIndex}判断可见时间窗口内的样本数:
+ * - 不超过点数预算: 定位到窗口的第一个块，只读取窗口内的原始样本
+ * - 超过预算: 不读会话文件，直接用块索引中的min/max合并出每组两个点，尖峰不会丢失
+ * 每次加载的开销只与预算有关，与会话长度无关。
+ * 非线程安全，应在单个后台线程中使用。
+ */
+public class SessionLod implements Closeable {
+
+    private final File session;
+    private final SessionFormat format;
+    private final SessionBlockIndex index;
+    private final float[] values = new float[Channel.COUNT];
+    private SessionReader reader;
+
+    public SessionLod(File session, SessionFormat format, SessionBlockIndex index) {
+        this.session = session;
+        this.format = format;
+        this.index = index;
+    }
+
+    public SessionBlockIndex index() {
+        return index;
+    }
+
+    /**
+     * 加载与[fromMillis, toMillis]相交的整块(窗口两侧多出的部分保证曲线在边缘连续)
+     */
+    public void load(long fromMillis, long toMillis, LodSeries out) throws IOException {
+        out.clear();
+        int blocks = index.blockCount();
+        if (blocks == 0) {
+            return;
+        }
+        int first = Math.min(blocks - 1, index.findBlock(fromMillis));
+        int last = Math.min(blocks - 1, index.findBlock(toMillis));
+        long samples = 0;
+        for (int b = first; b <= last; b++) {
+            samples += index.count(b);
+        }
+        out.samples = samples;
+        long origin = index.startMillis();
+
+        if (samples <= out.capacity()) {
+            loadRaw(first, last, origin, out);
+        } else {
+            loadSummary(first, last, origin, out);
+        }
+    }
+
+    private void loadRaw(int first, int last, long origin, LodSeries out) throws IOException {
+        if (reader == null) {
+            reader = format.openReader(session);
+        }
+        reader.seek(index.offset(first));
+        long end = index.lastMillis(last);
+        long remaining = out.capacity();
+        while (remaining-- > 0) {
+            Arrays.fill(values, Float.NaN);
+            if (!reader.next(values)) {
+                break;
+            }
+            long millis = reader.timestampNanos() / 1_000_000L;
+            if (millis > end) {
+                break;
+            }
+            float x = (millis - origin) / 1000f;
+            for (int c = 0; c < Channel.COUNT; c++) {
+                if (!Float.isNaN(values[c])) {
+                    out.add(c, x, values[c]);
+                }
+            }
+        }
+        out.raw = true;
+    }
+
+    private void loadSummary(int first, int last, long origin, LodSeries out) {
+        int groups = Math.max(1, out.capacity() / 2);
+        int blocksPerGroup = (last - first + groups) / groups;
+        for (Channel channel : Channel.ALL) {
+            int c = channel.ordinal();
+            for (int g = first; g <= last; g += blocksPerGroup) {
+                int groupEnd = Math.min(last, g + blocksPerGroup - 1);
+                float min = Float.NaN, max = Float.NaN;
+                long minAt = 0, maxAt = 0;
+                for (int b = g; b <= groupEnd; b++) {
+                    if (!index.has(b, channel)) continue;
+                    float lo = index.min(b, channel), hi = index.max(b, channel);
+                    if (Float.isNaN(min) || lo < min) { min = lo; minAt = index.minMillis(b, channel); }
+                    if (Float.isNaN(max) || hi > max) { max = hi; maxAt = index.maxMillis(b, channel); }
+                }
+                if (Float.isNaN(min)) {
+                    continue;
+                }
+                if (minAt <= maxAt) {
+                    out.add(c, (minAt - origin) / 1000f, min);
+                    if (maxAt != minAt) out.add(c, (maxAt - origin) / 1000f, max);
+                } else {
+                    out.add(c, (maxAt - origin) / 1000f, max);
+                    out.add(c, (minAt - origin) / 1000f, min);
+                }
+            }
+        }
+        out.raw = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+        } finally {
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.systemlogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 会话文件的顺序读取接口，各落盘格式各自实现
+ */
+public interface SessionReader extends Closeable {
+
+    /**
+     * 读取下一条记录到values(按{@link Channel}顺序)
+     * @return 没有完整记录时返回false
+     */
+    boolean next(float[] values) throws IOException;
+
+    /** 最近一次next()读到的记录时间戳(纪元纳秒) */
+    long timestampNanos();
+
+    /** 最近一次next()读到的记录的单调时钟时间(纳秒)，文件中没有这一项时为0 */
+    long elapsedNanos();
+
+    /** 已消费的文件字节数(用于进度计算) */
+    long position() throws IOException;
+
+    /**
+     * 下一条记录可以直接定位读取时返回其文件偏移，否则返回-1
+     * (例如压缩格式只能从块的开头开始解码)
+     */
+    long seekPoint() throws IOException;
+
+    /**
+     * 定位到之前由{@link #seekPoint()}返回的偏移，之后的next()从该记录开始
+     */
+    void seek(long offset) throws IOException;
+}
@@ -0,0 +1,794 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 采样流水线: 按时间轮调度数据源，把样本写入会话分段、汇总、历史缓冲区和会话摘要
+ *
+ * 不依赖Android，数据源、执行器和会话目录由调用方提供；
+ * LoggingService只负责把Intent参数转换为{@link Options}、提供Android数据源和前台通知，
+ * 在JVM上可以用模拟数据源以kHz频率驱动同一条流水线做压测。
+ *
+ * 单个采样线程(start()创建)驱动调度、写入和会话分段切换；
+ * 历史、汇总查询、统计和度量可以在任意线程读取。
+ * 日志和状态变化通过{@link Listener}报告。
+ */
+public class SessionRecorder {
+
+    /**
+     * 流水线事件回调，除特别说明外在采样线程调用
+     */
+    public interface Listener {
+        /** 会话/分段的生命周期事件，用于日志 */
+        default void onEvent(String message) {
+        }
+
+        /** 错误，采样热路径上持续出现的错误按1、2、4、8…次递减报告 */
+        default void onError(String message, Exception e) {
+        }
+
+        /** 数据源健康状态变化 */
+        default void onProbeStateChanged(String name, ProbeHealth.State state, int consecutiveFailures) {
+        }
+
+        /** 新样本已发布到历史缓冲区 */
+        default void onSamplePublished() {
+        }
+    }
+
+    /**
+     * 记录参数，未设置的项使用默认值
+     */
+    public static final class Options {
+        SessionFormat format = SessionFormat.CSV;
+        BufferedLogWriter.Durability durability = BufferedLogWriter.Durability.BUFFERED;
+        long periodMillis = DEFAULT_PERIOD_MS;
+        long adaptiveMinMillis;
+        long adaptiveMaxMillis;
+        boolean adaptive;
+        // 各通道的采样周期，-1表示使用默认值
+        final long[] channelPeriods = new long[Channel.COUNT];
+        SegmentArchiver.RotationPolicy rotation = new SegmentArchiver.RotationPolicy(
+            DEFAULT_SEGMENT_MAX_MB * 1024L * 1024L, TimeUnit.MINUTES.toMillis(DEFAULT_SEGMENT_MAX_MINUTES));
+        SegmentArchiver.RetentionPolicy retention = new SegmentArchiver.RetentionPolicy(
+            DEFAULT_RETENTION_MAX_MB * 1024L * 1024L, 0);
+        int historyCapacity = DEFAULT_HISTORY_CAPACITY;
+        long probeTimeoutMillis = DEFAULT_PROBE_TIMEOUT_MS;
+        LongSupplier elapsedNanos = System::nanoTime;
+        boolean csvElapsedColumn;
+
+        public Options() {
+            Arrays.fill(channelPeriods, -1);
+        }
+
+        public Options format(SessionFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        public Options durability(BufferedLogWriter.Durability durability) {
+            this.durability = durability;
+            return this;
+        }
+
+        /** 采样周期(毫秒)，默认1000 */
+        public Options period(long millis) {
+            this.periodMillis = Math.max(1, millis);
+            return this;
+        }
+
+        /** 自适应采样: 信号变化快时提高到最短周期，平稳时逐步退到最长周期 */
+        public Options adaptive(long minMillis, long maxMillis) {
+            this.adaptive = true;
+            this.adaptiveMinMillis = minMillis;
+            this.adaptiveMaxMillis = maxMillis;
+            return this;
+        }
+
+        /**
+         * 单个通道的采样周期，{@link SamplingWheel#FOLLOW_BASE}表示跟随采样周期
+         * (自适应模式下为当前的自适应周期)；电量和亮度默认每分钟一次
+         */
+        public Options channelPeriod(Channel channel, long millis) {
+            channelPeriods[channel.ordinal()] = Math.max(SamplingWheel.FOLLOW_BASE, millis);
+            return this;
+        }
+
+        public Options rotation(SegmentArchiver.RotationPolicy rotation) {
+            this.rotation = rotation;
+            return this;
+        }
+
+        public Options retention(SegmentArchiver.RetentionPolicy retention) {
+            this.retention = retention;
+            return this;
+        }
+
+        /** 内存中保留的最近样本数，默认4小时的1Hz数据 */
+        public Options historyCapacity(int capacity) {
+            this.historyCapacity = capacity;
+            return this;
+        }
+
+        /** 单次采样等待并行探测的上限(不超过最短的采样周期) */
+        public Options probeTimeout(long millis) {
+            this.probeTimeoutMillis = millis;
+            return this;
+        }
+
+        /**
+         * 样本的单调时钟时间(纳秒，应包含设备休眠时间)，默认System.nanoTime
+         */
+        public Options elapsedClock(LongSupplier elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+            return this;
+        }
+
+        /** CSV会话在时间戳之后写入单调时钟列，默认关闭(与旧版CSV布局一致) */
+        public Options csvElapsedColumn(boolean enabled) {
+            this.csvElapsedColumn = enabled;
+            return this;
+        }
+    }
+
+    private static final long DEFAULT_PERIOD_MS = 1000;
+    private static final int DEFAULT_HISTORY_CAPACITY = 4 * 3600;
+    private static final int DEFAULT_SEGMENT_MAX_MB = 64;
+    private static final int DEFAULT_SEGMENT_MAX_MINUTES = 24 * 60;
+    private static final int DEFAULT_RETENTION_MAX_MB = 1024;
+    // 电量和亮度几乎不会每秒变化，默认每分钟采一次
+    private static final long DEFAULT_SLOW_CHANNEL_PERIOD_MS = 60_000;
+    // 时间轮: 1ms一格，一圈约1秒，更长的周期在槽中等待后续轮次
+    private static final int WHEEL_SLOTS = 1024;
+    // 日志批量提交策略: 每30条或每10秒提交一次
+    private static final int FLUSH_MAX_RECORDS = 30;
+    private static final long FLUSH_MAX_DELAY_MS = 10_000;
+    // 会话摘要检查点间隔(进程被杀后恢复会话时使用)
+    private static final long CHECKPOINT_INTERVAL_MS = 60_000;
+    private static final long DEFAULT_PROBE_TIMEOUT_MS = 200;
+    // 采样记录对象池: 采样线程取出，写入文件并发布到历史后归还
+    private static final int SAMPLE_POOL_SIZE = 2;
+
+    private final File directory;
+    private final List<SensorSource> sources;
+    private final Executor probeExecutor;
+    private final Executor archiveExecutor;
+    private final LongSupplier elapsedNanos;
+    private final BufferedLogWriter.FlushPolicy flushPolicy;
+    private final SegmentArchiver.RotationPolicy rotationPolicy;
+    private final SegmentArchiver.RetentionPolicy retentionPolicy;
+    private final long periodMillis;
+    private final long probeTimeoutMillis;
+    private final boolean csvElapsedColumn;
+
+    private volatile Listener listener = new Listener() { };
+    private ScheduledExecutorService scheduler;
+    // 当前分段(采样线程切换分段，导出/刷新在其他线程读取)
+    private volatile File outputFile;
+    private volatile SessionWriter sessionWriter;
+    private volatile SessionFormat sessionFormat;
+    private long segmentStartMillis;
+    private long lastCheckpointMillis;
+    private SegmentArchiver archiver;
+    private SessionCatalog catalog;
+    // 汇总文件所在的分段: 跟随当前分段移动(当前分段不会被压缩或清理，
+    // 恢复会话时也在它上面继续)，会话结束后最后一个分段压缩改名时跟着更新
+    private volatile File rollupSession;
+    // 多分辨率汇总(采样线程写入，查询可在任意线程)
+    private volatile Rollups rollups;
+    // 当前分段的统计摘要(采样线程累计，分段结束时写入会话目录)
+    private SessionSummary sessionSummary;
+    // 按优先级组合的数据源(启动时完成能力发现)
+    private volatile SensorSampler sensorSampler;
+    private final SamplePool samplePool = new SamplePool(SAMPLE_POOL_SIZE);
+    // 最近样本历史(采样线程写入，图表/状态/统计等消费方各自用游标读取)
+    private final SampleRingBuffer history;
+    // 自适应模式下的周期控制(只在采样线程访问)，固定周期时为null
+    private final AdaptiveRate adaptiveRate;
+    // 各通道的采样时间表(只在采样线程访问)
+    private final SamplingWheel samplingWheel;
+    // 当前分段的调度延迟/抖动统计(采样线程记录，任意线程读取)
+    private final SamplingStats samplingStats = new SamplingStats();
+    // 记录器自身开销的度量(采样线程记录，界面查看或导出)
+    private final Instrumentation instrumentation;
+    private final LatencyHistogram tickLatency;
+    private final LatencyHistogram appendLatency;
+    private final LatencyHistogram rollupLatency;
+    private final AtomicLong writeErrors;
+    private final AtomicLong sampleErrors;
+    private final AtomicLong missedSamples;
+    private volatile int enabledChannels = Channel.ALL_MASK;
+
+    /**
+     * @param directory 会话目录
+     * @param sources 按优先级排列的数据源，见{@link SensorSampler}
+     * @param probeExecutor 并行探测的线程池，为null时在采样线程上依次探测
+     * @param archiveExecutor 分段压缩和清理的执行器，应当是单线程、低优先级的
+     * @param instrumentation 度量注册表(可与界面回调等共用)
+     */
+    public SessionRecorder(File directory, Options options, List<SensorSource> sources,
+                           Executor probeExecutor, Executor archiveExecutor, Instrumentation instrumentation) {
+        this.directory = directory;
+        this.sources = sources;
+        this.probeExecutor = probeExecutor;
+        this.archiveExecutor = archiveExecutor;
+        this.elapsedNanos = options.elapsedNanos;
+        this.sessionFormat = options.format;
+        this.flushPolicy = new BufferedLogWriter.FlushPolicy(FLUSH_MAX_RECORDS, FLUSH_MAX_DELAY_MS, options.durability);
+        this.rotationPolicy = options.rotation;
+        this.retentionPolicy = options.retention;
+        this.periodMillis = options.periodMillis;
+        this.csvElapsedColumn = options.csvElapsedColumn;
+        this.adaptiveRate = options.adaptive
+            ? AdaptiveRate.withDefaults(options.adaptiveMinMillis, options.adaptiveMaxMillis)
+            : null;
+        long shortestPeriod = adaptiveRate != null ? adaptiveRate.minPeriodMillis() : periodMillis;
+        this.probeTimeoutMillis = Math.min(options.probeTimeoutMillis, shortestPeriod);
+        this.samplingWheel = createSamplingWheel(options);
+        this.history = new SampleRingBuffer(options.historyCapacity);
+        this.instrumentation = instrumentation;
+        tickLatency = instrumentation.histogram("sample.tick");
+        appendLatency = instrumentation.histogram("write.append");
+        rollupLatency = instrumentation.histogram("write.rollups");
+        writeErrors = instrumentation.counter("errors.write");
+        sampleErrors = instrumentation.counter("errors.sample");
+        missedSamples = instrumentation.counter("dropped.missed");
+    }
+
+    private SamplingWheel createSamplingWheel(Options options) {
+        long base = adaptiveRate != null ? adaptiveRate.periodMillis() : periodMillis;
+        SamplingWheel wheel = new SamplingWheel(1, WHEEL_SLOTS, base);
+        wheel.setPeriod(Channel.BATTERY_LEVEL, DEFAULT_SLOW_CHANNEL_PERIOD_MS);
+        wheel.setPeriod(Channel.BRIGHTNESS, DEFAULT_SLOW_CHANNEL_PERIOD_MS);
+        for (Channel channel : Channel.ALL) {
+            long period = options.channelPeriods[channel.ordinal()];
+            if (period >= 0) {
+                wheel.setPeriod(channel, period);
+            }
+        }
+        return wheel;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener != null ? listener : new Listener() { };
+    }
+
+    /**
+     * 采集的通道(Channel位掩码)，可在任意线程修改，下一次采样生效
+     */
+    public void setEnabledChannels(int mask) {
+        enabledChannels = mask;
+    }
+
+    /**
+     * 打开会话分段和数据源，开始采样
+     * @param restarted 进程被杀后重启: 有未正常结束的会话时在同一个文件上继续写入，
+     *                  否则把它作为已结束的会话收尾后开始新会话
+     */
+    public void start(boolean restarted) {
+        open(restarted);
+        if (scheduler == null || scheduler.isShutdown()) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                runnable -> new Thread(runnable, "SessionRecorder"));
+            // 停止时不再等待尚未到期的下一次采样(慢通道可能要等一分钟)
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            scheduler = executor;
+            samplingWheel.start(Channel.ALL_MASK, monotonicMillis());
+            scheduler.execute(this::samplingTick);
+            listener.onEvent("Data collection started: " + describeSampling() + " (" + samplingWheel.describe() + ")");
+        }
+    }
+
+    /**
+     * 只打开会话分段和数据源，不启动采样线程(基准测试直接调用recordData()驱动流水线)
+     */
+    void open(boolean restarted) {
+        setupOutputFile(restarted);
+        openSensorSources();
+    }
+
+    /**
+     * 停止采样并关闭会话(等待进行中的采样最多5秒)
+     */
+    public void stop() {
+        if (scheduler != null && !scheduler.isShutdown()) {
+            scheduler.shutdown();
+            try {
+                if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                    scheduler.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                scheduler.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeLogWriter();
+        if (sensorSampler != null) {
+            sensorSampler.close();
+            sensorSampler = null;
+        }
+    }
+
+    private void setupOutputFile(boolean restarted) {
+        try {
+            try {
+                catalog = SessionCatalog.open(directory);
+            } catch (IOException e) {
+                listener.onError("Error reading session catalog", e);
+                catalog = null;
+            }
+            archiver = new SegmentArchiver(directory, retentionPolicy, catalog, archiveExecutor, archiveListener);
+            SessionRecovery.Result recovered = null;
+            try {
+                recovered = SessionRecovery.recover(directory);
+            } catch (IOException e) {
+                listener.onError("Error recovering unfinished session", e);
+                SessionRecovery.clear(directory);
+            }
+            boolean resume = recovered != null && restarted;
+
+            // 会话期间保持文件打开，按批提交
+            if (resume) {
+                try {
+                    resumeSegment(recovered);
+                } catch (IOException e) {
+                    // 例如旧版本的文件: 按未结束的会话收尾，开始新的分段
+                    listener.onError("Error resuming session", e);
+                    resume = false;
+                }
+            }
+            if (!resume) {
+                if (recovered != null) {
+                    finishRecoveredSegment(recovered);
+                }
+                openSegment();
+            }
+            rollupSession = outputFile;
+            try {
+                rollups = new Rollups(outputFile, flushPolicy, resume);
+            } catch (IOException e) {
+                // 汇总文件不可写时只在内存中汇总
+                listener.onError("Error creating rollup files", e);
+                rollups = new Rollups(null, flushPolicy);
+            }
+            archiver.schedulePrune();
+
+            listener.onEvent("Output file created: " + outputFile.getAbsolutePath()
+                + " (" + sessionFormat + ", " + flushPolicy.durability + ")");
+
+        } catch (Exception e) {
+            listener.onError("Error setting up output file", e);
+        }
+    }
+
+    // 打开一个新的会话分段(写入器负责文件头)，文件名以分段开始时间命名
+    private void openSegment() throws IOException {
+        String stem = "system_log_" +
+            new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date());
+        File file = new File(directory, stem + sessionFormat.extension);
+        for (int n = 1; file.exists(); n++) {
+            file = new File(directory, stem + "_" + n + sessionFormat.extension);
+        }
+        sessionWriter = sessionFormat.createWriter(file, flushPolicy,
+            new SparseTimeIndex.Writer(SparseTimeIndex.sidecar(file), flushPolicy), csvElapsedColumn);
+        outputFile = file;
+        sessionSummary = new SessionSummary(file.getName(), sessionFormat);
+        segmentStartMillis = System.currentTimeMillis();
+        samplingStats.reset(samplingWheel.missedDeadlines());
+        archiver.setActiveSegment(file);
+        checkpointSession();
+    }
+
+    // 在上一次被杀的会话末尾继续写入(尾部已截断到完整的记录)，并记录中断的时间段
+    private void resumeSegment(SessionRecovery.Result recovered) throws IOException {
+        File file = recovered.session;
+        long now = System.currentTimeMillis();
+        SparseTimeIndex.Writer index = SparseTimeIndex.Writer.resume(SparseTimeIndex.sidecar(file), flushPolicy);
+        try {
+            sessionWriter = recovered.format.resumeWriter(file, flushPolicy, index);
+        } catch (IOException e) {
+            try {
+                index.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        sessionFormat = recovered.format;
+        outputFile = file;
+        sessionSummary = recovered.summary;
+        segmentStartMillis = recovered.summary.isEmpty() ? now : recovered.summary.startMillis;
+        samplingStats.resume(recovered.summary, samplingWheel.missedDeadlines());
+        archiver.setActiveSegment(file);
+        String gap = "";
+        if (recovered.lastTimestampMillis != Long.MIN_VALUE) {
+            gap = ", gap " + (now - recovered.lastTimestampMillis) + " ms";
+            try {
+                SessionRecovery.recordGap(file, recovered.lastTimestampMillis, now);
+            } catch (IOException e) {
+                listener.onError("Error recording session gap", e);
+            }
+        }
+        checkpointSession();
+        listener.onEvent("Resumed session " + file.getName() + " (truncated " + recovered.truncatedBytes
+            + " bytes" + gap + ")");
+    }
+
+    // 不继续写入的未结束会话: 按截断后的内容写入会话目录，交给后台压缩
+    private void finishRecoveredSegment(SessionRecovery.Result recovered) {
+        SessionSummary summary = recovered.summary;
+        summary.finish(recovered.validBytes);
+        if (catalog != null && !summary.isEmpty()) {
+            try {
+                catalog.append(summary);
+            } catch (IOException e) {
+                listener.onError("Error updating session catalog", e);
+            }
+        }
+        SessionRecovery.clear(recovered.session.getParentFile());
+        archiver.segmentClosed(recovered.session, recovered.format);
+        listener.onEvent("Closed unfinished session " + recovered.session.getName()
+            + " (truncated " + recovered.truncatedBytes + " bytes)");
+    }
+
+    // 保存当前分段的摘要检查点，同时标记会话尚未正常结束
+    private void checkpointSession() {
+        SessionSummary summary = sessionSummary;
+        SessionWriter writer = sessionWriter;
+        if (summary == null || writer == null) {
+            return;
+        }
+        lastCheckpointMillis = System.currentTimeMillis();
+        samplingStats.copyTo(summary);
+        summary.finish(writer.position());
+        try {
+            SessionRecovery.checkpoint(outputFile.getParentFile(), summary);
+        } catch (IOException e) {
+            listener.onError("Error writing session checkpoint", e);
+        }
+    }
+
+    // 当前分段达到上限: 关闭后交给后台压缩，在新分段继续写入(采样线程调用)
+    private void rotateSegment() {
+        File closed = outputFile;
+        closeSessionWriter();
+        try {
+            openSegment();
+            moveRollups(outputFile);
+            listener.onEvent("Session segment rotated: " + closed.getName() + " -> " + outputFile.getName());
+        } catch (IOException e) {
+            listener.onError("Error opening next segment", e);
+        }
+        archiver.segmentClosed(closed, sessionFormat);
+    }
+
+    // 汇总文件覆盖整个会话，移到新分段旁，关闭的分段可以照常压缩和清理
+    private void moveRollups(File segment) {
+        Rollups current = rollups;
+        if (current == null || segment.equals(rollupSession)) {
+            return;
+        }
+        try {
+            current.moveTo(segment);
+            rollupSession = segment;
+        } catch (IOException e) {
+            listener.onError("Error moving rollup files", e);
+        }
+    }
+
+    private final SegmentArchiver.Listener archiveListener = new SegmentArchiver.Listener() {
+        @Override
+        public void onSegmentCompressed(File from, File to, long bytesBefore, long bytesAfter) {
+            listener.onEvent("Segment compressed: " + from.getName() + " -> " + to.getName()
+                + " (" + bytesBefore + " -> " + bytesAfter + " bytes)");
+            if (from.equals(rollupSession)) {
+                rollupSession = to;
+                Rollups current = rollups;
+                if (current != null) {
+                    current.relocate(to);
+                }
+            }
+        }
+
+        @Override
+        public void onSegmentPruned(File segment, long bytes) {
+            listener.onEvent("Segment pruned by retention policy: " + segment.getName() + " (" + bytes + " bytes)");
+        }
+
+        @Override
+        public void onError(File segment, IOException e) {
+            listener.onError("Error archiving segment " + segment.getName(), e);
+        }
+    };
+
+    private void openSensorSources() {
+        if (sensorSampler != null) {
+            sensorSampler.close();
+        }
+        SensorSampler sampler = probeExecutor != null
+            ? new SensorSampler(sources, probeExecutor, probeTimeoutMillis)
+            : new SensorSampler(sources);
+        sampler.setInstrumentation(instrumentation);
+        sampler.setProbeStateListener((name, state, failures) ->
+            listener.onProbeStateChanged(name, state, failures));
+        sampler.open(System.currentTimeMillis());
+        sensorSampler = sampler;
+        listener.onEvent("Sensor sources: " + sampler.describe());
+    }
+
+    // 单个采样线程驱动所有通道: 采集到期的通道，然后睡到最早的下一个截止时间
+    private void samplingTick() {
+        long firedNanos = System.nanoTime();
+        int due = samplingWheel.poll(TimeUnit.NANOSECONDS.toMillis(firedNanos));
+        if (due != 0) {
+            samplingStats.onTick(TimeUnit.MILLISECONDS.toNanos(samplingWheel.lastDeadline()), firedNanos,
+                samplingWheel.missedDeadlines());
+            missedSamples.set(samplingWheel.missedDeadlines());
+            recordData(due);
+            tickLatency.record(System.nanoTime() - firedNanos);
+        }
+        flushIfDue();
+        // 按纳秒计算等待时间，毫秒取整不会让每次触发系统性地晚一点；
+        // 所有通道的周期都比提交间隔长时，至少每个提交间隔醒来一次提交缓冲的记录
+        long delay = Math.min(TimeUnit.MILLISECONDS.toNanos(samplingWheel.nextDeadline()) - System.nanoTime(),
+            TimeUnit.MILLISECONDS.toNanos(FLUSH_MAX_DELAY_MS));
+        try {
+            scheduler.schedule(this::samplingTick, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // 正在停止
+        }
+    }
+
+    // 缓冲的记录到期后提交，不必等到下一个样本写入(采样线程调用)
+    private void flushIfDue() {
+        SessionWriter writer = sessionWriter;
+        if (writer != null) {
+            try {
+                writer.flushIfDue();
+            } catch (IOException e) {
+                if (isFirstOrPowerOfTwo(writeErrors.incrementAndGet())) {
+                    listener.onError("Error writing to file (" + writeErrors.get() + " errors)", e);
+                }
+            }
+        }
+        Rollups current = rollups;
+        if (current != null) {
+            current.flushIfDue();
+        }
+    }
+
+    private static long monotonicMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * 采集一个样本并写入各个去向(采样线程调用)
+     * @param due 本次到期的通道，其余通道在这一行中为NaN(稀疏行)
+     */
+    void recordData(int due) {
+        int wanted = due & enabledChannels;
+        if (wanted == 0) {
+            return;
+        }
+        Sample sample = samplePool.acquire();
+        try {
+            sample.timestampMillis = System.currentTimeMillis();
+            sample.elapsedNanos = elapsedNanos.getAsLong();
+            samplingStats.onClock(sample.timestampMillis, sample.elapsedNanos);
+            Arrays.fill(sample.values, Float.NaN);
+            sample.mask = sensorSampler.sample(sample.values, wanted, sample.timestampMillis);
+
+            // 写入会话文件(缓冲，按批提交)，文本/二进制编码只在写入器内部进行
+            SessionWriter writer = sessionWriter;
+            if (writer != null && rotationPolicy.shouldRotate(writer.position(),
+                    sample.timestampMillis - segmentStartMillis)) {
+                rotateSegment();
+            }
+            if (sessionWriter != null) {
+                long start = System.nanoTime();
+                try {
+                    sessionWriter.append(sample.timestampMillis, sample.elapsedNanos, sample.values);
+                } catch (IOException e) {
+                    if (isFirstOrPowerOfTwo(writeErrors.incrementAndGet())) {
+                        listener.onError("Error writing to file (" + writeErrors.get() + " errors)", e);
+                    }
+                }
+                appendLatency.record(System.nanoTime() - start);
+            }
+            if (rollups != null) {
+                long start = System.nanoTime();
+                rollups.add(sample.timestampMillis, sample.mask, sample.values);
+                rollupLatency.record(System.nanoTime() - start);
+            }
+            if (adaptiveRate != null) {
+                samplingWheel.setBasePeriod(
+                    adaptiveRate.onSample(sample.timestampMillis, sample.mask, sample.values), monotonicMillis());
+            }
+            if (sessionSummary != null) {
+                sessionSummary.add(sample.timestampMillis, sample.mask, sample.values);
+                if (sample.timestampMillis - lastCheckpointMillis >= CHECKPOINT_INTERVAL_MS) {
+                    checkpointSession();
+                }
+            }
+
+            // 发布到历史，UI在下一帧批量读取
+            history.publish(sample);
+            listener.onSamplePublished();
+
+        } catch (Exception e) {
+            if (isFirstOrPowerOfTwo(sampleErrors.incrementAndGet())) {
+                listener.onError("Error in recordData (" + sampleErrors.get() + " errors)", e);
+            }
+        } finally {
+            sample.recycle();
+        }
+    }
+
+    // 持续出错时日志按1, 2, 4, 8...次递减，采样热路径上不逐次打日志
+    private static boolean isFirstOrPowerOfTwo(long count) {
+        return Long.bitCount(count) == 1;
+    }
+
+    /**
+     * 提交缓冲中的记录(会话文件和汇总)，可在任意线程调用
+     */
+    public void flush() {
+        SessionWriter writer = sessionWriter;
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                listener.onError("Error flushing log writer", e);
+            }
+        }
+        Rollups current = rollups;
+        if (current != null) {
+            try {
+                current.flush();
+            } catch (IOException e) {
+                listener.onError("Error flushing rollups", e);
+            }
+        }
+    }
+
+    private void closeLogWriter() {
+        boolean open = sessionWriter != null;
+        closeSessionWriter();
+        if (rollups != null) {
+            try {
+                rollups.close();
+            } catch (IOException e) {
+                listener.onError("Error closing rollups", e);
+            }
+        }
+        // 正常结束，之后重启不需要恢复；最后一个分段同样在后台压缩
+        if (open && outputFile != null) {
+            SessionRecovery.clear(outputFile.getParentFile());
+        }
+        if (open && archiver != null) {
+            archiver.setActiveSegment(null);
+            archiver.segmentClosed(outputFile, sessionFormat);
+        }
+    }
+
+    private void closeSessionWriter() {
+        if (sessionWriter != null) {
+            try {
+                sessionWriter.close();
+            } catch (IOException e) {
+                listener.onError("Error closing log writer", e);
+            }
+            sessionWriter = null;
+            recordSessionSummary();
+        }
+    }
+
+    // 分段结束时把摘要追加到会话目录，历史会话列表不用再打开会话文件
+    private void recordSessionSummary() {
+        SessionSummary summary = sessionSummary;
+        sessionSummary = null;
+        if (summary == null || summary.isEmpty() || outputFile == null) {
+            return;
+        }
+        samplingStats.copyTo(summary);
+        summary.finish(outputFile.length());
+        if (catalog == null) {
+            return;
+        }
+        try {
+            catalog.append(summary);
+        } catch (IOException e) {
+            listener.onError("Error updating session catalog", e);
+        }
+    }
+
+    /**
+     * 当前正在写入的会话分段，尚未打开时返回null
+     */
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    public SessionFormat getFormat() {
+        return sessionFormat;
+    }
+
+    /**
+     * 最近样本的环形缓冲区
+     * 消费方通过{@link SampleRingBuffer#newCursor()}创建自己的游标，读取不会阻塞采样线程
+     */
+    public SampleRingBuffer getHistory() {
+        return history;
+    }
+
+    /**
+     * 按时间范围查询当前会话的汇总数据，自动选择行数不超过maxRows的最细分辨率
+     * 旧数据从汇总文件读取时有磁盘I/O
+     * @return 写入rows的行数，尚未开始记录时返回0
+     */
+    public int queryRollups(long fromMillis, long toMillis, int maxRows, RollupRows rows) throws IOException {
+        Rollups current = rollups;
+        if (current == null) {
+            rows.clear();
+            return 0;
+        }
+        return current.query(current.tierFor(fromMillis, toMillis, maxRows), fromMillis, toMillis, rows);
+    }
+
+    /**
+     * 当前分段的采样调度统计
+     */
+    public SamplingStats getSamplingStats() {
+        return samplingStats;
+    }
+
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * 当前各数据源健康状态摘要(healthy / degraded / disabled)
+     */
+    public String getProbeStates() {
+        SensorSampler sampler = sensorSampler;
+        return sampler != null ? sampler.describeHealth() : "";
+    }
+
+    /**
+     * 把度量、采样调度统计和数据源状态写入文本文件
+     */
+    public void writeInstrumentation(File file) throws IOException {
+        instrumentation.writeTo(file, "采样: " + samplingStats.describe() + "\n数据源: " + getProbeStates());
+    }
+
+    /**
+     * 例如 "采样间隔 1秒" 或 "自适应采样 100ms–10秒"
+     */
+    public String describeSampling() {
+        return adaptiveRate != null
+            ? "自适应采样 " + formatPeriod(adaptiveRate.minPeriodMillis()) + "–" + formatPeriod(adaptiveRate.maxPeriodMillis())
+            : "采样间隔 " + formatPeriod(periodMillis);
+    }
+
+    private static String formatPeriod(long millis) {
+        if (millis < 1000) {
+            return millis + "ms";
+        }
+        return millis % 1000 == 0
+            ? millis / 1000 + "秒"
+            : String.format(Locale.getDefault(), "%.1f秒", millis / 1000f);
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * 进程被杀后恢复未结束的会话
+ *
+ * 记录期间会话目录中保留一个标记文件(active.session)，内容是当前分段的
+ * {@link SessionSummary}检查点；正常结束时删除。服务重新启动时标记文件仍在，
+ * 说明上一次没有正常结束，{@link #recover}只检查会话文件的末尾:
+ * - CSV: 读取最后64KB，截掉没有换行符的半行和无法解析的行
+ * - 二进制: 按记录长度截掉不完整的记录和全零记录
+ * - 压缩: 从稀疏索引的最后一个块开始逐块检查块头，截掉不完整的块
+ * 耗时与会话大小无关。检查点之后写入的记录(最多一个检查点间隔)从稀疏索引定位后补进摘要。
+ * 之后可以在同一个文件末尾继续写入，
+ * 中断的时间段用{@link #recordGap}写入会话旁的".gaps"文件。
+ */
+public final class SessionRecovery {
+
+    public static final String MARKER = "active.session";
+    public static final String GAPS_SUFFIX = ".gaps";
+
+    private static final int CSV_TAIL_BYTES = 64 * 1024;
+    private static final int GAPS_MAGIC = 0x50414753; // "SGAP"
+    private static final int GAPS_VERSION = 1;
+    private static final int GAPS_HEADER_SIZE = 8;
+    private static final int GAP_SIZE = 16;
+
+    private SessionRecovery() {}
+
+    /**
+     * 恢复结果
+     */
+    public static final class Result {
+        public final File session;
+        public final SessionFormat format;
+        /** 检查点中的摘要加上检查点之后写入的记录，与截断后的文件一致，可以继续累计 */
+        public final SessionSummary summary;
+        /** 截断后的文件长度 */
+        public final long validBytes;
+        /** 截掉的字节数 */
+        public final long truncatedBytes;
+        /** 最后一条完整记录的时间戳，没有记录时为Long.MIN_VALUE */
+        public final long lastTimestampMillis;
+
+        Result(File session, SessionFormat format, SessionSummary summary,
+               long validBytes, long truncatedBytes, long lastTimestampMillis) {
+            this.session = session;
+            this.format = format;
+            this.summary = summary;
+            this.validBytes = validBytes;
+            this.truncatedBytes = truncatedBytes;
+            this.lastTimestampMillis = lastTimestampMillis;
+        }
+    }
+
+    /**
+     * 记录当前分段的检查点(采样线程定期调用)，同时标记会话尚未结束
+     */
+    public static void checkpoint(File directory, SessionSummary summary) throws IOException {
+        SessionCatalog.writeSnapshot(new File(directory, MARKER), summary);
+    }
+
+    /**
+     * 会话正常结束，删除标记
+     */
+    public static void clear(File directory) {
+        new File(directory, MARKER).delete();
+    }
+
+    /**
+     * 检查上一次是否有未正常结束的会话，有则截断会话文件末尾不完整的记录
+     * 以及稀疏索引中超出新长度的条目
+     * @return 没有未结束的会话(或会话文件已不存在)时返回null
+     */
+    public static Result recover(File directory) throws IOException {
+        File marker = new File(directory, MARKER);
+        SessionSummary checkpoint = SessionCatalog.readSnapshot(marker);
+        if (checkpoint == null) {
+            marker.delete();
+            return null;
+        }
+        File session = new File(directory, checkpoint.fileName);
+        if (!session.exists()) {
+            marker.delete();
+            return null;
+        }
+        SessionFormat format = checkpoint.format;
+        long length = session.length();
+        long[] tail;
+        switch (format) {
+            case BINARY:
+                tail = binaryTail(session, length);
+                break;
+            case COMPRESSED:
+                tail = compressedTail(session, length);
+                break;
+            case CSV:
+            default:
+                tail = csvTail(session, length);
+                break;
+        }
+        long valid = tail[0];
+        if (valid < length) {
+            try (RandomAccessFile raf = new RandomAccessFile(session, "rw")) {
+                raf.setLength(valid);
+            }
+        }
+        SparseTimeIndex.truncate(SparseTimeIndex.sidecar(session), valid);
+        SessionSummary summary = replay(session, format, checkpoint, valid);
+        return new Result(session, format, summary, valid, length - valid, tail[1]);
+    }
+
+    /**
+     * 让检查点的摘要与截断后的文件一致: 检查点之后写入的记录补进摘要；
+     * 检查点统计过的记录被截掉时(缓冲中尚未落盘)，按文件内容重新统计样本，保留时间统计
+     */
+    static SessionSummary replay(File session, SessionFormat format, SessionSummary checkpoint,
+                                 long validBytes) throws IOException {
+        SessionSummary summary;
+        long after;
+        if (validBytes < checkpoint.fileBytes) {
+            summary = checkpoint.withoutSamples();
+            after = Long.MIN_VALUE;
+        } else {
+            summary = checkpoint;
+            summary.restoreAccumulators();
+            after = checkpoint.isEmpty() ? Long.MIN_VALUE : checkpoint.endMillis;
+        }
+        float[] values = new float[Channel.COUNT];
+        try (SessionReader reader = format.openReader(session)) {
+            File indexFile = SparseTimeIndex.sidecar(session);
+            if (after != Long.MIN_VALUE && indexFile.exists()) {
+                SparseTimeIndex index = SparseTimeIndex.load(indexFile, validBytes);
+                long offset = index != null ? index.seekOffset(after) : -1;
+                if (offset >= 0) {
+                    reader.seek(offset);
+                }
+            }
+            // 跳过检查点已经统计过的记录(时间戳不晚于检查点的最后一条)
+            boolean replaying = after == Long.MIN_VALUE;
+            while (reader.next(values)) {
+                long millis = reader.timestampNanos() / 1_000_000L;
+                if (!replaying && millis <= after) {
+                    continue;
+                }
+                replaying = true;
+                summary.add(millis, Channel.ALL_MASK, values);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * 记录一段中断: lastMillis为中断前最后一条记录，resumedMillis为恢复后的第一条记录
+     */
+    public static void recordGap(File session, long lastMillis, long resumedMillis) throws IOException {
+        File file = gapsFile(session);
+        boolean create = file.length() < GAPS_HEADER_SIZE;
+        try (BufferedLogWriter writer = new BufferedLogWriter(file, !create, BufferedLogWriter.FlushPolicy.bulk())) {
+            if (create) {
+                writer.putInt(GAPS_MAGIC);
+                writer.putInt(GAPS_VERSION);
+            }
+            writer.putLong(lastMillis);
+            writer.putLong(resumedMillis);
+            writer.endRecord();
+        }
+    }
+
+    /**
+     * 会话中记录的中断，按{lastMillis, resumedMillis, ...}交替排列，没有中断时返回空数组
+     */
+    public static long[] readGaps(File session) throws IOException {
+        File file = gapsFile(session);
+        if (file.length() < GAPS_HEADER_SIZE + GAP_SIZE) {
+            return new long[0];
+        }
+        ByteBuffer buffer = readRange(file, 0, (int) Math.min(file.length(), 1 << 20));
+        if (buffer.getInt() != GAPS_MAGIC || buffer.getInt() != GAPS_VERSION) {
+            return new long[0];
+        }
+        long[] gaps = new long[buffer.remaining() / GAP_SIZE * 2];
+        for (int i = 0; i < gaps.length; i++) {
+            gaps[i] = buffer.getLong();
+        }
+        return gaps;
+    }
+
+    public static File gapsFile(File session) {
+        return new File(session.getPath() + GAPS_SUFFIX);
+    }
+
+    // {有效长度, 最后一条记录的时间戳}
+    private static long[] csvTail(File session, long length) throws IOException {
+        long headerEnd;
+        try (CsvSessionReader reader = new CsvSessionReader(session)) {
+            headerEnd = reader.position();
+        }
+        long start = Math.max(headerEnd, length - CSV_TAIL_BYTES);
+        ByteBuffer buffer = readRange(session, start, (int) (length - start));
+        byte[] bytes = buffer.array();
+        int end = buffer.limit();
+        CsvRowParser parser = new CsvRowParser();
+        // 从后往前找最后一个能解析时间戳的完整行
+        while (end > 0) {
+            int lineEnd = lastIndexOf(bytes, (byte) '\n', end - 1);
+            if (lineEnd < 0) {
+                end = 0;
+                break;
+            }
+            int lineStart = lastIndexOf(bytes, (byte) '\n', lineEnd - 1) + 1;
+            if (lineStart == 0 && start > headerEnd) {
+                // 行首不在读取范围内，保留这一行
+                return new long[] { start + lineEnd + 1, Long.MIN_VALUE };
+            }
+            int comma = indexOf(bytes, (byte) ',', lineStart, lineEnd);
+            long millis = comma > lineStart ? parser.parseTimestamp(bytes, lineStart, comma) : Long.MIN_VALUE;
+            if (millis != Long.MIN_VALUE) {
+                return new long[] { start + lineEnd + 1, millis };
+            }
+            end = lineStart;
+        }
+        return new long[] { start + end, Long.MIN_VALUE };
+    }
+
+    private static long[] binaryTail(File session, long length) throws IOException {
+        long dataOffset;
+        int recordSize;
+        try (BinarySessionReader reader = new BinarySessionReader(session)) {
+            dataOffset = reader.dataOffset();
+            recordSize = reader.recordSize();
+        }
+        long valid = dataOffset + (length - dataOffset) / recordSize * recordSize;
+        // 断电后末尾可能是未写入内容的全零页
+        while (valid > dataOffset) {
+            long nanos = readRange(session, valid - recordSize, 8).getLong();
+            if (nanos != 0) {
+                return new long[] { valid, nanos / 1_000_000L };
+            }
+            valid -= recordSize;
+        }
+        return new long[] { valid, Long.MIN_VALUE };
+    }
+
+    private static long[] compressedTail(File session, long length) throws IOException {
+        long offset;
+        try (CompressedSessionReader reader = new CompressedSessionReader(session)) {
+            offset = reader.dataOffset();
+        }
+        File indexFile = SparseTimeIndex.sidecar(session);
+        if (indexFile.exists()) {
+            SparseTimeIndex index = SparseTimeIndex.load(indexFile, length);
+            long last = index != null ? index.seekOffset(Long.MAX_VALUE) : -1;
+            if (last > offset) {
+                offset = last;
+            }
+        }
+        long lastMillis = Long.MIN_VALUE;
+        try (RandomAccessFile raf = new RandomAccessFile(session, "r")) {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(CompressedSessionWriter.BLOCK_HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            while (offset + CompressedSessionWriter.BLOCK_HEADER_SIZE <= length) {
+                header.clear();
+                SessionFileReader.readAt(channel, offset, header);
+                if (header.remaining() < CompressedSessionWriter.BLOCK_HEADER_SIZE
+                        || header.getInt() != CompressedSessionWriter.BLOCK_MAGIC) {
+                    break;
+                }
+                int count = header.getInt();
+                int payload = header.getInt();
+                header.getLong(); // firstTimestamp
+                long last = header.getLong();
+                long next = offset + CompressedSessionWriter.BLOCK_HEADER_SIZE + payload;
+                if (count <= 0 || payload < 0 || next > length) {
+                    break;
+                }
+                offset = next;
+                lastMillis = last;
+            }
+        }
+        return new long[] { offset, lastMillis };
+    }
+
+    private static ByteBuffer readRange(File file, long position, int length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return SessionFileReader.readAt(raf.getChannel(), position,
+                ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    private static int lastIndexOf(byte[] bytes, byte b, int from) {
+        for (int i = from; i >= 0; i--) {
+            if (bytes[i] == b) return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.systemlogger;
+
+/**
+ * 一个会话的统计摘要: 时间范围、样本数、出现过的通道、各通道min/max/mean和文件大小，
+ * 以及采样调度的时间统计(见{@link SamplingStats})
+ *
+ * 记录过程中由采样线程调用add()累计，会话结束时finish()后写入{@link SessionCatalog}。
+ * 列出历史会话只需要读取目录文件，不用打开会话本身。
+ */
+public class SessionSummary {
+
+    public final String fileName;
+    public final SessionFormat format;
+
+    public long startMillis = Long.MAX_VALUE;
+    public long endMillis = Long.MIN_VALUE;
+    public long sampleCount;
+    public long fileBytes;
+    /** 至少出现过一次的通道(Channel位掩码) */
+    public int channelMask;
+    public final float[] min = new float[Channel.COUNT];
+    public final float[] max = new float[Channel.COUNT];
+    public final float[] mean = new float[Channel.COUNT];
+    /** 各通道的有效样本数(稀疏通道少于sampleCount)，旧版本目录中的记录没有这一项(均为0) */
+    public final long[] counts = new long[Channel.COUNT];
+
+    // 采样调度时间统计，旧版本目录中的记录没有这些字段(均为0)
+    public long ticks;
+    public long missedDeadlines;
+    public long latenessP50Nanos;
+    public long latenessP99Nanos;
+    public long latenessMaxNanos;
+    public long jitterP99Nanos;
+    /** 墙钟相对单调时钟的累计变化 */
+    public long clockDriftMillis;
+    /** 延迟/抖动直方图的各桶计数(见{@link LatencyHistogram})，恢复的会话据此合并百分位 */
+    public final long[] latenessBuckets = new long[LatencyHistogram.BUCKETS];
+    public final long[] jitterBuckets = new long[LatencyHistogram.BUCKETS];
+
+    // 累计中间值，只在记录过程中使用
+    private final double[] sums = new double[Channel.COUNT];
+
+    public SessionSummary(String fileName, SessionFormat format) {
+        this.fileName = fileName;
+        this.format = format;
+    }
+
+    public void add(long timestampMillis, int mask, float[] values) {
+        if (timestampMillis < startMillis) startMillis = timestampMillis;
+        if (timestampMillis > endMillis) endMillis = timestampMillis;
+        sampleCount++;
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            float v = values[ch];
+            if ((mask & (1 << ch)) == 0 || Float.isNaN(v)) {
+                continue;
+            }
+            if (counts[ch]++ == 0) {
+                min[ch] = v;
+                max[ch] = v;
+                channelMask |= 1 << ch;
+            } else {
+                if (v < min[ch]) min[ch] = v;
+                if (v > max[ch]) max[ch] = v;
+            }
+            sums[ch] += v;
+        }
+    }
+
+    /**
+     * 会话结束: 计算各通道平均值并记录最终文件大小
+     * 记录过程中也可以调用(检查点)，之后继续add()不受影响
+     */
+    public void finish(long fileBytes) {
+        this.fileBytes = fileBytes;
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            mean[ch] = counts[ch] > 0 ? (float) (sums[ch] / counts[ch]) : 0f;
+        }
+    }
+
+    /**
+     * 从检查点恢复的摘要继续累计: 按各通道的样本数和平均值还原中间值
+     * (没有通道样本数的旧检查点按总样本数近似，稀疏通道的平均值会有偏差)
+     */
+    void restoreAccumulators() {
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            if ((channelMask & (1 << ch)) != 0) {
+                if (counts[ch] == 0) {
+                    counts[ch] = sampleCount;
+                }
+                sums[ch] = (double) mean[ch] * counts[ch];
+            }
+        }
+    }
+
+    /**
+     * 同一段数据换了文件(分段压缩后)，返回指向新文件的摘要
+     */
+    public SessionSummary moveTo(String fileName, SessionFormat format, long fileBytes) {
+        SessionSummary moved = new SessionSummary(fileName, format);
+        moved.startMillis = startMillis;
+        moved.endMillis = endMillis;
+        moved.sampleCount = sampleCount;
+        moved.fileBytes = fileBytes;
+        moved.channelMask = channelMask;
+        System.arraycopy(min, 0, moved.min, 0, Channel.COUNT);
+        System.arraycopy(max, 0, moved.max, 0, Channel.COUNT);
+        System.arraycopy(mean, 0, moved.mean, 0, Channel.COUNT);
+        System.arraycopy(counts, 0, moved.counts, 0, Channel.COUNT);
+        copyTiming(this, moved);
+        return moved;
+    }
+
+    /**
+     * 同一会话只保留时间统计的空摘要，用于按文件内容重新统计样本
+     */
+    SessionSummary withoutSamples() {
+        SessionSummary empty = new SessionSummary(fileName, format);
+        copyTiming(this, empty);
+        return empty;
+    }
+
+    private static void copyTiming(SessionSummary from, SessionSummary to) {
+        to.ticks = from.ticks;
+        to.missedDeadlines = from.missedDeadlines;
+        to.latenessP50Nanos = from.latenessP50Nanos;
+        to.latenessP99Nanos = from.latenessP99Nanos;
+        to.latenessMaxNanos = from.latenessMaxNanos;
+        to.jitterP99Nanos = from.jitterP99Nanos;
+        to.clockDriftMillis = from.clockDriftMillis;
+        System.arraycopy(from.latenessBuckets, 0, to.latenessBuckets, 0, LatencyHistogram.BUCKETS);
+        System.arraycopy(from.jitterBuckets, 0, to.jitterBuckets, 0, LatencyHistogram.BUCKETS);
+    }
+
+    /**
+     * 直方图的桶计数是否覆盖了全部tick(旧版本目录中的记录和从旧记录恢复的会话没有)
+     */
+    boolean hasTimingBuckets() {
+        long total = 0;
+        for (long n : latenessBuckets) {
+            total += n;
+        }
+        return ticks > 0 && total == ticks;
+    }
+
+    public boolean isEmpty() {
+        return sampleCount == 0;
+    }
+
+    public boolean has(Channel channel) {
+        return (channelMask & channel.mask()) != 0;
+    }
+
+    public long durationMillis() {
+        return isEmpty() ? 0 : endMillis - startMillis;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.systemlogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 会话文件写入接口，不同的落盘格式(CSV / 二进制 / 压缩)各自实现
+ *
+ * append()/flushIfDue()/close()由采样线程调用；flush()和position()可以在任意线程调用
+ * (导出、内存紧张时提交)，实现需要用同一个锁保护编码状态。
+ */
+public interface SessionWriter extends Closeable {
+
+    /**
+     * 追加一个样本
+     * @param timestampMillis 墙钟时间(毫秒)
+     * @param elapsedNanos 单调时钟时间(纳秒，见{@link Sample#elapsedNanos})，未知时为0
+     * @param values 按{@link Channel}顺序排列的通道值
+     */
+    void append(long timestampMillis, long elapsedNanos, float[] values) throws IOException;
+
+    /**
+     * 提交缓冲中的记录
+     */
+    void flush() throws IOException;
+
+    /**
+     * 按刷新策略提交已到期的记录，采样线程每次触发时调用(见{@link BufferedLogWriter#flushIfDue})
+     */
+    void flushIfDue() throws IOException;
+
+    /**
+     * 当前文件长度(包括尚未提交的数据)，用于判断是否切换分段
+     */
+    long position();
+}
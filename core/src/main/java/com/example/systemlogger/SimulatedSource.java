@@ -0,0 +1,47 @@
+package com.example.systemlogger;
+
+import java.util.Random;
+
+/**
+ * 模拟温度数据源，排在最后作为兜底
+ *
+ * 注意: 这不是真实温度，仅用于在Android 15限制下演示图表功能，
+ * 详见TEMPERATURE_LIMITATIONS.md
+ */
+public class SimulatedSource implements SensorSource {
+
+    private final Random random = new Random();
+
+    @Override
+    public String name() {
+        return "simulated";
+    }
+
+    @Override
+    public int open() {
+        return Channel.THERMAL_CPU.mask() | Channel.THERMAL_GPU.mask()
+            | Channel.THERMAL_BATTERY.mask() | Channel.THERMAL_SKIN.mask();
+    }
+
+    @Override
+    public int sample(float[] out, int wanted) {
+        int filled = 0;
+        filled |= simulate(out, wanted, Channel.THERMAL_CPU, 35.0f, 10);     // 35-45°C
+        filled |= simulate(out, wanted, Channel.THERMAL_GPU, 40.0f, 15);     // 40-55°C
+        filled |= simulate(out, wanted, Channel.THERMAL_BATTERY, 32.0f, 8);  // 32-40°C
+        filled |= simulate(out, wanted, Channel.THERMAL_SKIN, 30.0f, 8);     // 30-38°C
+        return filled;
+    }
+
+    private int simulate(float[] out, int wanted, Channel channel, float base, float range) {
+        if ((wanted & channel.mask()) == 0) {
+            return 0;
+        }
+        out[channel.ordinal()] = base + random.nextFloat() * range;
+        return channel.mask();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.systemlogger;
+
+/**
+ * 没有外壳温度传感器时，用电池温度估算外壳温度(通常低约2°C)
+ *
+ * 依赖同一样本中已经由前面的数据源填好的电池温度(见{@link #requires()})。
+ */
+public class SkinEstimateSource implements SensorSource {
+
+    private static final float SKIN_OFFSET = 2.0f;
+
+    @Override
+    public String name() {
+        return "skin-estimate";
+    }
+
+    @Override
+    public int open() {
+        return Channel.THERMAL_SKIN.mask();
+    }
+
+    @Override
+    public int requires() {
+        return Channel.THERMAL_BATTERY.mask();
+    }
+
+    @Override
+    public int sample(float[] out, int wanted) {
+        float battery = out[Channel.THERMAL_BATTERY.ordinal()];
+        if ((wanted & Channel.THERMAL_SKIN.mask()) == 0 || !(battery > 0)) {
+            return 0;
+        }
+        out[Channel.THERMAL_SKIN.ordinal()] = battery - SKIN_OFFSET;
+        return Channel.THERMAL_SKIN.mask();
+    }
+
+    @Override
+    public void close() {
+    }
+}
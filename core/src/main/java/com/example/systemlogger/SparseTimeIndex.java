@@ -0,0 +1,284 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * 会话文件的稀疏时间索引: 每N条记录保存一个(时间戳, 文件偏移)
+ *
+ * 会话文件只追加且按时间有序，所以按时间窗口读取时可以二分查找索引，
+ * 直接定位到窗口前最近的一个记录，而不用从头扫描。
+ * 索引写在会话旁(会话文件名 + ".idx")，由会话写入器增量追加；
+ * 没有索引的旧会话可以通过{@link #open}扫描一遍重建。
+ * 因为会话只追加，旧索引永远有效，只是末尾部分没有覆盖到。
+ *
+ * 文件布局(小端):
+ * <pre>
+ * 头部: int magic, int version, int interval
+ * 条目: long timestampMillis, long offset
+ * </pre>
+ */
+public class SparseTimeIndex {
+
+    public static final String SUFFIX = ".idx";
+    public static final int DEFAULT_INTERVAL = 256;
+
+    static final int MAGIC = 0x58444953; // "SIDX"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int ENTRY_SIZE = 16;
+
+    private final long[] timestamps;
+    private final long[] offsets;
+    private final int size;
+
+    private SparseTimeIndex(long[] timestamps, long[] offsets, int size) {
+        this.timestamps = timestamps;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    public static File sidecar(File session) {
+        return new File(session.getPath() + SUFFIX);
+    }
+
+    /**
+     * 增量写入索引，由会话写入器在写每条记录之前调用
+     * 写入失败不会中断采样: 第一次失败后停止写入，在flush()/close()时抛出。
+     */
+    public static class Writer {
+
+        private final BufferedLogWriter writer;
+        private final int interval;
+        private long records;
+        private IOException failure;
+
+        public Writer(File indexFile, BufferedLogWriter.FlushPolicy policy) throws IOException {
+            this(indexFile, policy, DEFAULT_INTERVAL);
+        }
+
+        public Writer(File indexFile, BufferedLogWriter.FlushPolicy policy, int interval) throws IOException {
+            this(indexFile, policy, interval, false);
+        }
+
+        private Writer(File indexFile, BufferedLogWriter.FlushPolicy policy, int interval,
+                       boolean append) throws IOException {
+            this.writer = new BufferedLogWriter(indexFile, append, policy);
+            this.interval = Math.max(1, interval);
+            if (!append) {
+                writer.putInt(MAGIC);
+                writer.putInt(VERSION);
+                writer.putInt(this.interval);
+                writer.flush();
+            }
+        }
+
+        /**
+         * 在恢复的会话上继续写索引(索引已由{@link #truncate}截断到会话长度以内)，
+         * 沿用头部中的条目间隔；索引文件不存在或无效时重新创建。下一条记录总是生成一个条目
+         */
+        public static Writer resume(File indexFile, BufferedLogWriter.FlushPolicy policy) throws IOException {
+            int interval = -1;
+            if (indexFile.length() >= HEADER_SIZE) {
+                try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r")) {
+                    ByteBuffer header = SessionFileReader.readAt(raf.getChannel(), 0,
+                        ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+                    if (header.getInt() == MAGIC && header.getInt() == VERSION) {
+                        interval = header.getInt();
+                    }
+                }
+            }
+            return interval > 0
+                ? new Writer(indexFile, policy, interval, true)
+                : new Writer(indexFile, policy, DEFAULT_INTERVAL, false);
+        }
+
+        /**
+         * 即将在offset处写入一条记录，每interval条记录保存一个条目
+         */
+        public void record(long timestampMillis, long offset) {
+            if (records++ % interval == 0) {
+                mark(timestampMillis, offset);
+            }
+        }
+
+        /**
+         * 无条件保存一个条目(用于只能从块开头定位的格式)
+         */
+        public void mark(long timestampMillis, long offset) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                writer.putLong(timestampMillis);
+                writer.putLong(offset);
+                writer.endRecord();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        public void flush() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            writer.flush();
+        }
+
+        /**
+         * 提交已到期的条目(见{@link BufferedLogWriter#flushIfDue})，失败时同写入失败
+         */
+        public void flushIfDue() {
+            if (failure != null) {
+                return;
+            }
+            try {
+                writer.flushIfDue();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        public void close() throws IOException {
+            writer.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * 读取会话的索引，没有索引时扫描会话文件重建并写入旁边的索引文件
+     */
+    public static SparseTimeIndex open(File session, SessionFormat format) throws IOException {
+        File indexFile = sidecar(session);
+        if (indexFile.exists()) {
+            SparseTimeIndex index = load(indexFile, session.length());
+            if (index != null) {
+                return index;
+            }
+        }
+        return rebuild(session, format, indexFile);
+    }
+
+    /**
+     * 读取已有的索引文件，格式不符时返回null
+     * @param sessionLength 偏移超出会话长度的条目(会话尚未提交的部分)被忽略
+     */
+    public static SparseTimeIndex load(File indexFile, long sessionLength) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r")) {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, Integer.MAX_VALUE - 8))
+                .order(ByteOrder.LITTLE_ENDIAN);
+            SessionFileReader.readAt(channel, 0, buffer);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            buffer.getInt(); // interval
+            int capacity = buffer.remaining() / ENTRY_SIZE;
+            long[] timestamps = new long[capacity];
+            long[] offsets = new long[capacity];
+            int size = 0;
+            for (int i = 0; i < capacity; i++) {
+                long timestamp = buffer.getLong();
+                long offset = buffer.getLong();
+                if (offset < sessionLength) {
+                    timestamps[size] = timestamp;
+                    offsets[size++] = offset;
+                }
+            }
+            return new SparseTimeIndex(timestamps, offsets, size);
+        }
+    }
+
+    /**
+     * 截掉偏移超出会话长度的条目和末尾不完整的条目(会话文件被截断后调用)
+     */
+    public static void truncate(File indexFile, long sessionLength) throws IOException {
+        long length = indexFile.length();
+        if (length < HEADER_SIZE) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+            FileChannel channel = raf.getChannel();
+            long valid = HEADER_SIZE + (length - HEADER_SIZE) / ENTRY_SIZE * ENTRY_SIZE;
+            ByteBuffer offset = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            // 条目按偏移递增，从末尾往前找
+            while (valid > HEADER_SIZE) {
+                offset.clear();
+                SessionFileReader.readAt(channel, valid - 8, offset);
+                if (offset.getLong(0) < sessionLength) {
+                    break;
+                }
+                valid -= ENTRY_SIZE;
+            }
+            if (valid < length) {
+                channel.truncate(valid);
+            }
+        }
+    }
+
+    // 按可定位的记录每DEFAULT_INTERVAL条取一个条目
+    private static SparseTimeIndex rebuild(File session, SessionFormat format, File indexFile) throws IOException {
+        long[] timestamps = new long[64];
+        long[] offsets = new long[64];
+        int size = 0;
+        float[] values = new float[Channel.COUNT];
+        long sinceLast = DEFAULT_INTERVAL;
+        try (SessionReader reader = format.openReader(session)) {
+            while (true) {
+                long seekPoint = reader.seekPoint();
+                if (!reader.next(values)) {
+                    break;
+                }
+                if (seekPoint >= 0 && sinceLast >= DEFAULT_INTERVAL) {
+                    if (size == timestamps.length) {
+                        timestamps = Arrays.copyOf(timestamps, size * 2);
+                        offsets = Arrays.copyOf(offsets, size * 2);
+                    }
+                    timestamps[size] = reader.timestampNanos() / 1_000_000L;
+                    offsets[size++] = seekPoint;
+                    sinceLast = 0;
+                }
+                sinceLast++;
+            }
+        }
+        try {
+            Writer writer = new Writer(indexFile, BufferedLogWriter.FlushPolicy.bulk());
+            for (int i = 0; i < size; i++) {
+                writer.mark(timestamps[i], offsets[i]);
+            }
+            writer.close();
+        } catch (IOException e) {
+            // 目录不可写时只在内存中使用
+            indexFile.delete();
+        }
+        return new SparseTimeIndex(timestamps, offsets, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 时间戳 <= millis 的最后一个条目的文件偏移，可直接传给{@link SessionReader#seek}
+     * millis早于第一个条目或索引为空时返回-1(需要从头读取)
+     */
+    public long seekOffset(long millis) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[mid] <= millis) lo = mid + 1; else hi = mid;
+        }
+        return lo > 0 ? offsets[lo - 1] : -1;
+    }
+}
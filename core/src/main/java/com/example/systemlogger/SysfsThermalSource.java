@@ -0,0 +1,67 @@
+package com.example.systemlogger;
+
+import java.io.File;
+
+/**
+ * 从/sys/class/thermal读取温度的数据源，温区映射见{@link ThermalZones}
+ */
+public class SysfsThermalSource implements SensorSource {
+
+    private static final Channel[] TEMPERATURE_CHANNELS = {
+        Channel.THERMAL_CPU, Channel.THERMAL_GPU, Channel.THERMAL_BATTERY, Channel.THERMAL_SKIN
+    };
+
+    private final File root;
+    private ThermalZones zones;
+
+    public SysfsThermalSource(File root) {
+        this.root = root;
+    }
+
+    @Override
+    public String name() {
+        return "sysfs";
+    }
+
+    @Override
+    public int open() {
+        close();
+        zones = ThermalZones.discover(root);
+        int mask = 0;
+        for (Channel channel : TEMPERATURE_CHANNELS) {
+            if (zones.provides(channel)) {
+                mask |= channel.mask();
+            }
+        }
+        return mask;
+    }
+
+    @Override
+    public int sample(float[] out, int wanted) {
+        int filled = 0;
+        for (Channel channel : TEMPERATURE_CHANNELS) {
+            if ((wanted & channel.mask()) == 0) {
+                continue;
+            }
+            float value = zones.read(channel);
+            if (value > 0) {
+                out[channel.ordinal()] = value;
+                filled |= channel.mask();
+            }
+        }
+        return filled;
+    }
+
+    @Override
+    public void close() {
+        if (zones != null) {
+            zones.close();
+            zones = null;
+        }
+    }
+
+    /** 温区映射描述(用于日志) */
+    public String describeZones() {
+        return zones != null ? zones.describe() : "none";
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.systemlogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * /sys/class/thermal 温区发现与读取
+ *
+ * 服务启动时枚举所有thermal_zoneN，读取每个温区的type文件
+ * 把温区映射到CPU/GPU/电池/外壳通道，并保持可读温区的temp文件打开。
+ * 之后每次采样只做定位读取(pread偏移0，sysfs会重新生成内容)，
+ * 读入复用的缓冲区并直接解析毫摄氏度，不创建String。
+ *
+ * 同一通道映射到多个温区时(如cpu0..cpu7)取最高温度。
+ */
+public class ThermalZones implements Closeable {
+
+    public static final String DEFAULT_ROOT = "/sys/class/thermal";
+
+    private static final class Zone {
+        final int index;
+        final String type;
+        final Channel channel;
+        final RandomAccessFile file;
+        final FileChannel fileChannel;
+
+        Zone(int index, String type, Channel channel, RandomAccessFile file) {
+            this.index = index;
+            this.type = type;
+            this.channel = channel;
+            this.file = file;
+            this.fileChannel = file.getChannel();
+        }
+    }
+
+    private final Zone[] zones;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(32);
+    private final byte[] readBytes = readBuffer.array();
+
+    private ThermalZones(Zone[] zones) {
+        this.zones = zones;
+    }
+
+    /**
+     * 枚举root下的温区，只保留能识别类型且temp可读的温区
+     */
+    public static ThermalZones discover(File root) {
+        List<Zone> found = new ArrayList<>();
+        File[] entries = root.listFiles();
+        if (entries != null) {
+            for (File entry : entries) {
+                String name = entry.getName();
+                if (!name.startsWith("thermal_zone")) {
+                    continue;
+                }
+                int index;
+                try {
+                    index = Integer.parseInt(name.substring("thermal_zone".length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                String type = readType(new File(entry, "type"));
+                Channel channel = classify(type);
+                if (channel == null) {
+                    continue;
+                }
+                try {
+                    RandomAccessFile temp = new RandomAccessFile(new File(entry, "temp"), "r");
+                    if (temp.read() < 0) {
+                        temp.close();
+                        continue;
+                    }
+                    found.add(new Zone(index, type, channel, temp));
+                } catch (IOException | SecurityException e) {
+                    // 没有权限或文件不存在(Android 15普通应用的常见情况)
+                }
+            }
+        }
+        found.sort((a, b) -> Integer.compare(a.index, b.index));
+        return new ThermalZones(found.toArray(new Zone[0]));
+    }
+
+    /**
+     * 按温区type名称推断通道，无法识别时返回null
+     */
+    static Channel classify(String type) {
+        if (type == null) {
+            return null;
+        }
+        String t = type.toLowerCase(Locale.ROOT);
+        if (t.contains("gpu")) return Channel.THERMAL_GPU;
+        if (t.contains("batt")) return Channel.THERMAL_BATTERY;
+        if (t.contains("skin") || t.contains("shell") || t.contains("quiet") || t.contains("back_therm")
+                || t.contains("case")) return Channel.THERMAL_SKIN;
+        if (t.contains("cpu") || t.contains("apc") || t.contains("soc")) return Channel.THERMAL_CPU;
+        return null;
+    }
+
+    private static String readType(File file) {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[64];
+            int length = in.read(bytes);
+            return length > 0 ? new String(bytes, 0, length, StandardCharsets.US_ASCII).trim() : null;
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    public boolean isEmpty() {
+        return zones.length == 0;
+    }
+
+    /** 是否有温区映射到该通道 */
+    public boolean provides(Channel channel) {
+        for (Zone zone : zones) {
+            if (zone.channel == channel) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 读取通道的温度(摄氏度)
+     * @return 没有可读温区时返回0
+     */
+    public float read(Channel channel) {
+        float result = 0f;
+        for (Zone zone : zones) {
+            if (zone.channel != channel) {
+                continue;
+            }
+            float value = readZone(zone);
+            if (value > result) {
+                result = value;
+            }
+        }
+        return result;
+    }
+
+    private float readZone(Zone zone) {
+        try {
+            readBuffer.clear();
+            int length = zone.fileChannel.read(readBuffer, 0);
+            if (length <= 0) {
+                return 0f;
+            }
+            return parseTemperature(readBytes, length);
+        } catch (IOException e) {
+            return 0f;
+        }
+    }
+
+    /**
+     * 解析温区读数: 通常是毫摄氏度，个别设备直接给出摄氏度
+     */
+    static float parseTemperature(byte[] bytes, int length) {
+        int i = 0;
+        boolean negative = false;
+        if (i < length && bytes[i] == '-') {
+            negative = true;
+            i++;
+        }
+        int value = 0;
+        int digits = 0;
+        for (; i < length; i++) {
+            int d = bytes[i] - '0';
+            if (d < 0 || d > 9) break;
+            value = value * 10 + d;
+            digits++;
+        }
+        if (digits == 0) {
+            return 0f;
+        }
+        float celsius = value >= 1000 ? value / 1000.0f : value;
+        return negative ? -celsius : celsius;
+    }
+
+    /**
+     * 温区映射描述(用于日志)
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (Zone zone : zones) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append("zone").append(zone.index).append('(').append(zone.type).append(")->").append(zone.channel);
+        }
+        return sb.length() > 0 ? sb.toString() : "none";
+    }
+
+    @Override
+    public void close() {
+        for (Zone zone : zones) {
+            try {
+                zone.file.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+}
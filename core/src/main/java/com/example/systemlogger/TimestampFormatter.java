@@ -0,0 +1,92 @@
+package com.example.systemlogger;
+
+import java.util.TimeZone;
+
+/**
+ * 把纪元毫秒格式化为 "yyyy-MM-dd HH:mm:ss.SSS"(本地时区)，直接追加到StringBuilder
+ * (采样周期可以短于1秒，所以保留毫秒)
+ *
+ * 替代每行一次的SimpleDateFormat.format(Date):
+ * - 日期部分按本地日期缓存，跨天才重新计算
+ * - 时区偏移按15分钟窗口缓存(夏令时切换都落在15分钟边界上)
+ * - 始终输出ASCII数字，与{@link CsvRowParser#parseTimestamp}对应
+ * 非线程安全。
+ */
+public class TimestampFormatter {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long OFFSET_WINDOW_MILLIS = 15 * 60_000L;
+
+    private final TimeZone timeZone;
+    private long offsetWindow = Long.MIN_VALUE;
+    private int offset;
+    private long cachedDay = Long.MIN_VALUE;
+    private final char[] datePrefix = new char[11]; // "yyyy-MM-dd "
+
+    public TimestampFormatter() {
+        this(TimeZone.getDefault());
+    }
+
+    public TimestampFormatter(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    public StringBuilder append(StringBuilder sb, long millis) {
+        long window = Math.floorDiv(millis, OFFSET_WINDOW_MILLIS);
+        if (window != offsetWindow) {
+            offsetWindow = window;
+            offset = timeZone.getOffset(millis);
+        }
+        long local = millis + offset;
+        long day = Math.floorDiv(local, MILLIS_PER_DAY);
+        if (day != cachedDay) {
+            cachedDay = day;
+            formatDate(day);
+        }
+        sb.append(datePrefix);
+        int seconds = (int) (Math.floorMod(local, MILLIS_PER_DAY) / 1000);
+        appendTwoDigits(sb, seconds / 3600);
+        sb.append(':');
+        appendTwoDigits(sb, seconds / 60 % 60);
+        sb.append(':');
+        appendTwoDigits(sb, seconds % 60);
+        int millisOfSecond = (int) Math.floorMod(local, 1000L);
+        sb.append('.');
+        sb.append((char) ('0' + millisOfSecond / 100));
+        appendTwoDigits(sb, millisOfSecond % 100);
+        return sb;
+    }
+
+    private void formatDate(long days) {
+        // 1970-01-01起的天数到公历日期(Howard Hinnant算法，与CsvRowParser.daysFromCivil互逆)
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        datePrefix[0] = digit(year / 1000);
+        datePrefix[1] = digit(year / 100);
+        datePrefix[2] = digit(year / 10);
+        datePrefix[3] = digit(year);
+        datePrefix[4] = '-';
+        datePrefix[5] = digit(month / 10);
+        datePrefix[6] = digit(month);
+        datePrefix[7] = '-';
+        datePrefix[8] = digit(day / 10);
+        datePrefix[9] = digit(day);
+        datePrefix[10] = ' ';
+    }
+
+    private static char digit(int value) {
+        return (char) ('0' + Math.floorMod(value, 10));
+    }
+
+    private static void appendTwoDigits(StringBuilder sb, int value) {
+        sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
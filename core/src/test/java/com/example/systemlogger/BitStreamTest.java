@@ -0,0 +1,123 @@
+package com.example.systemlogger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link BitWriter}/{@link BitReader}: 高位在前、跨字节和64位边界的读写
+ */
+public class BitStreamTest {
+
+    private static final long[] WORDS = {
+        0L, -1L, Long.MIN_VALUE, Long.MAX_VALUE, 1L, 0x8000000000000001L, 0x0123456789ABCDEFL
+    };
+
+    @Test
+    public void writesMostSignificantBitFirst() {
+        BitWriter writer = new BitWriter(16);
+        writer.writeBit(true);
+        writer.writeBits(0b0101, 4);
+        writer.writeBits(0x1FF, 9);
+        assertEquals(14, writer.bitLength());
+        assertEquals(2, writer.byteLength());
+        assertEquals((byte) 0b1010_1111, writer.buffer()[0]);
+        assertEquals((byte) 0b1111_1100, writer.buffer()[1]);
+    }
+
+    @Test
+    public void reads64BitWordsAtEveryBitOffset() {
+        for (int offset = 0; offset < 64; offset++) {
+            BitWriter writer = new BitWriter(16);
+            for (int i = 0; i < offset; i++) {
+                writer.writeBit(i % 3 == 0);
+            }
+            for (long word : WORDS) {
+                writer.writeBits(word, 64);
+            }
+            BitReader reader = new BitReader();
+            reader.reset(writer.buffer(), writer.byteLength());
+            for (int i = 0; i < offset; i++) {
+                assertEquals(i % 3 == 0, reader.readBit());
+            }
+            for (long word : WORDS) {
+                assertEquals("offset " + offset, word, reader.readBits(64));
+            }
+        }
+    }
+
+    @Test
+    public void writesOnlyTheLowBits() {
+        BitWriter writer = new BitWriter(16);
+        writer.writeBits(-1L, 3);
+        writer.writeBits(0xF0, 4); // 低4位为0
+        BitReader reader = new BitReader();
+        reader.reset(writer.buffer(), writer.byteLength());
+        assertEquals(0b111, reader.readBits(3));
+        assertEquals(0, reader.readBits(4));
+    }
+
+    @Test
+    public void roundTripsRandomWidths() {
+        Random random = new Random(7);
+        int n = 10_000;
+        long[] values = new long[n];
+        int[] widths = new int[n];
+        BitWriter writer = new BitWriter(16);
+        for (int i = 0; i < n; i++) {
+            widths[i] = 1 + random.nextInt(64);
+            values[i] = widths[i] == 64 ? random.nextLong() : random.nextLong() & ((1L << widths[i]) - 1);
+            writer.writeBits(values[i], widths[i]);
+        }
+        // 从16字节增长
+        assertTrue(writer.buffer().length >= writer.byteLength());
+        BitReader reader = new BitReader();
+        reader.reset(writer.buffer(), writer.byteLength());
+        for (int i = 0; i < n; i++) {
+            assertEquals("value " + i, values[i], reader.readBits(widths[i]));
+        }
+    }
+
+    @Test
+    public void readsExactlyToTheEndThenStops() {
+        BitWriter writer = new BitWriter(16);
+        writer.writeBits(0xABCDL, 16);
+        BitReader reader = new BitReader();
+        reader.reset(writer.buffer(), writer.byteLength());
+        assertEquals(0xABCDL, reader.readBits(16));
+        try {
+            reader.readBit();
+            fail("read past the end");
+        } catch (IllegalStateException expected) {
+            // 预期
+        }
+
+        reader.reset(writer.buffer(), writer.byteLength());
+        reader.readBits(1);
+        try {
+            reader.readBits(16);
+            fail("read past the end");
+        } catch (IllegalStateException expected) {
+            // 预期
+        }
+    }
+
+    @Test
+    public void resetClearsWrittenBits() {
+        BitWriter writer = new BitWriter(16);
+        writer.writeBits(-1L, 64);
+        writer.reset();
+        assertEquals(0, writer.bitLength());
+        writer.writeBit(false);
+        writer.writeBits(0, 63);
+        BitReader reader = new BitReader();
+        reader.reset(writer.buffer(), writer.byteLength());
+        assertFalse(reader.readBit());
+        assertEquals(0L, reader.readBits(63));
+    }
+}
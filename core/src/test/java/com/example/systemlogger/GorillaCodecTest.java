@@ -0,0 +1,284 @@
+package com.example.systemlogger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link GorillaEncoder}/{@link GorillaDecoder}往返: 时间戳和单调时钟差分的各个区间、
+ * 浮点特殊值的位模式、块末尾的填充位，以及{@link CompressedSessionWriter}的最后一个不满的块
+ */
+public class GorillaCodecTest {
+
+    private static final int COLUMNS = 3;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void constantSeriesTakesOneBitPerColumn() {
+        int n = 1000;
+        long[] timestamps = new long[n];
+        int[][] values = new int[n][];
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = 1_700_000_000_000L + i * 1000L;
+            values[i] = new int[] { Float.floatToRawIntBits(41.5f), -550, 87 };
+        }
+        GorillaEncoder encoder = encode(timestamps, values);
+        // 第一个样本原样写入；第二个样本的间隔(1000)按二阶差分写入12位区间；
+        // 之后每个样本: 1位时间戳 + 每列1位
+        int bits = 32 * COLUMNS + (4 + 12 + COLUMNS) + (n - 2) * (1 + COLUMNS);
+        assertEquals((bits + 7) / 8, encoder.byteLength());
+        assertRoundTrip(encoder, timestamps, values);
+    }
+
+    @Test
+    public void deltaOfDeltaBucketBoundaries() {
+        long[] dods = {
+            0, 1, -1, 64, -63, 65, -64, 256, -255, 257, -256, 2048, -2047, 2049, -2048,
+            1L << 40, -(1L << 40), Integer.MAX_VALUE, Integer.MIN_VALUE
+        };
+        long[] timestamps = new long[dods.length + 2];
+        int[][] values = new int[timestamps.length][];
+        long delta = 1000;
+        timestamps[0] = 1_700_000_000_000L;
+        timestamps[1] = timestamps[0] + delta;
+        for (int i = 0; i < dods.length; i++) {
+            delta += dods[i];
+            timestamps[i + 2] = timestamps[i + 1] + delta;
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new int[] { i, -i, 0 };
+        }
+        assertRoundTrip(encode(timestamps, values), timestamps, values);
+    }
+
+    @Test
+    public void elapsedDeltaOfDeltaBucketBoundaries() {
+        long[] dods = {
+            0, 1, -1, 1 << 15, -(1 << 15) + 1, (1 << 15) + 1, -(1 << 15),
+            1 << 23, -(1 << 23) + 1, (1 << 23) + 1, -(1 << 23),
+            1L << 31, -(1L << 31) + 1, (1L << 31) + 1, -(1L << 31), 1L << 50, -(1L << 50)
+        };
+        int n = dods.length + 2;
+        long[] timestamps = new long[n];
+        long[] elapsed = new long[n];
+        int[][] values = new int[n][];
+        long delta = 1_000_000_000L;
+        elapsed[0] = 123_456_789_000L;
+        elapsed[1] = elapsed[0] + delta;
+        for (int i = 0; i < dods.length; i++) {
+            delta += dods[i];
+            elapsed[i + 2] = elapsed[i + 1] + delta;
+        }
+        GorillaEncoder encoder = new GorillaEncoder(COLUMNS, 16, true);
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = 1_700_000_000_000L + i * 1000L;
+            values[i] = new int[] { i, -i, 0 };
+            encoder.add(timestamps[i], elapsed[i], values[i]);
+        }
+        GorillaDecoder decoder = new GorillaDecoder(COLUMNS, true);
+        decoder.reset(encoder.buffer(), encoder.byteLength(), encoder.count(), encoder.firstTimestamp());
+        int[] row = new int[COLUMNS];
+        for (int i = 0; i < n; i++) {
+            assertTrue(decoder.next(row));
+            assertEquals("timestamp " + i, timestamps[i], decoder.timestamp());
+            assertEquals("elapsed " + i, elapsed[i], decoder.elapsedNanos());
+            assertArrayEquals("row " + i, values[i], row);
+        }
+        assertFalse(decoder.next(row));
+    }
+
+    @Test
+    public void negativeAndIrregularDeltas() {
+        Random random = new Random(3);
+        int n = 5000;
+        long[] timestamps = new long[n];
+        int[][] values = new int[n][];
+        long t = 1_700_000_000_000L;
+        for (int i = 0; i < n; i++) {
+            // 时钟回拨、重复时间戳和偶尔的大跳变
+            switch (random.nextInt(6)) {
+                case 0: t -= random.nextInt(5000); break;
+                case 1: break;
+                case 2: t += random.nextInt(1 << 20); break;
+                default: t += 995 + random.nextInt(10); break;
+            }
+            timestamps[i] = t;
+            values[i] = new int[] { random.nextInt(), -300 - random.nextInt(500), random.nextInt(3) };
+        }
+        assertRoundTrip(encode(timestamps, values), timestamps, values);
+    }
+
+    @Test
+    public void preservesNaNAndSignedZeroBits() {
+        int[] specials = {
+            Float.floatToRawIntBits(0f),
+            Float.floatToRawIntBits(-0f),
+            Float.floatToRawIntBits(Float.NaN),
+            0x7FC00001, // 带载荷的NaN
+            0xFFC00000, // 负号NaN
+            Float.floatToRawIntBits(Float.POSITIVE_INFINITY),
+            Float.floatToRawIntBits(Float.NEGATIVE_INFINITY),
+            Float.floatToRawIntBits(Float.MIN_VALUE),
+            Float.floatToRawIntBits(-Float.MAX_VALUE),
+            Channel.MISSING_INT,
+            Integer.MAX_VALUE,
+        };
+        int n = specials.length * specials.length;
+        long[] timestamps = new long[n];
+        int[][] values = new int[n][];
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = 1_700_000_000_000L + i;
+            // 每对特殊值相邻出现一次，覆盖所有异或组合
+            values[i] = new int[] { specials[i / specials.length], specials[i % specials.length], specials[i % 3] };
+        }
+        assertRoundTrip(encode(timestamps, values), timestamps, values);
+
+        // 经过Channel的转换后-0f和NaN仍可区分
+        float negativeZero = Channel.fromBits(false, Channel.THERMAL_CPU.toBits(-0f));
+        assertEquals(Float.floatToRawIntBits(-0f), Float.floatToRawIntBits(negativeZero));
+        assertTrue(Float.isNaN(Channel.fromBits(true, Channel.CURRENT.toBits(Float.NaN))));
+        assertEquals(0f, Channel.fromBits(true, Channel.CURRENT.toBits(0f)), 0f);
+    }
+
+    @Test
+    public void decoderStopsAtSampleCountDespitePaddingBits() {
+        long[] timestamps = { 10, 20, 30 };
+        int[][] values = { { 1, 2, 3 }, { 1, 2, 3 }, { 1, 2, 4 } };
+        // 编码结果不是整字节，最后一个字节的低位是填充位
+        GorillaEncoder encoder = encode(timestamps, values);
+        GorillaDecoder decoder = new GorillaDecoder(COLUMNS);
+        decoder.reset(encoder.buffer(), encoder.byteLength(), 3, 10);
+        int[] row = new int[COLUMNS];
+        for (int i = 0; i < 3; i++) {
+            assertTrue(decoder.next(row));
+        }
+        assertEquals(0, decoder.remaining());
+        assertFalse(decoder.next(row));
+    }
+
+    @Test
+    public void truncatedPayloadFailsInsteadOfReturningGarbage() {
+        long[] timestamps = { 10, 20, 30, 40 };
+        int[][] values = { { 1, 2, 3 }, { 5, 6, 7 }, { 9, 10, 11 }, { 13, 14, 15 } };
+        GorillaEncoder encoder = encode(timestamps, values);
+        GorillaDecoder decoder = new GorillaDecoder(COLUMNS);
+        decoder.reset(encoder.buffer(), 12, 4, 10); // 只有第一个样本的字节
+        int[] row = new int[COLUMNS];
+        assertTrue(decoder.next(row));
+        try {
+            decoder.next(row);
+            fail("decoded past the payload");
+        } catch (IllegalStateException expected) {
+            // 预期
+        }
+    }
+
+    @Test
+    public void encoderAndDecoderAreReusableAcrossBlocks() {
+        Random random = new Random(11);
+        GorillaEncoder encoder = new GorillaEncoder(COLUMNS, 16);
+        GorillaDecoder decoder = new GorillaDecoder(COLUMNS);
+        int[] row = new int[COLUMNS];
+        for (int block = 0; block < 20; block++) {
+            int n = 1 + random.nextInt(300);
+            long[] timestamps = new long[n];
+            int[][] values = new int[n][];
+            encoder.reset();
+            for (int i = 0; i < n; i++) {
+                timestamps[i] = block * 1_000_000L + i * 1000L + random.nextInt(3);
+                values[i] = new int[] {
+                    Float.floatToRawIntBits(40 + random.nextInt(50) / 10f), random.nextInt(1000), block };
+                encoder.add(timestamps[i], values[i]);
+            }
+            decoder.reset(encoder.buffer(), encoder.byteLength(), encoder.count(), encoder.firstTimestamp());
+            for (int i = 0; i < n; i++) {
+                assertTrue(decoder.next(row));
+                assertEquals(timestamps[i], decoder.timestamp());
+                assertArrayEquals(values[i], row);
+            }
+            assertFalse(decoder.next(row));
+        }
+    }
+
+    @Test
+    public void compressedSessionKeepsPartialFinalBlock() throws Exception {
+        File file = new File(temp.getRoot(), "session.slgz");
+        float[] values = new float[Channel.COUNT];
+        int rows = 250;
+        try (CompressedSessionWriter writer = new CompressedSessionWriter(file,
+                BufferedLogWriter.FlushPolicy.bulk(), 100, Long.MAX_VALUE, null)) {
+            for (int i = 0; i < rows; i++) {
+                fillWithSpecials(values, i);
+                writer.append(1_700_000_000_000L + i * 1000L, elapsedNanos(i), values);
+            }
+        }
+        float[] expected = new float[Channel.COUNT];
+        int read = 0;
+        try (CompressedSessionReader reader = new CompressedSessionReader(file)) {
+            while (reader.next(values)) {
+                fillWithSpecials(expected, read);
+                assertEquals((1_700_000_000_000L + read * 1000L) * 1_000_000L, reader.timestampNanos());
+                assertEquals(elapsedNanos(read), reader.elapsedNanos());
+                for (int ch = 0; ch < Channel.COUNT; ch++) {
+                    assertEquals(Float.floatToRawIntBits(expected[ch]), Float.floatToRawIntBits(values[ch]));
+                }
+                read++;
+            }
+        }
+        // 100 + 100 + 50
+        assertEquals(rows, read);
+    }
+
+    // 1秒左右的间隔加上调度抖动
+    private static long elapsedNanos(int row) {
+        return 5_000_000_000L + row * 1_000_000_000L + row % 13 * 37_000L;
+    }
+
+    // 浮点通道包含-0和NaN，整数通道隔行缺失
+    private static void fillWithSpecials(float[] values, int row) {
+        for (Channel channel : Channel.ALL) {
+            float v;
+            if (channel.type == Channel.Type.INT) {
+                v = row % 2 == 0 ? Float.NaN : row - 125;
+            } else {
+                v = row % 7 == 0 ? Float.NaN : row % 5 == 0 ? -0f : 35 + row % 40 / 10f;
+            }
+            values[channel.ordinal()] = v;
+        }
+    }
+
+    private static GorillaEncoder encode(long[] timestamps, int[][] values) {
+        GorillaEncoder encoder = new GorillaEncoder(COLUMNS, 16);
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.add(timestamps[i], values[i]);
+        }
+        assertEquals(timestamps.length, encoder.count());
+        assertEquals(timestamps[0], encoder.firstTimestamp());
+        assertEquals(timestamps[timestamps.length - 1], encoder.lastTimestamp());
+        return encoder;
+    }
+
+    private static void assertRoundTrip(GorillaEncoder encoder, long[] timestamps, int[][] values) {
+        GorillaDecoder decoder = new GorillaDecoder(COLUMNS);
+        decoder.reset(encoder.buffer(), encoder.byteLength(), encoder.count(), encoder.firstTimestamp());
+        int[] row = new int[COLUMNS];
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps.length - i, decoder.remaining());
+            assertTrue(decoder.next(row));
+            assertEquals("timestamp " + i, timestamps[i], decoder.timestamp());
+            assertArrayEquals("row " + i, values[i], row);
+        }
+        assertFalse(decoder.next(row));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.systemlogger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * {@link MinMaxDecimator}: 超过浮点精度(2^24)的X仍然可区分，合并桶后保留尖峰
+ */
+public class MinMaxDecimatorTest {
+
+    @Test
+    public void largeXKeepsFullPrecision() {
+        MinMaxDecimator decimator = new MinMaxDecimator(1, 64);
+        long start = 20_000_000L; // 约5.5小时的毫秒数，float的相邻值相差2
+        for (int i = 0; i < 10; i++) {
+            decimator.add(start + i, 0, i);
+        }
+        long[] xs = new long[decimator.pointBudget()];
+        float[] ys = new float[decimator.pointBudget()];
+        int n = decimator.render(0, xs, ys);
+        assertEquals(10, n);
+        for (int i = 0; i < n; i++) {
+            assertEquals(start + i, xs[i]);
+            assertEquals(i, ys[i], 0f);
+        }
+    }
+
+    @Test
+    public void compactionKeepsSpikes() {
+        MinMaxDecimator decimator = new MinMaxDecimator(1, 16);
+        long spikeX = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long x = i * 1000L;
+            float y = 40;
+            if (i == 6789) {
+                y = 95;
+                spikeX = x;
+            }
+            decimator.add(x, 0, y);
+        }
+        assertTrue(decimator.span() > 1);
+        long[] xs = new long[decimator.pointBudget()];
+        float[] ys = new float[decimator.pointBudget()];
+        int n = decimator.render(0, xs, ys);
+        assertTrue(n <= decimator.pointBudget());
+        boolean found = false;
+        for (int i = 0; i < n; i++) {
+            if (ys[i] == 95) {
+                assertEquals(spikeX, xs[i]);
+                found = true;
+            }
+            if (i > 0) {
+                assertTrue(xs[i] >= xs[i - 1]);
+            }
+        }
+        assertTrue(found);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.systemlogger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 多分辨率汇总: 采样线程add()的同时其他线程flush()，汇总文件中的桶完整；
+ * 选层时跳过不覆盖起点的层，查询时汇总文件和内存中的环各取一段
+ */
+public class RollupsTest {
+
+    // 10Hz采样2小时
+    private static final int SAMPLES = 72_000;
+    private static final long STEP_MS = 100;
+    private static final long START_MS = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void flushFromAnotherThread() throws Exception {
+        File session = temp.newFile("session.csv");
+        Rollups rollups = new Rollups(session, BufferedLogWriter.FlushPolicy.bulk());
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread flusher = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    rollups.flush();
+                }
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        flusher.start();
+        float[] values = new float[Channel.COUNT];
+        try {
+            for (int i = 0; i < SAMPLES; i++) {
+                values[Channel.THERMAL_CPU.ordinal()] = i % 100;
+                rollups.add(START_MS + i * STEP_MS, Channel.THERMAL_CPU.mask(), values);
+            }
+        } finally {
+            done.set(true);
+            flusher.join();
+            rollups.close();
+        }
+        assertNull(failure.get());
+
+        // 10秒层: 每桶100个样本，值为0..99
+        RollupRows rows = new RollupRows(1000);
+        try (RollupReader reader = new RollupReader(Rollups.sidecar(session, 1))) {
+            assertEquals(SAMPLES * STEP_MS / 10_000, reader.read(Long.MIN_VALUE, Long.MAX_VALUE, rows));
+        }
+        long total = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(START_MS + i * 10_000L, rows.startMillis(i));
+            assertEquals(100, rows.count(i));
+            assertEquals(0f, rows.min(i, Channel.THERMAL_CPU), 0f);
+            assertEquals(99f, rows.max(i, Channel.THERMAL_CPU), 0f);
+            assertEquals(49.5f, rows.mean(i, Channel.THERMAL_CPU), 1e-4f);
+            total += rows.count(i);
+        }
+        assertEquals(SAMPLES, total);
+    }
+
+    @Test
+    public void tierForSkipsTiersThatDoNotCoverTheStart() throws Exception {
+        for (File session : new File[] { temp.newFile("tiers.csv"), null }) {
+            Rollups rollups = new Rollups(session, BufferedLogWriter.FlushPolicy.bulk());
+            float[] values = new float[Channel.COUNT];
+            // 1Hz采样20分钟，1秒层的环(15分钟)已不包含最早的5分钟，且1秒层没有汇总文件
+            int seconds = 1200;
+            for (int i = 0; i < seconds; i++) {
+                values[Channel.THERMAL_CPU.ordinal()] = i;
+                rollups.add(START_MS + i * 1000L, Channel.THERMAL_CPU.mask(), values);
+            }
+            long last = START_MS + (seconds - 1) * 1000L;
+            assertEquals(0, rollups.tierFor(last - 60_000, last, 1000));
+            assertEquals(1, rollups.tierFor(START_MS, START_MS + 60_000, 1000));
+
+            RollupRows rows = new RollupRows(1000);
+            assertEquals(6, rollups.query(1, START_MS, START_MS + 59_999, rows));
+            assertEquals(START_MS, rows.startMillis(0));
+            rollups.close();
+        }
+    }
+
+    @Test
+    public void queryReadsFileBeforeTheRingAndRingAfterIt() throws Exception {
+        File session = temp.newFile("merge.csv");
+        Rollups rollups = new Rollups(session, BufferedLogWriter.FlushPolicy.bulk());
+        float[] values = new float[Channel.COUNT];
+        // 每10秒一个样本共4小时，10秒层的环(3小时)已覆盖最早的一小时；
+        // 2小时时提交一次，之后的桶部分还在写入器的缓冲中
+        int buckets = 1440;
+        for (int i = 0; i < buckets; i++) {
+            values[Channel.THERMAL_CPU.ordinal()] = i;
+            rollups.add(START_MS + i * 10_000L, Channel.THERMAL_CPU.mask(), values);
+            if (i == buckets / 2) {
+                rollups.flush();
+            }
+        }
+        assertTrue(rollups.tier(1).oldestMillis() > START_MS);
+
+        // 1秒层和10秒层各有一个尚未关闭的桶
+        RollupRows rows = new RollupRows(2000);
+        assertEquals(buckets - 2, rollups.query(1, START_MS, Long.MAX_VALUE, rows));
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(START_MS + i * 10_000L, rows.startMillis(i));
+            assertEquals(i, rows.mean(i, Channel.THERMAL_CPU), 0f);
+        }
+
+        // rows容量不足时截断在文件部分
+        rows = new RollupRows(100);
+        assertEquals(100, rollups.query(1, START_MS, Long.MAX_VALUE, rows));
+        assertEquals(START_MS + 99 * 10_000L, rows.startMillis(99));
+        rollups.close();
+    }
+}
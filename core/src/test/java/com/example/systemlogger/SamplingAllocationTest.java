@@ -0,0 +1,88 @@
+package com.example.systemlogger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 采样热路径的分配: 预热后recordData()(探测、写入、汇总、摘要、历史)每个样本不应分配对象
+ *
+ * 用当前线程的累计分配字节数(HotSpot的com.sun.management.ThreadMXBean)测量，
+ * 不支持时跳过。数据源在采样线程上依次探测，并行探测的Future不在测量范围内。
+ */
+public class SamplingAllocationTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int MEASURED = 20_000;
+    // 实测为0~128字节/2万个样本；留出批量提交时FileChannel偶尔分配的余量，
+    // 远小于每个样本一个对象(16字节以上)
+    private static final double MAX_BYTES_PER_SAMPLE = 1;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void csvSamplingDoesNotAllocate() throws Exception {
+        assertAllocationFree(SessionFormat.CSV);
+    }
+
+    @Test
+    public void binarySamplingDoesNotAllocate() throws Exception {
+        assertAllocationFree(SessionFormat.BINARY);
+    }
+
+    @Test
+    public void compressedSamplingDoesNotAllocate() throws Exception {
+        assertAllocationFree(SessionFormat.COMPRESSED);
+    }
+
+    private void assertAllocationFree(SessionFormat format) throws Exception {
+        SessionRecorder.Options options = new SessionRecorder.Options()
+            .format(format)
+            .historyCapacity(1024);
+        for (Channel channel : Channel.ALL) {
+            options.channelPeriod(channel, SamplingWheel.FOLLOW_BASE);
+        }
+        FakeSensorSource source = new FakeSensorSource("fake", Channel.ALL_MASK, 0);
+        File directory = temp.newFolder();
+        SessionRecorder recorder = new SessionRecorder(directory, options, Collections.singletonList(source),
+            null, Runnable::run, new Instrumentation());
+        recorder.open(false);
+        try {
+            for (int i = 0; i < WARMUP; i++) {
+                recorder.recordData(Channel.ALL_MASK);
+            }
+            long thread = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < MEASURED; i++) {
+                recorder.recordData(Channel.ALL_MASK);
+            }
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+            double perSample = (double) allocated / MEASURED;
+            assertTrue(format + " allocated " + perSample + " bytes/sample", perSample <= MAX_BYTES_PER_SAMPLE);
+        } finally {
+            recorder.stop();
+        }
+        assertEquals(WARMUP + MEASURED, recorder.getHistory().published());
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.systemlogger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link SessionCatalog}: 追加、覆盖、删除后重新打开，检查点快照，
+ * 末尾不完整的记录，以及没有时间统计、通道样本数或直方图桶计数的旧记录
+ */
+public class SessionCatalogTest {
+
+    private static final long START_MS = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void emptyDirectoryHasNoSessions() throws Exception {
+        File directory = temp.newFolder();
+        SessionCatalog catalog = SessionCatalog.open(directory);
+        assertTrue(catalog.sessions().isEmpty());
+        assertNull(catalog.get("session.csv"));
+        // 第一次append()时才创建
+        assertFalse(new File(directory, SessionCatalog.FILE_NAME).exists());
+    }
+
+    @Test
+    public void appendOverwriteRemoveSurviveReopen() throws Exception {
+        File directory = temp.newFolder();
+        SessionCatalog catalog = SessionCatalog.open(directory);
+        catalog.append(summary("a.csv", SessionFormat.CSV, 0, 100));
+        catalog.append(summary("b.slog", SessionFormat.BINARY, 1, 100));
+        catalog.append(summary("c.slgz", SessionFormat.COMPRESSED, 2, 100));
+        // 同一会话压缩后的新摘要覆盖旧的
+        SessionSummary b = summary("b.slog", SessionFormat.BINARY, 1, 250);
+        catalog.append(b);
+        catalog.remove("a.csv");
+        File file = new File(directory, SessionCatalog.FILE_NAME);
+        long length = file.length();
+        // 没有记录的会话不追加删除标记
+        catalog.remove("missing.csv");
+        assertEquals(length, file.length());
+
+        SessionCatalog reopened = SessionCatalog.open(directory);
+        List<SessionSummary> sessions = reopened.sessions();
+        assertEquals(2, sessions.size());
+        assertEquals("c.slgz", sessions.get(0).fileName);
+        assertEquals("b.slog", sessions.get(1).fileName);
+        assertNull(reopened.get("a.csv"));
+        assertSummaryEquals(b, reopened.get("b.slog"));
+        assertSummaryEquals(catalog.get("c.slgz"), reopened.get("c.slgz"));
+
+        // 删除后可以再次追加同名会话
+        reopened.append(summary("a.csv", SessionFormat.CSV, 3, 10));
+        assertEquals(10, SessionCatalog.open(directory).get("a.csv").sampleCount);
+    }
+
+    @Test
+    public void tornTrailingRecordIsIgnoredAndOverwritten() throws Exception {
+        File directory = temp.newFolder();
+        SessionCatalog catalog = SessionCatalog.open(directory);
+        catalog.append(summary("a.csv", SessionFormat.CSV, 0, 100));
+        File file = new File(directory, SessionCatalog.FILE_NAME);
+        long length = file.length();
+        catalog.append(summary("b.csv", SessionFormat.CSV, 1, 100));
+        // 进程在写第二条记录时被杀
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 5);
+        }
+
+        SessionCatalog reopened = SessionCatalog.open(directory);
+        assertEquals(1, reopened.sessions().size());
+        assertNull(reopened.get("b.csv"));
+        SessionSummary c = summary("c.csv", SessionFormat.CSV, 2, 100);
+        reopened.append(c);
+        // 不完整的记录在追加前截掉
+        assertEquals(2 * length - SessionCatalog.HEADER_SIZE, file.length());
+
+        SessionCatalog again = SessionCatalog.open(directory);
+        assertEquals(2, again.sessions().size());
+        assertNotNull(again.get("a.csv"));
+        assertSummaryEquals(c, again.get("c.csv"));
+    }
+
+    @Test
+    public void snapshotRoundTrip() throws Exception {
+        File marker = new File(temp.getRoot(), SessionRecovery.MARKER);
+        assertNull(SessionCatalog.readSnapshot(marker));
+
+        SessionSummary first = summary("a.csv", SessionFormat.CSV, 0, 100);
+        SessionCatalog.writeSnapshot(marker, first);
+        assertSummaryEquals(first, SessionCatalog.readSnapshot(marker));
+
+        // 后一个检查点整体替换前一个
+        SessionSummary second = summary("a.csv", SessionFormat.CSV, 0, 200);
+        SessionCatalog.writeSnapshot(marker, second);
+        assertSummaryEquals(second, SessionCatalog.readSnapshot(marker));
+        assertFalse(new File(marker.getPath() + ".tmp").exists());
+
+        // 创建时被中断的空文件
+        File empty = temp.newFile();
+        assertNull(SessionCatalog.readSnapshot(empty));
+    }
+
+    @Test
+    public void oldRecordsWithoutTimingOrCountsReadAsZero() throws Exception {
+        File directory = temp.newFolder();
+        File file = new File(directory, SessionCatalog.FILE_NAME);
+        SessionSummary old = summary("old.csv", SessionFormat.CSV, 0, 100);
+        SessionSummary timed = summary("timed.csv", SessionFormat.CSV, 1, 100);
+        SessionSummary counted = summary("counted.csv", SessionFormat.CSV, 3, 100);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(ByteBuffer.allocate(SessionCatalog.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(SessionCatalog.MAGIC).putInt(SessionCatalog.VERSION).array());
+            out.write(legacyRecord(old, false, false));
+            out.write(legacyRecord(timed, true, false));
+            out.write(legacyRecord(counted, true, true));
+        }
+
+        SessionCatalog catalog = SessionCatalog.open(directory);
+        assertEquals(3, catalog.sessions().size());
+        SessionSummary readOld = catalog.get("old.csv");
+        assertBasicsEqual(old, readOld);
+        assertEquals(0, readOld.ticks);
+        assertEquals(0, readOld.clockDriftMillis);
+        assertArrayEquals(new long[Channel.COUNT], readOld.counts);
+
+        SessionSummary readTimed = catalog.get("timed.csv");
+        assertBasicsEqual(timed, readTimed);
+        assertEquals(timed.ticks, readTimed.ticks);
+        assertEquals(timed.latenessP99Nanos, readTimed.latenessP99Nanos);
+        assertEquals(timed.clockDriftMillis, readTimed.clockDriftMillis);
+        assertArrayEquals(new long[Channel.COUNT], readTimed.counts);
+
+        SessionSummary readCounted = catalog.get("counted.csv");
+        assertBasicsEqual(counted, readCounted);
+        assertArrayEquals(counted.counts, readCounted.counts);
+        assertEquals(counted.ticks, readCounted.ticks);
+        assertArrayEquals(new long[LatencyHistogram.BUCKETS], readCounted.latenessBuckets);
+        assertArrayEquals(new long[LatencyHistogram.BUCKETS], readCounted.jitterBuckets);
+
+        // 没有通道样本数时按总样本数恢复
+        readOld.restoreAccumulators();
+        for (Channel channel : Channel.ALL) {
+            assertEquals(old.sampleCount, readOld.counts[channel.ordinal()]);
+        }
+
+        // 旧记录之后追加新格式的记录
+        SessionSummary current = summary("new.csv", SessionFormat.CSV, 2, 100);
+        catalog.append(current);
+        SessionCatalog reopened = SessionCatalog.open(directory);
+        assertEquals(4, reopened.sessions().size());
+        assertBasicsEqual(old, reopened.get("old.csv"));
+        assertSummaryEquals(current, reopened.get("new.csv"));
+    }
+
+    @Test
+    public void rejectsForeignFile() throws Exception {
+        File directory = temp.newFolder();
+        try (FileOutputStream out = new FileOutputStream(new File(directory, SessionCatalog.FILE_NAME))) {
+            out.write("timestamp,value\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        try {
+            SessionCatalog.open(directory);
+            fail("opened a foreign file");
+        } catch (IOException expected) {
+            // 预期
+        }
+    }
+
+    // index决定开始时间；电量通道每10个样本一次，样本数与总样本数不同
+    private static SessionSummary summary(String fileName, SessionFormat format, int index, int samples) {
+        SessionSummary summary = new SessionSummary(fileName, format);
+        float[] values = new float[Channel.COUNT];
+        long start = START_MS + index * 3_600_000L;
+        for (int i = 0; i < samples; i++) {
+            int mask = 0;
+            for (Channel channel : Channel.ALL) {
+                if (channel == Channel.BATTERY_LEVEL && i % 10 != 0) {
+                    values[channel.ordinal()] = Float.NaN;
+                    continue;
+                }
+                values[channel.ordinal()] = channel.ordinal() * 10 + i % 13;
+                mask |= channel.mask();
+            }
+            summary.add(start + i * 1000L, mask, values);
+        }
+        summary.finish(samples * 64L);
+        summary.ticks = samples + 2;
+        summary.missedDeadlines = 2;
+        summary.latenessP50Nanos = 15_000;
+        summary.latenessP99Nanos = 900_000 + index;
+        summary.latenessMaxNanos = 4_000_000;
+        summary.jitterP99Nanos = 120_000;
+        summary.clockDriftMillis = -3;
+        summary.latenessBuckets[4] = samples;
+        summary.latenessBuckets[12] = 2;
+        summary.jitterBuckets[7] = samples + 1;
+        return summary;
+    }
+
+    // 加入时间统计、通道样本数和直方图桶计数之前的记录，按timing、counts依次带上前两项
+    private static byte[] legacyRecord(SessionSummary summary, boolean timing, boolean counts) {
+        byte[] name = summary.fileName.getBytes(StandardCharsets.UTF_8);
+        int channels = Integer.bitCount(summary.channelMask);
+        int length = 4 + name.length + 4 + 36 + 12 * channels + (timing ? 56 : 0) + (counts ? 8 * channels : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(length);
+        buffer.putInt(name.length);
+        buffer.put(name);
+        buffer.putInt(summary.format.ordinal());
+        buffer.putLong(summary.startMillis);
+        buffer.putLong(summary.endMillis);
+        buffer.putLong(summary.sampleCount);
+        buffer.putLong(summary.fileBytes);
+        buffer.putInt(summary.channelMask);
+        for (int ch = 0; ch < Channel.COUNT; ch++) {
+            if ((summary.channelMask & (1 << ch)) != 0) {
+                buffer.putFloat(summary.min[ch]);
+                buffer.putFloat(summary.max[ch]);
+                buffer.putFloat(summary.mean[ch]);
+            }
+        }
+        if (timing) {
+            buffer.putLong(summary.ticks);
+            buffer.putLong(summary.missedDeadlines);
+            buffer.putLong(summary.latenessP50Nanos);
+            buffer.putLong(summary.latenessP99Nanos);
+            buffer.putLong(summary.latenessMaxNanos);
+            buffer.putLong(summary.jitterP99Nanos);
+            buffer.putLong(summary.clockDriftMillis);
+        }
+        if (counts) {
+            for (int ch = 0; ch < Channel.COUNT; ch++) {
+                if ((summary.channelMask & (1 << ch)) != 0) {
+                    buffer.putLong(summary.counts[ch]);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    private static void assertBasicsEqual(SessionSummary expected, SessionSummary actual) {
+        assertNotNull(actual);
+        assertEquals(expected.fileName, actual.fileName);
+        assertEquals(expected.format, actual.format);
+        assertEquals(expected.startMillis, actual.startMillis);
+        assertEquals(expected.endMillis, actual.endMillis);
+        assertEquals(expected.sampleCount, actual.sampleCount);
+        assertEquals(expected.fileBytes, actual.fileBytes);
+        assertEquals(expected.channelMask, actual.channelMask);
+        assertArrayEquals(expected.min, actual.min, 0f);
+        assertArrayEquals(expected.max, actual.max, 0f);
+        assertArrayEquals(expected.mean, actual.mean, 0f);
+    }
+
+    private static void assertSummaryEquals(SessionSummary expected, SessionSummary actual) {
+        assertBasicsEqual(expected, actual);
+        assertArrayEquals(expected.counts, actual.counts);
+        assertEquals(expected.ticks, actual.ticks);
+        assertEquals(expected.missedDeadlines, actual.missedDeadlines);
+        assertEquals(expected.latenessP50Nanos, actual.latenessP50Nanos);
+        assertEquals(expected.latenessP99Nanos, actual.latenessP99Nanos);
+        assertEquals(expected.latenessMaxNanos, actual.latenessMaxNanos);
+        assertEquals(expected.jitterP99Nanos, actual.jitterP99Nanos);
+        assertEquals(expected.clockDriftMillis, actual.clockDriftMillis);
+        assertArrayEquals(expected.latenessBuckets, actual.latenessBuckets);
+        assertArrayEquals(expected.jitterBuckets, actual.jitterBuckets);
+    }
+}
@@ -0,0 +1,402 @@
+package com.example.systemlogger;
+
+import static com.example.systemlogger.SessionFixtures.countRows;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 用模拟数据源驱动{@link SessionRecorder}: 样本数、会话文件内容、会话目录和正常结束后的状态
+ *
+ * 大部分用例直接调用open()/recordData()，结果是确定的；
+ * 实时用例以1ms周期启动采样线程运行约1秒。
+ * 分段压缩和清理任务先收集起来，由用例决定是否执行。
+ */
+public class SessionRecorderTest {
+
+    private static final int ROWS = 2000;
+    private static final int SLOW_MASK = Channel.BATTERY_LEVEL.mask() | Channel.BRIGHTNESS.mask();
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File directory;
+    private final List<Runnable> archiveTasks = new ArrayList<>();
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+    private final AtomicLong published = new AtomicLong();
+    private ExecutorService probeExecutor;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temp.newFolder("sessions");
+    }
+
+    @After
+    public void tearDown() {
+        if (probeExecutor != null) {
+            probeExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void csvRowsMatchSampledValues() throws IOException {
+        recordAndReadBack(SessionFormat.CSV);
+    }
+
+    @Test
+    public void binaryRowsMatchSampledValues() throws IOException {
+        recordAndReadBack(SessionFormat.BINARY);
+    }
+
+    @Test
+    public void compressedRowsMatchSampledValues() throws IOException {
+        recordAndReadBack(SessionFormat.COMPRESSED);
+    }
+
+    @Test
+    public void disabledChannelsAreNotSampled() throws IOException {
+        CountingSource source = new CountingSource(Channel.ALL_MASK);
+        SessionRecorder recorder = newRecorder(options(SessionFormat.CSV, 1000), source);
+        recorder.open(false);
+        recorder.setEnabledChannels(Channel.ALL_MASK & ~Channel.THERMAL_GPU.mask());
+        for (int i = 0; i < 100; i++) {
+            recorder.recordData(Channel.ALL_MASK);
+        }
+        // 全部通道都被关闭时不产生样本
+        recorder.setEnabledChannels(0);
+        recorder.recordData(Channel.ALL_MASK);
+        File file = recorder.getOutputFile();
+        recorder.stop();
+
+        float[] values = new float[Channel.COUNT];
+        int rows = 0;
+        try (SessionReader reader = SessionFormat.CSV.openReader(file)) {
+            while (reader.next(values)) {
+                rows++;
+                assertTrue(Float.isNaN(values[Channel.THERMAL_GPU.ordinal()]));
+                assertEquals(rows, values[Channel.THERMAL_CPU.ordinal()], 0f);
+            }
+        }
+        assertEquals(100, rows);
+        assertEquals(100, published.get());
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    @Test
+    public void parallelProbesMergeIntoOneRow() throws IOException {
+        probeExecutor = Executors.newFixedThreadPool(2);
+        FakeSensorSource thermal = new FakeSensorSource("fake-thermal", Channel.THERMAL_CPU.mask()
+            | Channel.THERMAL_GPU.mask() | Channel.THERMAL_BATTERY.mask() | Channel.THERMAL_SKIN.mask(), 20_000);
+        FakeSensorSource device = new FakeSensorSource("fake-device", SLOW_MASK | Channel.CURRENT.mask(), 20_000)
+            .failEvery(50);
+        SessionRecorder recorder = newRecorder(options(SessionFormat.BINARY, 1000), probeExecutor,
+            Arrays.asList(thermal, device));
+        recorder.open(false);
+        for (int i = 0; i < 500; i++) {
+            recorder.recordData(Channel.ALL_MASK);
+        }
+        File file = recorder.getOutputFile();
+        recorder.stop();
+
+        float[] values = new float[Channel.COUNT];
+        int rows = 0;
+        try (SessionReader reader = SessionFormat.BINARY.openReader(file)) {
+            while (reader.next(values)) {
+                rows++;
+                assertFalse(Float.isNaN(values[Channel.THERMAL_CPU.ordinal()]));
+                // 模拟数据源每50次探测失败一次，这一行没有它的通道
+                boolean failed = rows % 50 == 0;
+                assertEquals("row " + rows, failed, Float.isNaN(values[Channel.CURRENT.ordinal()]));
+            }
+        }
+        assertEquals(500, rows);
+        assertEquals(500, thermal.calls());
+        assertEquals(500, device.calls());
+        assertTrue(thermal.isClosed());
+        assertTrue(device.isClosed());
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    @Test
+    public void closedSegmentIsCompressedInBackground() throws IOException {
+        SessionRecorder recorder = newRecorder(options(SessionFormat.CSV, 1000), new CountingSource(Channel.ALL_MASK));
+        recorder.open(false);
+        for (int i = 0; i < ROWS; i++) {
+            recorder.recordData(Channel.ALL_MASK);
+        }
+        File csv = recorder.getOutputFile();
+        recorder.stop();
+        runArchiveTasks();
+
+        assertFalse(csv.exists());
+        List<SessionSummary> sessions = SessionCatalog.open(directory).sessions();
+        assertEquals(1, sessions.size());
+        SessionSummary summary = sessions.get(0);
+        assertEquals(SessionFormat.COMPRESSED, summary.format);
+        assertEquals(ROWS, summary.sampleCount);
+        File compressed = new File(directory, summary.fileName);
+        assertEquals(compressed.length(), summary.fileBytes);
+        assertEquals(ROWS, countRows(SessionFormat.COMPRESSED, compressed));
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    @Test
+    public void rollupsFollowTheActiveSegmentThroughRotationAndRetention() throws IOException {
+        SessionRecorder.Options options = options(SessionFormat.CSV, 1000)
+            .rotation(new SegmentArchiver.RotationPolicy(4096, 0))
+            .retention(new SegmentArchiver.RetentionPolicy(16 * 1024, 0));
+        SessionRecorder recorder = newRecorder(options, new CountingSource(Channel.ALL_MASK));
+        recorder.open(false);
+        for (int i = 0; i < ROWS; i++) {
+            recorder.recordData(Channel.ALL_MASK);
+            if (i % 100 == 0) {
+                // 后台压缩和清理与记录交错进行
+                runArchiveTasks();
+            }
+        }
+        assertTrue(Rollups.sidecar(recorder.getOutputFile(), 1).exists());
+        recorder.stop();
+        runArchiveTasks();
+
+        // 早期分段已被清理，汇总文件只有一组(随最后一个分段压缩改名)，包含整个会话的样本
+        assertTrue(SessionCatalog.open(directory).sessions().size() < ROWS * 60 / 4096);
+        File[] rollupFiles = rollupFiles();
+        assertEquals(1, rollupFiles.length);
+        RollupRows rows = new RollupRows(64);
+        try (RollupReader reader = new RollupReader(rollupFiles[0])) {
+            reader.read(Long.MIN_VALUE, Long.MAX_VALUE, rows);
+        }
+        long samples = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            samples += rows.count(i);
+        }
+        assertEquals(ROWS, samples);
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    @Test
+    public void resumedSessionContinuesItsRollups() throws IOException {
+        SessionRecorder.Options options = options(SessionFormat.BINARY, 1000)
+            .rotation(new SegmentArchiver.RotationPolicy(4096, 0));
+        SessionRecorder killed = newRecorder(options, new CountingSource(Channel.ALL_MASK));
+        killed.open(false);
+        for (int i = 0; i < 500; i++) {
+            killed.recordData(Channel.ALL_MASK);
+        }
+        killed.flush();
+        File last = killed.getOutputFile();
+
+        // 进程被杀(没有stop())后重启，在最后一个分段上继续
+        SessionRecorder resumed = newRecorder(options, new CountingSource(Channel.ALL_MASK));
+        resumed.open(true);
+        assertEquals(last, resumed.getOutputFile());
+        for (int i = 0; i < 10; i++) {
+            resumed.recordData(Channel.ALL_MASK);
+        }
+        resumed.stop();
+
+        File[] rollupFiles = rollupFiles();
+        assertEquals(1, rollupFiles.length);
+        assertEquals(Rollups.sidecar(last, 1), rollupFiles[0]);
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    @Test(timeout = 30_000)
+    public void samplesAtOneKilohertzAndShutsDownCleanly() throws Exception {
+        FakeSensorSource thermal = new FakeSensorSource("fake-thermal", Channel.THERMAL_CPU.mask()
+            | Channel.THERMAL_GPU.mask() | Channel.THERMAL_BATTERY.mask() | Channel.THERMAL_SKIN.mask(), 0);
+        FakeSensorSource device = new FakeSensorSource("fake-device", SLOW_MASK | Channel.CURRENT.mask(), 0);
+        // 依次探测: 没有探测超时，每一行都是完整的
+        SessionRecorder recorder = newRecorder(options(SessionFormat.BINARY, 1), null,
+            Arrays.asList(thermal, device));
+        recorder.start(false);
+        Thread.sleep(1000);
+        File file = recorder.getOutputFile();
+        recorder.stop();
+
+        long samples = published.get();
+        assertTrue("only " + samples + " samples in 1s", samples >= 200);
+        assertEquals(samples, recorder.getHistory().published());
+        assertEquals(samples, thermal.calls());
+        assertEquals(samples, device.calls());
+
+        float[] values = new float[Channel.COUNT];
+        long rows = 0;
+        long previous = Long.MIN_VALUE;
+        try (SessionReader reader = SessionFormat.BINARY.openReader(file)) {
+            while (reader.next(values)) {
+                rows++;
+                for (float value : values) {
+                    assertFalse("row " + rows, Float.isNaN(value));
+                }
+                assertTrue(reader.timestampNanos() >= previous);
+                previous = reader.timestampNanos();
+            }
+        }
+        assertEquals(samples, rows);
+
+        // 正常结束: 数据源已关闭、恢复标记已删除、摘要已写入会话目录
+        assertTrue(thermal.isClosed());
+        assertTrue(device.isClosed());
+        assertNull(SessionRecovery.recover(directory));
+        SessionSummary summary = SessionCatalog.open(directory).get(file.getName());
+        assertNotNull(summary);
+        assertEquals(samples, summary.sampleCount);
+        assertEquals(Channel.ALL_MASK, summary.channelMask);
+        assertEquals(file.length(), summary.fileBytes);
+        assertTrue(summary.ticks > 0);
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    // 每个通道的值都是探测次数，第i行(从1开始)为i；慢通道每10行采一次
+    private void recordAndReadBack(SessionFormat format) throws IOException {
+        CountingSource source = new CountingSource(Channel.ALL_MASK);
+        SessionRecorder recorder = newRecorder(options(format, 1000), source);
+        recorder.open(false);
+        for (int i = 0; i < ROWS; i++) {
+            recorder.recordData(i % 10 == 0 ? Channel.ALL_MASK : Channel.ALL_MASK & ~SLOW_MASK);
+        }
+        File file = recorder.getOutputFile();
+        assertEquals(format, recorder.getFormat());
+        recorder.stop();
+
+        assertTrue(source.closed);
+        assertEquals(ROWS, published.get());
+        assertTrue(errors.toString(), errors.isEmpty());
+
+        float[] values = new float[Channel.COUNT];
+        int rows = 0;
+        long previous = Long.MIN_VALUE;
+        try (SessionReader reader = format.openReader(file)) {
+            while (reader.next(values)) {
+                int row = rows++;
+                for (Channel channel : Channel.ALL) {
+                    float value = values[channel.ordinal()];
+                    if ((channel.mask() & SLOW_MASK) != 0 && row % 10 != 0) {
+                        assertTrue(channel + " row " + row, Float.isNaN(value));
+                    } else {
+                        assertEquals(channel + " row " + row, row + 1, value, 0f);
+                    }
+                }
+                assertTrue(reader.timestampNanos() >= previous);
+                previous = reader.timestampNanos();
+            }
+        }
+        assertEquals(ROWS, rows);
+
+        assertNull(SessionRecovery.recover(directory));
+        SessionSummary summary = SessionCatalog.open(directory).get(file.getName());
+        assertNotNull(summary);
+        assertEquals(ROWS, summary.sampleCount);
+        assertEquals(Channel.ALL_MASK, summary.channelMask);
+        assertEquals((ROWS + 1) / 2f, summary.mean[Channel.THERMAL_CPU.ordinal()], 1e-3f);
+        // 慢通道只在第1、11、21…行有值
+        assertEquals(ROWS / 2f - 4, summary.mean[Channel.BATTERY_LEVEL.ordinal()], 1e-3f);
+    }
+
+    private static SessionRecorder.Options options(SessionFormat format, long periodMillis) {
+        SessionRecorder.Options options = new SessionRecorder.Options()
+            .format(format)
+            .period(periodMillis)
+            .historyCapacity(1 << 16);
+        for (Channel channel : Channel.ALL) {
+            options.channelPeriod(channel, SamplingWheel.FOLLOW_BASE);
+        }
+        return options;
+    }
+
+    private SessionRecorder newRecorder(SessionRecorder.Options options, SensorSource source) {
+        return newRecorder(options, null, Collections.singletonList(source));
+    }
+
+    private SessionRecorder newRecorder(SessionRecorder.Options options, ExecutorService probes,
+                                        List<SensorSource> sources) {
+        SessionRecorder recorder = new SessionRecorder(directory, options, sources, probes,
+            archiveTasks::add, new Instrumentation());
+        recorder.setListener(new SessionRecorder.Listener() {
+            @Override
+            public void onError(String message, Exception e) {
+                errors.add(message + ": " + e);
+            }
+
+            @Override
+            public void onSamplePublished() {
+                published.incrementAndGet();
+            }
+        });
+        return recorder;
+    }
+
+    private void runArchiveTasks() {
+        List<Runnable> tasks = new ArrayList<>(archiveTasks);
+        archiveTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    // 10秒层的汇总文件
+    private File[] rollupFiles() {
+        String suffix = Rollups.sidecar(new File("session"), 1).getName().substring("session".length());
+        return directory.listFiles((dir, name) -> name.endsWith(suffix));
+    }
+
+    /**
+     * 每个通道都输出探测次数，便于按行号核对文件内容
+     */
+    private static final class CountingSource implements SensorSource {
+        private final int channels;
+        private int calls;
+        boolean closed;
+
+        CountingSource(int channels) {
+            this.channels = channels;
+        }
+
+        @Override
+        public String name() {
+            return "counting";
+        }
+
+        @Override
+        public int open() {
+            return channels;
+        }
+
+        @Override
+        public int sample(float[] out, int wanted) {
+            calls++;
+            int filled = wanted & channels;
+            for (int ch = 0; ch < Channel.COUNT; ch++) {
+                if ((filled & (1 << ch)) != 0) {
+                    out[ch] = calls;
+                }
+            }
+            return filled;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.example.systemlogger;
+
+import static com.example.systemlogger.SessionFixtures.append;
+import static com.example.systemlogger.SessionFixtures.fill;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 进程被杀后的会话恢复: 三种格式的末尾分别带半条记录、垃圾行、全零页和不完整的块，
+ * {@link SessionRecovery#recover}截断到最后一条完整记录，稀疏索引和汇总文件随之截断，
+ * 摘要补上检查点之后写入的记录并去掉被截掉的记录
+ */
+public class SessionRecoveryTest {
+
+    private static final int ROWS = 230;
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final long STEP_MS = 1000;
+    private static final long LAST_MS = START_MS + (ROWS - 1) * STEP_MS;
+    // 全零页不是记录长度的整数倍
+    private static final int PAGE = 4096;
+    // 检查点中的调度时间统计
+    private static final long TICKS = 12_345;
+    private static final long LATENESS_MAX_NANOS = 7_000_000;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void noMarkerMeansNothingToRecover() throws Exception {
+        File directory = temp.newFolder();
+        assertNull(SessionRecovery.recover(directory));
+
+        // 标记指向已删除的会话
+        File session = write(directory, SessionFormat.CSV);
+        assertTrue(session.delete());
+        assertNull(SessionRecovery.recover(directory));
+        assertFalse(new File(directory, SessionRecovery.MARKER).exists());
+    }
+
+    @Test
+    public void intactSessionIsLeftAlone() throws Exception {
+        for (SessionFormat format : SessionFormat.values()) {
+            File directory = temp.newFolder();
+            File session = write(directory, format);
+            long length = session.length();
+            SessionRecovery.Result result = recover(directory, session, format);
+            assertEquals(format.name(), length, result.validBytes);
+            assertEquals(format.name(), 0, result.truncatedBytes);
+            assertEquals(format.name(), LAST_MS, result.lastTimestampMillis);
+            assertEquals(format.name(), ROWS, countMatchingRows(session, format));
+        }
+    }
+
+    @Test
+    public void csvTornLineIsTruncated() throws Exception {
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.CSV);
+        long length = session.length();
+        append(session, "2023-11-14 22:13:20.000,41.5,4".getBytes(StandardCharsets.US_ASCII));
+
+        SessionRecovery.Result result = recover(directory, session, SessionFormat.CSV);
+        assertEquals(length, result.validBytes);
+        assertEquals(LAST_MS, result.lastTimestampMillis);
+        assertEquals(length, session.length());
+        assertEquals(ROWS, countMatchingRows(session, SessionFormat.CSV));
+    }
+
+    @Test
+    public void csvGarbageLinesAndZeroPageAreTruncated() throws Exception {
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.CSV);
+        long length = session.length();
+        // 完整但无法解析的行，之后是没有换行符的全零页
+        append(session, "2023-11-1\n,,,,\n".getBytes(StandardCharsets.US_ASCII));
+        append(session, new byte[PAGE]);
+
+        SessionRecovery.Result result = recover(directory, session, SessionFormat.CSV);
+        assertEquals(length, result.validBytes);
+        assertEquals(15 + PAGE, result.truncatedBytes);
+        assertEquals(LAST_MS, result.lastTimestampMillis);
+        assertEquals(ROWS, countMatchingRows(session, SessionFormat.CSV));
+    }
+
+    @Test
+    public void binaryPartialRecordIsTruncated() throws Exception {
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.BINARY);
+        long length = session.length();
+        append(session, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 });
+
+        SessionRecovery.Result result = recover(directory, session, SessionFormat.BINARY);
+        assertEquals(length, result.validBytes);
+        assertEquals(10, result.truncatedBytes);
+        assertEquals(LAST_MS, result.lastTimestampMillis);
+        assertEquals(ROWS, countMatchingRows(session, SessionFormat.BINARY));
+    }
+
+    @Test
+    public void binaryZeroPagesAreTruncated() throws Exception {
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.BINARY);
+        long length = session.length();
+        // 断电后未写入内容的两页: 一百多条全零记录加半条
+        append(session, new byte[2 * PAGE]);
+
+        SessionRecovery.Result result = recover(directory, session, SessionFormat.BINARY);
+        assertEquals(length, result.validBytes);
+        assertEquals(2 * PAGE, result.truncatedBytes);
+        assertEquals(LAST_MS, result.lastTimestampMillis);
+        assertEquals(ROWS, countMatchingRows(session, SessionFormat.BINARY));
+    }
+
+    @Test
+    public void compressedPartialBlockHeaderIsTruncated() throws Exception {
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.COMPRESSED);
+        long length = session.length();
+        // 块头只写了魔数和样本数
+        append(session, ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(CompressedSessionWriter.BLOCK_MAGIC).putInt(50).array());
+
+        SessionRecovery.Result result = recover(directory, session, SessionFormat.COMPRESSED);
+        assertEquals(length, result.validBytes);
+        assertEquals(10, result.truncatedBytes);
+        assertEquals(LAST_MS, result.lastTimestampMillis);
+        assertEquals(ROWS, countMatchingRows(session, SessionFormat.COMPRESSED));
+    }
+
+    @Test
+    public void compressedTruncatedPayloadIsTruncated() throws Exception {
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.COMPRESSED);
+        long length = session.length();
+        // 块头完整，但数据只写了一部分
+        append(session, blockHeader(50, 400, LAST_MS + STEP_MS, LAST_MS + 50 * STEP_MS));
+        append(session, new byte[100]);
+
+        SessionRecovery.Result result = recover(directory, session, SessionFormat.COMPRESSED);
+        assertEquals(length, result.validBytes);
+        assertEquals(LAST_MS, result.lastTimestampMillis);
+        assertEquals(ROWS, countMatchingRows(session, SessionFormat.COMPRESSED));
+    }
+
+    @Test
+    public void compressedZeroPageIsTruncated() throws Exception {
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.COMPRESSED);
+        long length = session.length();
+        append(session, new byte[PAGE]);
+
+        SessionRecovery.Result result = recover(directory, session, SessionFormat.COMPRESSED);
+        assertEquals(length, result.validBytes);
+        assertEquals(PAGE, result.truncatedBytes);
+        assertEquals(LAST_MS, result.lastTimestampMillis);
+        assertEquals(ROWS, countMatchingRows(session, SessionFormat.COMPRESSED));
+    }
+
+    @Test
+    public void compressedRecoveryWorksWithoutIndex() throws Exception {
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.COMPRESSED);
+        long length = session.length();
+        assertTrue(SparseTimeIndex.sidecar(session).delete());
+        append(session, new byte[PAGE]);
+
+        // 从第一个块开始逐块检查
+        SessionRecovery.Result result = recover(directory, session, SessionFormat.COMPRESSED);
+        assertEquals(length, result.validBytes);
+        assertEquals(LAST_MS, result.lastTimestampMillis);
+    }
+
+    @Test
+    public void indexEntriesPastTheTruncationAreDropped() throws Exception {
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.COMPRESSED);
+        long length = session.length();
+        File indexFile = SparseTimeIndex.sidecar(session);
+        long indexLength = indexFile.length();
+        // 块头已经写入索引，但块本身没有写完
+        append(indexFile, ByteBuffer.allocate(SparseTimeIndex.ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+            .putLong(LAST_MS + STEP_MS).putLong(length).array());
+        append(session, blockHeader(50, 400, LAST_MS + STEP_MS, LAST_MS + 50 * STEP_MS));
+
+        SessionRecovery.Result result = recover(directory, session, SessionFormat.COMPRESSED);
+        assertEquals(length, result.validBytes);
+        assertEquals(indexLength, indexFile.length());
+        SparseTimeIndex index = SparseTimeIndex.load(indexFile, session.length());
+        assertNotNull(index);
+        assertTrue(index.seekOffset(Long.MAX_VALUE) < length);
+    }
+
+    @Test
+    public void recoveredSummaryContinuesAccumulating() throws Exception {
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.BINARY);
+        append(session, new byte[7]);
+
+        SessionRecovery.Result result = recover(directory, session, SessionFormat.BINARY);
+        SessionSummary summary = result.summary;
+        assertEquals(ROWS, summary.sampleCount);
+        assertEquals(START_MS, summary.startMillis);
+        assertEquals(LAST_MS, summary.endMillis);
+
+        float[] values = new float[Channel.COUNT];
+        fill(values, ROWS);
+        summary.add(LAST_MS + STEP_MS, Channel.ALL_MASK, values);
+        summary.finish(session.length());
+        assertEquals(ROWS + 1, summary.sampleCount);
+        float expected = 0;
+        for (int i = 0; i <= ROWS; i++) {
+            expected += 30 + i % 20;
+        }
+        assertEquals(expected / (ROWS + 1), summary.mean[Channel.THERMAL_CPU.ordinal()], 1e-3f);
+    }
+
+    @Test
+    public void rowsWrittenAfterCheckpointAreAddedToSummary() throws Exception {
+        // 压缩格式的检查点落在块中间(120 = 2个50行的块 + 20行)
+        for (SessionFormat format : SessionFormat.values()) {
+            File directory = temp.newFolder();
+            File session = write(directory, format, 120);
+            SessionRecovery.Result result = recover(directory, session, format);
+            assertSummaryCovers(format.name(), result.summary, ROWS);
+        }
+
+        // 没有索引时从头读取，跳过检查点已统计的行
+        File directory = temp.newFolder();
+        File session = write(directory, SessionFormat.BINARY, 120);
+        assertTrue(SparseTimeIndex.sidecar(session).delete());
+        assertSummaryCovers("no index", recover(directory, session, SessionFormat.BINARY).summary, ROWS);
+
+        // 检查点时还没有记录
+        directory = temp.newFolder();
+        session = write(directory, SessionFormat.CSV, 0);
+        SessionCatalog.writeSnapshot(new File(directory, SessionRecovery.MARKER),
+            new SessionSummary(session.getName(), SessionFormat.CSV));
+        SessionSummary summary = recover(directory, session, SessionFormat.CSV).summary;
+        assertEquals(ROWS, summary.sampleCount);
+        assertEquals(START_MS, summary.startMillis);
+        assertEquals(LAST_MS, summary.endMillis);
+    }
+
+    @Test
+    public void rowsCountedButTruncatedAreRemovedFromSummary() throws Exception {
+        // 检查点统计了全部ROWS行，但只有前面一部分落盘
+        for (SessionFormat format : SessionFormat.values()) {
+            File directory = temp.newFolder();
+            File session = write(directory, format);
+            try (RandomAccessFile raf = new RandomAccessFile(session, "rw")) {
+                raf.setLength(session.length() * 2 / 3);
+            }
+            SessionRecovery.Result result = recover(directory, session, format);
+            int rows = countMatchingRows(session, format);
+            assertTrue(format.name(), rows > 0 && rows < ROWS);
+            assertSummaryCovers(format.name(), result.summary, rows);
+        }
+    }
+
+    @Test
+    public void gapsRoundTrip() throws Exception {
+        File session = temp.newFile("session.csv");
+        assertArrayEquals(new long[0], SessionRecovery.readGaps(session));
+        SessionRecovery.recordGap(session, 1000, 5000);
+        SessionRecovery.recordGap(session, 9000, 12_000);
+        assertArrayEquals(new long[] { 1000, 5000, 9000, 12_000 }, SessionRecovery.readGaps(session));
+    }
+
+    @Test
+    public void resumedRollupsDropTornRecord() throws Exception {
+        File session = temp.newFile("session.csv");
+        float[] values = new float[Channel.COUNT];
+        Rollups rollups = new Rollups(session, BufferedLogWriter.FlushPolicy.bulk());
+        for (int i = 0; i < ROWS; i++) {
+            fill(values, i);
+            rollups.add(START_MS + i * STEP_MS, Channel.ALL_MASK, values);
+        }
+        rollups.close();
+        File tier = Rollups.sidecar(session, 1);
+        long length = tier.length();
+        long records = rollupRecords(tier);
+        assertTrue(records > 0);
+        append(tier, new byte[RollupWriter.recordSize(Channel.COUNT) / 2]);
+
+        rollups = new Rollups(session, BufferedLogWriter.FlushPolicy.bulk(), true);
+        assertEquals(length, tier.length());
+        for (int i = ROWS; i < 2 * ROWS; i++) {
+            fill(values, i);
+            rollups.add(START_MS + i * STEP_MS, Channel.ALL_MASK, values);
+        }
+        rollups.close();
+
+        // 续写的桶紧接在原来的记录之后，按时间有序
+        RollupRows rows = new RollupRows(1000);
+        try (RollupReader reader = new RollupReader(tier)) {
+            assertTrue(reader.records() > records);
+            reader.read(Long.MIN_VALUE, Long.MAX_VALUE, rows);
+        }
+        for (int i = 1; i < rows.size(); i++) {
+            assertTrue(rows.startMillis(i) > rows.startMillis(i - 1));
+        }
+    }
+
+    // 写入ROWS行并在最后留下检查点，模拟进程在正常结束前被杀
+    private File write(File directory, SessionFormat format) throws IOException {
+        return write(directory, format, ROWS);
+    }
+
+    // 检查点在前checkpointRows行之后，之后的行只在文件中
+    private File write(File directory, SessionFormat format, int checkpointRows) throws IOException {
+        File session = new File(directory, "session" + format.extension);
+        SparseTimeIndex.Writer index = new SparseTimeIndex.Writer(SparseTimeIndex.sidecar(session),
+            BufferedLogWriter.FlushPolicy.bulk(), 16);
+        // 压缩格式用小块，末尾的不完整块之前有多个完整的块
+        SessionWriter writer = format == SessionFormat.COMPRESSED
+            ? new CompressedSessionWriter(session, BufferedLogWriter.FlushPolicy.bulk(), 50, Long.MAX_VALUE, index)
+            : format.createWriter(session, BufferedLogWriter.FlushPolicy.bulk(), index);
+        SessionSummary summary = new SessionSummary(session.getName(), format);
+        float[] values = new float[Channel.COUNT];
+        summary.ticks = TICKS;
+        summary.latenessMaxNanos = LATENESS_MAX_NANOS;
+        for (int i = 0; i < ROWS; i++) {
+            fill(values, i);
+            writer.append(START_MS + i * STEP_MS, i * STEP_MS * 1_000_000L, values);
+            summary.add(START_MS + i * STEP_MS, Channel.ALL_MASK, values);
+            if (i == checkpointRows - 1) {
+                summary.finish(writer.position());
+                SessionRecovery.checkpoint(directory, summary);
+            }
+        }
+        writer.close();
+        return session;
+    }
+
+    private static SessionRecovery.Result recover(File directory, File session, SessionFormat format)
+            throws IOException {
+        SessionRecovery.Result result = SessionRecovery.recover(directory);
+        assertNotNull(result);
+        assertEquals(session, result.session);
+        assertEquals(format, result.format);
+        assertEquals(session.length(), result.validBytes);
+        return result;
+    }
+
+    private static byte[] blockHeader(int count, int payload, long firstMillis, long lastMillis) {
+        return ByteBuffer.allocate(CompressedSessionWriter.BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(CompressedSessionWriter.BLOCK_MAGIC)
+            .putInt(count)
+            .putInt(payload)
+            .putLong(firstMillis)
+            .putLong(lastMillis)
+            .array();
+    }
+
+    private static long rollupRecords(File file) throws IOException {
+        try (RollupReader reader = new RollupReader(file)) {
+            return reader.records();
+        }
+    }
+
+    // 摘要与前rows行一致，检查点中的时间统计保留
+    private static void assertSummaryCovers(String message, SessionSummary summary, int rows) {
+        SessionSummary expected = new SessionSummary(summary.fileName, summary.format);
+        float[] values = new float[Channel.COUNT];
+        for (int i = 0; i < rows; i++) {
+            fill(values, i);
+            expected.add(START_MS + i * STEP_MS, Channel.ALL_MASK, values);
+        }
+        expected.finish(0);
+        summary.finish(0);
+        assertEquals(message, rows, summary.sampleCount);
+        assertEquals(message, START_MS, summary.startMillis);
+        assertEquals(message, START_MS + (rows - 1) * STEP_MS, summary.endMillis);
+        assertArrayEquals(message, expected.counts, summary.counts);
+        assertArrayEquals(message, expected.min, summary.min, 0f);
+        assertArrayEquals(message, expected.max, summary.max, 0f);
+        assertArrayEquals(message, expected.mean, summary.mean, 1e-3f);
+        assertEquals(message, TICKS, summary.ticks);
+        assertEquals(message, LATENESS_MAX_NANOS, summary.latenessMaxNanos);
+    }
+
+    // 逐行核对内容(第i行为fill(i))，返回读出的行数
+    private static int countMatchingRows(File session, SessionFormat format) throws IOException {
+        float[] values = new float[Channel.COUNT];
+        float[] expected = new float[Channel.COUNT];
+        int rows = 0;
+        try (SessionReader reader = format.openReader(session)) {
+            while (reader.next(values)) {
+                assertEquals((START_MS + rows * STEP_MS) * 1_000_000L, reader.timestampNanos());
+                fill(expected, rows);
+                assertArrayEquals(expected, values, 1e-3f);
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.systemlogger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 会话摘要: 从检查点恢复后继续累计，稀疏通道的平均值与不中断时一致，
+ * 调度时间统计包含重启前的部分
+ */
+public class SessionSummaryTest {
+
+    private static final int SLOW_EVERY = 10;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void sparseChannelMeanSurvivesCheckpoint() throws Exception {
+        SessionSummary uninterrupted = new SessionSummary("session.csv", SessionFormat.CSV);
+        SessionSummary beforeKill = new SessionSummary("session.csv", SessionFormat.CSV);
+        for (int i = 0; i < 1000; i++) {
+            add(uninterrupted, i);
+            add(beforeKill, i);
+        }
+        beforeKill.finish(1234);
+        File marker = new File(temp.getRoot(), SessionRecovery.MARKER);
+        SessionCatalog.writeSnapshot(marker, beforeKill);
+
+        SessionSummary resumed = SessionCatalog.readSnapshot(marker);
+        assertArrayEquals(beforeKill.counts, resumed.counts);
+        resumed.restoreAccumulators();
+        for (int i = 1000; i < 3000; i++) {
+            add(uninterrupted, i);
+            add(resumed, i);
+        }
+        uninterrupted.finish(5678);
+        resumed.finish(5678);
+
+        assertEquals(3000, resumed.sampleCount);
+        assertArrayEquals(uninterrupted.counts, resumed.counts);
+        assertEquals(3000 / SLOW_EVERY, resumed.counts[Channel.BATTERY_LEVEL.ordinal()]);
+        for (Channel channel : Channel.ALL) {
+            int ch = channel.ordinal();
+            assertEquals(channel.name(), uninterrupted.mean[ch], resumed.mean[ch], 1e-3f);
+            assertEquals(uninterrupted.min[ch], resumed.min[ch], 0f);
+            assertEquals(uninterrupted.max[ch], resumed.max[ch], 0f);
+        }
+    }
+
+    @Test
+    public void moveToKeepsChannelCounts() {
+        SessionSummary summary = new SessionSummary("session.csv", SessionFormat.CSV);
+        for (int i = 0; i < 100; i++) {
+            add(summary, i);
+        }
+        summary.finish(100);
+        SessionSummary moved = summary.moveTo("session.slgz", SessionFormat.COMPRESSED, 10);
+        assertArrayEquals(summary.counts, moved.counts);
+        assertArrayEquals(summary.mean, moved.mean, 0f);
+        assertEquals(10, moved.fileBytes);
+    }
+
+    @Test
+    public void resumedSamplingStatsKeepTimingFromBeforeRestart() {
+        SessionSummary summary = new SessionSummary("session.csv", SessionFormat.CSV);
+        SamplingStats beforeKill = new SamplingStats();
+        beforeKill.reset(0);
+        for (int i = 0; i < 100; i++) {
+            beforeKill.onTick(i * 1_000_000L, i * 1_000_000L + (i == 50 ? 8_000_000 : 20_000), 3);
+        }
+        beforeKill.copyTo(summary);
+        assertEquals(3, summary.missedDeadlines);
+
+        // 重启后错过次数从调度器的新计数开始
+        SamplingStats resumed = new SamplingStats();
+        resumed.resume(summary, 10);
+        for (int i = 0; i < 40; i++) {
+            resumed.onTick(i * 1_000_000L, i * 1_000_000L + 50_000, 11);
+        }
+        resumed.copyTo(summary);
+        assertEquals(140, summary.ticks);
+        assertEquals(4, summary.missedDeadlines);
+        assertEquals(8_000_000, summary.latenessMaxNanos);
+        // 检查点可以重复写入，不会重复累计
+        resumed.copyTo(summary);
+        assertEquals(140, summary.ticks);
+    }
+
+    @Test
+    public void resumedPercentilesCoverTheWholeSegment() throws Exception {
+        SessionSummary summary = new SessionSummary("session.csv", SessionFormat.CSV);
+        SamplingStats beforeKill = new SamplingStats();
+        beforeKill.reset(0);
+        for (int i = 0; i < 100; i++) {
+            beforeKill.onTick(i * 1_000_000L, i * 1_000_000L + 20_000, 0);
+        }
+        beforeKill.copyTo(summary);
+        File marker = new File(temp.getRoot(), SessionRecovery.MARKER);
+        SessionCatalog.writeSnapshot(marker, summary);
+        SessionSummary checkpoint = SessionCatalog.readSnapshot(marker);
+        assertArrayEquals(summary.latenessBuckets, checkpoint.latenessBuckets);
+        assertArrayEquals(summary.jitterBuckets, checkpoint.jitterBuckets);
+
+        SamplingStats resumed = new SamplingStats();
+        resumed.resume(checkpoint, 0);
+        for (int i = 0; i < 100; i++) {
+            resumed.onTick(i * 1_000_000L, i * 1_000_000L + 5_000_000, 0);
+        }
+        resumed.copyTo(checkpoint);
+        assertEquals(200, checkpoint.ticks);
+        // 一半的tick只迟到20微秒(≤32微秒的桶)，中位数不取两段中较大的那个
+        assertEquals(32_000, checkpoint.latenessP50Nanos);
+        assertEquals(5_000_000, checkpoint.latenessP99Nanos);
+        assertEquals(200, Arrays.stream(checkpoint.latenessBuckets).sum());
+    }
+
+    @Test
+    public void resumedStatsFromOldCheckpointKeepUpperBounds() {
+        SessionSummary summary = new SessionSummary("session.csv", SessionFormat.CSV);
+        SamplingStats beforeKill = new SamplingStats();
+        beforeKill.reset(0);
+        for (int i = 0; i < 100; i++) {
+            beforeKill.onTick(i * 1_000_000L, i * 1_000_000L + 5_000_000, 0);
+        }
+        beforeKill.copyTo(summary);
+        // 旧版本的检查点没有直方图桶计数
+        Arrays.fill(summary.latenessBuckets, 0);
+        Arrays.fill(summary.jitterBuckets, 0);
+
+        SamplingStats resumed = new SamplingStats();
+        resumed.resume(summary, 0);
+        for (int i = 0; i < 100; i++) {
+            resumed.onTick(i * 1_000_000L, i * 1_000_000L + 20_000, 0);
+        }
+        resumed.copyTo(summary);
+        assertEquals(200, summary.ticks);
+        assertEquals(5_000_000, summary.latenessP50Nanos);
+        assertEquals(5_000_000, summary.latenessMaxNanos);
+    }
+
+    // 温度每个样本都有，电量每10个样本一次，且数值远离温度(平均值按总样本数加权时明显偏低)
+    private static void add(SessionSummary summary, int i) {
+        float[] values = new float[Channel.COUNT];
+        int mask = 0;
+        for (Channel channel : Channel.ALL) {
+            boolean slow = channel == Channel.BATTERY_LEVEL || channel == Channel.BRIGHTNESS;
+            if (slow && i % SLOW_EVERY != 0) {
+                values[channel.ordinal()] = Float.NaN;
+                continue;
+            }
+            values[channel.ordinal()] = slow ? 50 + i % 50 : 40 + (i % 7) / 10f;
+            mask |= channel.mask();
+        }
+        summary.add(1_700_000_000_000L + i * 1000L, mask, values);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.systemlogger;
+
+import static com.example.systemlogger.SessionFixtures.fill;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 会话写入器: 采样线程追加的同时其他线程调用flush()(导出、内存紧张)，文件内容不受影响；
+ * 没有新样本时flushIfDue()按时提交；单调时钟随样本写入，旧版本的文件仍可读取
+ */
+public class SessionWriterTest {
+
+    private static final int ROWS = 50_000;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void csvFlushFromAnotherThread() throws Exception {
+        appendWhileFlushing(SessionFormat.CSV);
+    }
+
+    @Test
+    public void binaryFlushFromAnotherThread() throws Exception {
+        appendWhileFlushing(SessionFormat.BINARY);
+    }
+
+    @Test
+    public void compressedFlushFromAnotherThread() throws Exception {
+        appendWhileFlushing(SessionFormat.COMPRESSED);
+    }
+
+    @Test
+    public void flushIfDueCommitsWithoutANextAppend() throws Exception {
+        File file = new File(temp.getRoot(), "session.slog");
+        BufferedLogWriter.FlushPolicy policy = new BufferedLogWriter.FlushPolicy(1000, 300,
+            BufferedLogWriter.Durability.BUFFERED);
+        float[] values = new float[Channel.COUNT];
+        fill(values, 0);
+        try (SessionWriter writer = SessionFormat.BINARY.createWriter(file, policy)) {
+            writer.flush();
+            long header = file.length();
+            writer.append(1_700_000_000_000L, elapsedNanos(0), values);
+            writer.flushIfDue();
+            assertEquals(header, file.length());
+
+            Thread.sleep(400);
+            writer.flushIfDue();
+            assertEquals(header + BinarySessionWriter.recordSize(Channel.COUNT), file.length());
+        }
+    }
+
+    @Test
+    public void csvWithoutElapsedColumnReadsZero() throws Exception {
+        File file = new File(temp.getRoot(), "session.csv");
+        float[] values = new float[Channel.COUNT];
+        try (SessionWriter writer = SessionFormat.CSV.createWriter(file, BufferedLogWriter.FlushPolicy.bulk())) {
+            fill(values, 1);
+            writer.append(1_700_000_000_000L, elapsedNanos(1), values);
+        }
+        try (CsvSessionReader reader = new CsvSessionReader(file)) {
+            assertFalse(reader.hasElapsedColumn());
+            assertTrue(reader.next(values));
+            assertEquals(0, reader.elapsedNanos());
+        }
+    }
+
+    @Test
+    public void csvResumeKeepsElapsedColumn() throws Exception {
+        File file = new File(temp.getRoot(), "session.csv");
+        float[] values = new float[Channel.COUNT];
+        try (SessionWriter writer = SessionFormat.CSV.createWriter(file, BufferedLogWriter.FlushPolicy.bulk(),
+                null, true)) {
+            fill(values, 0);
+            writer.append(1_700_000_000_000L, elapsedNanos(0), values);
+        }
+        try (SessionWriter writer = SessionFormat.CSV.resumeWriter(file, BufferedLogWriter.FlushPolicy.bulk(), null)) {
+            fill(values, 1);
+            writer.append(1_700_000_000_001L, elapsedNanos(1), values);
+        }
+        try (CsvSessionReader reader = new CsvSessionReader(file)) {
+            assertTrue(reader.hasElapsedColumn());
+            for (int row = 0; row < 2; row++) {
+                assertTrue(reader.next(values));
+                assertEquals(elapsedNanos(row), reader.elapsedNanos());
+            }
+            assertFalse(reader.next(values));
+        }
+    }
+
+    @Test
+    public void binaryVersion1IsReadableButNotResumed() throws Exception {
+        File file = new File(temp.getRoot(), "session.slog");
+        int rows = 10;
+        try (BufferedLogWriter writer = new BufferedLogWriter(file, false, BufferedLogWriter.FlushPolicy.bulk())) {
+            SessionFileReader.writeHeader(writer, BinarySessionWriter.MAGIC, 1,
+                BinarySessionWriter.recordSize(1, Channel.COUNT));
+            float[] values = new float[Channel.COUNT];
+            for (int i = 0; i < rows; i++) {
+                fill(values, i);
+                writer.putLong((1_700_000_000_000L + i) * 1_000_000L);
+                for (Channel channel : Channel.ALL) {
+                    writer.putInt(channel.toBits(values[channel.ordinal()]));
+                }
+                writer.endRecord();
+            }
+        }
+        float[] values = new float[Channel.COUNT];
+        float[] row = new float[Channel.COUNT];
+        try (SessionReader reader = SessionFormat.BINARY.openReader(file)) {
+            for (int i = 0; i < rows; i++) {
+                assertTrue(reader.next(values));
+                fill(row, i);
+                assertEquals((1_700_000_000_000L + i) * 1_000_000L, reader.timestampNanos());
+                assertEquals(0, reader.elapsedNanos());
+                for (int ch = 0; ch < Channel.COUNT; ch++) {
+                    assertEquals(row[ch], values[ch], 0f);
+                }
+            }
+            assertFalse(reader.next(values));
+        }
+        try {
+            BinarySessionWriter.resume(file, BufferedLogWriter.FlushPolicy.bulk(), null).close();
+            fail("resumed a version 1 session");
+        } catch (IOException expected) {
+            // 预期
+        }
+    }
+
+    private void appendWhileFlushing(SessionFormat format) throws Exception {
+        File file = new File(temp.getRoot(), "session" + format.extension);
+        SessionWriter writer = format.createWriter(file, BufferedLogWriter.FlushPolicy.bulk(),
+            new SparseTimeIndex.Writer(SparseTimeIndex.sidecar(file), BufferedLogWriter.FlushPolicy.bulk()), true);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread flusher = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    writer.flush();
+                    writer.position();
+                }
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        flusher.start();
+        float[] values = new float[Channel.COUNT];
+        try {
+            for (int i = 0; i < ROWS; i++) {
+                fill(values, i);
+                writer.append(1_700_000_000_000L + i, elapsedNanos(i), values);
+            }
+        } finally {
+            done.set(true);
+            flusher.join();
+            writer.close();
+        }
+        assertNull(failure.get());
+
+        float[] expected = new float[Channel.COUNT];
+        int rows = 0;
+        try (SessionReader reader = format.openReader(file)) {
+            while (reader.next(values)) {
+                fill(expected, rows);
+                assertEquals((1_700_000_000_000L + rows) * 1_000_000L, reader.timestampNanos());
+                assertEquals(elapsedNanos(rows), reader.elapsedNanos());
+                for (int ch = 0; ch < Channel.COUNT; ch++) {
+                    assertEquals("row " + rows, expected[ch], values[ch], 0f);
+                }
+                rows++;
+            }
+        }
+        assertEquals(ROWS, rows);
+    }
+
+    // 每毫秒一行，带几微秒的调度抖动
+    private static long elapsedNanos(int row) {
+        return 9_000_000_000L + row * 1_000_000L + row % 7 * 3_000L;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.systemlogger;
+
+import static com.example.systemlogger.SessionFixtures.append;
+import static com.example.systemlogger.SparseTimeIndex.ENTRY_SIZE;
+import static com.example.systemlogger.SparseTimeIndex.HEADER_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link SparseTimeIndex}: 条目间隔、二分定位、超出会话长度的条目在读取和截断时被忽略，
+ * 以及没有索引的会话扫描重建
+ */
+public class SparseTimeIndexTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void recordsOneEntryPerInterval() throws Exception {
+        File file = temp.newFile("session.csv.idx");
+        SparseTimeIndex.Writer writer = new SparseTimeIndex.Writer(file, BufferedLogWriter.FlushPolicy.bulk(), 4);
+        for (int i = 0; i < 10; i++) {
+            writer.record(1000L * i, 100L * i);
+        }
+        writer.close();
+        assertEquals(HEADER_SIZE + 3 * ENTRY_SIZE, file.length());
+
+        // 条目: (0, 0), (4000, 400), (8000, 800)
+        SparseTimeIndex index = SparseTimeIndex.load(file, Long.MAX_VALUE);
+        assertNotNull(index);
+        assertEquals(3, index.size());
+        assertEquals(-1, index.seekOffset(-1));
+        assertEquals(0, index.seekOffset(0));
+        assertEquals(0, index.seekOffset(3999));
+        assertEquals(400, index.seekOffset(4000));
+        assertEquals(400, index.seekOffset(7999));
+        assertEquals(800, index.seekOffset(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void loadIgnoresEntriesPastSessionLength() throws Exception {
+        File file = writeEntries(100, 200, 300, 400);
+        SparseTimeIndex index = SparseTimeIndex.load(file, 300);
+        assertNotNull(index);
+        // 偏移等于会话长度的条目也指向尚未提交的记录
+        assertEquals(2, index.size());
+        assertEquals(200, index.seekOffset(Long.MAX_VALUE));
+
+        assertEquals(0, SparseTimeIndex.load(file, 100).size());
+        assertEquals(-1, SparseTimeIndex.load(file, 100).seekOffset(Long.MAX_VALUE));
+        // 只读取，不修改索引文件
+        assertEquals(HEADER_SIZE + 4 * ENTRY_SIZE, file.length());
+    }
+
+    @Test
+    public void loadIgnoresPartialEntryAndRejectsBadHeader() throws Exception {
+        File file = writeEntries(100, 200);
+        append(file, new byte[ENTRY_SIZE - 1]);
+        assertEquals(2, SparseTimeIndex.load(file, Long.MAX_VALUE).size());
+
+        File bad = temp.newFile("bad.idx");
+        append(bad, new byte[HEADER_SIZE + ENTRY_SIZE]);
+        assertNull(SparseTimeIndex.load(bad, Long.MAX_VALUE));
+        File tooShort = temp.newFile("short.idx");
+        append(tooShort, new byte[HEADER_SIZE - 1]);
+        assertNull(SparseTimeIndex.load(tooShort, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void truncateDropsEntriesPastSessionLength() throws Exception {
+        File file = writeEntries(100, 200, 300, 400);
+        SparseTimeIndex.truncate(file, 301);
+        assertEquals(HEADER_SIZE + 3 * ENTRY_SIZE, file.length());
+        SparseTimeIndex.truncate(file, 300);
+        assertEquals(HEADER_SIZE + 2 * ENTRY_SIZE, file.length());
+        // 已经在长度以内时不变
+        SparseTimeIndex.truncate(file, 1000);
+        assertEquals(HEADER_SIZE + 2 * ENTRY_SIZE, file.length());
+        SparseTimeIndex.truncate(file, 0);
+        assertEquals(HEADER_SIZE, file.length());
+        assertEquals(0, SparseTimeIndex.load(file, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void truncateDropsPartialEntry() throws Exception {
+        File file = writeEntries(100, 200);
+        append(file, new byte[] { 1, 2, 3, 4, 5 });
+        SparseTimeIndex.truncate(file, Long.MAX_VALUE);
+        assertEquals(HEADER_SIZE + 2 * ENTRY_SIZE, file.length());
+
+        // 没有头部的文件和不存在的文件保持原样
+        File tooShort = temp.newFile("short.idx");
+        append(tooShort, new byte[5]);
+        SparseTimeIndex.truncate(tooShort, 0);
+        assertEquals(5, tooShort.length());
+        File missing = new File(temp.getRoot(), "missing.idx");
+        SparseTimeIndex.truncate(missing, 0);
+        assertFalse(missing.exists());
+    }
+
+    @Test
+    public void resumeAppendsAfterTruncatedEntries() throws Exception {
+        File file = writeEntries(100, 200, 300);
+        SparseTimeIndex.truncate(file, 250);
+        SparseTimeIndex.Writer writer = SparseTimeIndex.Writer.resume(file, BufferedLogWriter.FlushPolicy.bulk());
+        // 恢复后的第一条记录总是生成一个条目
+        writer.record(2500, 250);
+        writer.close();
+        SparseTimeIndex index = SparseTimeIndex.load(file, Long.MAX_VALUE);
+        assertEquals(3, index.size());
+        assertEquals(200, index.seekOffset(2499));
+        assertEquals(250, index.seekOffset(2500));
+
+        // 无效的索引文件重新创建
+        File bad = temp.newFile("bad.idx");
+        append(bad, new byte[HEADER_SIZE + ENTRY_SIZE]);
+        writer = SparseTimeIndex.Writer.resume(bad, BufferedLogWriter.FlushPolicy.bulk());
+        writer.record(1000, 100);
+        writer.close();
+        assertEquals(HEADER_SIZE + ENTRY_SIZE, bad.length());
+        assertEquals(100, SparseTimeIndex.load(bad, Long.MAX_VALUE).seekOffset(1000));
+    }
+
+    @Test
+    public void resumeKeepsIntervalFromHeader() throws Exception {
+        File file = temp.newFile("session.csv.idx");
+        SparseTimeIndex.Writer writer = new SparseTimeIndex.Writer(file, BufferedLogWriter.FlushPolicy.bulk(), 4);
+        for (int i = 0; i < 8; i++) {
+            writer.record(1000L * i, 100L * i);
+        }
+        writer.close();
+
+        writer = SparseTimeIndex.Writer.resume(file, BufferedLogWriter.FlushPolicy.bulk());
+        for (int i = 8; i < 16; i++) {
+            writer.record(1000L * i, 100L * i);
+        }
+        writer.close();
+        // 恢复前后都是每4条记录一个条目: 0, 4 | 8, 12
+        SparseTimeIndex index = SparseTimeIndex.load(file, Long.MAX_VALUE);
+        assertEquals(4, index.size());
+        assertEquals(1200, index.seekOffset(Long.MAX_VALUE));
+        assertEquals(800, index.seekOffset(11_999));
+    }
+
+    @Test
+    public void openRebuildsMissingIndex() throws Exception {
+        File session = new File(temp.getRoot(), "session.slog");
+        int rows = 1000;
+        long start = 1_700_000_000_000L;
+        float[] values = new float[Channel.COUNT];
+        try (BinarySessionWriter writer = new BinarySessionWriter(session, BufferedLogWriter.FlushPolicy.bulk())) {
+            for (int i = 0; i < rows; i++) {
+                values[Channel.BATTERY_LEVEL.ordinal()] = i;
+                writer.append(start + i * 1000L, i * 1_000_000_000L, values);
+            }
+        }
+        File indexFile = SparseTimeIndex.sidecar(session);
+        assertFalse(indexFile.exists());
+
+        SparseTimeIndex index = SparseTimeIndex.open(session, SessionFormat.BINARY);
+        assertTrue(indexFile.exists());
+        int interval = SparseTimeIndex.DEFAULT_INTERVAL;
+        assertEquals((rows + interval - 1) / interval, index.size());
+        assertEquals(index.size(), SparseTimeIndex.load(indexFile, session.length()).size());
+
+        // 定位到第600行之前最近的条目(第512行)，从那里读到第600行
+        long offset = index.seekOffset(start + 600 * 1000L);
+        try (BinarySessionReader reader = new BinarySessionReader(session)) {
+            assertEquals(reader.dataOffset() + 2L * interval * reader.recordSize(), offset);
+            reader.seek(offset);
+            assertTrue(reader.next(values));
+            assertEquals((start + 2L * interval * 1000L) * 1_000_000L, reader.timestampNanos());
+            assertEquals(2 * interval, values[Channel.BATTERY_LEVEL.ordinal()], 0f);
+        }
+
+        // 第二次直接读取重建的索引文件
+        long modified = indexFile.lastModified();
+        assertEquals(index.size(), SparseTimeIndex.open(session, SessionFormat.BINARY).size());
+        assertEquals(modified, indexFile.lastModified());
+    }
+
+    // 每个偏移一个条目，时间戳为偏移的10倍
+    private File writeEntries(long... offsets) throws IOException {
+        File file = temp.newFile();
+        SparseTimeIndex.Writer writer = new SparseTimeIndex.Writer(file, BufferedLogWriter.FlushPolicy.bulk());
+        for (long offset : offsets) {
+            writer.mark(offset * 10, offset);
+        }
+        writer.close();
+        assertEquals(HEADER_SIZE + offsets.length * ENTRY_SIZE, file.length());
+        return file;
+    }
+}
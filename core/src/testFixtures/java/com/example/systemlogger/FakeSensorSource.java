@@ -0,0 +1,97 @@
+package com.example.systemlogger;
+
+/**
+ * 可控的模拟数据源，用于在JVM上以kHz频率驱动采样流水线
+ *
+ * 每个通道输出确定性的缓慢变化信号(正弦 + 0.1步进的小幅抖动)，
+ * 可以模拟每次探测的耗时(忙等，近似binder调用/文件读取)和周期性失败，
+ * 以覆盖并行探测、超时和健康状态切换的路径。
+ * 基准测试、压测和单元测试共用(core模块的test fixtures)。
+ */
+public class FakeSensorSource implements SensorSource {
+
+    private final String name;
+    private final int channels;
+    private final long costNanos;
+    private int failEvery;
+    private volatile long calls;
+    private volatile boolean closed;
+
+    /**
+     * @param channels 提供的通道掩码
+     * @param costNanos 每次探测的耗时(忙等)，0表示立即返回
+     */
+    public FakeSensorSource(String name, int channels, long costNanos) {
+        this.name = name;
+        this.channels = channels;
+        this.costNanos = costNanos;
+    }
+
+    /**
+     * 每n次探测失败一次(返回0)，0表示不失败
+     */
+    public FakeSensorSource failEvery(int n) {
+        this.failEvery = n;
+        return this;
+    }
+
+    /** 已探测的次数(包括失败的) */
+    public long calls() {
+        return calls;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int open() {
+        return channels;
+    }
+
+    @Override
+    public int sample(float[] out, int wanted) {
+        long n = ++calls;
+        if (costNanos > 0) {
+            long until = System.nanoTime() + costNanos;
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        }
+        if (failEvery > 0 && n % failEvery == 0) {
+            return 0;
+        }
+        int filled = wanted & channels;
+        for (Channel channel : Channel.ALL) {
+            if ((filled & channel.mask()) != 0) {
+                out[channel.ordinal()] = value(channel, n);
+            }
+        }
+        return filled;
+    }
+
+    private static float value(Channel channel, long n) {
+        double phase = n / 5000.0 + channel.ordinal();
+        float jitter = ((n * 31 + channel.ordinal()) % 3 - 1) * 0.1f;
+        switch (channel) {
+            case BATTERY_LEVEL:
+                return 100 - (n / 60_000) % 100;
+            case CURRENT:
+                return Math.round(-550 + 250 * Math.sin(phase * 7));
+            case BRIGHTNESS:
+                return (n / 10_000) % 256;
+            default:
+                return (float) (40 + 5 * Math.sin(phase)) + jitter;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
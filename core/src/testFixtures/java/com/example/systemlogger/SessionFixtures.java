@@ -0,0 +1,45 @@
+package com.example.systemlogger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 会话文件相关测试共用的辅助方法: 确定性的样本值、模拟写了一半的尾部、数记录数
+ */
+public final class SessionFixtures {
+
+    private SessionFixtures() {}
+
+    /**
+     * 第row行的通道值: 整数通道为行号，浮点通道在30-49之间循环(都能被float精确表示)
+     */
+    public static void fill(float[] values, int row) {
+        for (Channel channel : Channel.ALL) {
+            values[channel.ordinal()] = channel.type == Channel.Type.INT ? row : 30 + row % 20;
+        }
+    }
+
+    /**
+     * 在文件末尾追加原始字节(例如进程被杀时写了一半的记录)
+     */
+    public static void append(File file, byte[] bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * 会话文件中能完整读出的记录数
+     */
+    public static int countRows(SessionFormat format, File file) throws IOException {
+        float[] values = new float[Channel.COUNT];
+        int rows = 0;
+        try (SessionReader reader = format.openReader(file)) {
+            while (reader.next(values)) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}